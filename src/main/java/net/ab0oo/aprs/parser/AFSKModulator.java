@@ -0,0 +1,490 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p>AFSKModulator class.</p>
+ *
+ * Turns AX.25 frames (as produced by {@link APRSPacket#toAX25Frame()}) into Bell 202 AFSK audio,
+ * the way a TNC would put them on the air:  HDLC flags, FCS, bit stuffing, NRZI and
+ * phase-continuous 1200/2200 Hz tones.  Synthesis is driven entirely from precomputed
+ * wavetables, so it is cheap enough to generate hours of test audio for decoder benchmarks.
+ * Noise is taken from a seeded table, so the same settings always produce the same samples.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class AFSKModulator {
+    /**
+     * AFSK1200 baud rate
+     */
+    public static final int BAUD = 1200;
+    /**
+     * HDLC flag byte, sent before and after every frame
+     */
+    public static final int HDLC_FLAG = 0x7E;
+    /**
+     * wavetable size, as a power of two
+     */
+    private static final int TABLE_BITS = 12;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final int TABLE_SHIFT = 32 - TABLE_BITS;
+    /**
+     * size of the pre-generated gaussian noise table, as a power of two
+     */
+    private static final int NOISE_BITS = 16;
+    private static final int NOISE_SIZE = 1 << NOISE_BITS;
+
+    /**
+     * samples per second of the generated audio
+     */
+    private final int sampleRate;
+    /**
+     * mark tone (binary 1), in Hz
+     */
+    private double markFrequency = 1200.0;
+    /**
+     * space tone (binary 0), in Hz
+     */
+    private double spaceFrequency = 2200.0;
+    /**
+     * peak level of the mark tone, 0.0 - 1.0 of full scale.  On FM this is what sets deviation.
+     */
+    private double amplitude = 0.5;
+    /**
+     * level of the space tone relative to the mark tone, in dB (pre-emphasis / de-emphasis twist)
+     */
+    private double twist = 0.0;
+    /**
+     * standard deviation of the added gaussian noise, 0.0 - 1.0 of full scale
+     */
+    private double noiseLevel = 0.0;
+    /**
+     * seed for the noise generator
+     */
+    private long seed = 0x41505253L;
+    /**
+     * number of HDLC flags sent ahead of the frame (TX delay)
+     */
+    private int preambleFlags = 32;
+    /**
+     * number of HDLC flags sent after the frame (TX tail)
+     */
+    private int postambleFlags = 3;
+
+    private short[] markTable;
+    private short[] spaceTable;
+    private short[] noiseTable;
+    private int markIncrement;
+    private int spaceIncrement;
+    private int noiseState;
+
+    /**
+     * <p>Constructor for AFSKModulator.</p>
+     *
+     * @param sampleRate audio sample rate, in Hz (8000, 22050, 44100, 48000...)
+     */
+    public AFSKModulator(int sampleRate) {
+        if (sampleRate < 2 * BAUD) {
+            throw new IllegalArgumentException("Sample rate " + sampleRate + " is too low for AFSK1200");
+        }
+        this.sampleRate = sampleRate;
+        rebuildTables();
+    }
+
+    /**
+     * <p>crc16.</p>
+     *
+     * @param data frame bytes
+     * @param offset first byte of the frame
+     * @param length number of bytes in the frame
+     * @return int the AX.25 frame check sequence (CRC-16/X.25) of the given bytes
+     */
+    public static int crc16(byte[] data, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset; i < offset + length; i++) {
+            crc ^= data[i] & 0xFF;
+            for (int b = 0; b < 8; b++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x8408 : crc >>> 1;
+            }
+        }
+        return ~crc & 0xFFFF;
+    }
+
+    /**
+     * <p>encodeBits.</p>
+     *
+     * @param frame an AX.25 frame, without flags or FCS
+     * @return boolean[] the tone to send for every bit period, true for mark, after HDLC framing,
+     * bit stuffing and NRZI encoding
+     */
+    public boolean[] encodeBits(byte[] frame) {
+        int fcs = crc16(frame, 0, frame.length);
+        // worst case, every fifth bit gets a stuffed zero
+        boolean[] tones = new boolean[(preambleFlags + postambleFlags) * 8 + (frame.length + 2) * 10];
+        boolean tone = true;
+        int n = 0;
+        for (int i = 0; i < preambleFlags; i++) {
+            for (int b = 0; b < 8; b++) {
+                if (((HDLC_FLAG >> b) & 1) == 0) tone = !tone;
+                tones[n++] = tone;
+            }
+        }
+        int ones = 0;
+        for (int i = 0; i < frame.length + 2; i++) {
+            int octet;
+            if (i < frame.length) {
+                octet = frame[i] & 0xFF;
+            } else if (i == frame.length) {
+                octet = fcs & 0xFF;
+            } else {
+                octet = fcs >>> 8;
+            }
+            for (int b = 0; b < 8; b++) {
+                if (((octet >> b) & 1) == 1) {
+                    tones[n++] = tone;
+                    if (++ones == 5) {
+                        tone = !tone;
+                        tones[n++] = tone;
+                        ones = 0;
+                    }
+                } else {
+                    tone = !tone;
+                    tones[n++] = tone;
+                    ones = 0;
+                }
+            }
+        }
+        for (int i = 0; i < postambleFlags; i++) {
+            for (int b = 0; b < 8; b++) {
+                if (((HDLC_FLAG >> b) & 1) == 0) tone = !tone;
+                tones[n++] = tone;
+            }
+        }
+        return Arrays.copyOf(tones, n);
+    }
+
+    /**
+     * <p>sampleCount.</p>
+     *
+     * @param bitCount number of bit periods to be sent
+     * @return int the number of audio samples needed for that many bits at this sample rate
+     */
+    public int sampleCount(int bitCount) {
+        return (int) (((long) bitCount * sampleRate + BAUD - 1) / BAUD);
+    }
+
+    /**
+     * <p>modulate.</p>
+     *
+     * @param frame an AX.25 frame, without flags or FCS
+     * @return short[] signed 16 bit mono samples for the complete transmission
+     */
+    public short[] modulate(byte[] frame) {
+        boolean[] tones = encodeBits(frame);
+        short[] out = new short[sampleCount(tones.length)];
+        modulate(tones, out, 0, 1);
+        return out;
+    }
+
+    /**
+     * <p>modulate.</p>
+     *
+     * @param packet the packet to transmit
+     * @return short[] signed 16 bit mono samples for the complete transmission
+     */
+    public short[] modulate(APRSPacket packet) {
+        return modulate(packet.toAX25Frame());
+    }
+
+    /**
+     * <p>modulate.</p>
+     *
+     * @param tones tone sequence from {@link #encodeBits(byte[])}
+     * @param out sample buffer to write into
+     * @param offset index of the first sample to write
+     * @param stride distance between consecutive samples, i.e. the channel count of interleaved audio
+     * @return int the number of samples written to the channel
+     */
+    public int modulate(boolean[] tones, short[] out, int offset, int stride) {
+        return render(tones, out, offset, stride, Integer.MAX_VALUE, new State());
+    }
+
+    /**
+     * <p>modulate.</p>
+     *
+     * @param frame an AX.25 frame, without flags or FCS
+     * @param pcm buffer receiving signed 16 bit little-endian PCM, starting at its current position
+     * @param channel which channel of interleaved audio to write, 0 based
+     * @param channels total number of interleaved channels in the buffer
+     * @return int the number of sample frames written; the buffer position is not moved, so several
+     * channels can be written into the same region
+     */
+    public int modulate(byte[] frame, ByteBuffer pcm, int channel, int channels) {
+        boolean[] tones = encodeBits(frame);
+        int count = sampleCount(tones.length);
+        int base = pcm.position() + channel * 2;
+        int step = channels * 2;
+        if (pcm.position() + count * step > pcm.limit()) {
+            throw new IllegalArgumentException("PCM buffer too small for " + count + " samples");
+        }
+        // render through a small scratch buffer so we never hold the whole frame as shorts
+        short[] chunk = new short[Math.min(count, 4096)];
+        State st = new State();
+        int done = 0;
+        while (done < count) {
+            int n = render(tones, chunk, 0, 1, Math.min(chunk.length, count - done), st);
+            if (n == 0) break;
+            for (int i = 0; i < n; i++) {
+                int at = base + (done + i) * step;
+                pcm.put(at, (byte) chunk[i]);
+                pcm.put(at + 1, (byte) (chunk[i] >> 8));
+            }
+            done += n;
+        }
+        return count;
+    }
+
+    /**
+     * carries the modulator position between chunks of one transmission
+     */
+    private static final class State {
+        int phase;
+        int bitClock;
+        int bit;
+    }
+
+    private int render(boolean[] tones, short[] out, int offset, int stride, int max, State st) {
+        final short[] noise = noiseTable;
+        int n = 0;
+        int idx = offset;
+        while (n < max && st.bit < tones.length) {
+            // run the bit period with a fixed table and phase increment
+            final boolean m = tones[st.bit];
+            final short[] table = m ? markTable : spaceTable;
+            final int inc = m ? markIncrement : spaceIncrement;
+            int phase = st.phase;
+            int bitClock = st.bitClock;
+            while (n < max && bitClock < sampleRate) {
+                int s = table[phase >>> TABLE_SHIFT];
+                if (noise != null) {
+                    s += noise[nextNoiseIndex()];
+                    if (s > Short.MAX_VALUE) s = Short.MAX_VALUE;
+                    else if (s < Short.MIN_VALUE) s = Short.MIN_VALUE;
+                }
+                out[idx] = (short) s;
+                idx += stride;
+                n++;
+                phase += inc;
+                bitClock += BAUD;
+            }
+            st.phase = phase;
+            if (bitClock >= sampleRate) {
+                bitClock -= sampleRate;
+                st.bit++;
+            }
+            st.bitClock = bitClock;
+        }
+        return n;
+    }
+
+    private int nextNoiseIndex() {
+        // xorshift32, cheap and reproducible
+        int x = noiseState;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        noiseState = x;
+        return x & (NOISE_SIZE - 1);
+    }
+
+    /**
+     * <p>writeWav.</p>
+     *
+     * @param out stream to write the WAV file to
+     * @param pcm signed 16 bit little-endian samples, from position to limit
+     * @param sampleRate sample rate of the audio
+     * @param channels number of interleaved channels
+     * @throws java.io.IOException if the stream cannot be written
+     */
+    public static void writeWav(OutputStream out, ByteBuffer pcm, int sampleRate, int channels) throws IOException {
+        int dataLength = pcm.remaining();
+        ByteBuffer header = ByteBuffer.allocate(44).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] { 'R', 'I', 'F', 'F' });
+        header.putInt(36 + dataLength);
+        header.put(new byte[] { 'W', 'A', 'V', 'E', 'f', 'm', 't', ' ' });
+        header.putInt(16);
+        header.putShort((short) 1); // PCM
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * channels * 2);
+        header.putShort((short) (channels * 2));
+        header.putShort((short) 16);
+        header.put(new byte[] { 'd', 'a', 't', 'a' });
+        header.putInt(dataLength);
+        out.write(header.array());
+        if (pcm.hasArray()) {
+            out.write(pcm.array(), pcm.arrayOffset() + pcm.position(), dataLength);
+        } else {
+            byte[] copy = new byte[8192];
+            ByteBuffer dup = pcm.duplicate();
+            while (dup.hasRemaining()) {
+                int n = Math.min(copy.length, dup.remaining());
+                dup.get(copy, 0, n);
+                out.write(copy, 0, n);
+            }
+        }
+    }
+
+    /**
+     * <p>writeWav.</p>
+     *
+     * @param out stream to write the WAV file to
+     * @param samples signed 16 bit samples
+     * @param sampleRate sample rate of the audio
+     * @param channels number of interleaved channels
+     * @throws java.io.IOException if the stream cannot be written
+     */
+    public static void writeWav(OutputStream out, short[] samples, int sampleRate, int channels) throws IOException {
+        ByteBuffer pcm = ByteBuffer.allocate(samples.length * 2).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+        pcm.asShortBuffer().put(samples);
+        writeWav(out, pcm, sampleRate, channels);
+    }
+
+    private void rebuildTables() {
+        double markPeak = amplitude * Short.MAX_VALUE;
+        double spacePeak = markPeak * Math.pow(10.0, twist / 20.0);
+        markTable = new short[TABLE_SIZE];
+        spaceTable = new short[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            double s = Math.sin(2.0 * Math.PI * i / TABLE_SIZE);
+            markTable[i] = clip(s * markPeak);
+            spaceTable[i] = clip(s * spacePeak);
+        }
+        markIncrement = phaseIncrement(markFrequency);
+        spaceIncrement = phaseIncrement(spaceFrequency);
+        if (noiseLevel > 0.0) {
+            Random r = new Random(seed);
+            noiseTable = new short[NOISE_SIZE];
+            for (int i = 0; i < NOISE_SIZE; i++) {
+                noiseTable[i] = clip(r.nextGaussian() * noiseLevel * Short.MAX_VALUE);
+            }
+        } else {
+            noiseTable = null;
+        }
+        noiseState = (int) (seed ^ (seed >>> 32)) | 1;
+    }
+
+    private int phaseIncrement(double frequency) {
+        return (int) Math.round(frequency / sampleRate * 4294967296.0);
+    }
+
+    private static short clip(double v) {
+        if (v > Short.MAX_VALUE) return Short.MAX_VALUE;
+        if (v < Short.MIN_VALUE) return Short.MIN_VALUE;
+        return (short) Math.round(v);
+    }
+
+    /**
+     * <p>Getter for the field <code>sampleRate</code>.</p>
+     *
+     * @return int sample rate in Hz
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * <p>setTones.</p>
+     *
+     * @param mark mark frequency in Hz, normally 1200
+     * @param space space frequency in Hz, normally 2200
+     */
+    public void setTones(double mark, double space) {
+        this.markFrequency = mark;
+        this.spaceFrequency = space;
+        rebuildTables();
+    }
+
+    /**
+     * <p>Setter for the field <code>amplitude</code>.</p>
+     *
+     * @param amplitude peak level of the mark tone, 0.0 - 1.0 of full scale
+     */
+    public void setAmplitude(double amplitude) {
+        this.amplitude = amplitude;
+        rebuildTables();
+    }
+
+    /**
+     * <p>Setter for the field <code>twist</code>.</p>
+     *
+     * @param twist level of the space tone relative to the mark tone, in dB
+     */
+    public void setTwist(double twist) {
+        this.twist = twist;
+        rebuildTables();
+    }
+
+    /**
+     * <p>Setter for the field <code>noiseLevel</code>.</p>
+     *
+     * @param noiseLevel standard deviation of the gaussian noise, 0.0 - 1.0 of full scale.  0 disables noise.
+     */
+    public void setNoiseLevel(double noiseLevel) {
+        this.noiseLevel = noiseLevel;
+        rebuildTables();
+    }
+
+    /**
+     * <p>Setter for the field <code>seed</code>.</p>
+     *
+     * @param seed seed for the noise generator.  Also resets the noise sequence.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        rebuildTables();
+    }
+
+    /**
+     * <p>Setter for the field <code>preambleFlags</code>.</p>
+     *
+     * @param preambleFlags number of flags sent before the frame
+     */
+    public void setPreambleFlags(int preambleFlags) {
+        this.preambleFlags = preambleFlags;
+    }
+
+    /**
+     * <p>Setter for the field <code>postambleFlags</code>.</p>
+     *
+     * @param postambleFlags number of flags sent after the frame
+     */
+    public void setPostambleFlags(int postambleFlags) {
+        this.postambleFlags = postambleFlags;
+    }
+}
@@ -20,6 +20,9 @@
  */
 package net.ab0oo.aprs.parser;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 /**
  * This abstract class is the base for all of the basic building blocks of APRS on air packets
  * it includes:
@@ -47,9 +50,19 @@ public abstract class APRSData implements java.io.Serializable, java.lang.Compar
     */
     private int lastCursorPosition = 0;
     /**
-     * original byte representation of this message
+     * packet buffer this data was decoded from.  Shared with the enclosing
+     * packet and never written to; the bytes belonging to this object are
+     * <code>rawOffset</code> .. <code>rawOffset + rawLength</code>
      */
     protected byte[] rawBytes;
+    /**
+     * start of this object's bytes within <code>rawBytes</code>
+     */
+    protected int rawOffset;
+    /**
+     * number of bytes belonging to this object
+     */
+    protected int rawLength;
     /**
      * flag indicating whether the station that created this APRS message can receive
      * APRS messages
@@ -65,9 +78,23 @@ public abstract class APRSData implements java.io.Serializable, java.lang.Compar
      */
 	private String faultReason = "";
     /**
-     * all characters after the set parsable APRSData fields are "comments"
+     * all characters after the set parsable APRSData fields are "comments".  When a comment
+     * range is set this starts out null and is filled in by {@link #getComment()}; the range
+     * is kept, so a reader that races the first decode just decodes it again.
+     */
+    protected volatile String comment;
+    /**
+     * set once this field is shared between packets; see {@link #freeze()}
+     */
+    private transient boolean frozen;
+    /**
+     * where the undecoded comment starts in <code>rawBytes</code>, or -1
      */
-    protected String comment;
+    private int commentOffset = -1;
+    /**
+     * length of the undecoded comment
+     */
+    private int commentLength;
     /**
      * used primarily for setting up unit tests
      */
@@ -76,11 +103,95 @@ public abstract class APRSData implements java.io.Serializable, java.lang.Compar
     /**
      * <p>Constructor for APRSData.</p>
      *
-     * @param msgBody an array of {@link byte} objects
+     * @param msgBody an array of {@link byte} objects; copied
      */
     public APRSData(byte[] msgBody) {
-        rawBytes = new byte[msgBody.length];
-        System.arraycopy(msgBody, 0, rawBytes, 0, msgBody.length);
+        this(msgBody.clone(), 0, msgBody.length);
+    }
+
+    /**
+     * <p>Constructor for APRSData.</p>
+     *
+     * The buffer is referenced, not copied, so callers must not modify it afterwards.
+     *
+     * @param buffer the packet buffer
+     * @param offset start of this object's bytes
+     * @param length number of bytes belonging to this object
+     */
+    protected APRSData(byte[] buffer, int offset, int length) {
+        setRawSlice(buffer, offset, length);
+    }
+
+    /**
+     * <p>setRawSlice.</p>
+     *
+     * Point this object at a slice of a shared packet buffer without copying it.
+     *
+     * @param buffer the packet buffer
+     * @param offset start of this object's bytes
+     * @param length number of bytes belonging to this object
+     */
+    protected final void setRawSlice(byte[] buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IllegalArgumentException("slice " + offset + "+" + length
+                    + " outside buffer of " + buffer.length);
+        }
+        this.rawBytes = buffer;
+        this.rawOffset = offset;
+        this.rawLength = length;
+    }
+
+    /**
+     * <p>setCommentRange.</p>
+     *
+     * Mark a range of <code>rawBytes</code> as this object's comment.  It is decoded
+     * the first time {@link #getComment()} is called, so packets whose comments are
+     * never read never pay for the String.
+     *
+     * @param offset first byte of the comment in the raw buffer
+     * @param length number of comment bytes
+     */
+    protected final void setCommentRange(int offset, int length) {
+        this.comment = null;
+        this.commentOffset = offset;
+        this.commentLength = length;
+    }
+
+    /**
+     * <p>Getter for the field <code>comment</code>.</p>
+     *
+     * @return String the free text following the parsed data, or null if there is none
+     */
+    public String getComment() {
+        String c = comment;
+        if (c == null && commentOffset >= 0) {
+            c = CommentDecoder.decode(rawBytes, commentOffset, commentLength);
+            comment = c;
+        }
+        return c;
+    }
+
+    /**
+     * <p>freeze.</p>
+     *
+     * Make this field read-only, so it can be shared between packets by the
+     * {@link ParsedBodyCache}.  Lazily decoded text is decoded now, and the public setters
+     * throw from here on.
+     */
+    void freeze() {
+        getComment();
+        frozen = true;
+    }
+
+    /**
+     * <p>checkWritable.</p>
+     *
+     * @throws java.lang.UnsupportedOperationException if this field is shared and read-only
+     */
+    protected final void checkWritable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("read-only: shared by the parsed-body cache");
+        }
     }
 
     
@@ -105,6 +216,7 @@ public abstract class APRSData implements java.io.Serializable, java.lang.Compar
      * parsing of this message body will start from this character position
      */
     public void setLastCursorPosition(int cp) {
+        checkWritable();
         this.lastCursorPosition = cp;
     }
 
@@ -113,12 +225,44 @@ public abstract class APRSData implements java.io.Serializable, java.lang.Compar
     @Override
     public abstract String toString();
 
+    /**
+     * <p>formatTo.</p>
+     *
+     * Write the same text as {@link #toString()}.  The built-in fields write straight into
+     * the builder; this default, for fields that only implement toString, appends that.
+     *
+     * @param sb builder to append to
+     */
+    public void formatTo(StringBuilder sb) {
+        sb.append(toString());
+    }
+
+    /**
+     * <p>formatTo.</p>
+     *
+     * A field is mostly numbers, which Appendable cannot take, so it is formatted into a
+     * builder and written to <code>out</code> from there, without making a String.
+     *
+     * @param out where to write the same text as {@link #toString()}
+     * @throws java.io.IOException if <code>out</code> fails
+     */
+    public void formatTo(Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            formatTo((StringBuilder) out);
+            return;
+        }
+        StringBuilder scratch = new StringBuilder(128);
+        formatTo(scratch);
+        Formatting.drain(scratch, out);
+    }
+
     /**
      * <p>Setter for the field <code>type</code>.</p>
      *
      * @param type a {@link net.ab0oo.aprs.parser.APRSTypes} object
      */
     public void setType( APRSTypes type ) {
+        checkWritable();
         this.type = type;
     }
 
@@ -137,6 +281,7 @@ public abstract class APRSData implements java.io.Serializable, java.lang.Compar
      * @param _faulted boolean
      */
     public final void setHasFault(boolean _faulted) {
+        checkWritable();
         this.hasFault = _faulted;
     }
 
@@ -147,6 +292,7 @@ public abstract class APRSData implements java.io.Serializable, java.lang.Compar
 	 * This string is set to give the upstream components some clue as to why this packet failed to parse
 	 */
 	public final void setFaultReason(String reason) {
+		checkWritable();
 		this.faultReason = reason;
 	}
 
@@ -174,10 +320,23 @@ public abstract class APRSData implements java.io.Serializable, java.lang.Compar
      *
      * @return byte[] the raw bytes handed to this object
      * All messages start as rawBytes, and the raw bytes of the message are passed around
-     * for good measure.
+     * for good measure.  The packet buffer is shared with the other fields of the packet,
+     * so the bytes are copied out here, and only callers that ask for them pay for the copy.
      */
     public byte[] getRawBytes() {
-        return rawBytes;
+        if (rawBytes == null) {
+            return null;
+        }
+        return Arrays.copyOfRange(rawBytes, rawOffset, rawOffset + rawLength);
+    }
+
+    /**
+     * <p>Getter for the field <code>rawLength</code>.</p>
+     *
+     * @return int number of raw bytes belonging to this object, without copying them
+     */
+    public int getRawLength() {
+        return rawBytes == null ? 0 : rawLength;
     }
 
     /**
@@ -187,7 +346,14 @@ public abstract class APRSData implements java.io.Serializable, java.lang.Compar
      * set by the inbound message
      */
     public void setRawBytes(byte[] rawBytes) {
-        this.rawBytes = rawBytes;
+        checkWritable();
+        if (rawBytes == null) {
+            this.rawBytes = null;
+            this.rawOffset = 0;
+            this.rawLength = 0;
+        } else {
+            setRawSlice(rawBytes, 0, rawBytes.length);
+        }
     }
 
     /** {@inheritDoc} */
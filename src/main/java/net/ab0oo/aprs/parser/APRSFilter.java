@@ -0,0 +1,677 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>APRSFilter class.</p>
+ *
+ * An APRS-IS server-side filter, as described at http://www.aprs-is.net/javAPRSFilter.aspx.
+ * The filter string is compiled once into a list of small predicate objects; testing a packet
+ * only looks at fields the parser already decoded (DTI, position, path, object name...) and
+ * compares primitives, so a full client filter costs nanoseconds per packet.
+ *
+ * Supported terms:  r/ range, p/ prefix, b/ budlist, o/ object, t/ type, s/ symbol, d/ digi,
+ * a/ area, e/ entry, q/ q-construct, m/ my range, f/ friend range, g/ group, u/ unproto.
+ * A term prefixed with '-' excludes matching packets, even if another term includes them.
+ * Distances are in kilometers, as on APRS-IS.  m/, f/ and t/.../call/dist need a
+ * {@link StationLocator} to find the stations they are relative to.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class APRSFilter {
+    /**
+     * mean earth radius, in km
+     */
+    static final double EARTH_RADIUS_KM = GeoKernels.EARTH_RADIUS_KM;
+
+    static final int TYPE_POSITION = 1;
+    static final int TYPE_OBJECT = 1 << 1;
+    static final int TYPE_ITEM = 1 << 2;
+    static final int TYPE_MESSAGE = 1 << 3;
+    static final int TYPE_QUERY = 1 << 4;
+    static final int TYPE_STATUS = 1 << 5;
+    static final int TYPE_TELEMETRY = 1 << 6;
+    static final int TYPE_USERDEF = 1 << 7;
+    static final int TYPE_NWS = 1 << 8;
+    static final int TYPE_WEATHER = 1 << 9;
+
+    private final String spec;
+    private final Term[] includes;
+    private final Term[] excludes;
+
+    private APRSFilter(String spec, List<Term> includes, List<Term> excludes) {
+        this.spec = spec;
+        this.includes = includes.toArray(new Term[0]);
+        this.excludes = excludes.toArray(new Term[0]);
+    }
+
+    /**
+     * <p>compile.</p>
+     *
+     * @param spec filter string, e.g. "r/33.25/-96.5/50 t/m -p/CW"
+     * @return APRSFilter compiled filter
+     * @throws java.lang.IllegalArgumentException if a term can not be parsed
+     */
+    public static APRSFilter compile(String spec) throws IllegalArgumentException {
+        return compile(spec, null, null);
+    }
+
+    /**
+     * <p>compile.</p>
+     *
+     * @param spec filter string, e.g. "m/50 b/N0CALL*"
+     * @param myCall callsign of the client owning this filter, used by m/
+     * @param locator looks up station positions for m/, f/ and t/ with a range; may be null
+     * @return APRSFilter compiled filter
+     * @throws java.lang.IllegalArgumentException if a term can not be parsed
+     */
+    public static APRSFilter compile(String spec, String myCall, StationLocator locator)
+            throws IllegalArgumentException {
+        List<Term> inc = new ArrayList<>();
+        List<Term> exc = new ArrayList<>();
+        if (spec != null) {
+            for (String raw : spec.trim().split("\\s+")) {
+                if (raw.length() == 0) {
+                    continue;
+                }
+                boolean exclude = raw.charAt(0) == '-';
+                String term = exclude ? raw.substring(1) : raw;
+                (exclude ? exc : inc).add(compileTerm(term, myCall, locator));
+            }
+        }
+        return new APRSFilter(spec == null ? "" : spec.trim(), inc, exc);
+    }
+
+    private static Term compileTerm(String term, String myCall, StationLocator locator) {
+        String[] parts = term.split("/", -1);
+        if (parts.length < 2 || parts[0].length() == 0) {
+            throw new IllegalArgumentException("Bad filter term: " + term);
+        }
+        try {
+            switch (parts[0]) {
+                case "r":
+                    need(term, parts, 4);
+                    return new RangeTerm(num(parts[1]), num(parts[2]), num(parts[3]));
+                case "p":
+                    return new PrefixTerm(upper(args(parts, 1)));
+                case "b":
+                    return new BuddyTerm(upper(args(parts, 1)));
+                case "o":
+                    return new ObjectTerm(args(parts, 1));
+                case "t":
+                    return typeTerm(term, parts, locator);
+                case "s":
+                    return new SymbolTerm(parts[1], parts.length > 2 ? parts[2] : "", parts.length > 3 ? parts[3] : "");
+                case "d":
+                    return new DigiTerm(upper(args(parts, 1)));
+                case "a":
+                    need(term, parts, 5);
+                    return new AreaTerm(num(parts[1]), num(parts[2]), num(parts[3]), num(parts[4]));
+                case "e":
+                    return new EntryTerm(upper(args(parts, 1)));
+                case "q":
+                    return new QTerm(parts[1]);
+                case "m":
+                    need(term, parts, 2);
+                    return new StationRangeTerm(locator, myCall == null ? null : myCall.toUpperCase(), num(parts[1]));
+                case "f":
+                    need(term, parts, 3);
+                    return new StationRangeTerm(locator, parts[1].toUpperCase(), num(parts[2]));
+                case "g":
+                    return new GroupTerm(upper(args(parts, 1)));
+                case "u":
+                    return new UnprotoTerm(upper(args(parts, 1)));
+                default:
+                    throw new IllegalArgumentException("Unsupported filter type: " + term);
+            }
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Bad number in filter term: " + term);
+        }
+    }
+
+    private static Term typeTerm(String term, String[] parts, StationLocator locator) {
+        int mask = 0;
+        for (char c : parts[1].toCharArray()) {
+            switch (c) {
+                case 'p': mask |= TYPE_POSITION; break;
+                case 'o': mask |= TYPE_OBJECT; break;
+                case 'i': mask |= TYPE_ITEM; break;
+                case 'm': mask |= TYPE_MESSAGE; break;
+                case 'q': mask |= TYPE_QUERY; break;
+                case 's': mask |= TYPE_STATUS; break;
+                case 't': mask |= TYPE_TELEMETRY; break;
+                case 'u': mask |= TYPE_USERDEF; break;
+                case 'n': mask |= TYPE_NWS; break;
+                case 'w': mask |= TYPE_WEATHER; break;
+                default:
+                    throw new IllegalArgumentException("Bad packet type '" + c + "' in " + term);
+            }
+        }
+        if (parts.length >= 4) {
+            return new TypeTerm(mask, new StationRangeTerm(locator, parts[2].toUpperCase(), num(parts[3])));
+        }
+        return new TypeTerm(mask, null);
+    }
+
+    private static void need(String term, String[] parts, int n) {
+        if (parts.length < n) {
+            throw new IllegalArgumentException("Too few arguments in filter term: " + term);
+        }
+    }
+
+    private static double num(String s) {
+        return Double.parseDouble(s);
+    }
+
+    private static String[] args(String[] parts, int from) {
+        List<String> out = new ArrayList<>();
+        for (int i = from; i < parts.length; i++) {
+            if (parts[i].length() > 0) {
+                out.add(parts[i]);
+            }
+        }
+        return out.toArray(new String[0]);
+    }
+
+    private static String[] upper(String[] in) {
+        for (int i = 0; i < in.length; i++) {
+            in[i] = in[i].toUpperCase();
+        }
+        return in;
+    }
+
+    /**
+     * <p>test.</p>
+     *
+     * @param packet a parsed packet
+     * @return boolean true if the packet passes this filter
+     */
+    public boolean test(APRSPacket packet) {
+        for (Term t : excludes) {
+            if (t.test(packet)) {
+                return false;
+            }
+        }
+        for (Term t : includes) {
+            if (t.test(packet)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p>isEmpty.</p>
+     *
+     * @return boolean true if the filter has no include terms, and so passes nothing
+     */
+    public boolean isEmpty() {
+        return includes.length == 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    /**
+     * <p>positionOf.</p>
+     *
+     * @param packet a parsed packet
+     * @return Position the position reported by a position, object or item packet, or null
+     */
+    static Position positionOf(APRSPacket packet) {
+        InformationField info = packet.getAprsInformation();
+        if (info == null || info.getAprsData() == null) {
+            return null;
+        }
+        APRSData d = info.getAprsData(APRSTypes.T_POSITION);
+        if (d instanceof PositionField) {
+            return ((PositionField) d).getPosition();
+        }
+        d = info.getAprsData(APRSTypes.T_OBJECT);
+        if (d instanceof ObjectField && ((ObjectField) d).getPosition() != null) {
+            return ((ObjectField) d).getPosition().getPosition();
+        }
+        d = info.getAprsData(APRSTypes.T_ITEM);
+        if (d instanceof ItemField && ((ItemField) d).getPosition() != null) {
+            return ((ItemField) d).getPosition().getPosition();
+        }
+        return null;
+    }
+
+    /**
+     * <p>typeBits.</p>
+     *
+     * @param packet a parsed packet
+     * @return int bit set of the APRS-IS t/ types this packet belongs to
+     */
+    static int typeBits(APRSPacket packet) {
+        InformationField info = packet.getAprsInformation();
+        int bits = 0;
+        switch (packet.getDti()) {
+            case '!': case '=': case '/': case '@': case '`': case '\'': case '$':
+                bits |= TYPE_POSITION;
+                break;
+            case ';': bits |= TYPE_OBJECT; break;
+            case ')': bits |= TYPE_ITEM; break;
+            case ':': bits |= TYPE_MESSAGE; break;
+            case '?': bits |= TYPE_QUERY; break;
+            case '>': bits |= TYPE_STATUS; break;
+            case 'T': bits |= TYPE_TELEMETRY; break;
+            case '{': bits |= TYPE_USERDEF; break;
+            case '_': case '#': case '*': bits |= TYPE_WEATHER; break;
+            default: break;
+        }
+        if (info != null && info.getAprsData() != null) {
+            if (info.containsType(APRSTypes.T_WX)) {
+                bits |= TYPE_WEATHER;
+            }
+            if (info.containsType(APRSTypes.T_TELEMETRY)) {
+                bits |= TYPE_TELEMETRY;
+            }
+            APRSData m = info.getAprsData(APRSTypes.T_MESSAGE);
+            if (m instanceof MessagePacket) {
+                String to = ((MessagePacket) m).getTargetCallsign();
+                if (to != null && to.startsWith("NWS")) {
+                    bits |= TYPE_NWS;
+                }
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * <p>wildMatch.</p>
+     *
+     * @param pattern pattern, '*' matches any run of characters and '?' any single one
+     * @param base callsign without SSID
+     * @param ssid SSID, or an empty string; matched as "BASE-SSID" without building that String
+     * @return boolean true on a match
+     */
+    static boolean wildMatch(String pattern, String base, String ssid) {
+        int bl = base.length();
+        int n = (ssid == null || ssid.length() == 0) ? bl : bl + 1 + ssid.length();
+        int pl = pattern.length();
+        int p = 0;
+        int s = 0;
+        int star = -1;
+        int mark = 0;
+        while (s < n) {
+            if (p < pl) {
+                char pc = pattern.charAt(p);
+                char sc = s < bl ? base.charAt(s) : (s == bl ? '-' : ssid.charAt(s - bl - 1));
+                if (pc == '*') {
+                    star = p++;
+                    mark = s;
+                    continue;
+                }
+                if (pc == '?' || pc == sc) {
+                    p++;
+                    s++;
+                    continue;
+                }
+            }
+            if (star < 0) {
+                return false;
+            }
+            p = star + 1;
+            s = ++mark;
+        }
+        while (p < pl && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pl;
+    }
+
+    private static boolean anyMatch(String[] patterns, String base, String ssid) {
+        if (base == null) {
+            return false;
+        }
+        for (String p : patterns) {
+            if (wildMatch(p, base, ssid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * a single compiled filter term
+     */
+    abstract static class Term {
+        abstract boolean test(APRSPacket packet);
+    }
+
+    /**
+     * great-circle range check against a fixed point, done on the haversine term so no
+     * sqrt/atan2 is needed per packet
+     */
+    static final class RangeTerm extends Term {
+        private final double lat0;
+        private final double lon0;
+        private final double cosLat0;
+        private final double maxDLat;
+        private final double maxHav;
+
+        RangeTerm(double latDeg, double lonDeg, double km) {
+            this.lat0 = Math.toRadians(latDeg);
+            this.lon0 = Math.toRadians(lonDeg);
+            this.cosLat0 = Math.cos(lat0);
+            double ang = Math.min(km / EARTH_RADIUS_KM, Math.PI);
+            this.maxDLat = ang;
+            double h = Math.sin(ang / 2);
+            this.maxHav = h * h;
+        }
+
+        boolean within(double latDeg, double lonDeg) {
+            double lat = Math.toRadians(latDeg);
+            double dLat = lat - lat0;
+            if (dLat > maxDLat || dLat < -maxDLat) {
+                return false;
+            }
+            double sLat = Math.sin(dLat / 2);
+            double sLon = Math.sin((Math.toRadians(lonDeg) - lon0) / 2);
+            return sLat * sLat + cosLat0 * Math.cos(lat) * sLon * sLon <= maxHav;
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            Position p = positionOf(packet);
+            return p != null && within(p.getRawLatitude(), p.getRawLongitude());
+        }
+    }
+
+    /**
+     * range check around a station's last known position
+     */
+    static final class StationRangeTerm extends Term {
+        private final StationLocator locator;
+        private final String call;
+        private final double km;
+        private final double maxHav;
+
+        StationRangeTerm(StationLocator locator, String call, double km) {
+            this.locator = locator;
+            this.call = call;
+            this.km = km;
+            double h = Math.sin(Math.min(km / EARTH_RADIUS_KM, Math.PI) / 2);
+            this.maxHav = h * h;
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            if (locator == null || call == null) {
+                return false;
+            }
+            Position p = positionOf(packet);
+            if (p == null) {
+                return false;
+            }
+            Position c = locator.locate(call);
+            if (c == null) {
+                return false;
+            }
+            double lat1 = Math.toRadians(c.getRawLatitude());
+            double lat2 = Math.toRadians(p.getRawLatitude());
+            double sLat = Math.sin((lat2 - lat1) / 2);
+            double sLon = Math.sin(Math.toRadians(p.getRawLongitude() - c.getRawLongitude()) / 2);
+            return sLat * sLat + Math.cos(lat1) * Math.cos(lat2) * sLon * sLon <= maxHav;
+        }
+
+        @Override
+        public String toString() {
+            return call + "/" + km;
+        }
+    }
+
+    static final class PrefixTerm extends Term {
+        private final String[] prefixes;
+
+        PrefixTerm(String[] prefixes) {
+            this.prefixes = prefixes;
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            String src = packet.getSourceCall();
+            for (String p : prefixes) {
+                if (src.startsWith(p)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class BuddyTerm extends Term {
+        private final String[] calls;
+
+        BuddyTerm(String[] calls) {
+            this.calls = calls;
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            return anyMatch(calls, packet.getSourceCall(), null);
+        }
+    }
+
+    static final class ObjectTerm extends Term {
+        private final String[] names;
+
+        ObjectTerm(String[] names) {
+            this.names = names;
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            char dti = packet.getDti();
+            if (dti != ';' && dti != ')') {
+                return false;
+            }
+            InformationField info = packet.getAprsInformation();
+            APRSData d = info.getAprsData(dti == ';' ? APRSTypes.T_OBJECT : APRSTypes.T_ITEM);
+            String name = null;
+            if (d instanceof ObjectField) {
+                name = ((ObjectField) d).getObjectName();
+            } else if (d instanceof ItemField) {
+                name = ((ItemField) d).getItemName();
+            }
+            return anyMatch(names, name, null);
+        }
+    }
+
+    static final class TypeTerm extends Term {
+        private final int mask;
+        private final StationRangeTerm range;
+
+        TypeTerm(int mask, StationRangeTerm range) {
+            this.mask = mask;
+            this.range = range;
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            return (typeBits(packet) & mask) != 0 && (range == null || range.test(packet));
+        }
+    }
+
+    static final class SymbolTerm extends Term {
+        private final String primary;
+        private final String alternate;
+        private final String overlays;
+
+        SymbolTerm(String primary, String alternate, String overlays) {
+            this.primary = primary;
+            this.alternate = alternate;
+            this.overlays = overlays;
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            Position p = positionOf(packet);
+            if (p == null) {
+                return false;
+            }
+            char table = p.getSymbolTable();
+            char code = p.getSymbolCode();
+            if (table == '/') {
+                return primary.indexOf(code) >= 0;
+            }
+            if (alternate.indexOf(code) < 0) {
+                return false;
+            }
+            return overlays.length() == 0 || overlays.indexOf(table) >= 0;
+        }
+    }
+
+    static final class DigiTerm extends Term {
+        private final String[] digis;
+
+        DigiTerm(String[] digis) {
+            this.digis = digis;
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            List<Digipeater> path = packet.getDigipeaters();
+            for (int i = 0; i < path.size(); i++) {
+                Digipeater d = path.get(i);
+                if (d.isUsed() && anyMatch(digis, d.getCallsign(), d.getSsid())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class AreaTerm extends Term {
+        private final double latN;
+        private final double lonW;
+        private final double latS;
+        private final double lonE;
+
+        AreaTerm(double latN, double lonW, double latS, double lonE) {
+            this.latN = latN;
+            this.lonW = lonW;
+            this.latS = latS;
+            this.lonE = lonE;
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            Position p = positionOf(packet);
+            if (p == null) {
+                return false;
+            }
+            double lat = p.getRawLatitude();
+            double lon = p.getRawLongitude();
+            return lat <= latN && lat >= latS && lon >= lonW && lon <= lonE;
+        }
+    }
+
+    /**
+     * index of the q construct in the path, or -1
+     */
+    static int qIndex(List<Digipeater> path) {
+        for (int i = 0; i < path.size(); i++) {
+            String c = path.get(i).getCallsign();
+            if (c.length() == 3 && c.charAt(0) == 'Q' && c.charAt(1) == 'A') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static final class EntryTerm extends Term {
+        private final String[] calls;
+
+        EntryTerm(String[] calls) {
+            this.calls = calls;
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            List<Digipeater> path = packet.getDigipeaters();
+            int q = qIndex(path);
+            if (q < 0 || q + 1 >= path.size()) {
+                return false;
+            }
+            Digipeater entry = path.get(q + 1);
+            return anyMatch(calls, entry.getCallsign(), entry.getSsid());
+        }
+    }
+
+    /**
+     * q/con - matches the third letter of the qAx construct.  The optional I (trace) analysis
+     * flag of the full APRS-IS implementation is not supported.
+     */
+    static final class QTerm extends Term {
+        private final String constructs;
+
+        QTerm(String constructs) {
+            this.constructs = constructs.toUpperCase();
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            List<Digipeater> path = packet.getDigipeaters();
+            int q = qIndex(path);
+            return q >= 0 && constructs.indexOf(path.get(q).getCallsign().charAt(2)) >= 0;
+        }
+    }
+
+    static final class GroupTerm extends Term {
+        private final String[] groups;
+
+        GroupTerm(String[] groups) {
+            this.groups = groups;
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            if (packet.getDti() != ':') {
+                return false;
+            }
+            APRSData d = packet.getAprsInformation().getAprsData(APRSTypes.T_MESSAGE);
+            return d instanceof MessagePacket && anyMatch(groups, ((MessagePacket) d).getTargetCallsign(), null);
+        }
+    }
+
+    static final class UnprotoTerm extends Term {
+        private final String[] destinations;
+
+        UnprotoTerm(String[] destinations) {
+            this.destinations = destinations;
+        }
+
+        @Override
+        boolean test(APRSPacket packet) {
+            return anyMatch(destinations, packet.getDestinationCall(), null);
+        }
+    }
+}
@@ -0,0 +1,519 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>APRSISClient class.</p>
+ *
+ * A non-blocking APRS-IS client.  It connects to a server, sends the
+ * <code>user/pass/vers/filter</code> login line, and hands every received line to an
+ * {@link APRSISListener} as a slice of its receive buffer, so no String is built per line.
+ * Server comments ('#' lines) are watched for the login response and keepalives; if the server
+ * goes quiet for longer than the keepalive timeout, the connection is dropped and re-established
+ * with exponential backoff.
+ *
+ * A typical read-only feed looks like:
+ * <pre>
+ * APRSISClient client = new APRSISClient("rotate.aprs2.net", APRSISClient.DEFAULT_PORT, "N0CALL");
+ * client.setFilter("r/33.25/-96.5/100");
+ * client.setListener((buf, off, len) -&gt; handle(Parser.parse(buf, off, len)));
+ * client.start();
+ * </pre>
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class APRSISClient implements Runnable, Closeable {
+    /**
+     * user-defined filter port on APRS-IS servers
+     */
+    public static final int DEFAULT_PORT = 14580;
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    private final String host;
+    private final int port;
+    private final String callsign;
+    /**
+     * APRS-IS passcode; -1 logs in receive-only
+     */
+    private int passcode;
+    /**
+     * server-side filter, sent with the login and again whenever it changes
+     */
+    private volatile String filter;
+    private String softwareName = "javAPRSlib";
+    private String softwareVersion = "3.2.0";
+    /**
+     * drop the connection if nothing (not even a '#' keepalive) arrives for this long, in ms.
+     * Servers send a keepalive every 20 seconds.
+     */
+    private long keepaliveTimeout = 120000;
+    private long connectTimeout = 10000;
+    private long reconnectDelay = 1000;
+    private long maxReconnectDelay = 60000;
+    private APRSISListener listener;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final LineFramer framer = new LineFramer(this::dispatch);
+    private final Random jitter = new Random();
+    private final AtomicLong packetsReceived = new AtomicLong();
+    private final AtomicLong keepalivesReceived = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private volatile boolean running = false;
+    private volatile boolean connected = false;
+    private volatile boolean verified = false;
+    /**
+     * set when a session reached the login response, resets the backoff
+     */
+    private volatile boolean loggedIn = false;
+    private volatile Selector selector;
+    private Thread thread;
+
+    /**
+     * <p>Constructor for APRSISClient.</p>
+     *
+     * @param host APRS-IS server host name
+     * @param port APRS-IS server port, normally {@link #DEFAULT_PORT}
+     * @param callsign login callsign; the passcode is derived from it with {@link Utilities#doHash(String)}
+     */
+    public APRSISClient(String host, int port, String callsign) {
+        this.host = host;
+        this.port = port;
+        this.callsign = callsign.toUpperCase();
+        this.passcode = Utilities.doHash(callsign);
+    }
+
+    /**
+     * <p>start.</p>
+     * Runs the client on its own daemon thread.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "APRS-IS " + host + ":" + port);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Use {@link #start()}, which arms the client; a {@link #close()} that comes before this
+     * thread gets going is honoured.
+     */
+    @Override
+    public void run() {
+        int attempt = 0;
+        while (running) {
+            String reason;
+            try {
+                reason = session();
+            } catch (IOException ex) {
+                reason = ex.toString();
+            }
+            if (listener != null) {
+                listener.onDisconnected(host + ":" + port, reason);
+            }
+            if (!running) {
+                break;
+            }
+            if (loggedIn) {
+                // the last session got as far as a login response, start the backoff over
+                attempt = 0;
+                loggedIn = false;
+            }
+            reconnects.incrementAndGet();
+            pause(backoff(attempt++));
+        }
+    }
+
+    private String session() throws IOException {
+        String server = host + ":" + port;
+        try (Selector sel = Selector.open(); SocketChannel ch = SocketChannel.open()) {
+            selector = sel;
+            ch.configureBlocking(false);
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ch.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            ch.connect(new InetSocketAddress(host, port));
+            SelectionKey key = ch.register(sel, SelectionKey.OP_CONNECT);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(connectTimeout);
+            while (!ch.finishConnect()) {
+                long wait = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (wait <= 0) {
+                    return "connect timeout";
+                }
+                sel.select(wait);
+                sel.selectedKeys().clear();
+                if (!running) {
+                    return "closed";
+                }
+            }
+            outbound.clear();
+            framer.reset();
+            enqueue(loginLine());
+            key.interestOps(SelectionKey.OP_READ);
+            connected = true;
+            if (listener != null) {
+                listener.onConnected(server);
+            }
+            ByteBuffer rx = ByteBuffer.allocate(16384);
+            long lastRead = System.nanoTime();
+            long timeout = TimeUnit.MILLISECONDS.toNanos(keepaliveTimeout);
+            while (running) {
+                if (!flush(ch)) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                } else {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+                sel.select(1000);
+                sel.selectedKeys().clear();
+                int n;
+                while ((n = ch.read(rx)) > 0) {
+                    rx.flip();
+                    framer.feed(rx);
+                    rx.clear();
+                    lastRead = System.nanoTime();
+                }
+                if (n < 0) {
+                    return "server closed connection";
+                }
+                if (System.nanoTime() - lastRead > timeout) {
+                    return "no data from server for " + keepaliveTimeout + " ms";
+                }
+            }
+            return "closed";
+        } finally {
+            selector = null;
+            connected = false;
+            verified = false;
+        }
+    }
+
+    /**
+     * writes as much queued outbound data as the socket will take
+     *
+     * @return true if the queue was drained
+     */
+    private boolean flush(SocketChannel ch) throws IOException {
+        ByteBuffer b;
+        while ((b = outbound.peek()) != null) {
+            ch.write(b);
+            if (b.hasRemaining()) {
+                return false;
+            }
+            outbound.poll();
+        }
+        return true;
+    }
+
+    private void dispatch(byte[] buf, int offset, int length) {
+        if (buf[offset] == '#') {
+            if (startsWith(buf, offset, length, "# logresp ")) {
+                verified = !contains(buf, offset, length, "unverified") && contains(buf, offset, length, "verified");
+                loggedIn = true;
+            } else {
+                keepalivesReceived.incrementAndGet();
+            }
+            if (listener != null) {
+                listener.onServerLine(buf, offset, length);
+            }
+            return;
+        }
+        packetsReceived.incrementAndGet();
+        if (listener != null) {
+            listener.onPacketLine(buf, offset, length);
+        }
+    }
+
+    private static boolean startsWith(byte[] buf, int offset, int length, String prefix) {
+        if (length < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (buf[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(byte[] buf, int offset, int length, String word) {
+        for (int i = 0; i + word.length() <= length; i++) {
+            if (startsWith(buf, offset + i, length - i, word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p>loginLine.</p>
+     *
+     * @return String the login line sent to the server on connect
+     */
+    public String loginLine() {
+        StringBuilder sb = new StringBuilder("user ").append(callsign)
+                .append(" pass ").append(passcode)
+                .append(" vers ").append(softwareName).append(' ').append(softwareVersion);
+        String f = filter;
+        if (f != null && f.length() > 0) {
+            sb.append(" filter ").append(f);
+        }
+        return sb.toString();
+    }
+
+    private long backoff(int attempt) {
+        long delay = reconnectDelay << Math.min(attempt, 16);
+        if (delay <= 0 || delay > maxReconnectDelay) {
+            delay = maxReconnectDelay;
+        }
+        // +/- 25% so a server restart doesn't see every client at once
+        long spread = delay / 4;
+        if (spread > 0) {
+            delay += (long) (jitter.nextDouble() * 2 * spread) - spread;
+        }
+        return delay;
+    }
+
+    private synchronized void pause(long millis) {
+        long until = System.currentTimeMillis() + millis;
+        try {
+            long left;
+            while (running && (left = until - System.currentTimeMillis()) > 0) {
+                wait(left);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void enqueue(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer b = ByteBuffer.allocate(bytes.length + 2);
+        b.put(bytes).put(CRLF).flip();
+        outbound.add(b);
+        Selector sel = selector;
+        if (sel != null) {
+            sel.wakeup();
+        }
+    }
+
+    /**
+     * <p>send.</p>
+     *
+     * @param line a TNC2 packet or '#' command, without line terminator
+     * @return boolean false if we are not connected and the line was dropped
+     */
+    public boolean send(String line) {
+        if (!connected) {
+            return false;
+        }
+        enqueue(line);
+        return true;
+    }
+
+    /**
+     * <p>send.</p>
+     *
+     * @param packet packet to send in TNC2 format, as received if it was parsed, otherwise
+     * rebuilt with {@link APRSPacket#toTNC2()}; only accepted from verified logins
+     * @return boolean false if we are not connected and the packet was dropped
+     */
+    public boolean send(APRSPacket packet) {
+        String line = packet.getOriginalString();
+        return send(line != null ? line : packet.toTNC2());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() {
+        running = false;
+        Selector sel = selector;
+        if (sel != null) {
+            sel.wakeup();
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            thread = null;
+        }
+        if (t != null && t != Thread.currentThread()) {
+            try {
+                t.join(5000);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * <p>Setter for the field <code>filter</code>.</p>
+     *
+     * @param filter server-side filter, e.g. "r/33/-97/200 t/m".  Sent immediately if connected.
+     */
+    public void setFilter(String filter) {
+        this.filter = filter;
+        if (connected) {
+            enqueue("#filter " + filter);
+        }
+    }
+
+    /**
+     * <p>Getter for the field <code>filter</code>.</p>
+     *
+     * @return String the current server-side filter
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * <p>Setter for the field <code>passcode</code>.</p>
+     *
+     * @param passcode APRS-IS passcode, -1 for a receive-only login
+     */
+    public void setPasscode(int passcode) {
+        this.passcode = passcode;
+    }
+
+    /**
+     * <p>setSoftware.</p>
+     *
+     * @param name software name reported in the login line
+     * @param version software version reported in the login line
+     */
+    public void setSoftware(String name, String version) {
+        this.softwareName = name;
+        this.softwareVersion = version;
+    }
+
+    /**
+     * <p>Setter for the field <code>keepaliveTimeout</code>.</p>
+     *
+     * @param millis how long the server may stay silent before we reconnect
+     */
+    public void setKeepaliveTimeout(long millis) {
+        this.keepaliveTimeout = millis;
+    }
+
+    /**
+     * <p>Setter for the field <code>connectTimeout</code>.</p>
+     *
+     * @param millis how long to wait for the TCP connection to come up
+     */
+    public void setConnectTimeout(long millis) {
+        this.connectTimeout = millis;
+    }
+
+    /**
+     * <p>setReconnectDelay.</p>
+     *
+     * @param initial delay before the first reconnect attempt, in ms
+     * @param max upper bound for the doubling backoff, in ms
+     */
+    public void setReconnectDelay(long initial, long max) {
+        this.reconnectDelay = initial;
+        this.maxReconnectDelay = max;
+    }
+
+    /**
+     * <p>Setter for the field <code>listener</code>.</p>
+     *
+     * @param listener receives lines and connection events
+     */
+    public void setListener(APRSISListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * <p>isConnected.</p>
+     *
+     * @return boolean true while a TCP session to the server is up
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * <p>isVerified.</p>
+     *
+     * @return boolean true if the server accepted our passcode on the current session
+     */
+    public boolean isVerified() {
+        return verified;
+    }
+
+    /**
+     * <p>getPacketsReceived.</p>
+     *
+     * @return long number of packet lines received over all sessions
+     */
+    public long getPacketsReceived() {
+        return packetsReceived.get();
+    }
+
+    /**
+     * <p>getKeepalivesReceived.</p>
+     *
+     * @return long number of '#' keepalive lines received over all sessions
+     */
+    public long getKeepalivesReceived() {
+        return keepalivesReceived.get();
+    }
+
+    /**
+     * <p>getReconnects.</p>
+     *
+     * @return long number of times the connection was re-established
+     */
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    /**
+     * <p>getServer.</p>
+     *
+     * @return String host:port of the server
+     */
+    public String getServer() {
+        return host + ":" + port;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>APRSISIngest class.</p>
+ *
+ * Keeps connections to several APRS-IS servers at once and merges their feeds into a single
+ * stream.  The first copy of each packet (source, destination and body, path ignored) is
+ * passed downstream; copies arriving from the other servers within the dedupe window are
+ * dropped.  For every upstream we count how often it won the race and how far behind the
+ * winner its copies arrived, which tells you which servers are actually worth keeping.
+ *
+ * First arrivals are remembered in a time-stamped {@link DupeFilter}, so the dedupe check
+ * allocates nothing per packet and old entries age out with their time bucket instead of
+ * being purged on an upstream's thread.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class APRSISIngest implements Closeable {
+    /**
+     * APRS-IS dupe window
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = 30000;
+
+    /**
+     * <p>UpstreamStats class.</p>
+     * Race statistics for one upstream connection.
+     */
+    public static final class UpstreamStats {
+        private final String server;
+        private final AtomicLong packets = new AtomicLong();
+        private final AtomicLong wins = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+        private final AtomicLong totalLagNanos = new AtomicLong();
+        private final AtomicLong maxLagNanos = new AtomicLong();
+
+        UpstreamStats(String server) {
+            this.server = server;
+        }
+
+        void lag(long nanos) {
+            duplicates.incrementAndGet();
+            totalLagNanos.addAndGet(nanos);
+            long max;
+            while (nanos > (max = maxLagNanos.get()) && !maxLagNanos.compareAndSet(max, nanos)) {
+                // retry
+            }
+        }
+
+        /**
+         * @return String host:port of the upstream
+         */
+        public String getServer() {
+            return server;
+        }
+
+        /**
+         * @return long packet lines received from this upstream
+         */
+        public long getPackets() {
+            return packets.get();
+        }
+
+        /**
+         * @return long packets this upstream delivered first
+         */
+        public long getWins() {
+            return wins.get();
+        }
+
+        /**
+         * @return long packets this upstream delivered after another one already had
+         */
+        public long getDuplicates() {
+            return duplicates.get();
+        }
+
+        /**
+         * @return double mean delay behind the winning upstream for duplicate copies, in ms
+         */
+        public double getMeanLagMillis() {
+            long d = duplicates.get();
+            return d == 0 ? 0.0 : totalLagNanos.get() / (d * 1e6);
+        }
+
+        /**
+         * @return double worst delay behind the winning upstream, in ms
+         */
+        public double getMaxLagMillis() {
+            return maxLagNanos.get() / 1e6;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return String.format("%s: %d packets, %d wins, %d dupes, lag %.1f ms avg / %.1f ms max",
+                    server, getPackets(), getWins(), getDuplicates(), getMeanLagMillis(), getMaxLagMillis());
+        }
+    }
+
+    private final APRSISListener downstream;
+    private final DupeFilter seen;
+    private final List<APRSISClient> clients = new ArrayList<>();
+    private final List<UpstreamStats> stats = new CopyOnWriteArrayList<>();
+    private final AtomicLong forwarded = new AtomicLong();
+
+    /**
+     * <p>Constructor for APRSISIngest.</p>
+     *
+     * @param downstream receives the merged, de-duplicated packet stream.  Calls are serialized,
+     * so the listener sees one stream no matter how many upstreams are running.
+     * @param windowMillis how long a packet is remembered for dedupe, at least 7 ms; as with
+     * {@link DupeFilter}, copies up to one seventh later may still be caught
+     */
+    public APRSISIngest(APRSISListener downstream, long windowMillis) {
+        this.downstream = downstream;
+        this.seen = new DupeFilter(windowMillis, 100000, true);
+    }
+
+    /**
+     * <p>addUpstream.</p>
+     *
+     * @param host APRS-IS server
+     * @param port APRS-IS port
+     * @param callsign login callsign
+     * @return APRSISClient the new client, for setting filter and timeouts before {@link #start()}
+     */
+    public synchronized APRSISClient addUpstream(String host, int port, String callsign) {
+        APRSISClient client = new APRSISClient(host, port, callsign);
+        final int index = addUpstream(client.getServer());
+        client.setListener((buf, off, len) -> accept(index, buf, off, len));
+        clients.add(client);
+        return client;
+    }
+
+    /**
+     * <p>addUpstream.</p>
+     *
+     * @param name label for an upstream fed through {@link #accept(int, byte[], int, int)}
+     * @return int index of the new upstream
+     */
+    public synchronized int addUpstream(String name) {
+        stats.add(new UpstreamStats(name));
+        return stats.size() - 1;
+    }
+
+    /**
+     * <p>start.</p>
+     * Starts all upstream clients.
+     */
+    public synchronized void start() {
+        for (APRSISClient c : clients) {
+            c.start();
+        }
+    }
+
+    /**
+     * <p>accept.</p>
+     *
+     * @param upstream index of the upstream the line came from
+     * @param buf buffer holding the line
+     * @param offset index of the first byte of the packet
+     * @param length length of the packet
+     * @return boolean true if this was the first arrival and it was forwarded
+     */
+    public boolean accept(int upstream, byte[] buf, int offset, int length) {
+        long now = System.nanoTime();
+        UpstreamStats us = stats.get(upstream);
+        us.packets.incrementAndGet();
+        long lag = seen.lagNanos(PacketHash.hashLine(buf, offset, length), now);
+        if (lag >= 0) {
+            // someone beat us to it
+            us.lag(lag);
+            return false;
+        }
+        us.wins.incrementAndGet();
+        forwarded.incrementAndGet();
+        synchronized (downstream) {
+            downstream.onPacketLine(buf, offset, length);
+        }
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close() {
+        for (APRSISClient c : clients) {
+            c.close();
+        }
+    }
+
+    /**
+     * <p>getStats.</p>
+     *
+     * @return List of per-upstream race statistics
+     */
+    public List<UpstreamStats> getStats() {
+        return Collections.unmodifiableList(stats);
+    }
+
+    /**
+     * <p>getForwarded.</p>
+     *
+     * @return long number of unique packets passed downstream
+     */
+    public long getForwarded() {
+        return forwarded.get();
+    }
+
+    /**
+     * <p>getOverflows.</p>
+     *
+     * @return long packets forwarded without a dedupe check because the dedupe table was full
+     */
+    public long getOverflows() {
+        return seen.getOverflows();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+/**
+ * <p>APRSISListener interface.</p>
+ *
+ * Callback interface for {@link APRSISClient}.  Lines are handed over as slices of the
+ * client's receive buffer, and are only valid for the duration of the call.  Use
+ * {@link Parser#parse(byte[], int, int)} to decode a packet line in place.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public interface APRSISListener {
+    /**
+     * <p>onPacketLine.</p>
+     *
+     * @param buf buffer holding the line
+     * @param offset index of the first byte of the packet
+     * @param length length of the packet, without CR/LF
+     */
+    void onPacketLine(byte[] buf, int offset, int length);
+
+    /**
+     * <p>onServerLine.</p>
+     *
+     * @param buf buffer holding the line
+     * @param offset index of the '#' starting the server comment
+     * @param length length of the line, without CR/LF
+     */
+    default void onServerLine(byte[] buf, int offset, int length) {
+    }
+
+    /**
+     * <p>onConnected.</p>
+     *
+     * @param server host:port of the server we just logged in to
+     */
+    default void onConnected(String server) {
+    }
+
+    /**
+     * <p>onDisconnected.</p>
+     *
+     * @param server host:port of the server we lost
+     * @param reason why the connection was dropped
+     */
+    default void onDisconnected(String server, String reason) {
+    }
+}
@@ -0,0 +1,562 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>APRSISServer class.</p>
+ *
+ * A small APRS-IS compatible server.  Clients log in with the usual
+ * <code>user CALL pass NNNN vers NAME VERSION filter ...</code> line and may change their
+ * filter later with <code>#filter</code>.  Every packet handed to {@link #publish(byte[], int, int)}
+ * (or sent in by a verified client) is parsed exactly once; each connected client's compiled
+ * {@link APRSFilter} is then tested against that one {@link APRSPacket}, and the TNC2 line is
+ * encoded once into a read-only buffer that is shared by every matching client's output queue.
+ *
+ * Sessions use plain blocking I/O, one reader and one {@link SessionWriter} task per client.  On a JVM with
+ * virtual threads those tasks run on virtual threads, so thousands of clients cost little more
+ * than their buffers; on Java 11 a cached pool of platform threads is used instead.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class APRSISServer implements Runnable, Closeable, StationLocator {
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    private final int port;
+    private final String serverCall;
+    private String softwareName = "javAPRSlib";
+    private String softwareVersion = "3.2.0";
+    /**
+     * clients that have not logged in within this many ms are dropped
+     */
+    private long loginTimeout = 30000;
+    private long keepaliveInterval = 20000;
+    /**
+     * latency bound for coalescing writes to a client, in ms
+     */
+    private long writeLinger = SessionWriter.DEFAULT_LINGER;
+    /**
+     * packets queued for one client before it is dropped as too slow
+     */
+    private int maxQueueDepth = SessionWriter.DEFAULT_MAX_QUEUE;
+
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    /**
+     * last known position of every station heard within the last two hours, for m/ and f/
+     * filters; swept by the housekeeping timer
+     */
+    private volatile StationTracker positions = new StationTracker(2 * 3600 * 1000L);
+    private final AtomicLong packetsPublished = new AtomicLong();
+    private final AtomicLong packetsDelivered = new AtomicLong();
+    private final AtomicLong parseErrors = new AtomicLong();
+    private final AtomicLong slowClientsDropped = new AtomicLong();
+    private final AtomicLong duplicatesDropped = new AtomicLong();
+    /**
+     * 30 second APRS-IS dupe check, applied before a packet is parsed; null turns it off
+     */
+    private volatile DupeFilter dupeFilter = new DupeFilter();
+    private volatile boolean running = false;
+    private ServerSocketChannel acceptor;
+    private ExecutorService executor;
+    private ScheduledExecutorService timer;
+    private Thread thread;
+
+    /**
+     * <p>Constructor for APRSISServer.</p>
+     *
+     * @param port TCP port to listen on, 0 picks a free port
+     * @param serverCall the server's own callsign, reported in login responses
+     */
+    public APRSISServer(int port, String serverCall) {
+        this.port = port;
+        this.serverCall = serverCall.toUpperCase();
+    }
+
+    /**
+     * <p>start.</p>
+     *
+     * @throws java.io.IOException if the listening socket can not be bound
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        acceptor = ServerSocketChannel.open();
+        acceptor.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        acceptor.bind(new InetSocketAddress(port), 128);
+        executor = newSessionExecutor();
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "APRS-IS server timer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::housekeeping, keepaliveInterval, keepaliveInterval,
+                TimeUnit.MILLISECONDS);
+        running = true;
+        thread = new Thread(this, "APRS-IS server :" + getLocalPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * virtual threads when the JVM has them (Java 21+), a cached thread pool otherwise.  Looked
+     * up reflectively so the library still builds and runs on Java 11.
+     */
+    static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "APRS-IS session");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                SocketChannel ch = acceptor.accept();
+                ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                ch.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+                Session s = new Session(ch);
+                sessions.add(s);
+                executor.execute(s::readLoop);
+                executor.execute(s.writer);
+            } catch (IOException ex) {
+                if (running) {
+                    System.err.println("APRS-IS accept failed: " + ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>publish.</p>
+     *
+     * @param buf buffer holding a TNC2 packet line
+     * @param offset index of the first byte of the line
+     * @param length length of the line, without CR/LF
+     * @return int number of clients the packet was queued for, 0 for a duplicate, -1 if it
+     * could not be parsed
+     */
+    public int publish(byte[] buf, int offset, int length) {
+        return publish(buf, offset, length, null);
+    }
+
+    /**
+     * <p>publish.</p>
+     *
+     * @param packet a packet to send to every client whose filter passes it, exactly as it
+     * was received
+     * @return int number of clients the packet was queued for, 0 for a duplicate, -1 if the
+     * packet was built rather than parsed and so has no received line to forward
+     */
+    public int publish(APRSPacket packet) {
+        byte[] line = packet.originalBytes();
+        if (line == null) {
+            return -1;
+        }
+        DupeFilter dupes = dupeFilter;
+        if (dupes != null && dupes.isDuplicate(packet)) {
+            duplicatesDropped.incrementAndGet();
+            return 0;
+        }
+        return fanOut(packet, line, 0, line.length, null);
+    }
+
+    private int publish(byte[] buf, int offset, int length, Session from) {
+        DupeFilter dupes = dupeFilter;
+        if (dupes != null && dupes.isDuplicate(buf, offset, length)) {
+            duplicatesDropped.incrementAndGet();
+            return 0;
+        }
+        APRSPacket packet;
+        try {
+            packet = Parser.parse(buf, offset, length);
+        } catch (Exception ex) {
+            parseErrors.incrementAndGet();
+            return -1;
+        }
+        return fanOut(packet, buf, offset, length, from);
+    }
+
+    private int fanOut(APRSPacket packet, byte[] buf, int offset, int length, Session from) {
+        packetsPublished.incrementAndGet();
+        Position pos = APRSFilter.positionOf(packet);
+        if (pos != null && packet.getDti() != ';' && packet.getDti() != ')') {
+            positions.update(packet);
+        }
+        ByteBuffer encoded = null;
+        int delivered = 0;
+        for (Session s : sessions) {
+            if (s == from || !s.loggedIn || !s.filter.test(packet)) {
+                continue;
+            }
+            if (encoded == null) {
+                ByteBuffer b = ByteBuffer.allocate(length + 2);
+                b.put(buf, offset, length).put(CRLF).flip();
+                encoded = b.asReadOnlyBuffer();
+            }
+            s.enqueue(encoded.duplicate());
+            delivered++;
+        }
+        packetsDelivered.addAndGet(delivered);
+        return delivered;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Position locate(String callsign) {
+        return positions.locate(callsign);
+    }
+
+    private void housekeeping() {
+        ByteBuffer keepalive = encode("# " + softwareName + " " + softwareVersion + " " + serverCall);
+        long now = System.currentTimeMillis();
+        positions.expire(now);
+        for (Session s : sessions) {
+            if (!s.loggedIn) {
+                if (now - s.connectedAt > loginTimeout) {
+                    s.close();
+                }
+            } else {
+                s.enqueue(keepalive.duplicate());
+            }
+        }
+    }
+
+    private static ByteBuffer encode(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer b = ByteBuffer.allocate(bytes.length + 2);
+        b.put(bytes).put(CRLF).flip();
+        return b.asReadOnlyBuffer();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            if (acceptor != null) {
+                acceptor.close();
+            }
+        } catch (IOException ex) {
+            // closing anyway
+        }
+        for (Session s : sessions) {
+            s.close();
+        }
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            thread = null;
+        }
+        if (t != null && t != Thread.currentThread()) {
+            try {
+                t.join(5000);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * <p>getLocalPort.</p>
+     *
+     * @return int the port we are listening on, or -1 if not started
+     */
+    public int getLocalPort() {
+        try {
+            return acceptor == null ? -1 : ((InetSocketAddress) acceptor.getLocalAddress()).getPort();
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * <p>getSessionCount.</p>
+     *
+     * @return int number of connected clients, logged in or not
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * <p>Getter for the field <code>packetsPublished</code>.</p>
+     *
+     * @return long number of packets parsed and fanned out
+     */
+    public long getPacketsPublished() {
+        return packetsPublished.get();
+    }
+
+    /**
+     * <p>Getter for the field <code>packetsDelivered</code>.</p>
+     *
+     * @return long number of packet copies queued to clients
+     */
+    public long getPacketsDelivered() {
+        return packetsDelivered.get();
+    }
+
+    /**
+     * <p>Getter for the field <code>parseErrors</code>.</p>
+     *
+     * @return long number of published lines that failed to parse
+     */
+    public long getParseErrors() {
+        return parseErrors.get();
+    }
+
+    /**
+     * <p>Getter for the field <code>slowClientsDropped</code>.</p>
+     *
+     * @return long number of clients disconnected because their output queue filled up
+     */
+    public long getSlowClientsDropped() {
+        return slowClientsDropped.get();
+    }
+
+    /**
+     * <p>Getter for the field <code>duplicatesDropped</code>.</p>
+     *
+     * @return long number of published packets dropped by the dupe check
+     */
+    public long getDuplicatesDropped() {
+        return duplicatesDropped.get();
+    }
+
+    /**
+     * <p>Setter for the field <code>dupeFilter</code>.</p>
+     *
+     * @param dupeFilter duplicate detector shared with other components, or null to pass
+     * every packet
+     */
+    public void setDupeFilter(DupeFilter dupeFilter) {
+        this.dupeFilter = dupeFilter;
+    }
+
+    /**
+     * <p>Setter for the field <code>positions</code>.</p>
+     *
+     * @param tracker station tracker to keep positions in for m/ and f/ filters, possibly
+     * shared with other components; its time-to-live bounds how long a position is used
+     */
+    public void setStationTracker(StationTracker tracker) {
+        this.positions = tracker;
+    }
+
+    /**
+     * <p>Setter for the field <code>writeLinger</code>.</p>
+     *
+     * @param writeLinger longest time, in ms, an outbound packet waits to be batched with others;
+     * applies to clients that connect afterwards
+     */
+    public void setWriteLinger(long writeLinger) {
+        this.writeLinger = writeLinger;
+    }
+
+    /**
+     * <p>Setter for the field <code>maxQueueDepth</code>.</p>
+     *
+     * @param maxQueueDepth packets queued for one client before it is dropped as too slow;
+     * applies to clients that connect afterwards
+     */
+    public void setMaxQueueDepth(int maxQueueDepth) {
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    /**
+     * <p>Setter for the field <code>loginTimeout</code>.</p>
+     *
+     * @param loginTimeout ms a client has to send its login line
+     */
+    public void setLoginTimeout(long loginTimeout) {
+        this.loginTimeout = loginTimeout;
+    }
+
+    /**
+     * <p>Setter for the field <code>keepaliveInterval</code>.</p>
+     *
+     * @param keepaliveInterval ms between '#' keepalive lines; takes effect on the next start
+     */
+    public void setKeepaliveInterval(long keepaliveInterval) {
+        this.keepaliveInterval = keepaliveInterval;
+    }
+
+    /**
+     * <p>setSoftware.</p>
+     *
+     * @param name software name reported in keepalives
+     * @param version software version reported in keepalives
+     */
+    public void setSoftware(String name, String version) {
+        this.softwareName = name;
+        this.softwareVersion = version;
+    }
+
+    /**
+     * one connected client
+     */
+    private final class Session {
+        private final SocketChannel channel;
+        private final long connectedAt = System.currentTimeMillis();
+        private final SessionWriter writer;
+        private final LineFramer framer = new LineFramer(this::onLine);
+        private volatile APRSFilter filter = APRSFilter.compile("");
+        private volatile boolean loggedIn = false;
+        private volatile boolean open = true;
+        private boolean verified = false;
+        private String callsign;
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+            this.writer = new SessionWriter(channel, writeLinger, maxQueueDepth, 64);
+        }
+
+        void readLoop() {
+            ByteBuffer rx = ByteBuffer.allocate(4096);
+            try {
+                while (open && channel.read(rx) >= 0) {
+                    rx.flip();
+                    framer.feed(rx);
+                    rx.clear();
+                }
+            } catch (IOException ex) {
+                // client went away
+            } finally {
+                close();
+            }
+        }
+
+        void enqueue(ByteBuffer b) {
+            if (open && !writer.offer(b)) {
+                if (writer.isOverflowed()) {
+                    slowClientsDropped.incrementAndGet();
+                }
+                close();
+            }
+        }
+
+        private void onLine(byte[] buf, int offset, int length) {
+            if (!loggedIn) {
+                String line = new String(buf, offset, length, StandardCharsets.UTF_8);
+                if (line.startsWith("user ")) {
+                    login(line);
+                }
+                return;
+            }
+            if (buf[offset] == '#') {
+                String line = new String(buf, offset, length, StandardCharsets.UTF_8);
+                if (line.startsWith("#filter")) {
+                    setFilter(line.substring(7).trim());
+                }
+                return;
+            }
+            if (verified) {
+                publish(buf, offset, length, this);
+            }
+        }
+
+        private void login(String line) {
+            String[] words = line.trim().split("\\s+");
+            String pass = null;
+            String filterSpec = "";
+            for (int i = 0; i + 1 < words.length; i++) {
+                switch (words[i]) {
+                    case "user":
+                        callsign = words[++i].toUpperCase();
+                        break;
+                    case "pass":
+                        pass = words[++i];
+                        break;
+                    case "filter":
+                        filterSpec = String.join(" ", Arrays.copyOfRange(words, i + 1, words.length));
+                        i = words.length;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (callsign == null) {
+                close();
+                return;
+            }
+            try {
+                verified = pass != null && Integer.parseInt(pass) == Utilities.doHash(callsign);
+            } catch (NumberFormatException nfe) {
+                verified = false;
+            }
+            enqueue(encode("# logresp " + callsign + (verified ? " verified" : " unverified")
+                    + ", server " + serverCall));
+            setFilter(filterSpec);
+            loggedIn = true;
+        }
+
+        private void setFilter(String spec) {
+            try {
+                filter = APRSFilter.compile(spec, callsign, APRSISServer.this);
+                if (loggedIn) {
+                    enqueue(encode("# filter " + spec + " active"));
+                }
+            } catch (IllegalArgumentException ex) {
+                enqueue(encode("# " + ex.getMessage()));
+            }
+        }
+
+        void close() {
+            if (!open) {
+                return;
+            }
+            open = false;
+            sessions.remove(this);
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>APRSISUDPListener class.</p>
+ *
+ * Receives APRS-IS UDP submissions.  Each datagram carries a login line
+ * (<code>user CALL pass NNNN vers NAME VERSION</code>) followed by a single TNC2 packet line.
+ * Datagrams whose passcode does not match {@link Utilities#doHash(String)} are counted and
+ * dropped; verified packets are decoded with {@link Parser#parse(byte[], int, int)} and handed
+ * to the {@link Handler}.
+ *
+ * The channel is non-blocking.  Each time it becomes readable, datagrams are drained into a
+ * fixed pool of direct buffers until the pool is full or the socket is empty, and the whole
+ * batch is then decoded in one pass, so the selector is consulted once per batch rather than
+ * once per packet and no buffers are allocated while running.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class APRSISUDPListener implements Runnable, Closeable {
+    /**
+     * APRS-IS servers accept UDP submissions on this port
+     */
+    public static final int DEFAULT_PORT = 8080;
+    /**
+     * largest datagram we accept; anything that fills the buffer is treated as truncated
+     */
+    static final int MAX_DATAGRAM = 1024;
+
+    /**
+     * receives every verified, parsed packet
+     */
+    public interface Handler {
+        /**
+         * <p>onPacket.</p>
+         *
+         * @param packet the decoded packet
+         * @param login callsign from the login line
+         * @param from address the datagram came from
+         */
+        void onPacket(APRSPacket packet, String login, SocketAddress from);
+    }
+
+    private final int port;
+    private final Handler handler;
+    private final ByteBuffer[] pool;
+    private final SocketAddress[] senders;
+    private final byte[] scratch = new byte[MAX_DATAGRAM];
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong verifyFailures = new AtomicLong();
+    private final AtomicLong parseFailures = new AtomicLong();
+    private final AtomicLong handlerFailures = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile boolean running = false;
+    private DatagramChannel channel;
+    private Selector selector;
+    private Thread thread;
+
+    /**
+     * <p>Constructor for APRSISUDPListener.</p>
+     *
+     * @param port UDP port to listen on, 0 picks a free port
+     * @param handler receives every verified packet, on the listener thread
+     */
+    public APRSISUDPListener(int port, Handler handler) {
+        this(port, handler, 64);
+    }
+
+    /**
+     * <p>Constructor for APRSISUDPListener.</p>
+     *
+     * @param port UDP port to listen on, 0 picks a free port
+     * @param handler receives every verified packet, on the listener thread
+     * @param batchSize number of pooled receive buffers, i.e. the most datagrams read per batch
+     */
+    public APRSISUDPListener(int port, Handler handler, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.port = port;
+        this.handler = handler;
+        this.pool = new ByteBuffer[batchSize];
+        this.senders = new SocketAddress[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            pool[i] = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+        }
+    }
+
+    /**
+     * <p>start.</p>
+     *
+     * @throws java.io.IOException if the socket can not be bound
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024 * 1024);
+        channel.bind(new InetSocketAddress(port));
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+        running = true;
+        thread = new Thread(this, "APRS-IS UDP :" + getLocalPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(1000);
+                selector.selectedKeys().clear();
+                int n;
+                while ((n = receiveBatch()) > 0) {
+                    batches.incrementAndGet();
+                    for (int i = 0; i < n; i++) {
+                        ByteBuffer b = pool[i];
+                        b.flip();
+                        process(b, senders[i]);
+                        b.clear();
+                        senders[i] = null;
+                    }
+                    if (n < pool.length) {
+                        break;
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            if (running) {
+                System.err.println("APRS-IS UDP listener failed: " + ex);
+            }
+        }
+    }
+
+    private int receiveBatch() throws IOException {
+        int n = 0;
+        while (n < pool.length) {
+            SocketAddress from = channel.receive(pool[n]);
+            if (from == null) {
+                break;
+            }
+            senders[n++] = from;
+        }
+        received.addAndGet(n);
+        return n;
+    }
+
+    /**
+     * <p>process.</p>
+     *
+     * @param datagram one received datagram, in read mode
+     * @param from sender address
+     * @return boolean true if the packet was verified, parsed and delivered
+     */
+    boolean process(ByteBuffer datagram, SocketAddress from) {
+        int len = datagram.remaining();
+        if (len == 0 || len >= MAX_DATAGRAM) {
+            // empty, or too big for the buffer and so truncated
+            dropped.incrementAndGet();
+            return false;
+        }
+        datagram.get(scratch, 0, len);
+        int eol = 0;
+        while (eol < len && scratch[eol] != '\n' && scratch[eol] != '\r') {
+            eol++;
+        }
+        int start = eol;
+        while (start < len && (scratch[start] == '\n' || scratch[start] == '\r')) {
+            start++;
+        }
+        int end = start;
+        while (end < len && scratch[end] != '\n' && scratch[end] != '\r') {
+            end++;
+        }
+        if (eol == len || end == start) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        String login = verify(scratch, eol);
+        if (login == null) {
+            verifyFailures.incrementAndGet();
+            return false;
+        }
+        APRSPacket packet;
+        try {
+            packet = Parser.parse(scratch, start, end - start);
+        } catch (Exception ex) {
+            parseFailures.incrementAndGet();
+            return false;
+        }
+        accepted.incrementAndGet();
+        if (handler != null) {
+            try {
+                handler.onPacket(packet, login, from);
+            } catch (RuntimeException ex) {
+                // a bad handler must not stop the listener thread
+                handlerFailures.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * checks the login line
+     *
+     * @return String the login callsign, or null if the passcode is missing or wrong
+     */
+    static String verify(byte[] buf, int length) {
+        String call = null;
+        int pass = -1;
+        int i = 0;
+        while (i < length) {
+            while (i < length && buf[i] == ' ') {
+                i++;
+            }
+            int ws = i;
+            while (i < length && buf[i] != ' ') {
+                i++;
+            }
+            int we = i;
+            while (i < length && buf[i] == ' ') {
+                i++;
+            }
+            int vs = i;
+            while (i < length && buf[i] != ' ') {
+                i++;
+            }
+            if (vs == i) {
+                break;
+            }
+            if (word(buf, ws, we, "user")) {
+                call = new String(buf, vs, i - vs, StandardCharsets.US_ASCII);
+            } else if (word(buf, ws, we, "pass")) {
+                pass = number(buf, vs, i);
+            }
+        }
+        if (call == null || pass < 0 || pass != Utilities.doHash(call)) {
+            return null;
+        }
+        return call.toUpperCase();
+    }
+
+    private static boolean word(byte[] buf, int from, int to, String w) {
+        if (to - from != w.length()) {
+            return false;
+        }
+        for (int i = 0; i < w.length(); i++) {
+            if (buf[from + i] != w.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int number(byte[] buf, int from, int to) {
+        if (to - from > 6) {
+            return -1;
+        }
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            int d = buf[i] - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            n = n * 10 + d;
+        }
+        return n;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() {
+        running = false;
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            thread = null;
+        }
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (t != null && t != Thread.currentThread()) {
+            try {
+                t.join(5000);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ex) {
+            // closing anyway
+        }
+    }
+
+    /**
+     * <p>getLocalPort.</p>
+     *
+     * @return int the port we are listening on, or -1 if not started
+     */
+    public int getLocalPort() {
+        try {
+            return channel == null ? -1 : ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * <p>Getter for the field <code>received</code>.</p>
+     *
+     * @return long datagrams received
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * <p>Getter for the field <code>accepted</code>.</p>
+     *
+     * @return long verified packets parsed and handed to the handler
+     */
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    /**
+     * <p>Getter for the field <code>dropped</code>.</p>
+     *
+     * @return long datagrams thrown away as empty, truncated or without a packet line
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * <p>Getter for the field <code>verifyFailures</code>.</p>
+     *
+     * @return long datagrams with a missing or wrong passcode
+     */
+    public long getVerifyFailures() {
+        return verifyFailures.get();
+    }
+
+    /**
+     * <p>Getter for the field <code>parseFailures</code>.</p>
+     *
+     * @return long verified datagrams whose packet failed to parse
+     */
+    public long getParseFailures() {
+        return parseFailures.get();
+    }
+
+    /**
+     * <p>Getter for the field <code>handlerFailures</code>.</p>
+     *
+     * @return long accepted packets on which the handler threw
+     */
+    public long getHandlerFailures() {
+        return handlerFailures.get();
+    }
+
+    /**
+     * <p>Getter for the field <code>batches</code>.</p>
+     *
+     * @return long number of receive batches processed
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+}
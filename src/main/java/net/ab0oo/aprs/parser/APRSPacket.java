@@ -21,8 +21,11 @@
 package net.ab0oo.aprs.parser;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 /**
  * <p>APRSPacket class.</p>
@@ -41,7 +44,13 @@ public class APRSPacket implements Serializable {
 	/**
 	 * The original TNC2-format string that we're attempting to parse
 	 */
-	private String originalString;
+	private volatile String originalString;
+	/**
+	 * for packets parsed from a byte buffer: the header as received, up to and including
+	 * the ':', and the body.  The line is only decoded into originalString on request.
+	 */
+	private byte[] originalHeader;
+	private byte[] originalBody;
 	/**
 	 * from the TNC2 format: the originating station of this message
 	 * Generally used to indicate the type and version of device that
@@ -69,7 +78,14 @@ public class APRSPacket implements Serializable {
 	/**
 	 * hard saying.  Might be the comment from the packet?  I hate commenting my code...
 	 */
-	private String comment;
+	private volatile String comment;
+	/**
+	 * undecoded comment bytes, shared with the information field; decoded on first read and
+	 * kept, so a racing reader decodes them again rather than seeing a half-set comment
+	 */
+	private byte[] commentBytes;
+	private int commentOffset;
+	private int commentLength;
 
 	static final String REGEX_PATH_ALIASES = "^(WIDE|TRACE|RELAY)\\d*$";
     
@@ -253,10 +269,62 @@ public class APRSPacket implements Serializable {
 	/**
 	 * <p>Getter for the field <code>originalString</code>.</p>
 	 *
-	 * @return the originalString
+	 * @return the originalString, or null for packets that were built rather than parsed.
+	 * Packets parsed from a byte buffer keep the received bytes and decode them here.
 	 */
 	public final String getOriginalString() {
-		return originalString;
+		String s = originalString;
+		if ( s == null && originalHeader != null ) {
+			byte[] line = originalBytes();
+			s = CommentDecoder.decode(line, 0, line.length);
+			originalString = s;
+		}
+		return s;
+	}
+
+	/**
+	 * <p>setOriginal.</p>
+	 *
+	 * @param header the received header, up to and including the ':'; not copied
+	 * @param body the received information field; not copied
+	 */
+	void setOriginal(byte[] header, byte[] body) {
+		this.originalHeader = header;
+		this.originalBody = body;
+	}
+
+	/**
+	 * <p>originalBytes.</p>
+	 *
+	 * @return byte[] the line exactly as received, without CR/LF; UTF-8 for packets parsed
+	 * from a String; null for packets that were built rather than parsed
+	 */
+	byte[] originalBytes() {
+		if ( originalHeader != null ) {
+			byte[] line = Arrays.copyOf(originalHeader, originalHeader.length + originalBody.length);
+			System.arraycopy(originalBody, 0, line, originalHeader.length, originalBody.length);
+			return line;
+		}
+		String s = originalString;
+		return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * <p>toTNC2.</p>
+	 *
+	 * @return String the packet rebuilt in TNC2 format from its parsed fields.  Callsigns come
+	 * out upper case; use {@link #getOriginalString()} for the line as it was received.
+	 */
+	public String toTNC2() {
+		StringBuilder sb = new StringBuilder(sourceCall).append('>').append(destinationCall);
+		for ( Digipeater digi : digipeaters ) {
+			sb.append(',');
+			digi.formatTo(sb);
+		}
+		sb.append(':');
+		byte[] body = aprsInformation.getRawBytes();
+		Formatting.appendText(sb, body, 0, body.length);
+		return sb.toString();
 	}
 
 	/**
@@ -309,7 +377,12 @@ public class APRSPacket implements Serializable {
      * @return a {@link java.lang.String} object
      */
     public String getComment() {
-		return comment;
+		String c = comment;
+		if (c == null && commentBytes != null) {
+			c = CommentDecoder.decode(commentBytes, commentOffset, commentLength);
+			comment = c;
+		}
+		return c;
 	}
 
 
@@ -320,18 +393,83 @@ public class APRSPacket implements Serializable {
 	 */
 	public void setComment(String comment) {
 		this.comment = comment;
+		this.commentBytes = null;
+	}
+
+	/**
+	 * <p>setComment.</p>
+	 *
+	 * Record the comment as a range of the packet body, to be decoded by {@link #getComment()}.
+	 *
+	 * @param buf buffer holding the comment; not copied
+	 * @param off first byte of the comment
+	 * @param len number of comment bytes
+	 */
+	void setComment(byte[] buf, int off, int len) {
+		this.comment = null;
+		this.commentBytes = buf;
+		this.commentOffset = off;
+		this.commentLength = len;
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public String toString() {
-		StringBuffer sb = new StringBuffer("-------------------------------\n");
-		sb.append(sourceCall+">"+destinationCall+"\n");
-		sb.append("Via Digis: "+getDigiString()+"\n");
-		sb.append(aprsInformation.toString());
+		StringBuilder sb = new StringBuilder();
+		formatTo(sb);
 		return sb.toString();
 	}
 
+	/**
+	 * <p>formatTo.</p>
+	 *
+	 * @param sb builder to append the same text as {@link #toString()} to
+	 */
+	public void formatTo(StringBuilder sb) {
+		sb.append("-------------------------------\n");
+		sb.append(sourceCall).append('>').append(destinationCall).append('\n');
+		sb.append("Via Digis: ");
+		for (int i = 0; i < digipeaters.size(); i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			digipeaters.get(i).formatTo(sb);
+		}
+		sb.append('\n');
+		aprsInformation.formatTo(sb);
+	}
+
+	/**
+	 * <p>formatTo.</p>
+	 *
+	 * Write the packet to a log or audit stream.  Text is written to <code>out</code> as it
+	 * goes.  Appendable has no numeric appends, so the digipeater path and each data field
+	 * are formatted into one scratch builder, reused for the whole packet, and written
+	 * from there.
+	 *
+	 * @param out where to write the same text as {@link #toString()}
+	 * @throws java.io.IOException if <code>out</code> fails
+	 */
+	public void formatTo(Appendable out) throws IOException {
+		if (out instanceof StringBuilder) {
+			formatTo((StringBuilder) out);
+			return;
+		}
+		StringBuilder scratch = new StringBuilder(128);
+		out.append("-------------------------------\n");
+		out.append(sourceCall).append('>').append(destinationCall).append('\n');
+		out.append("Via Digis: ");
+		for (int i = 0; i < digipeaters.size(); i++) {
+			if (i > 0) {
+				scratch.append(',');
+			}
+			digipeaters.get(i).formatTo(scratch);
+		}
+		scratch.append('\n');
+		Formatting.drain(scratch, out);
+		aprsInformation.formatTo(out, scratch);
+	}
+
 	/**
 	 * <p>toAX25Frame.</p>
 	 *
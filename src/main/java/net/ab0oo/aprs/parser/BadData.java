@@ -40,5 +40,11 @@ public class BadData extends APRSData {
     public String toString() {
         return "Unable to decode this packet";
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public void formatTo(StringBuilder sb) {
+        sb.append("Unable to decode this packet");
+    }
     
 }
@@ -0,0 +1,285 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>BuiltinDecoders class.</p>
+ *
+ * The decoders the parser starts with, one small class per family of Data Type Identifiers,
+ * so each stays short enough for the JIT to inline at its dispatch site.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+final class BuiltinDecoders {
+    private static final Pattern altitudePattern = Pattern.compile(".*/A=(\\d{6}).*");
+
+    private BuiltinDecoders() {
+    }
+
+    static PacketDecoder[] all() {
+        return new PacketDecoder[] { new TimestampedPosition(), new Position(), new Message(), new ObjectReport(),
+                new Item(), new Status(), new Telemetry(), new Weather(), new ThirdParty() };
+    }
+
+    private static void altitude(PositionField pf, byte[] msgBody, int cursor) {
+        byte[] slice = Arrays.copyOfRange(msgBody, cursor, msgBody.length - 1);
+        Matcher matcher = altitudePattern.matcher(new String(slice));
+        if (matcher.matches()) {
+            pf.getPosition().setAltitude(Integer.parseInt(matcher.group(1)));
+        }
+    }
+
+    /**
+     * '/' and '@': timestamp, then position, then weather or comment
+     */
+    static final class TimestampedPosition implements PacketDecoder {
+        @Override
+        public String getDataTypeIdentifiers() {
+            return "/@";
+        }
+
+        @Override
+        public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) throws Exception {
+            InformationField infoField = packet.getAprsInformation();
+            TimeField timeField = new TimeField(msgBody, 0);
+            infoField.addAprsData(APRSTypes.T_TIMESTAMP, timeField);
+            int cursor = timeField.getLastCursorPosition();
+            PositionField pf = new PositionField(msgBody, dest, cursor + 1);
+            infoField.addAprsData(APRSTypes.T_POSITION, pf);
+            infoField.setDataExtension(pf.getExtension());
+            cursor = pf.getLastCursorPosition();
+            if (pf.getPosition().getSymbolCode() == '_') {
+                // this is a weather station, but it might NOT be transmitting WEATHER DATA
+                WeatherField wf = WeatherParser.parseWeatherData(msgBody, cursor);
+                wf.setType(APRSTypes.T_WX);
+                infoField.addAprsData(APRSTypes.T_WX, wf);
+                cursor = wf.getLastCursorPosition();
+            } else {
+                altitude(pf, msgBody, cursor);
+            }
+            return cursor;
+        }
+    }
+
+    /**
+     * '!', '=', Mic-E and NMEA: position without timestamp
+     */
+    static final class Position implements PacketDecoder {
+        @Override
+        public String getDataTypeIdentifiers() {
+            return "!=`'$";
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+
+        @Override
+        public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) throws Exception {
+            if (msgBody.length >= 5 && msgBody[1] == 'U' && msgBody[2] == 'L' && msgBody[3] == 'T'
+                    && msgBody[4] == 'W') {
+                // Ultimeter II weather packet
+                return 0;
+            }
+            InformationField infoField = packet.getAprsInformation();
+            PositionField pf = new PositionField(msgBody, dest, 1);
+            int cursor = pf.getLastCursorPosition();
+            infoField.addAprsData(APRSTypes.T_POSITION, pf);
+            infoField.setDataExtension(pf.getExtension());
+            if (cursor >= msgBody.length) {
+                // this is a position-only packet, time to leave
+                return cursor;
+            }
+            if (pf.getPosition().getSymbolCode() == '_' && msgBody.length > 20) {
+                // with weather...
+                WeatherField wf = WeatherParser.parseWeatherData(msgBody, cursor + 1);
+                infoField.addAprsData(APRSTypes.T_WX, wf);
+                return wf.getLastCursorPosition();
+            }
+            try {
+                altitude(pf, msgBody, cursor);
+            } catch (IllegalArgumentException iae) {
+                iae.printStackTrace();
+                BadData bd = new BadData();
+                bd.setFaultReason("Wandered off the end of the msg body at cursor pos " + cursor);
+                infoField.addAprsData(APRSTypes.T_UNSPECIFIED, bd);
+            }
+            return cursor;
+        }
+    }
+
+    /**
+     * ':' messages, acks and bulletins
+     */
+    static final class Message implements PacketDecoder {
+        @Override
+        public String getDataTypeIdentifiers() {
+            return ":";
+        }
+
+        @Override
+        public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) {
+            packet.getAprsInformation().addAprsData(APRSTypes.T_MESSAGE, new MessagePacket(msgBody, dest));
+            TelemetryMetadataCache cache = Parser.getTelemetryMetadataCache();
+            if (cache != null) {
+                cache.update(packet);
+            }
+            return msgBody.length;
+        }
+    }
+
+    /**
+     * ';' objects
+     */
+    static final class ObjectReport implements PacketDecoder {
+        @Override
+        public String getDataTypeIdentifiers() {
+            return ";";
+        }
+
+        @Override
+        public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) throws Exception {
+            if (msgBody.length <= 29) {
+                System.err.println("Object packet body too short (" + msgBody.length + ") for valid object");
+                return 0;
+            }
+            ObjectField of = new ObjectField(msgBody);
+            packet.getAprsInformation().addAprsData(APRSTypes.T_OBJECT, of);
+            int cursor = of.getLastCursorPosition();
+            if (cursor > msgBody.length - 1) {
+                System.err.println("Ran off the end:");
+                System.err.println(msgBody);
+                return cursor;
+            }
+            packet.setComment(msgBody, cursor, msgBody.length - 1 - cursor);
+            return cursor;
+        }
+    }
+
+    /**
+     * ')' items
+     */
+    static final class Item implements PacketDecoder {
+        @Override
+        public String getDataTypeIdentifiers() {
+            return ")";
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+
+        @Override
+        public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) throws Exception {
+            ItemField itemField = new ItemField(msgBody);
+            packet.getAprsInformation().addAprsData(APRSTypes.T_ITEM, itemField);
+            return itemField.getLastCursorPosition();
+        }
+    }
+
+    /**
+     * '&gt;' status reports
+     */
+    static final class Status implements PacketDecoder {
+        @Override
+        public String getDataTypeIdentifiers() {
+            return ">";
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+
+        @Override
+        public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) {
+            StatusField sf = new StatusField(msgBody);
+            packet.getAprsInformation().addAprsData(APRSTypes.T_STATUS, sf);
+            return sf.getLastCursorPosition();
+        }
+    }
+
+    /**
+     * 'T' telemetry reports
+     */
+    static final class Telemetry implements PacketDecoder {
+        @Override
+        public String getDataTypeIdentifiers() {
+            return "T";
+        }
+
+        @Override
+        public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) {
+            if (msgBody.length <= 3 || msgBody[1] != '#') {
+                return 0;
+            }
+            TelemetryField tf = new TelemetryField(msgBody, 2);
+            packet.getAprsInformation().addAprsData(APRSTypes.T_TELEMETRY, tf);
+            return tf.getLastCursorPosition();
+        }
+    }
+
+    /**
+     * '_' positionless weather and the Peet Bros formats
+     */
+    static final class Weather implements PacketDecoder {
+        @Override
+        public String getDataTypeIdentifiers() {
+            return "_#*";
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+
+        @Override
+        public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) throws Exception {
+            WeatherField wf = WeatherParser.parseWeatherData(msgBody, 0);
+            packet.getAprsInformation().addAprsData(APRSTypes.T_WX, wf);
+            return wf.getLastCursorPosition();
+        }
+    }
+
+    /**
+     * '}' third-party packets
+     */
+    static final class ThirdParty implements PacketDecoder {
+        @Override
+        public String getDataTypeIdentifiers() {
+            return "}";
+        }
+
+        @Override
+        public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) {
+            ThirdPartyField t = new ThirdPartyField(msgBody, depth);
+            packet.getAprsInformation().addAprsData(APRSTypes.T_THIRDPARTY, t);
+            return t.getLastCursorPosition();
+        }
+    }
+}
@@ -55,6 +55,17 @@ public class Callsign implements Serializable {
 		}
 	}
 
+	/**
+	 * <p>Constructor for Callsign.</p>
+	 *
+	 * @param callsign callsign without SSID, already upper case
+	 * @param ssid the SSID, or "" for none
+	 */
+	Callsign(String callsign, String ssid) {
+		this.callsign = callsign;
+		this.ssid = ssid;
+	}
+
 	/**
 	 * <p>Constructor for Callsign.</p>
 	 *
@@ -113,7 +124,19 @@ public class Callsign implements Serializable {
     /** {@inheritDoc} */
 	@Override
     public String toString() {
-        return callsign + (ssid == "" ? "" : "-" + ssid);
+        return callsign + (ssid == null || ssid.isEmpty() ? "" : "-" + ssid);
+    }
+
+    /**
+     * <p>formatTo.</p>
+     *
+     * @param sb builder to append the same text as {@link #toString()} to
+     */
+    public void formatTo(StringBuilder sb) {
+        sb.append(callsign);
+        if (ssid != null && !ssid.isEmpty()) {
+            sb.append('-').append(ssid);
+        }
     }
 
     /**
@@ -0,0 +1,445 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>CallsignIndex class.</p>
+ *
+ * A searchable set of names (callsigns, object and item names) held in a compressed radix
+ * trie.  Every edge carries a run of characters and every inner node either ends a name or
+ * branches, so a prefix query walks down the prefix and then visits only nodes that lead to
+ * results: its cost follows the length of the prefix and the size of the answer, not the
+ * number of names held.  Wildcard queries accept '*' (any run of characters) and '?' (any one
+ * character), and prune on every literal character of the pattern.
+ *
+ * Names are compared exactly, so callers should upper-case callsigns; object names are
+ * case sensitive on the air.  Results come back in sorted order.  Queries share a lock and
+ * updates take it exclusively.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class CallsignIndex {
+    private static final Node[] NO_KIDS = new Node[0];
+
+    private final Node root = new Node(new char[0]);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int size = 0;
+
+    private static final class Node {
+        char[] label;
+        Node[] kids = NO_KIDS;
+        boolean terminal;
+
+        Node(char[] label) {
+            this.label = label;
+        }
+
+        int find(char c) {
+            for (int i = 0; i < kids.length; i++) {
+                if (kids[i].label[0] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void addKid(Node k) {
+            int i = 0;
+            while (i < kids.length && kids[i].label[0] < k.label[0]) {
+                i++;
+            }
+            Node[] n = new Node[kids.length + 1];
+            System.arraycopy(kids, 0, n, 0, i);
+            n[i] = k;
+            System.arraycopy(kids, i, n, i + 1, kids.length - i);
+            kids = n;
+        }
+
+        void removeKid(int i) {
+            Node[] n = new Node[kids.length - 1];
+            System.arraycopy(kids, 0, n, 0, i);
+            System.arraycopy(kids, i + 1, n, i, kids.length - i - 1);
+            kids = n.length == 0 ? NO_KIDS : n;
+        }
+    }
+
+    /**
+     * <p>add.</p>
+     *
+     * @param name name to add
+     * @return boolean true if it was not already present
+     */
+    public boolean add(String name) {
+        if (name == null || name.isEmpty()) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            int len = name.length();
+            for (;;) {
+                if (i == len) {
+                    if (node.terminal) {
+                        return false;
+                    }
+                    node.terminal = true;
+                    size++;
+                    return true;
+                }
+                int k = node.find(name.charAt(i));
+                if (k < 0) {
+                    Node leaf = new Node(name.substring(i).toCharArray());
+                    leaf.terminal = true;
+                    node.addKid(leaf);
+                    size++;
+                    return true;
+                }
+                Node child = node.kids[k];
+                char[] label = child.label;
+                int common = 1;
+                while (common < label.length && i + common < len && label[common] == name.charAt(i + common)) {
+                    common++;
+                }
+                if (common < label.length) {
+                    // split the edge where the new name leaves it
+                    Node mid = new Node(Arrays.copyOf(label, common));
+                    child.label = Arrays.copyOfRange(label, common, label.length);
+                    mid.kids = new Node[] { child };
+                    node.kids[k] = mid;
+                    child = mid;
+                }
+                node = child;
+                i += common;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>add.</p>
+     *
+     * @param call callsign or digipeater to add, with its SSID if it has one
+     * @return boolean true if it was not already present
+     */
+    public boolean add(Callsign call) {
+        return add(nameOf(call));
+    }
+
+    /**
+     * <p>remove.</p>
+     *
+     * @param call callsign or digipeater to drop
+     * @return boolean true if it was present
+     */
+    public boolean remove(Callsign call) {
+        return remove(nameOf(call));
+    }
+
+    /**
+     * the indexed form of a callsign: upper case, SSID attached, no digipeater used-mark
+     */
+    static String nameOf(Callsign call) {
+        String ssid = call.getSsid();
+        String base = call.getCallsign().toUpperCase();
+        return ssid == null || ssid.isEmpty() || ssid.equals("0") ? base : base + "-" + ssid;
+    }
+
+    /**
+     * <p>remove.</p>
+     *
+     * @param name name to drop
+     * @return boolean true if it was present
+     */
+    public boolean remove(String name) {
+        if (name == null || name.isEmpty()) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            Node parent = null;
+            int parentSlot = -1;
+            Node node = root;
+            int i = 0;
+            int len = name.length();
+            while (i < len) {
+                int k = node.find(name.charAt(i));
+                if (k < 0) {
+                    return false;
+                }
+                Node child = node.kids[k];
+                char[] label = child.label;
+                if (len - i < label.length) {
+                    return false;
+                }
+                for (int j = 1; j < label.length; j++) {
+                    if (label[j] != name.charAt(i + j)) {
+                        return false;
+                    }
+                }
+                parent = node;
+                parentSlot = k;
+                node = child;
+                i += label.length;
+            }
+            if (!node.terminal) {
+                return false;
+            }
+            node.terminal = false;
+            size--;
+            if (node == root) {
+                return true;
+            }
+            if (node.kids.length == 0) {
+                parent.removeKid(parentSlot);
+                // the parent may now be a pass-through node that can fold into its last child
+                if (parent != root && !parent.terminal && parent.kids.length == 1) {
+                    merge(parent);
+                }
+            } else if (node.kids.length == 1) {
+                merge(node);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * folds a non-terminal node's only child into it
+     */
+    private static void merge(Node n) {
+        Node only = n.kids[0];
+        char[] l = new char[n.label.length + only.label.length];
+        System.arraycopy(n.label, 0, l, 0, n.label.length);
+        System.arraycopy(only.label, 0, l, n.label.length, only.label.length);
+        n.label = l;
+        n.kids = only.kids;
+        n.terminal = only.terminal;
+    }
+
+    /**
+     * <p>contains.</p>
+     *
+     * @param name name to look for
+     * @return boolean true if it is present
+     */
+    public boolean contains(String name) {
+        lock.readLock().lock();
+        try {
+            Node n = root;
+            int i = 0;
+            while (i < name.length()) {
+                int k = n.find(name.charAt(i));
+                if (k < 0) {
+                    return false;
+                }
+                n = n.kids[k];
+                if (!name.regionMatches(i, new String(n.label), 0, n.label.length)) {
+                    return false;
+                }
+                i += n.label.length;
+            }
+            return n.terminal;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>withPrefix.</p>
+     *
+     * @param prefix leading characters
+     * @param limit most results wanted
+     * @return List names starting with the prefix, sorted
+     */
+    public List<String> withPrefix(String prefix, int limit) {
+        List<String> out = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Node n = root;
+            int i = 0;
+            StringBuilder sb = new StringBuilder(prefix);
+            while (i < prefix.length()) {
+                int k = n.find(prefix.charAt(i));
+                if (k < 0) {
+                    return out;
+                }
+                n = n.kids[k];
+                int j = 0;
+                while (j < n.label.length && i + j < prefix.length()) {
+                    if (n.label[j] != prefix.charAt(i + j)) {
+                        return out;
+                    }
+                    j++;
+                }
+                if (j < n.label.length) {
+                    // the prefix ends part way along this edge
+                    sb.append(n.label, j, n.label.length - j);
+                }
+                i += j;
+            }
+            collect(n, sb, out, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    private static void collect(Node n, StringBuilder sb, List<String> out, int limit) {
+        if (out.size() >= limit) {
+            return;
+        }
+        if (n.terminal) {
+            out.add(sb.toString());
+        }
+        for (Node k : n.kids) {
+            int mark = sb.length();
+            sb.append(k.label);
+            collect(k, sb, out, limit);
+            sb.setLength(mark);
+            if (out.size() >= limit) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * <p>matching.</p>
+     *
+     * @param pattern name pattern; '*' matches any run of characters, '?' any one character
+     * @param limit most results wanted
+     * @return List matching names, sorted
+     * @throws java.lang.IllegalArgumentException if the pattern is longer than 62 characters
+     */
+    public List<String> matching(String pattern, int limit) {
+        // collapse runs of '*', they match nothing more than one does
+        StringBuilder p = new StringBuilder(pattern.length());
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c != '*' || p.length() == 0 || p.charAt(p.length() - 1) != '*') {
+                p.append(c);
+            }
+        }
+        String pat = p.toString();
+        if (pat.length() > 62) {
+            throw new IllegalArgumentException("pattern too long: " + pattern);
+        }
+        int literal = 0;
+        while (literal < pat.length() && pat.charAt(literal) != '*' && pat.charAt(literal) != '?') {
+            literal++;
+        }
+        if (literal == pat.length()) {
+            List<String> out = new ArrayList<>();
+            if (contains(pat)) {
+                out.add(pat);
+            }
+            return out;
+        }
+        if (literal == pat.length() - 1 && pat.charAt(literal) == '*') {
+            return withPrefix(pat.substring(0, literal), limit);
+        }
+        List<String> out = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            match(root, pat, closure(pat, 1L), new StringBuilder(), out, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    /**
+     * walks the trie in order while carrying the set of pattern positions still alive, one bit
+     * per position, so every trie node is visited at most once and a branch is dropped as soon
+     * as no position survives it.
+     */
+    private static void match(Node n, String pat, long states, StringBuilder sb, List<String> out, int limit) {
+        for (char c : n.label) {
+            states = step(pat, states, c);
+            if (states == 0) {
+                return;
+            }
+        }
+        int mark = sb.length();
+        sb.append(n.label);
+        if (n.terminal && (states & (1L << pat.length())) != 0) {
+            out.add(sb.toString());
+        }
+        for (Node k : n.kids) {
+            if (out.size() >= limit) {
+                break;
+            }
+            match(k, pat, states, sb, out, limit);
+        }
+        sb.setLength(mark);
+    }
+
+    private static long step(String pat, long states, char c) {
+        long next = 0;
+        for (long s = states; s != 0; s &= s - 1) {
+            int i = Long.numberOfTrailingZeros(s);
+            if (i == pat.length()) {
+                continue;
+            }
+            char pc = pat.charAt(i);
+            if (pc == '*') {
+                next |= 1L << i;
+            } else if (pc == '?' || pc == c) {
+                next |= 1L << (i + 1);
+            }
+        }
+        return closure(pat, next);
+    }
+
+    /**
+     * a '*' may match nothing, so a live '*' also makes the position after it live
+     */
+    private static long closure(String pat, long states) {
+        for (int i = 0; i < pat.length(); i++) {
+            if ((states & (1L << i)) != 0 && pat.charAt(i) == '*') {
+                states |= 1L << (i + 1);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return int number of names held
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>CommentDecoder class.</p>
+ *
+ * Turns free-text comment bytes into a String.  Nearly all traffic is plain ASCII,
+ * which is checked for first and decoded without any charset machinery.  Anything
+ * else is decoded as UTF-8 when it is well formed, and as Latin-1 otherwise, since
+ * that is what older trackers in some regions send.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+final class CommentDecoder {
+
+    private CommentDecoder() {
+    }
+
+    /**
+     * <p>decode.</p>
+     *
+     * @param buf buffer holding the comment
+     * @param off first byte of the comment
+     * @param len number of bytes
+     * @return String the decoded comment
+     */
+    static String decode(byte[] buf, int off, int len) {
+        int end = off + len;
+        int i = off;
+        while (i < end && buf[i] >= 0) {
+            i++;
+        }
+        if (i == end) {
+            return new String(buf, off, len, StandardCharsets.US_ASCII);
+        }
+        if (isUtf8(buf, i, end)) {
+            return new String(buf, off, len, StandardCharsets.UTF_8);
+        }
+        return new String(buf, off, len, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * <p>isUtf8.</p>
+     *
+     * @param buf buffer to check
+     * @param i first byte to check
+     * @param end one past the last byte
+     * @return boolean true if the range is well-formed UTF-8, rejecting overlong forms and surrogates
+     */
+    static boolean isUtf8(byte[] buf, int i, int end) {
+        while (i < end) {
+            int b = buf[i] & 0xff;
+            if (b < 0x80) {
+                i++;
+                continue;
+            }
+            int n;
+            int min;
+            if (b >= 0xc2 && b <= 0xdf) {
+                n = 1;
+                min = 0x80;
+            } else if (b >= 0xe0 && b <= 0xef) {
+                n = 2;
+                min = 0x800;
+            } else if (b >= 0xf0 && b <= 0xf4) {
+                n = 3;
+                min = 0x10000;
+            } else {
+                return false;
+            }
+            if (i + n >= end) {
+                return false;
+            }
+            int cp = b & (0x3f >> n);
+            for (int k = 1; k <= n; k++) {
+                int c = buf[i + k] & 0xff;
+                if ((c & 0xc0) != 0x80) {
+                    return false;
+                }
+                cp = (cp << 6) | (c & 0x3f);
+            }
+            if (cp < min || cp > 0x10ffff || (cp >= 0xd800 && cp <= 0xdfff)) {
+                return false;
+            }
+            i += n + 1;
+        }
+        return true;
+    }
+}
@@ -52,6 +52,7 @@ public class CourseAndSpeedExtension extends DataExtension implements Serializab
 	 * @param course the course to set in degrees true
 	 */
 	public void setCourse(int course) {
+		checkWritable();
 		this.course = course;
 	}
 	/**
@@ -68,6 +69,7 @@ public class CourseAndSpeedExtension extends DataExtension implements Serializab
 	 * @param speed the speed to set in knots
 	 */
 	public void setSpeed(int speed) {
+		checkWritable();
 		this.speed = speed;
 	}
 	
@@ -35,6 +35,30 @@ package net.ab0oo.aprs.parser;
  * @version $Id: $Id
  */
 public abstract class DataExtension {
+	/**
+	 * set once this extension is shared between packets by the {@link ParsedBodyCache}
+	 */
+	private boolean frozen;
+
+	/**
+	 * <p>freeze.</p>
+	 * Make this extension read-only; the setters throw from here on.
+	 */
+	void freeze() {
+		frozen = true;
+	}
+
+	/**
+	 * <p>checkWritable.</p>
+	 *
+	 * @throws java.lang.UnsupportedOperationException if this extension is shared and read-only
+	 */
+	protected final void checkWritable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("read-only: shared by the parsed-body cache");
+		}
+	}
+
 	/**
 	 * <p>toSAEString.</p>
 	 *
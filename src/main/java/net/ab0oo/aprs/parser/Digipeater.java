@@ -50,6 +50,18 @@ public class Digipeater extends Callsign {
         }
     }
 
+    /**
+     * <p>Constructor for Digipeater.</p>
+     *
+     * @param callsign callsign without SSID or '*', already upper case
+     * @param ssid the SSID, or "" for none
+     * @param used true if the path entry carried a '*'
+     */
+    Digipeater(String callsign, String ssid, boolean used) {
+        super(callsign, ssid);
+        this.used = used;
+    }
+
     /**
      * <p>Constructor for Digipeater.</p>
      *
@@ -107,6 +119,15 @@ public class Digipeater extends Callsign {
         return super.toString() + (isUsed() ? "*" : "");
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void formatTo(StringBuilder sb) {
+        super.formatTo(sb);
+        if (isUsed()) {
+            sb.append('*');
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public byte[] toAX25() throws IllegalArgumentException {
@@ -0,0 +1,330 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>DupeFilter class.</p>
+ *
+ * The APRS-IS duplicate check: a packet with the same source, destination and information
+ * field as one seen in the last 30 seconds (by default) is a duplicate, whatever path it took.
+ * Packets are reduced to a 64-bit {@link PacketHash}, and the hashes are kept in a ring of
+ * time buckets.  Each bucket is a fixed-size open-addressing set of longs covering a slice of
+ * the window; a lookup probes every live bucket, and an insert goes into the current one.  When
+ * time moves on, the oldest bucket is claimed with a compare-and-set, wiped and reused, so the
+ * memory used is fixed at construction and nothing is allocated per packet.
+ *
+ * All methods are lock-free and safe to call from any number of threads.  If a bucket fills up
+ * (more traffic than it was sized for) further packets are let through rather than blocked, and
+ * counted in {@link #getOverflows()}.
+ *
+ * A filter built to keep timestamps also records when each packet was first seen, next to its
+ * hash, so callers such as {@link APRSISIngest} can tell how late a duplicate arrived.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class DupeFilter {
+    /**
+     * APRS-IS dupe window, in ms
+     */
+    public static final long DEFAULT_WINDOW = 30000;
+    private static final int BUCKETS = 8;
+    private static final long EMPTY = -2;
+    private static final long CLEARING = -1;
+    /**
+     * lookup result: the hash was not in the bucket
+     */
+    private static final long ABSENT = -1;
+    /**
+     * lookup result: the hash was not in the bucket, and there was no room to add it
+     */
+    private static final long FULL = -2;
+
+    private final Bucket[] ring = new Bucket[BUCKETS];
+    private final long span;
+    private final long origin = System.nanoTime();
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    /**
+     * <p>Constructor for DupeFilter.</p>
+     * A 30 second window sized for 100,000 distinct packets per window.
+     */
+    public DupeFilter() {
+        this(DEFAULT_WINDOW, 100000);
+    }
+
+    /**
+     * <p>Constructor for DupeFilter.</p>
+     *
+     * @param windowMillis how long a packet is remembered; lookups cover at least this long and at
+     * most one seventh longer
+     * @param maxPerWindow distinct packets expected per window; sets the memory budget at
+     * roughly 8 * 2 * maxPerWindow / 7 longs
+     */
+    public DupeFilter(long windowMillis, int maxPerWindow) {
+        this(windowMillis, maxPerWindow, false);
+    }
+
+    /**
+     * <p>Constructor for DupeFilter.</p>
+     *
+     * @param windowMillis how long a packet is remembered
+     * @param maxPerWindow distinct packets expected per window
+     * @param stamped true to record when each packet was first seen, for {@link #lagNanos(long, long)};
+     * doubles the memory used
+     */
+    DupeFilter(long windowMillis, int maxPerWindow, boolean stamped) {
+        if (windowMillis < BUCKETS - 1 || maxPerWindow < 1) {
+            throw new IllegalArgumentException("Bad dupe window");
+        }
+        this.span = windowMillis / (BUCKETS - 1);
+        int perBucket = (maxPerWindow + BUCKETS - 2) / (BUCKETS - 1);
+        // keep each bucket at most half full so probe chains stay short
+        int cap = Integer.highestOneBit(Math.max(perBucket, 8) * 2 - 1) << 1;
+        for (int i = 0; i < BUCKETS; i++) {
+            ring[i] = new Bucket(cap, stamped);
+        }
+    }
+
+    /**
+     * <p>isDuplicate.</p>
+     *
+     * @param buf buffer holding a TNC2-format line
+     * @param offset index of the first byte of the line
+     * @param length length of the line, without CR/LF
+     * @return boolean true if the same packet was seen within the window; the packet is
+     * remembered either way
+     */
+    public boolean isDuplicate(byte[] buf, int offset, int length) {
+        return isDuplicate(PacketHash.hashLine(buf, offset, length), now());
+    }
+
+    /**
+     * <p>isDuplicate.</p>
+     *
+     * @param packet a parsed packet
+     * @return boolean true if the same packet was seen within the window; the packet is
+     * remembered either way
+     */
+    public boolean isDuplicate(APRSPacket packet) {
+        return isDuplicate(PacketHash.hash(packet), now());
+    }
+
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+    }
+
+    /**
+     * <p>isDuplicate.</p>
+     *
+     * @param hash a {@link PacketHash}; 0 (no header) is never a duplicate
+     * @param nowMillis monotonic time in ms, never negative
+     * @return boolean true if the hash was seen within the window
+     */
+    boolean isDuplicate(long hash, long nowMillis) {
+        return check(hash, nowMillis, 0) >= 0;
+    }
+
+    /**
+     * <p>lagNanos.</p>
+     *
+     * @param hash a {@link PacketHash}; 0 (no header) is never a duplicate
+     * @param nowNanos <code>System.nanoTime()</code> of this arrival
+     * @return long -1 if the hash was not seen within the window (it is remembered now), otherwise
+     * how many ns ago it was first seen; 0 if this filter does not keep timestamps
+     */
+    long lagNanos(long hash, long nowNanos) {
+        long t = nowNanos - origin;
+        // stamps are offset by one so a stamp of 0 means "not written yet"
+        long first = check(hash, TimeUnit.NANOSECONDS.toMillis(t), t + 1);
+        if (first < 0) {
+            return -1;
+        }
+        return first == 0 ? 0 : Math.max(0, t + 1 - first);
+    }
+
+    /**
+     * @param stamp stored with the hash if it is new and the filter keeps timestamps
+     * @return long ABSENT if the hash is new, else the stamp it was first seen with (0 if none)
+     */
+    private long check(long hash, long nowMillis, long stamp) {
+        checked.increment();
+        if (hash == 0) {
+            return ABSENT;
+        }
+        long cur = nowMillis / span;
+        for (long e = cur - 1; e > cur - BUCKETS && e >= 0; e--) {
+            long first = ring[(int) (e % BUCKETS)].find(hash, e);
+            if (first >= 0) {
+                duplicates.increment();
+                return first;
+            }
+        }
+        Bucket b = ring[(int) (cur % BUCKETS)];
+        if (!b.claim(cur)) {
+            // a newer slice already owns the slot; our clock reading is stale
+            return ABSENT;
+        }
+        long r = b.add(hash, stamp);
+        if (r == FULL) {
+            overflows.increment();
+            return ABSENT;
+        }
+        if (r >= 0) {
+            duplicates.increment();
+        }
+        return r;
+    }
+
+    /**
+     * <p>Getter for the field <code>checked</code>.</p>
+     *
+     * @return long packets checked
+     */
+    public long getChecked() {
+        return checked.sum();
+    }
+
+    /**
+     * <p>Getter for the field <code>duplicates</code>.</p>
+     *
+     * @return long packets found to be duplicates
+     */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * <p>Getter for the field <code>overflows</code>.</p>
+     *
+     * @return long packets let through unremembered because their bucket was full
+     */
+    public long getOverflows() {
+        return overflows.sum();
+    }
+
+    /**
+     * one time slice of the window
+     */
+    private static final class Bucket {
+        private static final AtomicLongFieldUpdater<Bucket> EPOCH =
+                AtomicLongFieldUpdater.newUpdater(Bucket.class, "epoch");
+        private final AtomicLongArray slots;
+        /**
+         * first-seen stamp of the hash in the same slot, or null if not kept
+         */
+        private final AtomicLongArray stamps;
+        private final int mask;
+        private volatile long epoch = EMPTY;
+
+        Bucket(int capacity, boolean stamped) {
+            slots = new AtomicLongArray(capacity);
+            stamps = stamped ? new AtomicLongArray(capacity) : null;
+            mask = capacity - 1;
+        }
+
+        /**
+         * makes this bucket hold slice e, wiping it if it held an older one
+         *
+         * @return false if it already holds a newer slice
+         */
+        boolean claim(long e) {
+            for (;;) {
+                long cur = epoch;
+                if (cur == e) {
+                    return true;
+                }
+                if (cur == CLEARING) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                if (cur > e) {
+                    return false;
+                }
+                if (EPOCH.compareAndSet(this, cur, CLEARING)) {
+                    for (int i = 0; i <= mask; i++) {
+                        slots.set(i, 0);
+                        if (stamps != null) {
+                            stamps.set(i, 0);
+                        }
+                    }
+                    epoch = e;
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return long ABSENT if slice e does not hold the hash, else its stamp (0 if none)
+         */
+        long find(long hash, long e) {
+            if (epoch != e) {
+                return ABSENT;
+            }
+            int i = (int) hash & mask;
+            for (int n = 0; n <= mask; n++) {
+                long v = slots.get(i);
+                if (v == hash) {
+                    long stamp = stamps == null ? 0 : stamps.get(i);
+                    // recheck, in case the slot was recycled under us
+                    return epoch == e ? stamp : ABSENT;
+                }
+                if (v == 0) {
+                    return ABSENT;
+                }
+                i = (i + 1) & mask;
+            }
+            return ABSENT;
+        }
+
+        /**
+         * @return long ABSENT if added, FULL if the bucket is full, else the stamp of the copy
+         * already present (0 if none)
+         */
+        long add(long hash, long stamp) {
+            int i = (int) hash & mask;
+            for (int n = 0; n <= mask; n++) {
+                long v = slots.get(i);
+                if (v == 0) {
+                    if (slots.compareAndSet(i, 0, hash)) {
+                        if (stamps != null) {
+                            stamps.set(i, stamp);
+                        }
+                        return ABSENT;
+                    }
+                    v = slots.get(i);
+                }
+                if (v == hash) {
+                    return stamps == null ? 0 : stamps.get(i);
+                }
+                i = (i + 1) & mask;
+            }
+            return FULL;
+        }
+    }
+}
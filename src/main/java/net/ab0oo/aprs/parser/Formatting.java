@@ -0,0 +1,160 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.io.IOException;
+
+/**
+ * <p>Formatting class.</p>
+ *
+ * Small appenders used by the <code>formatTo</code> methods, so packets can be written into a
+ * caller's StringBuilder without building intermediate Strings, Dates or formatter objects.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+final class Formatting {
+
+    private Formatting() {
+    }
+
+    /**
+     * <p>appendPadded.</p>
+     *
+     * @param sb where to write
+     * @param s text, left-justified
+     * @param width minimum width; shorter text is padded with spaces, as <code>%-Ns</code> would
+     */
+    static void appendPadded(StringBuilder sb, String s, int width) {
+        sb.append(s);
+        for (int i = s == null ? 4 : s.length(); i < width; i++) {
+            sb.append(' ');
+        }
+    }
+
+    /**
+     * <p>appendFixed.</p>
+     *
+     * @param sb where to write
+     * @param v value
+     * @param decimals digits after the point, at most 9
+     */
+    static void appendFixed(StringBuilder sb, double v, int decimals) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) {
+            sb.append(v);
+            return;
+        }
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        long n = Math.round(Math.abs(v) * scale);
+        if (v < 0) {
+            sb.append('-');
+        }
+        sb.append(n / scale);
+        if (decimals > 0) {
+            sb.append('.');
+            long frac = n % scale;
+            for (long d = scale / 10; d > 0; d /= 10) {
+                sb.append((char) ('0' + frac / d % 10));
+            }
+        }
+    }
+
+    /**
+     * <p>append2.</p>
+     *
+     * @param sb where to write
+     * @param v value from 0 to 99, written as two digits
+     */
+    static void append2(StringBuilder sb, int v) {
+        sb.append((char) ('0' + v / 10)).append((char) ('0' + v % 10));
+    }
+
+    /**
+     * <p>appendUtc.</p>
+     *
+     * @param sb where to write
+     * @param millis ms since the epoch, written as ISO-8601 UTC (yyyy-MM-ddTHH:mm:ss.SSSZ)
+     */
+    static void appendUtc(StringBuilder sb, long millis) {
+        long days = Math.floorDiv(millis, 86400000L);
+        int ms = (int) Math.floorMod(millis, 86400000L);
+        // days to civil date, proleptic Gregorian (H. Hinnant)
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int d = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int m = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+        sb.append(y).append('-');
+        append2(sb, m);
+        sb.append('-');
+        append2(sb, d);
+        sb.append('T');
+        append2(sb, ms / 3600000);
+        sb.append(':');
+        append2(sb, ms / 60000 % 60);
+        sb.append(':');
+        append2(sb, ms / 1000 % 60);
+        sb.append('.');
+        int frac = ms % 1000;
+        sb.append((char) ('0' + frac / 100));
+        append2(sb, frac % 100);
+        sb.append('Z');
+    }
+
+    /**
+     * <p>drain.</p>
+     *
+     * @param scratch builder holding the pieces formatted so far; emptied for reuse
+     * @param out where to write them, as a CharSequence, without making a String
+     * @throws java.io.IOException if <code>out</code> fails
+     */
+    static void drain(StringBuilder scratch, Appendable out) throws IOException {
+        out.append(scratch);
+        scratch.setLength(0);
+    }
+
+    /**
+     * <p>appendText.</p>
+     *
+     * @param sb where to write
+     * @param buf raw packet bytes
+     * @param off first byte
+     * @param len number of bytes; decoded as {@link CommentDecoder} would, copied char by char
+     * when they are plain ASCII
+     */
+    static void appendText(StringBuilder sb, byte[] buf, int off, int len) {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            if (buf[i] < 0) {
+                sb.append(CommentDecoder.decode(buf, i, end - i));
+                return;
+            }
+            sb.append((char) buf[i]);
+        }
+    }
+}
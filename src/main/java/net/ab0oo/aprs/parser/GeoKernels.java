@@ -0,0 +1,249 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+/**
+ * <p>GeoKernels class.</p>
+ *
+ * Distance and bearing from one reference point to many points held in primitive arrays, for
+ * range filters and proximity work that needs millions of distances a second.  The trig of
+ * the reference point is computed once, in {@link Reference}.  Every kernel is a plain counted
+ * loop over the arrays with no branches or calls other than {@link Math} intrinsics, and the
+ * arithmetic is split from the inverse trig into separate passes, so HotSpot's C2 compiler can
+ * unroll and vectorize the parts it is able to.
+ *
+ * The approximate kernels use a flat-earth (equirectangular) projection around the midpoint
+ * latitude, with the cosine taken from a short polynomial, so they need no library trig at
+ * all.  Within 500 km of a reference point at or below 70 degrees of latitude their error is
+ * under 0.5%, which is plenty for a threshold check that is confirmed exactly afterwards.
+ * All distances are in kilometers, all angles in degrees.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public final class GeoKernels {
+    /**
+     * mean earth radius, in km
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double RAD = Math.PI / 180.0;
+    private static final double KM_PER_DEG = EARTH_RADIUS_KM * RAD;
+
+    private GeoKernels() {
+    }
+
+    /**
+     * <p>Reference class.</p>
+     * A reference point with its trig precomputed.
+     */
+    public static final class Reference {
+        final double lat;
+        final double lon;
+        final double sinLat;
+        final double cosLat;
+
+        /**
+         * <p>Constructor for Reference.</p>
+         *
+         * @param lat latitude in degrees
+         * @param lon longitude in degrees
+         */
+        public Reference(double lat, double lon) {
+            this.lat = lat;
+            this.lon = lon;
+            this.sinLat = Math.sin(lat * RAD);
+            this.cosLat = Math.cos(lat * RAD);
+        }
+
+        /**
+         * <p>Constructor for Reference.</p>
+         *
+         * @param p reference position
+         */
+        public Reference(Position p) {
+            this(p.getRawLatitude(), p.getRawLongitude());
+        }
+
+        /**
+         * <p>distanceKm.</p>
+         *
+         * @param lat2 latitude in degrees
+         * @param lon2 longitude in degrees
+         * @return double great-circle distance from the reference point
+         */
+        public double distanceKm(double lat2, double lon2) {
+            double sLat = Math.sin((lat2 - lat) * RAD * 0.5);
+            double sLon = Math.sin((lon2 - lon) * RAD * 0.5);
+            double a = sLat * sLat + cosLat * Math.cos(lat2 * RAD) * sLon * sLon;
+            return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1.0, a)));
+        }
+
+        /**
+         * <p>bearing.</p>
+         *
+         * @param lat2 latitude in degrees
+         * @param lon2 longitude in degrees
+         * @return double initial great-circle bearing from the reference point, 0 to 360
+         */
+        public double bearing(double lat2, double lon2) {
+            double dLon = (lon2 - lon) * RAD;
+            double cosLat2 = Math.cos(lat2 * RAD);
+            double y = Math.sin(dLon) * cosLat2;
+            double x = cosLat * Math.sin(lat2 * RAD) - sinLat * cosLat2 * Math.cos(dLon);
+            double deg = Math.atan2(y, x) / RAD;
+            return deg < 0 ? deg + 360 : deg;
+        }
+    }
+
+    /**
+     * <p>distancesKm.</p>
+     *
+     * @param ref reference point
+     * @param lat latitudes in degrees
+     * @param lon longitudes in degrees
+     * @param n number of points to process
+     * @param out receives the great-circle distance to each point
+     */
+    public static void distancesKm(Reference ref, double[] lat, double[] lon, int n, double[] out) {
+        haversineTerms(ref, lat, lon, n, out);
+        for (int i = 0; i < n; i++) {
+            out[i] = 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1.0, out[i])));
+        }
+    }
+
+    /**
+     * the haversine 'a' term, sin^2(dlat/2) + cos(lat1) cos(lat2) sin^2(dlon/2), per point
+     */
+    static void haversineTerms(Reference ref, double[] lat, double[] lon, int n, double[] out) {
+        double lat0 = ref.lat;
+        double lon0 = ref.lon;
+        double cos0 = ref.cosLat;
+        for (int i = 0; i < n; i++) {
+            double sLat = Math.sin((lat[i] - lat0) * (RAD * 0.5));
+            double sLon = Math.sin((lon[i] - lon0) * (RAD * 0.5));
+            out[i] = sLat * sLat + cos0 * Math.cos(lat[i] * RAD) * sLon * sLon;
+        }
+    }
+
+    /**
+     * <p>withinKm.</p>
+     *
+     * @param ref reference point
+     * @param lat latitudes in degrees
+     * @param lon longitudes in degrees
+     * @param n number of points to process
+     * @param km radius
+     * @param scratch work array of at least n elements
+     * @param hits receives the indices of the points within the radius
+     * @return int number of hits
+     */
+    public static int withinKm(Reference ref, double[] lat, double[] lon, int n, double km,
+            double[] scratch, int[] hits) {
+        double h = Math.sin(Math.min(km / EARTH_RADIUS_KM, Math.PI) * 0.5);
+        double limit = h * h;
+        haversineTerms(ref, lat, lon, n, scratch);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            hits[count] = i;
+            count += scratch[i] <= limit ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * <p>distancesKmApprox.</p>
+     *
+     * @param ref reference point
+     * @param lat latitudes in degrees
+     * @param lon longitudes in degrees
+     * @param n number of points to process
+     * @param out receives the equirectangular distance to each point
+     */
+    public static void distancesKmApprox(Reference ref, double[] lat, double[] lon, int n, double[] out) {
+        double lat0 = ref.lat;
+        double lon0 = ref.lon;
+        for (int i = 0; i < n; i++) {
+            double dLat = lat[i] - lat0;
+            double dLon = lon[i] - lon0;
+            // fold the longitude difference into -180..180 without a branch
+            dLon -= 360.0 * Math.rint(dLon * (1.0 / 360.0));
+            double c = cosPoly((lat[i] + lat0) * (RAD * 0.5));
+            double x = dLon * c;
+            out[i] = KM_PER_DEG * Math.sqrt(x * x + dLat * dLat);
+        }
+    }
+
+    /**
+     * <p>withinKmApprox.</p>
+     *
+     * @param ref reference point
+     * @param lat latitudes in degrees
+     * @param lon longitudes in degrees
+     * @param n number of points to process
+     * @param km radius; points up to 0.5% beyond it may be included
+     * @param scratch work array of at least n elements
+     * @param hits receives the indices of the candidate points
+     * @return int number of hits
+     */
+    public static int withinKmApprox(Reference ref, double[] lat, double[] lon, int n, double km,
+            double[] scratch, int[] hits) {
+        double limit = km * 1.005;
+        distancesKmApprox(ref, lat, lon, n, scratch);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            hits[count] = i;
+            count += scratch[i] <= limit ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * <p>bearings.</p>
+     *
+     * @param ref reference point
+     * @param lat latitudes in degrees
+     * @param lon longitudes in degrees
+     * @param n number of points to process
+     * @param out receives the initial bearing from the reference to each point, 0 to 360
+     */
+    public static void bearings(Reference ref, double[] lat, double[] lon, int n, double[] out) {
+        double lon0 = ref.lon;
+        double sin0 = ref.sinLat;
+        double cos0 = ref.cosLat;
+        for (int i = 0; i < n; i++) {
+            double dLon = (lon[i] - lon0) * RAD;
+            double lat2 = lat[i] * RAD;
+            double cosLat2 = Math.cos(lat2);
+            double y = Math.sin(dLon) * cosLat2;
+            double x = cos0 * Math.sin(lat2) - sin0 * cosLat2 * Math.cos(dLon);
+            double deg = Math.atan2(y, x) * (1.0 / RAD);
+            out[i] = deg + (deg < 0 ? 360.0 : 0.0);
+        }
+    }
+
+    /**
+     * cosine for |x| up to pi/2, from a degree-10 even polynomial (error below 1e-6)
+     */
+    static double cosPoly(double x) {
+        double x2 = x * x;
+        return 1.0 + x2 * (-0.5 + x2 * (1.0 / 24 + x2 * (-1.0 / 720 + x2 * (1.0 / 40320 + x2 * (-1.0 / 3628800)))));
+    }
+}
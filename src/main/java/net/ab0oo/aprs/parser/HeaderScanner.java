@@ -0,0 +1,262 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * <p>HeaderScanner class.</p>
+ *
+ * Splits the TNC2 header (<code>SOURCE&gt;DEST,DIGI,DIGI*:</code>) of a packet held in a
+ * byte buffer.  The buffer is read eight bytes at a time as a little-endian long, and
+ * every '&gt;', ',', ':', '*' and '-' in the word is found at once with SWAR byte
+ * comparisons; only the delimiters themselves are then visited.  The same pass copies
+ * the header into a scratch buffer with ASCII letters folded to upper case, so the
+ * callsign Strings are built without <code>toUpperCase()</code>.
+ *
+ * One instance is reused per thread; it is not thread-safe.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+final class HeaderScanner {
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW7 = 0x7f7f7f7f7f7f7f7fL;
+    private static final long HIGH = 0x8080808080808080L;
+    private static final long GT = '>' * ONES;
+    private static final long COMMA = ',' * ONES;
+    private static final long COLON = ':' * ONES;
+    private static final long STAR = '*' * ONES;
+    private static final long DASH = '-' * ONES;
+    private static final long LOWER_A = (0x80 - 'a') * ONES;
+    private static final long ABOVE_Z = (0x80 - 'z' - 1) * ONES;
+
+    private byte[] packet;
+    private int offset;
+    /** header bytes, upper-cased, indexed from <code>offset</code> */
+    private byte[] folded = new byte[128];
+    /** index of '&gt;', or -1 */
+    private int cs;
+    /** index of the ':' ending the header, or -1 */
+    private int ms;
+
+    /** per path field: start, end, first '-', first '*' (absolute indexes, -1 if absent) */
+    private int[] fields = new int[4 * 10];
+    private int fieldCount;
+    private boolean[] irregular = new boolean[10];
+    private int fieldStart;
+    private int dash;
+    private int star;
+    private int dashes;
+    private int stars;
+
+    /**
+     * <p>scan.</p>
+     *
+     * @param packet buffer holding the packet
+     * @param offset first byte of the packet
+     * @param length number of bytes in the packet
+     * @return boolean true if a source, a '&gt;' and a ':' followed by at least one body byte were found
+     */
+    boolean scan(byte[] packet, int offset, int length) {
+        this.packet = packet;
+        this.offset = offset;
+        this.cs = -1;
+        this.ms = -1;
+        this.fieldCount = 0;
+        int end = offset + length;
+        if (folded.length < length + 8) {
+            folded = new byte[Math.max(length + 8, folded.length * 2)];
+        }
+        int i = offset;
+        for (; i + 8 <= end && ms < 0; i += 8) {
+            long w = (long) LONG.get(packet, i);
+            LONG.set(folded, i - offset, upper(w));
+            long m = match(w, GT) | match(w, COMMA) | match(w, COLON) | match(w, STAR) | match(w, DASH);
+            while (m != 0 && ms < 0) {
+                int p = i + (Long.numberOfTrailingZeros(m) >>> 3);
+                m &= m - 1;
+                delimiter(packet[p], p);
+            }
+        }
+        for (; i < end && ms < 0; i++) {
+            byte b = packet[i];
+            folded[i - offset] = (b >= 'a' && b <= 'z') ? (byte) (b - 0x20) : b;
+            delimiter(b, i);
+        }
+        return cs >= 0 && ms >= 0 && ms + 1 < end;
+    }
+
+    /**
+     * <p>match.</p>
+     *
+     * @param w eight packet bytes
+     * @param pattern the byte to find, repeated in every lane
+     * @return long 0x80 in every lane of <code>w</code> equal to the pattern byte, 0 elsewhere
+     */
+    static long match(long w, long pattern) {
+        long x = w ^ pattern;
+        long t = (x & LOW7) + LOW7;
+        return ~(t | x | LOW7);
+    }
+
+    /**
+     * <p>upper.</p>
+     *
+     * @param w eight packet bytes
+     * @return long the same bytes with ASCII 'a'..'z' changed to 'A'..'Z'; other bytes untouched
+     */
+    static long upper(long w) {
+        long h = w & LOW7;
+        long lower = (h + LOWER_A) & ~(h + ABOVE_Z) & ~w & HIGH;
+        return w ^ (lower >>> 2);
+    }
+
+    private void delimiter(byte b, int p) {
+        if (cs < 0) {
+            if (b == '>') {
+                cs = p;
+                startField(p + 1);
+            }
+            return;
+        }
+        switch (b) {
+            case ',':
+                endField(p);
+                startField(p + 1);
+                break;
+            case ':':
+                endField(p);
+                ms = p;
+                break;
+            case '*':
+                if (stars++ == 0) {
+                    star = p;
+                }
+                break;
+            case '-':
+                if (dashes++ == 0) {
+                    dash = p;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void startField(int p) {
+        fieldStart = p;
+        dash = -1;
+        star = -1;
+        dashes = 0;
+        stars = 0;
+    }
+
+    private void endField(int p) {
+        if (fieldCount == irregular.length) {
+            irregular = Arrays.copyOf(irregular, fieldCount * 2);
+            fields = Arrays.copyOf(fields, fieldCount * 8);
+        }
+        int f = fieldCount * 4;
+        fields[f] = fieldStart;
+        fields[f + 1] = p;
+        fields[f + 2] = dash;
+        fields[f + 3] = star;
+        irregular[fieldCount] = dashes > 1 || stars > 1 || (star >= 0 && star != p - 1) || p == fieldStart
+                || (packet[fieldStart] & 0xff) <= ' ' || (packet[p - 1] & 0xff) <= ' ';
+        fieldCount++;
+    }
+
+    /**
+     * <p>getInfoStart.</p>
+     *
+     * @return int index of the first byte of the information field
+     */
+    int getInfoStart() {
+        return ms + 1;
+    }
+
+    /**
+     * <p>source.</p>
+     *
+     * @return String the source callsign, upper case
+     */
+    String source() {
+        return folded(offset, cs);
+    }
+
+    /**
+     * <p>destination.</p>
+     *
+     * @return String the destination field, upper case
+     */
+    String destination() {
+        return folded(fields[0], fields[1]);
+    }
+
+    /**
+     * <p>digipeaters.</p>
+     *
+     * @return ArrayList the path after the destination, as {@link Digipeater#parseList} would build it
+     */
+    ArrayList<Digipeater> digipeaters() {
+        ArrayList<Digipeater> digis = new ArrayList<Digipeater>(Math.max(fieldCount - 1, 0));
+        for (int n = 1; n < fieldCount; n++) {
+            int f = n * 4;
+            int start = fields[f];
+            int end = fields[f + 1];
+            if (irregular[n]) {
+                String digi = new String(packet, start, end - start, StandardCharsets.ISO_8859_1).trim();
+                if (digi.length() > 0) {
+                    digis.add(new Digipeater(digi));
+                }
+                continue;
+            }
+            int star = fields[f + 3];
+            int callEnd = star >= 0 ? star : end;
+            int dash = fields[f + 2];
+            String call;
+            String ssid;
+            if (dash < 0) {
+                call = folded(start, callEnd);
+                ssid = "";
+            } else {
+                call = folded(start, dash);
+                ssid = new String(packet, dash + 1, callEnd - dash - 1, StandardCharsets.ISO_8859_1);
+            }
+            digis.add(new Digipeater(call, ssid, star >= 0));
+        }
+        return digis;
+    }
+
+    private String folded(int from, int to) {
+        return new String(folded, from - offset, to - from, StandardCharsets.ISO_8859_1);
+    }
+}
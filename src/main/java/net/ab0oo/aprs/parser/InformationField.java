@@ -20,6 +20,7 @@
  */
 package net.ab0oo.aprs.parser;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
@@ -166,17 +167,67 @@ public class InformationField implements Serializable {
     /** {@inheritDoc} */
     @Override
     public String toString() {
-        StringBuffer sb = new StringBuffer();
-        sb.append("Raw Bytes:\t"+new String(rawBytes)+"\n");
-        sb.append("Data Type Identifier: "+dataTypeIdentifier+"\n");
-        sb.append("Create Timestamp:\t"+ (new java.util.Date(createTimestamp).toString() )+"\n");
-        sb.append("Comment:  "+this.comment+"\n");
+        StringBuilder sb = new StringBuilder();
+        formatTo(sb);
+        return sb.toString();
+    }
+
+    /**
+     * <p>formatTo.</p>
+     *
+     * @param sb builder to append the same text as {@link #toString()} to
+     */
+    public void formatTo(StringBuilder sb) {
+        sb.append("Raw Bytes:\t");
+        Formatting.appendText(sb, rawBytes, 0, rawBytes.length);
+        sb.append("\nData Type Identifier: ").append(dataTypeIdentifier);
+        sb.append("\nCreate Timestamp:\t");
+        Formatting.appendUtc(sb, createTimestamp);
+        sb.append("\nComment:  ").append(this.comment).append('\n');
         for ( APRSData df : dataFields.values() ) {
-            sb.append("Class "+df.getClass().getName()+"\n");
-            sb.append(df.toString());
+            sb.append("Class ").append(df.getClass().getName()).append('\n');
+            df.formatTo(sb);
         }
+    }
 
-        return sb.toString();
+    /**
+     * <p>formatTo.</p>
+     *
+     * Text is written to <code>out</code> as it goes; the raw bytes, the timestamp and each
+     * data field are formatted into a scratch builder first, as Appendable has no numeric
+     * appends.
+     *
+     * @param out where to write the same text as {@link #toString()}
+     * @throws java.io.IOException if <code>out</code> fails
+     */
+    public void formatTo(Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            formatTo((StringBuilder) out);
+            return;
+        }
+        formatTo(out, new StringBuilder(128));
+    }
+
+    /**
+     * <p>formatTo.</p>
+     *
+     * @param out where to write the same text as {@link #toString()}
+     * @param scratch empty builder to format numbers and data fields in; left empty
+     * @throws java.io.IOException if <code>out</code> fails
+     */
+    void formatTo(Appendable out, StringBuilder scratch) throws IOException {
+        out.append("Raw Bytes:\t");
+        Formatting.appendText(scratch, rawBytes, 0, rawBytes.length);
+        scratch.append("\nData Type Identifier: ").append(dataTypeIdentifier);
+        scratch.append("\nCreate Timestamp:\t");
+        Formatting.appendUtc(scratch, createTimestamp);
+        Formatting.drain(scratch, out);
+        out.append("\nComment:  ").append(this.comment).append('\n');
+        for ( APRSData df : dataFields.values() ) {
+            out.append("Class ").append(df.getClass().getName()).append('\n');
+            df.formatTo(scratch);
+            Formatting.drain(scratch, out);
+        }
     }
 	/**
 	 * <p>hasFault.</p>
@@ -268,6 +319,36 @@ public class InformationField implements Serializable {
 	}
 
     
+    /**
+     * <p>freezeFields.</p>
+     *
+     * Make every data field and the extension read-only, so they can be shared with
+     * later packets carrying the same body.
+     */
+    void freezeFields() {
+        for (APRSData d : dataFields.values()) {
+            d.freeze();
+        }
+        if (extension != null) {
+            extension.freeze();
+        }
+    }
+
+    /**
+     * <p>useShared.</p>
+     *
+     * Take the decoded fields of an identical body instead of decoding this one.  This
+     * field keeps its own map, timestamp and raw bytes; the data fields themselves are
+     * shared and read-only.
+     *
+     * @param fields frozen data fields
+     * @param ext frozen extension, or null
+     */
+    void useShared(Map<APRSTypes,APRSData> fields, DataExtension ext) {
+        dataFields = new HashMap<>(fields);
+        extension = ext;
+    }
+
     /**
      * <p>containsType.</p>
      *
@@ -38,21 +38,25 @@ public class ItemField extends APRSData {
 	 * String indicating the name of this item, as assigned by the originator
 	 */
 	private String itemName;
+	/**
+	 * The position of this item, null if it could not be parsed
+	 */
+	private PositionField position;
 
 	/**
 	 * <p>Constructor for ItemField.</p>
 	 *
-	 * @param msgBody byte array of the on-air message
+	 * @param msgBody byte array of the on-air message; shared, not copied
 	 * @throws java.lang.Exception if it is unable to parse the item field from the msg
 	 *
 	 * parse an APRS item message
 	 */
 	public ItemField(byte[] msgBody) throws Exception {
-		this.rawBytes = msgBody;
+		setRawSlice(msgBody, 0, msgBody.length);
 		String body = new String(msgBody);
 		int name_length = body.indexOf("!") - 1;
 		if (name_length < 1 || name_length > 9) {
-			name_length = body.indexOf("_");
+			name_length = body.indexOf("_") - 1;
 			if (name_length < 1 || name_length > 9) {
 				setHasFault(true);
 				setFaultReason("Invalid ITEM packet, missing '!' or '_'.");
@@ -63,10 +67,63 @@ public class ItemField extends APRSData {
 			this.live = true;
 		this.itemName = new String(msgBody, 1, name_length).trim();
 		int cursor = name_length + 2;
-		comment = new String(msgBody, cursor, msgBody.length - cursor, "UTF-8").trim();
+		if (cursor < msgBody.length) {
+			PositionField pf = new PositionField(msgBody, "FOO", cursor);
+			if (!pf.hasFault() && pf.getPosition() != null) {
+				this.position = pf;
+				cursor = Math.min(pf.getLastCursorPosition(), msgBody.length);
+			}
+		}
+		int start = cursor;
+		int end = msgBody.length;
+		while (start < end && (msgBody[start] & 0xff) <= ' ') {
+			start++;
+		}
+		while (end > start && (msgBody[end - 1] & 0xff) <= ' ') {
+			end--;
+		}
+		setCommentRange(start, end - start);
 		super.setLastCursorPosition(cursor);
 	}
 
+	/**
+	 * <p>isLive.</p>
+	 *
+	 * @return true if the item is live, false if its owner has killed it
+	 */
+	public boolean isLive() {
+		return live;
+	}
+
+	/**
+	 * <p>Setter for the field <code>live</code>.</p>
+	 *
+	 * @param live marks whether the item is live
+	 */
+	public void setLive(boolean live) {
+		checkWritable();
+		this.live = live;
+	}
+
+	/**
+	 * <p>Getter for the field <code>position</code>.</p>
+	 *
+	 * @return PositionField the item's position (includes symbol table/symbol), or null
+	 */
+	public PositionField getPosition() {
+		return position;
+	}
+
+	/**
+	 * <p>Setter for the field <code>position</code>.</p>
+	 *
+	 * @param position the position for this item
+	 */
+	public void setPosition(PositionField position) {
+		checkWritable();
+		this.position = position;
+	}
+
 	/**
 	 * <p>Getter for the field <code>itemName</code>.</p>
 	 *
@@ -84,15 +141,34 @@ public class ItemField extends APRSData {
 	 * This is the setter for the item name for this ItemField
 	 */
 	public void setItemName(String itemName) {
+		checkWritable();
 		this.itemName = itemName;
 	}
 	
+	@Override
+	void freeze() {
+		super.freeze();
+		if (position != null) {
+			position.freeze();
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public String toString() {
-		if (rawBytes != null)
-			return new String(rawBytes);
-		return ")" + this.itemName + (live ? "!" : "_") + comment;
+		StringBuilder sb = new StringBuilder();
+		formatTo(sb);
+		return sb.toString();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void formatTo(StringBuilder sb) {
+		if (rawBytes != null) {
+			Formatting.appendText(sb, rawBytes, rawOffset, rawLength);
+			return;
+		}
+		sb.append(')').append(this.itemName).append(live ? '!' : '_').append(getComment());
 	}
 
 	/** {@inheritDoc} */
@@ -0,0 +1,165 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>LineFramer class.</p>
+ *
+ * Splits a byte stream (such as an APRS-IS socket) into CR/LF terminated lines without
+ * building a String per line.  Bytes are copied once into an internal line buffer, and each
+ * complete line is handed to the {@link Handler} as a slice of that buffer.  The slice is only
+ * valid for the duration of the callback.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class LineFramer {
+    /**
+     * APRS-IS lines are limited to 512 bytes, leave a little room for broken servers
+     */
+    public static final int DEFAULT_MAX_LINE = 1024;
+
+    /**
+     * receives every complete line found in the stream
+     */
+    public interface Handler {
+        /**
+         * <p>onLine.</p>
+         *
+         * @param buf buffer holding the line
+         * @param offset index of the first byte of the line
+         * @param length length of the line, without CR/LF
+         */
+        void onLine(byte[] buf, int offset, int length);
+    }
+
+    private final byte[] line;
+    private final Handler handler;
+    private int length = 0;
+    /**
+     * set while we are throwing away the tail of an over-long line
+     */
+    private boolean discarding = false;
+    private long linesFramed = 0;
+    private long linesDiscarded = 0;
+
+    /**
+     * <p>Constructor for LineFramer.</p>
+     *
+     * @param handler receives each complete line
+     */
+    public LineFramer(Handler handler) {
+        this(handler, DEFAULT_MAX_LINE);
+    }
+
+    /**
+     * <p>Constructor for LineFramer.</p>
+     *
+     * @param handler receives each complete line
+     * @param maxLine longest line accepted, longer lines are dropped
+     */
+    public LineFramer(Handler handler, int maxLine) {
+        this.handler = handler;
+        this.line = new byte[maxLine];
+    }
+
+    /**
+     * <p>feed.</p>
+     *
+     * @param in buffer in read mode; all remaining bytes are consumed
+     */
+    public void feed(ByteBuffer in) {
+        if (in.hasArray()) {
+            feed(in.array(), in.arrayOffset() + in.position(), in.remaining());
+            in.position(in.limit());
+            return;
+        }
+        while (in.hasRemaining()) {
+            accept(in.get());
+        }
+    }
+
+    /**
+     * <p>feed.</p>
+     *
+     * @param buf bytes read from the stream
+     * @param offset index of the first new byte
+     * @param count number of new bytes
+     */
+    public void feed(byte[] buf, int offset, int count) {
+        int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            accept(buf[i]);
+        }
+    }
+
+    private void accept(byte b) {
+        if (b == '\n' || b == '\r') {
+            if (discarding) {
+                discarding = false;
+                linesDiscarded++;
+            } else if (length > 0) {
+                linesFramed++;
+                handler.onLine(line, 0, length);
+            }
+            length = 0;
+            return;
+        }
+        if (discarding) {
+            return;
+        }
+        if (length == line.length) {
+            discarding = true;
+            length = 0;
+            return;
+        }
+        line[length++] = b;
+    }
+
+    /**
+     * <p>reset.</p>
+     * Throws away any partial line, e.g. after a reconnect.
+     */
+    public void reset() {
+        length = 0;
+        discarding = false;
+    }
+
+    /**
+     * <p>Getter for the field <code>linesFramed</code>.</p>
+     *
+     * @return long number of complete lines handed to the handler
+     */
+    public long getLinesFramed() {
+        return linesFramed;
+    }
+
+    /**
+     * <p>Getter for the field <code>linesDiscarded</code>.</p>
+     *
+     * @return long number of over-long lines thrown away
+     */
+    public long getLinesDiscarded() {
+        return linesDiscarded;
+    }
+}
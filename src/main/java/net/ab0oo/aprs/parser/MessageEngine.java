@@ -0,0 +1,728 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>MessageEngine class.</p>
+ *
+ * Delivers APRS messages for one or more local callsigns.  Outbound messages get a message
+ * number and are re-sent at growing intervals until the addressee acknowledges or rejects
+ * them, or the attempts run out.  Incoming messages are acknowledged (again, if the sender
+ * retries) but handed to the {@link Listener} only once.  Reply-acks ({MM}AA) are honoured in
+ * both directions: an incoming reply-ack settles the outbound message it names, and once a
+ * station has used the form our own messages to it carry the number of its last message.
+ *
+ * Every outbound message is tracked by (from, to, number) in one concurrent map, and all retry
+ * timers share a single hashed {@link TimingWheel} driven by {@link #advance(long)}, so tens of
+ * thousands of conversations cost no threads or timers of their own.  Timers are not cancelled
+ * when a message settles; the wheel just finds it no longer pending.  With a
+ * {@link MessageJournal} attached, delivery state survives a restart.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class MessageEngine implements Closeable {
+    /**
+     * destination call used on outgoing messages
+     */
+    public static final String DESTINATION = "APRS";
+    /**
+     * longest message text the spec allows
+     */
+    public static final int MAX_TEXT = 67;
+    private static final long TICK = 1000;
+    private static final int WHEEL = 512;
+    private static final int RECENT = 16;
+
+    /**
+     * lifecycle of an outbound message
+     */
+    public enum State {
+        PENDING, ACKED, REJECTED, TIMED_OUT, CANCELLED
+    }
+
+    /**
+     * puts packets on the air, or on APRS-IS
+     */
+    public interface Transport {
+        /**
+         * <p>send.</p>
+         *
+         * @param packet packet to transmit
+         */
+        void send(APRSPacket packet);
+    }
+
+    /**
+     * told about incoming messages and about outbound messages that have settled
+     */
+    public interface Listener {
+        /**
+         * <p>onMessage.</p>
+         *
+         * @param packet the packet that carried the message
+         * @param message the message, addressed to one of our callsigns
+         */
+        void onMessage(APRSPacket packet, MessagePacket message);
+
+        /**
+         * <p>onSettled.</p>
+         *
+         * @param message an outbound message that was acked, rejected or gave up
+         */
+        void onSettled(Outbound message);
+    }
+
+    /**
+     * an outbound message and its delivery state
+     */
+    public static final class Outbound {
+        private final String from;
+        private final String to;
+        private final String number;
+        private final String text;
+        private final String key;
+        private volatile State state = State.PENDING;
+        private volatile int attempts;
+        private volatile long lastSent;
+
+        Outbound(String from, String to, String number, String text) {
+            this.from = from;
+            this.to = to;
+            this.number = number;
+            this.text = text;
+            this.key = key(from, to, number);
+        }
+
+        /**
+         * <p>Getter for the field <code>from</code>.</p>
+         *
+         * @return String sending callsign
+         */
+        public String getFrom() {
+            return from;
+        }
+
+        /**
+         * <p>Getter for the field <code>to</code>.</p>
+         *
+         * @return String addressee
+         */
+        public String getTo() {
+            return to;
+        }
+
+        /**
+         * <p>Getter for the field <code>number</code>.</p>
+         *
+         * @return String message number
+         */
+        public String getNumber() {
+            return number;
+        }
+
+        /**
+         * <p>Getter for the field <code>text</code>.</p>
+         *
+         * @return String message text
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * <p>Getter for the field <code>state</code>.</p>
+         *
+         * @return State where delivery stands
+         */
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * <p>Getter for the field <code>attempts</code>.</p>
+         *
+         * @return int transmissions so far
+         */
+        public int getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * <p>Getter for the field <code>lastSent</code>.</p>
+         *
+         * @return long when it was last transmitted, in ms
+         */
+        public long getLastSent() {
+            return lastSent;
+        }
+    }
+
+    /**
+     * what we know about one (local, remote) pair: numbering, reply-ack support and the
+     * numbers recently received, for duplicate suppression
+     */
+    private static final class Conversation {
+        final String local;
+        final String remote;
+        int nextNumber = 1;
+        boolean peerReplyAck;
+        String lastReceived;
+        final String[] recent = new String[RECENT];
+        final long[] recentTimes = new long[RECENT];
+        int head;
+        volatile long lastActivity;
+
+        Conversation(String local, String remote) {
+            this.local = local;
+            this.remote = remote;
+        }
+
+        boolean seen(String number, long nowMillis, long window) {
+            for (int i = 0; i < RECENT; i++) {
+                if (number.equals(recent[i]) && nowMillis - recentTimes[i] < window) {
+                    recentTimes[i] = nowMillis;
+                    return true;
+                }
+            }
+            recent[head] = number;
+            recentTimes[head] = nowMillis;
+            head = (head + 1) % RECENT;
+            return false;
+        }
+    }
+
+    private final Set<String> locals = new HashSet<>();
+    private final String defaultCall;
+    private final Transport transport;
+    private final Listener listener;
+    private final Map<String, Outbound> pending = new ConcurrentHashMap<>();
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+    private final TimingWheel<Outbound> wheel;
+    private volatile long initialRetry = 30000;
+    private volatile long maxRetry = 600000;
+    private volatile int maxAttempts = 6;
+    private volatile long dupeWindow = 1800000;
+    private volatile String[] path;
+    private volatile MessageJournal journal;
+    private long lastPrune;
+    private ScheduledExecutorService sweeper;
+
+    private final LongAdder transmissions = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    /**
+     * <p>Constructor for MessageEngine.</p>
+     *
+     * @param transport sends our messages and acks
+     * @param listener gets incoming messages and settled outbound ones; may be null
+     * @param callsigns local callsigns; the first is the default sender
+     */
+    public MessageEngine(Transport transport, Listener listener, String... callsigns) {
+        this(transport, listener, System.currentTimeMillis(), callsigns);
+    }
+
+    MessageEngine(Transport transport, Listener listener, long nowMillis, String... callsigns) {
+        if (transport == null || callsigns.length == 0) {
+            throw new IllegalArgumentException("need a transport and at least one callsign");
+        }
+        for (String c : callsigns) {
+            locals.add(c.toUpperCase());
+        }
+        this.defaultCall = callsigns[0].toUpperCase();
+        this.transport = transport;
+        this.listener = listener;
+        this.wheel = new TimingWheel<>(TICK, WHEEL, nowMillis);
+        this.lastPrune = nowMillis;
+    }
+
+    static String key(String from, String to, String number) {
+        return from + '>' + to + '{' + number;
+    }
+
+    /**
+     * <p>setRetry.</p>
+     *
+     * @param initialMillis wait after the first transmission; each later wait doubles
+     * @param maxMillis longest wait between transmissions
+     * @param attempts transmissions before giving up
+     */
+    public void setRetry(long initialMillis, long maxMillis, int attempts) {
+        if (initialMillis < 1 || maxMillis < initialMillis || attempts < 1) {
+            throw new IllegalArgumentException("bad retry schedule");
+        }
+        this.initialRetry = initialMillis;
+        this.maxRetry = maxMillis;
+        this.maxAttempts = attempts;
+    }
+
+    /**
+     * <p>Setter for the field <code>dupeWindow</code>.</p>
+     *
+     * @param millis how long a received message number counts as a duplicate
+     */
+    public void setDupeWindow(long millis) {
+        this.dupeWindow = millis;
+    }
+
+    /**
+     * <p>Setter for the field <code>path</code>.</p>
+     *
+     * @param digis digipeater path for outgoing packets, e.g. "WIDE1-1,WIDE2-1"; null or
+     * empty for APRS-IS (TCPIP*)
+     */
+    public void setPath(String digis) {
+        this.path = digis == null || digis.trim().isEmpty() ? null : digis.trim().split(",");
+    }
+
+    /**
+     * <p>Setter for the field <code>journal</code>.</p>
+     * Rebuilds pending messages, message numbering and duplicate records from the journal,
+     * then records every later event in it.  Call before sending or receiving anything.
+     *
+     * @param j journal to recover from and write to
+     */
+    public void setJournal(MessageJournal j) {
+        setJournal(j, System.currentTimeMillis());
+    }
+
+    void setJournal(MessageJournal j, long nowMillis) {
+        Map<String, Outbound> live = new LinkedHashMap<>();
+        j.replay(new MessageJournal.Visitor() {
+            @Override
+            public void sent(long time, String from, String to, String number, String text, int attempts) {
+                Outbound o = new Outbound(from, to, number, text);
+                o.attempts = attempts;
+                o.lastSent = time;
+                live.put(o.key, o);
+                try {
+                    conversation(from, to, time).nextNumber = Integer.parseInt(number) % 99999 + 1;
+                } catch (NumberFormatException ex) {
+                    // not one of ours
+                }
+            }
+
+            @Override
+            public void attempt(long time, String from, String to, String number, int attempts) {
+                Outbound o = live.get(key(from, to, number));
+                if (o != null) {
+                    o.attempts = attempts;
+                    o.lastSent = time;
+                }
+            }
+
+            @Override
+            public void settled(long time, String from, String to, String number, int state) {
+                live.remove(key(from, to, number));
+            }
+
+            @Override
+            public void received(long time, String local, String remote, String number) {
+                if (nowMillis - time < dupeWindow) {
+                    Conversation c = conversation(local, remote, time);
+                    c.seen(number, time, dupeWindow);
+                    c.lastReceived = number;
+                }
+            }
+
+            @Override
+            public void next(long time, String local, String remote, int number) {
+                conversation(local, remote, time).nextNumber = number;
+            }
+        });
+        for (Outbound o : live.values()) {
+            pending.put(o.key, o);
+            wheel.schedule(o, Math.max(nowMillis, o.lastSent + retryWait(o.attempts)));
+        }
+        this.journal = j;
+    }
+
+    /**
+     * <p>send.</p>
+     *
+     * @param to addressee
+     * @param text message text
+     * @return Outbound the tracked message
+     */
+    public Outbound send(String to, String text) {
+        return send(defaultCall, to, text, System.currentTimeMillis());
+    }
+
+    /**
+     * <p>send.</p>
+     *
+     * @param from one of our callsigns
+     * @param to addressee
+     * @param text message text
+     * @return Outbound the tracked message
+     * @throws java.lang.IllegalArgumentException if from is not ours or the text is not
+     * valid message text
+     */
+    public Outbound send(String from, String to, String text) {
+        return send(from, to, text, System.currentTimeMillis());
+    }
+
+    Outbound send(String from, String to, String text, long nowMillis) {
+        from = from.toUpperCase();
+        to = to.trim().toUpperCase();
+        if (!locals.contains(from)) {
+            throw new IllegalArgumentException(from + " is not a local callsign");
+        }
+        if (to.isEmpty() || to.length() > 9) {
+            throw new IllegalArgumentException("bad addressee " + to);
+        }
+        if (text.length() > MAX_TEXT || text.indexOf('|') > -1 || text.indexOf('~') > -1
+                || text.indexOf('{') > -1) {
+            throw new IllegalArgumentException("bad message text");
+        }
+        Conversation c = conversation(from, to, nowMillis);
+        Outbound o;
+        synchronized (c) {
+            String number;
+            // numbers run 1..99999 per conversation; skip any still awaiting an ack
+            int tries = 0;
+            do {
+                number = Integer.toString(c.nextNumber);
+                c.nextNumber = c.nextNumber % 99999 + 1;
+            } while (pending.containsKey(key(from, to, number)) && ++tries < 99999);
+            o = new Outbound(from, to, number, text);
+            pending.put(o.key, o);
+        }
+        transmit(o, nowMillis);
+        return o;
+    }
+
+    private Conversation conversation(String local, String remote, long nowMillis) {
+        Conversation c = conversations.computeIfAbsent(local + '>' + remote, k -> new Conversation(local, remote));
+        c.lastActivity = nowMillis;
+        return c;
+    }
+
+    private void transmit(Outbound o, long nowMillis) {
+        MessagePacket m = new MessagePacket(o.to, o.text, o.number);
+        Conversation c = conversations.get(o.from + '>' + o.to);
+        if (c != null) {
+            synchronized (c) {
+                if (c.peerReplyAck) {
+                    m.setReplyAck(c.lastReceived == null ? "" : c.lastReceived);
+                }
+            }
+        }
+        int n = ++o.attempts;
+        o.lastSent = nowMillis;
+        MessageJournal j = journal;
+        if (j != null) {
+            if (n == 1) {
+                j.sent(nowMillis, o.from, o.to, o.number, o.text, n);
+            } else {
+                j.attempt(nowMillis, o.from, o.to, o.number, n);
+            }
+        }
+        transport.send(packet(o.from, m));
+        transmissions.increment();
+        wheel.schedule(o, nowMillis + retryWait(n));
+    }
+
+    private long retryWait(int attempts) {
+        return Math.min(initialRetry << Math.min(Math.max(attempts, 1) - 1, 30), maxRetry);
+    }
+
+    private APRSPacket packet(String from, MessagePacket m) {
+        ArrayList<Digipeater> digis = null;
+        String[] p = path;
+        if (p != null) {
+            digis = new ArrayList<>(p.length);
+            for (String d : p) {
+                digis.add(new Digipeater(d.trim()));
+            }
+        }
+        return new APRSPacket(from, DESTINATION, digis, m.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * <p>receive.</p>
+     *
+     * @param packet any packet heard
+     * @return boolean true if it was a message, ack or rej addressed to one of our callsigns
+     */
+    public boolean receive(APRSPacket packet) {
+        return receive(packet, System.currentTimeMillis());
+    }
+
+    boolean receive(APRSPacket packet, long nowMillis) {
+        APRSData d = packet.getAprsInformation() == null ? null
+                : packet.getAprsInformation().getAprsData(APRSTypes.T_MESSAGE);
+        if (!(d instanceof MessagePacket)) {
+            return false;
+        }
+        MessagePacket m = (MessagePacket) d;
+        String local = m.getTargetCallsign();
+        if (!locals.contains(local)) {
+            return false;
+        }
+        String remote = packet.getSourceCall();
+        if (m.isAck() || m.isRej()) {
+            settle(key(local, remote, m.getMessageNumber()), m.isAck() ? State.ACKED : State.REJECTED, nowMillis);
+            return true;
+        }
+        received.increment();
+        Conversation c = conversation(local, remote, nowMillis);
+        String replyAck = m.getReplyAck();
+        if (replyAck != null && !replyAck.isEmpty()) {
+            settle(key(local, remote, replyAck), State.ACKED, nowMillis);
+        }
+        String number = m.getMessageNumber();
+        if (number == null || number.isEmpty()) {
+            if (listener != null) {
+                listener.onMessage(packet, m);
+            }
+            return true;
+        }
+        boolean dupe;
+        synchronized (c) {
+            if (replyAck != null) {
+                c.peerReplyAck = true;
+            }
+            c.lastReceived = number;
+            dupe = c.seen(number, nowMillis, dupeWindow);
+        }
+        // a retry means our ack went missing, so ack duplicates too
+        transport.send(packet(local, new MessagePacket(remote, "ack", number)));
+        transmissions.increment();
+        MessageJournal j = journal;
+        if (j != null && !dupe) {
+            j.received(nowMillis, local, remote, number);
+        }
+        if (dupe) {
+            duplicates.increment();
+        } else if (listener != null) {
+            listener.onMessage(packet, m);
+        }
+        return true;
+    }
+
+    private void settle(String key, State state, long nowMillis) {
+        Outbound o = pending.remove(key);
+        if (o == null) {
+            return;
+        }
+        o.state = state;
+        MessageJournal j = journal;
+        if (j != null) {
+            j.settled(nowMillis, o.from, o.to, o.number, state.ordinal());
+        }
+        (state == State.ACKED ? acked : state == State.REJECTED ? rejected : timedOut).increment();
+        if (listener != null) {
+            listener.onSettled(o);
+        }
+    }
+
+    /**
+     * <p>cancel.</p>
+     *
+     * @param o a message returned by send
+     * @return boolean true if it was still pending and will not be sent again
+     */
+    public boolean cancel(Outbound o) {
+        if (pending.remove(o.key, o)) {
+            o.state = State.CANCELLED;
+            MessageJournal j = journal;
+            if (j != null) {
+                j.settled(System.currentTimeMillis(), o.from, o.to, o.number, State.CANCELLED.ordinal());
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * <p>advance.</p>
+     *
+     * @param nowMillis current time, in ms
+     * @return int number of retry timers that came due
+     */
+    public int advance(long nowMillis) {
+        int n = wheel.advance(nowMillis, o -> {
+            if (pending.get(o.key) != o) {
+                return;
+            }
+            if (o.attempts >= maxAttempts) {
+                settle(o.key, State.TIMED_OUT, nowMillis);
+            } else {
+                transmit(o, nowMillis);
+            }
+        });
+        boolean prune;
+        synchronized (this) {
+            prune = nowMillis - lastPrune >= dupeWindow / 4;
+            if (prune) {
+                lastPrune = nowMillis;
+            }
+        }
+        if (prune) {
+            long cutoff = nowMillis - dupeWindow;
+            conversations.values().removeIf(c -> c.lastActivity < cutoff);
+        }
+        MessageJournal j = journal;
+        if (j != null && j.needsCompaction()) {
+            try {
+                compact(j, nowMillis);
+            } catch (IOException ex) {
+                System.err.println("MessageEngine journal compaction failed: " + ex);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * rewrites the journal with only live state: the messages still pending, and numbering
+     * and recent receptions for each conversation
+     */
+    void compact(MessageJournal j, long nowMillis) throws IOException {
+        long cutoff = nowMillis - dupeWindow;
+        j.rewrite(w -> {
+            // pending messages first: replaying a send moves numbering on, and the
+            // conversation's own counter written after it must win
+            for (Outbound o : pending.values()) {
+                w.sent(o.lastSent, o.from, o.to, o.number, o.text, o.attempts);
+            }
+            for (Conversation c : conversations.values()) {
+                synchronized (c) {
+                    w.next(nowMillis, c.local, c.remote, c.nextNumber);
+                    // oldest first, so replay rebuilds the ring in the same order
+                    for (int i = 0; i < RECENT; i++) {
+                        int k = (c.head + i) % RECENT;
+                        if (c.recent[k] != null && c.recentTimes[k] > cutoff) {
+                            w.received(c.recentTimes[k], c.local, c.remote, c.recent[k]);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * <p>start.</p>
+     * Runs {@link #advance(long)} once per wheel tick on a daemon thread.
+     */
+    public synchronized void start() {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MessageEngine retries");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleAtFixedRate(() -> advance(System.currentTimeMillis()), TICK, TICK,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * <p>getPendingCount.</p>
+     *
+     * @return int outbound messages still awaiting an ack
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * <p>getTransmissions.</p>
+     *
+     * @return long messages, retries and acks sent
+     */
+    public long getTransmissions() {
+        return transmissions.sum();
+    }
+
+    /**
+     * <p>getAcked.</p>
+     *
+     * @return long outbound messages acknowledged
+     */
+    public long getAcked() {
+        return acked.sum();
+    }
+
+    /**
+     * <p>getRejected.</p>
+     *
+     * @return long outbound messages rejected
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * <p>getTimedOut.</p>
+     *
+     * @return long outbound messages given up on
+     */
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    /**
+     * <p>getReceived.</p>
+     *
+     * @return long messages received for our callsigns, duplicates included
+     */
+    public long getReceived() {
+        return received.sum();
+    }
+
+    /**
+     * <p>getDuplicates.</p>
+     *
+     * @return long received messages suppressed as duplicates
+     */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+}
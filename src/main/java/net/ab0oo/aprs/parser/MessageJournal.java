@@ -0,0 +1,431 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * <p>MessageJournal class.</p>
+ *
+ * Append-only journal of {@link MessageEngine} delivery state: messages sent, retried and
+ * settled, and message numbers received (for duplicate suppression across restarts).  Hand
+ * one to {@link MessageEngine#setJournal(MessageJournal)} and the engine replays it, then
+ * records every event.
+ *
+ * Records are written into a memory-mapped file, so appending is a few puts into memory.
+ * Durability is by group commit: {@link #start()} runs a flusher that forces the mapping to
+ * disk every commit interval, covering all records appended since the last force, and
+ * {@link #sync()} forces on demand.  A crash can lose at most the records of the last
+ * interval.  Each record carries a CRC32; recovery stops at the first torn or empty record.
+ *
+ * Settled messages leave dead records behind, so once the file has grown well past its last
+ * compacted size the engine rewrites it with only live state, into a new file that then
+ * replaces the old one.
+ *
+ * Record layout: int length, then type, time, type-specific fields (strings as a short
+ * length and UTF-8 bytes), then the CRC32 of everything after the length.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class MessageJournal implements Closeable {
+    static final byte SENT = 1;
+    static final byte ATTEMPT = 2;
+    static final byte SETTLED = 3;
+    static final byte RECEIVED = 4;
+    static final byte NEXT = 5;
+    private static final int INITIAL_SIZE = 1 << 20;
+
+    /**
+     * receives the records of a journal in the order they were written
+     */
+    interface Visitor {
+        void sent(long time, String from, String to, String number, String text, int attempts);
+
+        void attempt(long time, String from, String to, String number, int attempts);
+
+        void settled(long time, String from, String to, String number, int state);
+
+        void received(long time, String local, String remote, String number);
+
+        void next(long time, String local, String remote, int number);
+    }
+
+    private final Path file;
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private MappedByteBuffer buf;
+    private int end;
+    private volatile int forced;
+    private int compactedSize;
+    private long compactThreshold = 16 << 20;
+    private long commitInterval = 10;
+    private ScheduledExecutorService flusher;
+    private final AtomicLong syncs = new AtomicLong();
+
+    /**
+     * <p>Constructor for MessageJournal.</p>
+     *
+     * @param file journal file; created if missing, recovered if present
+     * @throws java.io.IOException if the file cannot be opened or mapped
+     */
+    public MessageJournal(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), INITIAL_SIZE);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("journal too large: " + file);
+        }
+        this.buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.end = scan();
+        // clear whatever follows the last good record, so a torn write can never be
+        // mistaken for a record once new ones are appended in front of it
+        int i = end;
+        for (; i + 8 <= buf.capacity(); i += 8) {
+            buf.putLong(i, 0);
+        }
+        for (; i < buf.capacity(); i++) {
+            buf.put(i, (byte) 0);
+        }
+        this.forced = end;
+        this.compactedSize = end;
+    }
+
+    private int scan() {
+        int pos = 0;
+        int cap = buf.capacity();
+        while (pos + 4 <= cap) {
+            int len = buf.getInt(pos);
+            if (len < 13 || len > cap - pos - 4) {
+                break;
+            }
+            ByteBuffer body = buf.duplicate();
+            body.limit(pos + len).position(pos + 4);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != buf.getInt(pos + len)) {
+                break;
+            }
+            pos += 4 + len;
+        }
+        return pos;
+    }
+
+    /**
+     * <p>Setter for the field <code>commitInterval</code>.</p>
+     *
+     * @param millis how often the flusher forces new records to disk; call before start
+     */
+    public void setCommitInterval(long millis) {
+        if (millis < 1) {
+            throw new IllegalArgumentException("commit interval must be positive");
+        }
+        this.commitInterval = millis;
+    }
+
+    /**
+     * <p>Setter for the field <code>compactThreshold</code>.</p>
+     *
+     * @param bytes size below which the journal is never compacted
+     */
+    public synchronized void setCompactThreshold(long bytes) {
+        this.compactThreshold = bytes;
+    }
+
+    synchronized boolean needsCompaction() {
+        return end > Math.max(compactThreshold, 2L * compactedSize);
+    }
+
+    private int begin(byte type, long time, int fieldBytes) {
+        int len = 1 + 8 + fieldBytes + 4;
+        int start = end;
+        if (start + 4 + len > buf.capacity()) {
+            grow(start + 4 + len);
+        }
+        buf.position(start);
+        buf.putInt(len);
+        buf.put(type);
+        buf.putLong(time);
+        return start;
+    }
+
+    private void finish(int start) {
+        int stop = buf.position();
+        ByteBuffer body = buf.duplicate();
+        body.limit(stop).position(start + 4);
+        crc.reset();
+        crc.update(body);
+        buf.putInt((int) crc.getValue());
+        end = buf.position();
+    }
+
+    private void grow(int needed) {
+        long size = buf.capacity();
+        while (size < needed) {
+            size *= 2;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new UncheckedIOException(new IOException("journal full: " + file));
+        }
+        try {
+            buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void put(byte[] b) {
+        buf.putShort((short) b.length);
+        buf.put(b);
+    }
+
+    synchronized void sent(long time, String from, String to, String number, String text, int attempts) {
+        byte[] f = bytes(from), t = bytes(to), n = bytes(number), x = bytes(text);
+        int start = begin(SENT, time, 8 + f.length + t.length + n.length + x.length + 4);
+        put(f);
+        put(t);
+        put(n);
+        put(x);
+        buf.putInt(attempts);
+        finish(start);
+    }
+
+    synchronized void attempt(long time, String from, String to, String number, int attempts) {
+        byte[] f = bytes(from), t = bytes(to), n = bytes(number);
+        int start = begin(ATTEMPT, time, 6 + f.length + t.length + n.length + 4);
+        put(f);
+        put(t);
+        put(n);
+        buf.putInt(attempts);
+        finish(start);
+    }
+
+    synchronized void settled(long time, String from, String to, String number, int state) {
+        byte[] f = bytes(from), t = bytes(to), n = bytes(number);
+        int start = begin(SETTLED, time, 6 + f.length + t.length + n.length + 1);
+        put(f);
+        put(t);
+        put(n);
+        buf.put((byte) state);
+        finish(start);
+    }
+
+    synchronized void received(long time, String local, String remote, String number) {
+        byte[] l = bytes(local), r = bytes(remote), n = bytes(number);
+        int start = begin(RECEIVED, time, 6 + l.length + r.length + n.length);
+        put(l);
+        put(r);
+        put(n);
+        finish(start);
+    }
+
+    synchronized void next(long time, String local, String remote, int number) {
+        byte[] l = bytes(local), r = bytes(remote);
+        int start = begin(NEXT, time, 4 + l.length + r.length + 4);
+        put(l);
+        put(r);
+        buf.putInt(number);
+        finish(start);
+    }
+
+    private static String string(ByteBuffer b) {
+        byte[] a = new byte[b.getShort() & 0xffff];
+        b.get(a);
+        return new String(a, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * hands every record to the visitor, oldest first
+     */
+    synchronized void replay(Visitor v) {
+        ByteBuffer b = buf.duplicate();
+        int pos = 0;
+        while (pos < end) {
+            int len = b.getInt(pos);
+            b.limit(pos + 4 + len).position(pos + 4);
+            byte type = b.get();
+            long time = b.getLong();
+            switch (type) {
+                case SENT:
+                    v.sent(time, string(b), string(b), string(b), string(b), b.getInt());
+                    break;
+                case ATTEMPT:
+                    v.attempt(time, string(b), string(b), string(b), b.getInt());
+                    break;
+                case SETTLED:
+                    v.settled(time, string(b), string(b), string(b), b.get());
+                    break;
+                case RECEIVED:
+                    v.received(time, string(b), string(b), string(b));
+                    break;
+                case NEXT:
+                    v.next(time, string(b), string(b), b.getInt());
+                    break;
+                default:
+                    // written by a later version; skip it
+            }
+            b.limit(b.capacity());
+            pos += 4 + len;
+        }
+    }
+
+    /**
+     * Replaces the journal with the records the writer appends.  They go to a new file,
+     * which is forced and then moved over the old one, so a crash part way through leaves
+     * the old journal intact.
+     */
+    synchronized void rewrite(Consumer<MessageJournal> writer) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        FileChannel oldChannel = channel;
+        MappedByteBuffer oldBuf = buf;
+        int oldEnd = end;
+        channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_SIZE);
+            end = 0;
+            writer.accept(this);
+            buf.force();
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            Files.deleteIfExists(tmp);
+            channel = oldChannel;
+            buf = oldBuf;
+            end = oldEnd;
+            throw ex;
+        }
+        oldChannel.close();
+        forced = end;
+        compactedSize = end;
+        syncs.incrementAndGet();
+    }
+
+    /**
+     * <p>sync.</p>
+     * Forces every record appended so far to disk.
+     */
+    public void sync() {
+        MappedByteBuffer b;
+        int target;
+        synchronized (this) {
+            b = buf;
+            target = end;
+        }
+        if (target == forced) {
+            return;
+        }
+        // appends carry on while the pages are written out
+        b.force();
+        synchronized (this) {
+            if (b == buf && target > forced) {
+                forced = target;
+            }
+        }
+        syncs.incrementAndGet();
+    }
+
+    /**
+     * <p>start.</p>
+     * Runs {@link #sync()} once per commit interval on a daemon thread.
+     */
+    public synchronized void start() {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MessageJournal flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::sync, commitInterval, commitInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <p>getSize.</p>
+     *
+     * @return int bytes of records in the journal
+     */
+    public synchronized int getSize() {
+        return end;
+    }
+
+    /**
+     * <p>getDurableSize.</p>
+     *
+     * @return int bytes of records known to be on disk
+     */
+    public int getDurableSize() {
+        return forced;
+    }
+
+    /**
+     * <p>getSyncs.</p>
+     *
+     * @return long number of forces to disk, each covering every record appended before it
+     */
+    public long getSyncs() {
+        return syncs.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService f;
+        synchronized (this) {
+            f = flusher;
+            flusher = null;
+        }
+        if (f != null) {
+            f.shutdown();
+            try {
+                f.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sync();
+        synchronized (this) {
+            channel.close();
+        }
+    }
+}
@@ -20,6 +20,8 @@
  */
 package net.ab0oo.aprs.parser;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * <p>MessagePacket class.</p>
  *
@@ -31,15 +33,15 @@ public class MessagePacket extends APRSData {
     /**
      * The body of the message, stripped of all meta data
      */
-    private String messageBody;
+    private volatile String messageBody;
     /**
      * the self-assigned message number of the originating station
      */
-    private String messageNumber;
+    private volatile String messageNumber;
     /**
      * the intended recipient of the message, NOT the TNC2 "destination"
      */
-    private String targetCallsign ="";
+    private volatile String targetCallsign ="";
     /**
      * flag indicating that this is an acknowledgement of a message sent by
      * another station
@@ -50,45 +52,134 @@ public class MessagePacket extends APRSData {
      * some reason
      */
     private boolean isRej = false;
+    /**
+     * the message number this message also acknowledges, from the reply-ack form
+     * {MM}AA.  Null when the sender did not use the reply-ack form at all.
+     */
+    private volatile String replyAck = null;
+    /**
+     * offsets into <code>rawBytes</code> of the addressee, text, message number and
+     * reply-ack, decoded into the String fields above on first use.  Each pair is
+     * start/end; a start of -1 means the String field is authoritative.  The offsets are
+     * not cleared after decoding, so a reader racing the first decode repeats it rather
+     * than seeing a cleared offset before the String.
+     */
+    private int addrStart = -1, addrEnd;
+    private int textStart = -1, textEnd;
+    private int numStart = -1, numEnd;
+    private int replyStart = -1, replyEnd;
     
     /**
      * <p>Constructor for MessagePacket.</p>
      *
-     * @param bodyBytes an array of {@link byte} objects
+     * Only the delimiters are located here; the addressee, text and numbers stay in the
+     * packet buffer until a getter asks for them.
+     *
+     * @param bodyBytes an array of {@link byte} objects; shared, not copied
      * @param destCall a {@link java.lang.String} object
      */
     public MessagePacket( byte[] bodyBytes, String destCall ) {
-        super(bodyBytes);
-        String message = new String(bodyBytes);
-        if ( message.length() < 2) {
+        super(bodyBytes, 0, bodyBytes.length);
+        int len = bodyBytes.length;
+        if ( len < 2) {
             this.setHasFault(true);
             return;
         }
-        int msgSpc = message.indexOf(':', 2);
+        int msgSpc = indexOf(bodyBytes, ':', 2, len);
         if ( msgSpc < 1 ) {
         	this.targetCallsign = "UNKNOWN";
+        	textStart = Math.min(11, len);
         } else {
-        	targetCallsign = message.substring(1,msgSpc).trim().toUpperCase();
+        	targetCallsign = null;
+        	addrStart = 1;
+        	addrEnd = msgSpc;
+        	textStart = msgSpc + 1;
         }
-        int msgNumberIdx = message.lastIndexOf('{');
-        this.messageNumber="";
-        if ( msgNumberIdx > -1 ) {
-            this.messageNumber = message.substring(msgNumberIdx+1);
-            messageBody = message.substring(11,msgNumberIdx);
-        } else {
-            messageBody = message.substring(11);
+        int bodyEnd = len;
+        for (int i = len - 1; i >= textStart; i--) {
+            if (bodyBytes[i] == '{') {
+                numStart = i + 1;
+                numEnd = len;
+                bodyEnd = i;
+                break;
+            }
+        }
+        textEnd = bodyEnd;
+        if (numStart < 0) {
+            numStart = numEnd = len;
+        }
+        if ( bodyEnd - textStart >= 3 ) {
+            isAck = lowerIs(bodyBytes, textStart, 'a', 'c', 'k');
+            isRej = !isAck && lowerIs(bodyBytes, textStart, 'r', 'e', 'j');
+            if (isAck || isRej) {
+                numStart = textStart + 3;
+                numEnd = bodyEnd;
+                textEnd = textStart + 3;
+            }
+        }
+        int brace = indexOf(bodyBytes, '}', numStart, numEnd);
+        if ( brace > -1 ) {
+            replyStart = brace + 1;
+            replyEnd = numEnd;
+            numEnd = brace;
+        }
+    }
+
+    private static int indexOf(byte[] b, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean lowerIs(byte[] b, int at, char c0, char c1, char c2) {
+        return (b[at] | 0x20) == c0 && (b[at + 1] | 0x20) == c1 && (b[at + 2] | 0x20) == c2;
+    }
+
+    private String ascii(int from, int to) {
+        while (from < to && (rawBytes[from] & 0xff) <= ' ') {
+            from++;
+        }
+        while (to > from && (rawBytes[to - 1] & 0xff) <= ' ') {
+            to--;
+        }
+        return new String(rawBytes, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * <p>isAddressedTo.</p>
+     *
+     * Compares the addressee with a callsign, ignoring case and padding, without
+     * decoding the message.
+     *
+     * @param callsign callsign, with SSID if any
+     * @return boolean true if this message is addressed to <code>callsign</code>
+     */
+    public boolean isAddressedTo(CharSequence callsign) {
+        if (addrStart < 0) {
+            return getTargetCallsign() != null && getTargetCallsign().equalsIgnoreCase(callsign.toString());
         }
-        String lcMsg = messageBody.toLowerCase();
-        if ( lcMsg.startsWith("ack") ) {
-        	isAck = true;
-        	this.messageNumber = messageBody.substring(3,messageBody.length());
-		this.messageBody = messageBody.substring(0, 3);
+        int from = addrStart;
+        int to = addrEnd;
+        while (from < to && (rawBytes[from] & 0xff) <= ' ') {
+            from++;
         }
-        if ( lcMsg.startsWith("rej") ) {
-        	isRej = true;
-        	this.messageNumber = messageBody.substring(3,messageBody.length());
-		this.messageBody = messageBody.substring(0, 3);
+        while (to > from && (rawBytes[to - 1] & 0xff) <= ' ') {
+            to--;
         }
+        if (to - from != callsign.length()) {
+            return false;
+        }
+        for (int i = 0; i < callsign.length(); i++) {
+            int a = rawBytes[from + i] & 0xff;
+            int b = callsign.charAt(i);
+            if ((a >= 'a' && a <= 'z' ? a - 0x20 : a) != (b >= 'a' && b <= 'z' ? b - 0x20 : b)) {
+                return false;
+            }
+        }
+        return true;
     }
     
     /**
@@ -112,7 +203,12 @@ public class MessagePacket extends APRSData {
      * @return the messageBody
      */
     public String getMessageBody() {
-        return this.messageBody;
+        String v = messageBody;
+        if (v == null && textStart >= 0) {
+            v = CommentDecoder.decode(rawBytes, textStart, textEnd - textStart);
+            messageBody = v;
+        }
+        return v;
     }
 
     /**
@@ -122,6 +218,7 @@ public class MessagePacket extends APRSData {
      */
     public void setMessageBody(String messageBody) {
         this.messageBody = messageBody;
+        this.textStart = -1;
     }
 
     /**
@@ -130,7 +227,12 @@ public class MessagePacket extends APRSData {
      * @return the messageNumber
      */
     public String getMessageNumber() {
-        return messageNumber;
+        String v = messageNumber;
+        if (v == null && numStart >= 0) {
+            v = ascii(numStart, numEnd);
+            messageNumber = v;
+        }
+        return v;
     }
 
     /**
@@ -140,6 +242,7 @@ public class MessagePacket extends APRSData {
      */
     public void setMessageNumber(String messageNumber) {
         this.messageNumber = messageNumber;
+        this.numStart = -1;
     }
 
     /**
@@ -148,7 +251,12 @@ public class MessagePacket extends APRSData {
      * @return the targetCallsign
      */
     public String getTargetCallsign() {
-        return targetCallsign;
+        String v = targetCallsign;
+        if (v == null && addrStart >= 0) {
+            v = ascii(addrStart, addrEnd).toUpperCase();
+            targetCallsign = v;
+        }
+        return v;
     }
 
     /**
@@ -158,6 +266,7 @@ public class MessagePacket extends APRSData {
      */
     public void setTargetCallsign(String targetCallsign) {
         this.targetCallsign = targetCallsign;
+        this.addrStart = -1;
     }
 
 	/**
@@ -197,17 +306,58 @@ public class MessagePacket extends APRSData {
 	}
 
 	
+	/**
+	 * <p>Getter for the field <code>replyAck</code>.</p>
+	 *
+	 * @return the message number acknowledged in reply-ack form ({MM}AA), an empty
+	 * string if the sender used the form without acknowledging anything, or null if the
+	 * sender does not use reply-acks
+	 */
+	public String getReplyAck() {
+		String v = replyAck;
+		if (v == null && replyStart >= 0) {
+			v = ascii(replyStart, replyEnd);
+			replyAck = v;
+		}
+		return v;
+	}
+
+	/**
+	 * <p>Setter for the field <code>replyAck</code>.</p>
+	 *
+	 * @param replyAck message number to acknowledge, "" to only advertise reply-ack
+	 * support, or null to send a plain message number
+	 */
+	public void setReplyAck(String replyAck) {
+		this.replyAck = replyAck;
+		this.replyStart = -1;
+	}
+
 	/** {@inheritDoc} */
     @Override
 	public String toString() {
-		if (rawBytes != null)
-			return new String(rawBytes);
+		StringBuilder sb = new StringBuilder();
+		formatTo(sb);
+		return sb.toString();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void formatTo(StringBuilder sb) {
+		if (rawBytes != null) {
+			Formatting.appendText(sb, rawBytes, rawOffset, rawLength);
+			return;
+		}
+		sb.append(':');
+		Formatting.appendPadded(sb, this.targetCallsign, 9);
+		sb.append(':').append(this.messageBody);
 		if ( this.messageBody.equals("ack") || this.messageBody.equals("rej")) {
-			return String.format(":%-9s:%s%s", this.targetCallsign, this.messageBody, this.messageNumber);
+			sb.append(this.messageNumber);
 		} else if (messageNumber.length() > 0) {
-			return String.format(":%-9s:%s{%s", this.targetCallsign, this.messageBody, this.messageNumber);
-		} else {
-			return String.format(":%-9s:%s", this.targetCallsign, this.messageBody);
+			sb.append('{').append(this.messageNumber);
+			if (replyAck != null) {
+				sb.append('}').append(this.replyAck);
+			}
 		}
 	}
 }
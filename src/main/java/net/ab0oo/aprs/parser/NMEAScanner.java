@@ -0,0 +1,416 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+/**
+ * <p>NMEAScanner class.</p>
+ *
+ * Decodes the NMEA sentences APRS carries after a '$' DTI (GGA, RMC, GLL and WPL from any
+ * talker, and the private $PNTS sentence) straight from the packet bytes.  One pass records
+ * where each comma-separated field starts and checks the *hh checksum when there is one;
+ * fields are then compared and converted in place, so a scan allocates nothing.  A scanner
+ * holds the last fix it decoded and is reusable, but not thread safe: keep one per thread.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public final class NMEAScanner {
+    private static final int MAX_FIELDS = 32;
+
+    private final int[] start = new int[MAX_FIELDS];
+    private final int[] end = new int[MAX_FIELDS];
+    private byte[] buf;
+    private int fields;
+    private String sentence;
+    private String failure;
+    private boolean checksummed;
+    private double latitude;
+    private double longitude;
+    private double speed;
+    private double course;
+    private double altitude;
+    private int timeOfDay;
+
+    /**
+     * <p>scan.</p>
+     *
+     * @param b buffer holding the sentence
+     * @param off index of the '$'
+     * @param len bytes in the sentence, with or without the checksum and line end
+     * @return boolean true if it held a valid fix; otherwise see {@link #getFailure()}
+     */
+    public boolean scan(byte[] b, int off, int len) {
+        buf = b;
+        fields = 0;
+        sentence = null;
+        failure = null;
+        checksummed = false;
+        speed = Double.NaN;
+        course = Double.NaN;
+        altitude = Double.NaN;
+        timeOfDay = -1;
+        int stop = off + len;
+        if (len < 7 || b[off] != '$') {
+            return fail("Not an NMEA sentence");
+        }
+        int sum = 0;
+        start[0] = off + 1;
+        int i = off + 1;
+        for (; i < stop; i++) {
+            byte c = b[i];
+            if (c == '*' || c == '\r' || c == '\n') {
+                break;
+            }
+            sum ^= c;
+            if (c == ',') {
+                end[fields++] = i;
+                if (fields == MAX_FIELDS) {
+                    return fail("Too many fields in NMEA sentence");
+                }
+                start[fields] = i + 1;
+            }
+        }
+        end[fields++] = i;
+        if (i < stop && b[i] == '*') {
+            if (i + 2 >= stop) {
+                return fail("Truncated NMEA checksum");
+            }
+            int h = hex(b[i + 1]);
+            int l = hex(b[i + 2]);
+            if (h < 0 || l < 0 || ((h << 4) | l) != sum) {
+                return fail("Bad NMEA checksum");
+            }
+            checksummed = true;
+        }
+        return decode();
+    }
+
+    private static int hex(byte c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    private boolean fail(String why) {
+        failure = why;
+        return false;
+    }
+
+    private boolean decode() {
+        int n = end[0] - start[0];
+        if (n == 4 && is(0, "PNTS")) {
+            sentence = "PNTS";
+            return pnts();
+        }
+        if (n != 5) {
+            return fail("Invalid NMEA sentence");
+        }
+        // skip the two-character talker: GP, GN, GL, GA, BD...
+        int t = start[0] + 2;
+        if (tail(t, "GGA")) {
+            sentence = "GGA";
+            // a fix quality of 0 means no fix
+            if (fields < 10 || length(6) == 0 || buf[start[6]] == '0') {
+                return fail("Not a valid position fix");
+            }
+            timeOfDay = time(1);
+            altitude = number(9);
+            return position(2);
+        }
+        if (tail(t, "RMC")) {
+            sentence = "RMC";
+            if (fields < 9 || !is(2, "A")) {
+                return fail("Not valid or not autonomous NMEA sentence");
+            }
+            timeOfDay = time(1);
+            speed = number(7);
+            course = number(8);
+            return position(3);
+        }
+        if (tail(t, "GLL")) {
+            sentence = "GLL";
+            // the mode field came with NMEA 2.3; N there means the data is not valid
+            if (fields < 7 || !is(6, "A") || (fields > 7 && is(7, "N"))) {
+                return fail("Not valid or not autonomous NMEA sentence");
+            }
+            timeOfDay = time(5);
+            return position(1);
+        }
+        if (tail(t, "WPL")) {
+            sentence = "WPL";
+            if (fields < 5) {
+                return fail("Invalid NMEA sentence");
+            }
+            return position(1);
+        }
+        if (tail(t, "GSA") || tail(t, "VTG") || tail(t, "GSV")) {
+            // recognized but ignored
+            return fail("Ignored NMEA sentence");
+        }
+        return fail("Invalid NMEA sentence");
+    }
+
+    private boolean pnts() {
+        if (fields < 13 || !is(1, "1")) {
+            return fail("Invalid NMEA sentence");
+        }
+        timeOfDay = time(6);
+        // direction comes in 64ths of a circle, speed in km/h
+        double dir = number(11);
+        course = Double.isNaN(dir) ? Double.NaN : dir * 360.0 / 64.0;
+        double kmh = number(12);
+        speed = Double.isNaN(kmh) ? Double.NaN : kmh / 1.852;
+        return position(7);
+    }
+
+    private boolean position(int f) {
+        if (fields < f + 4) {
+            return fail("Invalid NMEA sentence");
+        }
+        double lat = degMin(f, 2);
+        double lon = degMin(f + 2, 3);
+        if (Double.isNaN(lat) || Double.isNaN(lon)) {
+            return fail("Abject failure parsing NMEA sentence");
+        }
+        if (lat > 90.0) {
+            return fail("Latitude too high");
+        }
+        if (lon > 180.0) {
+            return fail("Longitude too high");
+        }
+        byte ns = length(f + 1) == 1 ? buf[start[f + 1]] : 0;
+        byte ew = length(f + 3) == 1 ? buf[start[f + 3]] : 0;
+        if (ns == 'S' || ns == 's') {
+            lat = -lat;
+        } else if (ns != 'N' && ns != 'n') {
+            return fail("Bad latitude sign");
+        }
+        if (ew == 'W' || ew == 'w') {
+            lon = -lon;
+        } else if (ew != 'E' && ew != 'e') {
+            return fail("Bad longitude sign");
+        }
+        latitude = lat;
+        longitude = lon;
+        return true;
+    }
+
+    private int length(int f) {
+        return f < fields ? end[f] - start[f] : 0;
+    }
+
+    private boolean is(int f, String s) {
+        if (length(f) != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (buf[start[f] + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tail(int at, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (buf[at + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * a decimal field, NaN if it is empty or malformed
+     */
+    private double number(int f) {
+        int n = length(f);
+        if (n == 0) {
+            return Double.NaN;
+        }
+        int i = start[f];
+        int stop = end[f];
+        boolean neg = buf[i] == '-';
+        if (neg || buf[i] == '+') {
+            i++;
+        }
+        long mant = 0;
+        int scale = 0;
+        boolean dot = false;
+        boolean digits = false;
+        for (; i < stop; i++) {
+            byte c = buf[i];
+            if (c >= '0' && c <= '9') {
+                if (mant < 100000000000000L) {
+                    mant = mant * 10 + (c - '0');
+                    if (dot) {
+                        scale++;
+                    }
+                } else if (!dot) {
+                    return Double.NaN;
+                }
+                digits = true;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (!digits) {
+            return Double.NaN;
+        }
+        double v = mant / Math.pow(10, scale);
+        return neg ? -v : v;
+    }
+
+    /**
+     * ddmm.mmmm or dddmm.mmmm to degrees, NaN if malformed
+     */
+    private double degMin(int f, int degDigits) {
+        int n = length(f);
+        if (n < degDigits + 2) {
+            return Double.NaN;
+        }
+        double v = number(f);
+        if (Double.isNaN(v) || v < 0) {
+            return Double.NaN;
+        }
+        double deg = Math.floor(v / 100);
+        double min = v - deg * 100;
+        if (min >= 60) {
+            return Double.NaN;
+        }
+        return deg + min / 60.0;
+    }
+
+    /**
+     * hhmmss[.sss] to seconds since midnight, -1 if absent or malformed
+     */
+    private int time(int f) {
+        if (length(f) < 6) {
+            return -1;
+        }
+        int s = start[f];
+        int v = 0;
+        for (int i = 0; i < 6; i++) {
+            byte c = buf[s + i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            v = v * 10 + (c - '0');
+        }
+        int h = v / 10000;
+        int m = v / 100 % 100;
+        int sec = v % 100;
+        if (h > 23 || m > 59 || sec > 60) {
+            return -1;
+        }
+        return h * 3600 + m * 60 + sec;
+    }
+
+    /**
+     * <p>Getter for the field <code>sentence</code>.</p>
+     *
+     * @return String sentence type without talker, e.g. "GGA", or "PNTS"; null if unrecognized
+     */
+    public String getSentence() {
+        return sentence;
+    }
+
+    /**
+     * <p>Getter for the field <code>failure</code>.</p>
+     *
+     * @return String why the last scan found no fix, or null if it did
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * <p>hasChecksum.</p>
+     *
+     * @return boolean true if the sentence carried a checksum (which then matched)
+     */
+    public boolean hasChecksum() {
+        return checksummed;
+    }
+
+    /**
+     * <p>Getter for the field <code>latitude</code>.</p>
+     *
+     * @return double degrees, south negative
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * <p>Getter for the field <code>longitude</code>.</p>
+     *
+     * @return double degrees, west negative
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * <p>Getter for the field <code>speed</code>.</p>
+     *
+     * @return double speed over ground in knots, or NaN if the sentence has none
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * <p>Getter for the field <code>course</code>.</p>
+     *
+     * @return double course over ground in degrees true, or NaN if the sentence has none
+     */
+    public double getCourse() {
+        return course;
+    }
+
+    /**
+     * <p>Getter for the field <code>altitude</code>.</p>
+     *
+     * @return double altitude above mean sea level in metres, or NaN if the sentence has none
+     */
+    public double getAltitude() {
+        return altitude;
+    }
+
+    /**
+     * <p>Getter for the field <code>timeOfDay</code>.</p>
+     *
+     * @return int UTC time of the fix in seconds since midnight, or -1 if the sentence has none
+     */
+    public int getTimeOfDay() {
+        return timeOfDay;
+    }
+}
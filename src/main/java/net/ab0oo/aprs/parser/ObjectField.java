@@ -68,7 +68,8 @@ public class ObjectField extends APRSData {
 		this.live = (msgBody[10] == '*');
 		// then we get the timestamp
 		this.timestamp = new TimeField(msgBody, 10);
-		this.position = new PositionField(msgBody, "FOO", 17);
+		// the position follows the 7 character timestamp in bytes 11-17
+		this.position = new PositionField(msgBody, "FOO", 18);
 		this.setLastCursorPosition(36);
 	}
 
@@ -107,6 +108,7 @@ public class ObjectField extends APRSData {
 	 * Sets the object name in a constructed object
 	 */
 	public void setObjectName(String objectName) {
+		checkWritable();
 		this.objectName = objectName;
 	}
 
@@ -129,6 +131,7 @@ public class ObjectField extends APRSData {
 	 * When constructing an object, this flag indicates the object is live in the network
 	 */
 	public void setLive(boolean live) {
+		checkWritable();
 		this.live = live;
 	}
 
@@ -153,6 +156,7 @@ public class ObjectField extends APRSData {
 	 * Sets the APRS-formatted Time Field for this generated packet
 	 */
 	public void setTimestamp(TimeField timestamp) {
+		checkWritable();
 		this.timestamp = timestamp;
 	}
 
@@ -177,15 +181,39 @@ public class ObjectField extends APRSData {
 	 * Sets the position for this object (includes symbol table/symbol)
 	 */
 	public void setPosition(PositionField position) {
+		checkWritable();
 		this.position = position;
 	}
 	
+	@Override
+	void freeze() {
+		super.freeze();
+		if (position != null) {
+			position.freeze();
+		}
+		if (timestamp != null) {
+			timestamp.freeze();
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public String toString() {
-		if (rawBytes != null)
-			return new String(rawBytes);
-		return String.format(";%-9s%c%s", this.objectName, live ? '*' : '_', comment);
+		StringBuilder sb = new StringBuilder();
+		formatTo(sb);
+		return sb.toString();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void formatTo(StringBuilder sb) {
+		if (rawBytes != null) {
+			Formatting.appendText(sb, rawBytes, rawOffset, rawLength);
+			return;
+		}
+		sb.append(';');
+		Formatting.appendPadded(sb, this.objectName, 9);
+		sb.append(live ? '*' : '_').append(getComment());
 	}
 
 	
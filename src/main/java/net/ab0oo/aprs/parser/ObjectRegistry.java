@@ -0,0 +1,417 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>ObjectRegistry class.</p>
+ *
+ * Tracks the life cycle of APRS objects and items.  Entries are keyed by object name and the
+ * callsign of the station that sent them, so two stations announcing the same net or repeater
+ * object keep separate entries.  Objects are re-sent every few minutes, usually unchanged
+ * apart from their timestamp; such resends only refresh the last-heard time.  The entry is
+ * replaced only when the content (anything but the timestamp) changes.  A kill (an object
+ * sent with '_' instead of '*', or an item with '_' instead of '!') removes the entry at once,
+ * and entries not heard for the time-to-live are dropped by {@link #expire(long)}.
+ *
+ * Live entries with a position are kept in a {@link SpatialIndex} for area queries.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class ObjectRegistry implements Closeable {
+    /**
+     * what an update did to the registry
+     */
+    public enum Change {
+        /** not an object or item packet, or a kill for an unknown object */
+        NONE,
+        /** first time this object was heard from this station */
+        CREATED,
+        /** known object, content changed */
+        UPDATED,
+        /** known object resent as-is; only the last-heard time moved */
+        REFRESHED,
+        /** the owner killed the object */
+        KILLED
+    }
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final SpatialIndex<Key> index = new SpatialIndex<>();
+    private final long ttl;
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * <p>Constructor for ObjectRegistry.</p>
+     *
+     * @param ttlMillis entries not heard for this long are expired
+     */
+    public ObjectRegistry(long ttlMillis) {
+        this.ttl = ttlMillis;
+    }
+
+    /**
+     * <p>update.</p>
+     *
+     * @param packet any parsed packet; only objects and items are looked at
+     * @return Change what the packet did to the registry
+     */
+    public Change update(APRSPacket packet) {
+        return update(packet, System.currentTimeMillis());
+    }
+
+    Change update(APRSPacket packet, long now) {
+        char dti = packet.getDti();
+        InformationField info = packet.getAprsInformation();
+        if ((dti != ';' && dti != ')') || info == null || info.getAprsData() == null) {
+            return Change.NONE;
+        }
+        String name;
+        boolean live;
+        PositionField pf;
+        APRSData data;
+        if (dti == ';') {
+            APRSData d = info.getAprsData(APRSTypes.T_OBJECT);
+            if (!(d instanceof ObjectField) || d.hasFault()) {
+                return Change.NONE;
+            }
+            ObjectField of = (ObjectField) d;
+            name = of.getObjectName();
+            live = of.isLive();
+            pf = of.getPosition();
+            data = of;
+        } else {
+            APRSData d = info.getAprsData(APRSTypes.T_ITEM);
+            if (!(d instanceof ItemField)) {
+                return Change.NONE;
+            }
+            ItemField it = (ItemField) d;
+            name = it.getItemName();
+            live = it.isLive();
+            pf = it.getPosition();
+            data = it;
+        }
+        Key key = new Key(name, packet.getSourceCall());
+        Change[] result = { Change.NONE };
+        if (!live) {
+            entries.computeIfPresent(key, (k, old) -> {
+                index.remove(k);
+                result[0] = Change.KILLED;
+                return null;
+            });
+            return result[0];
+        }
+        long fp = fingerprint(info.getRawBytes(), dti == ';');
+        Position pos = pf == null || pf.hasFault() ? null : pf.getPosition();
+        entries.compute(key, (k, old) -> {
+            if (old != null && old.fingerprint == fp) {
+                old.lastHeard = now;
+                result[0] = Change.REFRESHED;
+                return old;
+            }
+            result[0] = old == null ? Change.CREATED : Change.UPDATED;
+            Entry e = new Entry(k, dti == ')', pos, data, fp, old == null ? now : old.firstHeard, now);
+            if (pos != null) {
+                index.put(k, pos);
+            } else {
+                index.remove(k);
+            }
+            return e;
+        });
+        return result[0];
+    }
+
+    /**
+     * hash of the body without the object timestamp, so a plain resend compares equal
+     */
+    static long fingerprint(byte[] body, boolean object) {
+        long h = 0xcbf29ce484222325L;
+        if (object && body.length > 18) {
+            h = PacketHash.update(h, body, 0, 11);
+            h = PacketHash.update(h, body, 18, body.length);
+        } else {
+            h = PacketHash.update(h, body, 0, body.length);
+        }
+        return PacketHash.finish(h);
+    }
+
+    /**
+     * <p>expire.</p>
+     *
+     * @param now current time, in ms
+     * @return int number of entries dropped
+     */
+    public int expire(long now) {
+        int[] removed = { 0 };
+        for (Entry e : entries.values()) {
+            if (e.lastHeard + ttl <= now) {
+                // recheck under the map's lock, the object may have been resent meanwhile
+                entries.computeIfPresent(e.key, (k, cur) -> {
+                    if (cur.lastHeard + ttl > now) {
+                        return cur;
+                    }
+                    index.remove(k);
+                    removed[0]++;
+                    return null;
+                });
+            }
+        }
+        return removed[0];
+    }
+
+    /**
+     * <p>start.</p>
+     * Expires stale entries once a minute (or once per ttl, if shorter) on a daemon thread.
+     */
+    public synchronized void start() {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ObjectRegistry sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(60000, ttl));
+        sweeper.scheduleAtFixedRate(() -> expire(System.currentTimeMillis()), period, period,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * <p>get.</p>
+     *
+     * @param name object or item name
+     * @param originator callsign of the station that sent it
+     * @return Entry the live entry, or null
+     */
+    public Entry get(String name, String originator) {
+        return entries.get(new Key(name, originator.toUpperCase()));
+    }
+
+    /**
+     * <p>byName.</p>
+     *
+     * @param name object or item name
+     * @return List every live entry with that name, from any originator
+     */
+    public List<Entry> byName(String name) {
+        List<Entry> out = new ArrayList<>();
+        for (Entry e : entries.values()) {
+            if (e.key.name.equals(name)) {
+                out.add(e);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * <p>within.</p>
+     *
+     * @param lat latitude of the center, in degrees
+     * @param lon longitude of the center, in degrees
+     * @param km radius in kilometers
+     * @return List live objects and items within the radius
+     */
+    public List<Entry> within(double lat, double lon, double km) {
+        return lookup(index.within(lat, lon, km));
+    }
+
+    /**
+     * <p>inBox.</p>
+     *
+     * @param latN northern edge
+     * @param lonW western edge
+     * @param latS southern edge
+     * @param lonE eastern edge
+     * @return List live objects and items inside the box
+     */
+    public List<Entry> inBox(double latN, double lonW, double latS, double lonE) {
+        return lookup(index.inBox(latN, lonW, latS, lonE));
+    }
+
+    private List<Entry> lookup(List<Key> keys) {
+        List<Entry> out = new ArrayList<>(keys.size());
+        for (Key k : keys) {
+            Entry e = entries.get(k);
+            if (e != null) {
+                out.add(e);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return int number of live entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Key {
+        final String name;
+        final String originator;
+        private final int hash;
+
+        Key(String name, String originator) {
+            this.name = name;
+            this.originator = originator;
+            this.hash = 31 * name.hashCode() + originator.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return hash == k.hash && name.equals(k.name) && originator.equals(k.originator);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * <p>Entry class.</p>
+     * One live object or item.  Replaced, not modified, when its content changes.
+     */
+    public static final class Entry {
+        private final Key key;
+        private final boolean item;
+        private final Position position;
+        private final APRSData data;
+        private final long fingerprint;
+        private final long firstHeard;
+        private final long lastChanged;
+        private volatile long lastHeard;
+
+        Entry(Key key, boolean item, Position position, APRSData data, long fingerprint, long firstHeard,
+                long now) {
+            this.key = key;
+            this.item = item;
+            this.position = position;
+            this.data = data;
+            this.fingerprint = fingerprint;
+            this.firstHeard = firstHeard;
+            this.lastChanged = now;
+            this.lastHeard = now;
+        }
+
+        /**
+         * <p>getName.</p>
+         *
+         * @return String object or item name
+         */
+        public String getName() {
+            return key.name;
+        }
+
+        /**
+         * <p>getOriginator.</p>
+         *
+         * @return String callsign of the station that sent it
+         */
+        public String getOriginator() {
+            return key.originator;
+        }
+
+        /**
+         * <p>isItem.</p>
+         *
+         * @return boolean true for an item, false for an object
+         */
+        public boolean isItem() {
+            return item;
+        }
+
+        /**
+         * <p>Getter for the field <code>position</code>.</p>
+         *
+         * @return Position where it is, or null if it has no parsable position
+         */
+        public Position getPosition() {
+            return position;
+        }
+
+        /**
+         * <p>Getter for the field <code>data</code>.</p>
+         *
+         * @return APRSData the {@link ObjectField} or {@link ItemField} of the last content change
+         */
+        public APRSData getData() {
+            return data;
+        }
+
+        /**
+         * <p>Getter for the field <code>firstHeard</code>.</p>
+         *
+         * @return long when the object was first heard, in ms since the epoch
+         */
+        public long getFirstHeard() {
+            return firstHeard;
+        }
+
+        /**
+         * <p>Getter for the field <code>lastChanged</code>.</p>
+         *
+         * @return long when its content last changed, in ms since the epoch
+         */
+        public long getLastChanged() {
+            return lastChanged;
+        }
+
+        /**
+         * <p>Getter for the field <code>lastHeard</code>.</p>
+         *
+         * @return long when it was last sent, changed or not, in ms since the epoch
+         */
+        public long getLastHeard() {
+            return lastHeard;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return (item ? "item " : "object ") + key.name + " from " + key.originator;
+        }
+    }
+}
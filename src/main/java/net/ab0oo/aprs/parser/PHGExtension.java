@@ -67,6 +67,7 @@ public class PHGExtension extends DataExtension implements Serializable {
 	 * @param power the power to set
 	 */
 	public void setPower(int power) {
+		checkWritable();
 		this.power = powerCodes[power];
 	}
 	/**
@@ -83,6 +84,7 @@ public class PHGExtension extends DataExtension implements Serializable {
 	 * @param height the height to set
 	 */
 	public void setHeight(int height) {
+		checkWritable();
 		this.height = heightCodes[height];
 	}
 	/**
@@ -99,6 +101,7 @@ public class PHGExtension extends DataExtension implements Serializable {
 	 * @param gain the gain to set
 	 */
 	public void setGain(int gain) {
+		checkWritable();
 		this.gain = gainCodes[gain];
 	}
 	/**
@@ -115,6 +118,7 @@ public class PHGExtension extends DataExtension implements Serializable {
 	 * @param directivity the directivity to set
 	 */
 	public void setDirectivity(int directivity) {
+		checkWritable();
 		this.directivity = directivityCodes[directivity];
 	}
 	
@@ -0,0 +1,67 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+/**
+ * <p>PacketDecoder interface.</p>
+ *
+ * Decodes the information field of packets with particular Data Type Identifiers.  The parser
+ * keeps one decoder per DTI byte in a 256-entry table and calls it with the packet already
+ * built; the decoder adds whatever {@link APRSData} it finds to the packet's
+ * {@link InformationField}.  Implementations are found with {@link java.util.ServiceLoader}
+ * (list them in META-INF/services/net.ab0oo.aprs.parser.PacketDecoder) or registered with
+ * {@link Parser#registerDecoder(PacketDecoder)}; either way they replace any built-in decoder
+ * for the same DTIs.  Decoders are shared between threads and must not keep per-packet state.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public interface PacketDecoder {
+    /**
+     * <p>getDataTypeIdentifiers.</p>
+     *
+     * @return String every DTI character this decoder handles
+     */
+    String getDataTypeIdentifiers();
+
+    /**
+     * <p>decode.</p>
+     *
+     * @param packet the packet being parsed; its information field wraps msgBody
+     * @param msgBody information field, starting with the DTI
+     * @param dest destination call, which carries part of a Mic-E position
+     * @param depth third-party levels already unwrapped around this packet
+     * @return int how far into msgBody decoding got; the rest is comment
+     * @throws java.lang.Exception if the body cannot be decoded at all
+     */
+    int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) throws Exception;
+
+    /**
+     * <p>isCacheable.</p>
+     *
+     * @return boolean true if what {@link #decode} adds depends on nothing but the
+     * destination and body, so a {@link ParsedBodyCache} may share it between packets.
+     * False unless a decoder says otherwise.
+     */
+    default boolean isCacheable() {
+        return false;
+    }
+}
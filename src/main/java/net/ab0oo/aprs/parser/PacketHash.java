@@ -0,0 +1,145 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+/**
+ * <p>PacketHash class.</p>
+ *
+ * 64-bit hashes of the parts of a packet that make it "the same packet" in APRS-IS terms:
+ * source, destination and information field.  The digipeater path is ignored, so copies
+ * of one transmission heard through different igates or servers hash alike.  Hashes are
+ * computed straight from the raw bytes, no Strings are built.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public final class PacketHash {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private PacketHash() {
+    }
+
+    /**
+     * <p>hashLine.</p>
+     *
+     * @param buf buffer holding a TNC2-format line
+     * @param offset index of the first byte of the line
+     * @param length length of the line, without CR/LF
+     * @return long hash of source, destination and body; 0 if the line has no header.
+     * The callsigns are folded to upper case, as the parser does.
+     */
+    public static long hashLine(byte[] buf, int offset, int length) {
+        int end = offset + length;
+        int gt = -1;
+        int destEnd = -1;
+        int colon = -1;
+        for (int i = offset; i < end; i++) {
+            byte b = buf[i];
+            if (gt < 0) {
+                if (b == '>') gt = i;
+            } else if (b == ',' || b == ':') {
+                if (destEnd < 0) destEnd = i;
+                if (b == ':') {
+                    colon = i;
+                    break;
+                }
+            }
+        }
+        if (gt < 0 || colon < 0) {
+            return 0;
+        }
+        long h = FNV_OFFSET;
+        h = updateFolded(h, buf, offset, gt);
+        h = (h ^ '>') * FNV_PRIME;
+        h = updateFolded(h, buf, gt + 1, destEnd);
+        h = (h ^ ':') * FNV_PRIME;
+        h = update(h, buf, colon + 1, end);
+        return finish(h);
+    }
+
+    /**
+     * <p>hash.</p>
+     *
+     * @param packet a parsed packet
+     * @return long the same hash {@link #hashLine(byte[], int, int)} gives for the packet's TNC2 line
+     */
+    public static long hash(APRSPacket packet) {
+        long h = FNV_OFFSET;
+        h = update(h, packet.getSourceCall());
+        h = (h ^ '>') * FNV_PRIME;
+        h = update(h, packet.getDestinationCall());
+        h = (h ^ ':') * FNV_PRIME;
+        byte[] body = packet.getAprsInformation().getRawBytes();
+        h = update(h, body, 0, body.length);
+        return finish(h);
+    }
+
+    private static long update(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ (s.charAt(i) & 0xFF)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * <p>update.</p>
+     *
+     * @param h running hash
+     * @param buf bytes to add
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @return long the updated running hash
+     */
+    static long update(long h, byte[] buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            h = (h ^ (buf[i] & 0xFF)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long updateFolded(long h, byte[] buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int b = buf[i] & 0xFF;
+            if (b >= 'a' && b <= 'z') {
+                b -= 0x20;
+            }
+            h = (h ^ b) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * <p>finish.</p>
+     *
+     * @param h running hash
+     * @return long the avalanched hash, never 0
+     */
+    static long finish(long h) {
+        // murmur3 fmix64, so the low bits are usable as a table index
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+}
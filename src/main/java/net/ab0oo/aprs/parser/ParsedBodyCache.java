@@ -0,0 +1,294 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>ParsedBodyCache class.</p>
+ *
+ * Remembers decoded information fields, so the byte-identical beacons that fixed stations
+ * and weather stations repeat every few minutes, and that several igates forward, are
+ * decoded once.  Give one to {@link Parser#setParsedBodyCache(ParsedBodyCache)}; packets
+ * whose (destination, body) was decoded before are not parsed again: each still gets its
+ * own {@link InformationField}, with its own receive time, but the data fields and
+ * extension in it are the ones decoded the first time, shared and read-only.  Their
+ * setters throw {@link UnsupportedOperationException}.
+ *
+ * Entries are keyed by a 64-bit hash of destination and body (the destination is part of
+ * the key because Mic-E encodes latitude there) and confirmed by comparing the bytes.  A
+ * body is only admitted the second time it is seen, which keeps one-off packets, most of
+ * the feed, from flushing out the repeaters.  Eviction is CLOCK: entries sit in a queue
+ * in admission order, a hit sets a reference bit, and the hand gives referenced entries a
+ * second pass before dropping unreferenced ones, until the retained weight fits the budget.
+ *
+ * Only bodies whose decode depends on nothing but their bytes are cached, which each
+ * {@link PacketDecoder} declares with {@link PacketDecoder#isCacheable()}.  Of the built-in
+ * decoders, those for positions without timestamp, Mic-E, NMEA, items, status and weather
+ * are.  Timestamped positions and objects are not, since their DHM/HMS times are resolved
+ * against the current date; nor are messages, telemetry (scaled by whatever metadata the
+ * station has sent) or third-party packets, and neither is any decoder registered by the
+ * application unless it says so.  Packets that decoded with a fault are not cached either.
+ *
+ * Lookups are lock-free; admissions and evictions take a lock.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class ParsedBodyCache {
+    /**
+     * rough size of the decoded objects behind one entry, in bytes
+     */
+    static final int ENTRY_OVERHEAD = 512;
+
+    private final long maxWeight;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ArrayDeque<Entry> clock = new ArrayDeque<>();
+    /**
+     * direct-mapped table of hashes seen once; a second sighting admits the body
+     */
+    private final long[] doorkeeper;
+    private long weight;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder admissions = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * <p>Constructor for ParsedBodyCache.</p>
+     * A 16 MB budget.
+     */
+    public ParsedBodyCache() {
+        this(16L << 20);
+    }
+
+    /**
+     * <p>Constructor for ParsedBodyCache.</p>
+     *
+     * @param maxBytes budget for retained bodies and their decoded fields, estimated as the
+     * body length plus {@value #ENTRY_OVERHEAD} bytes per entry
+     */
+    public ParsedBodyCache(long maxBytes) {
+        if (maxBytes < ENTRY_OVERHEAD) {
+            throw new IllegalArgumentException("Cache budget too small: " + maxBytes);
+        }
+        this.maxWeight = maxBytes;
+        long slots = Math.min(maxBytes / ENTRY_OVERHEAD * 4, 1 << 20);
+        this.doorkeeper = new long[Integer.highestOneBit((int) Math.max(slots, 64))];
+    }
+
+    /**
+     * <p>isEligible.</p>
+     *
+     * @param dti data type identifier of a body
+     * @return boolean true if bodies of this type may be cached, which is up to the decoder
+     * registered for it
+     */
+    public static boolean isEligible(byte dti) {
+        PacketDecoder d = Parser.getDecoder((char) (dti & 0xff));
+        return d != null && d.isCacheable();
+    }
+
+    /**
+     * <p>hash.</p>
+     *
+     * @param dest destination callsign as parsed
+     * @param body information field
+     * @return long the cache key for the pair
+     */
+    static long hash(String dest, byte[] body) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < dest.length(); i++) {
+            h = (h ^ (dest.charAt(i) & 0xFF)) * 0x100000001b3L;
+        }
+        h = (h ^ ':') * 0x100000001b3L;
+        return PacketHash.finish(PacketHash.update(h, body, 0, body.length));
+    }
+
+    /**
+     * <p>apply.</p>
+     *
+     * @param hash the key from {@link #hash(String, byte[])}
+     * @param dest destination callsign as parsed
+     * @param body information field
+     * @param target the new packet's information field, given the shared decode on a hit
+     * @return boolean true on a hit, false if the body has to be decoded
+     */
+    boolean apply(long hash, String dest, byte[] body, InformationField target) {
+        Entry e = entries.get(hash);
+        if (e == null || !e.dest.equals(dest) || !Arrays.equals(e.body, body)) {
+            misses.increment();
+            return false;
+        }
+        e.referenced = true;
+        hits.increment();
+        target.useShared(e.fields, e.extension);
+        return true;
+    }
+
+    /**
+     * <p>offer.</p>
+     *
+     * Remember a fresh decode, if the body has been seen before and the decode is clean.
+     * The data fields of an admitted decode are made read-only, in this packet too.
+     *
+     * @param hash the key from {@link #hash(String, byte[])}
+     * @param dest destination callsign as parsed
+     * @param info the decoded information field, whose raw bytes are the body
+     */
+    void offer(long hash, String dest, InformationField info) {
+        int slot = (int) hash & (doorkeeper.length - 1);
+        synchronized (this) {
+            if (doorkeeper[slot] != hash) {
+                doorkeeper[slot] = hash;
+                return;
+            }
+            doorkeeper[slot] = 0;
+            if (info.hasFault() || info.containsType(APRSTypes.T_TELEMETRY) || entries.containsKey(hash)) {
+                return;
+            }
+            Entry e = new Entry(hash, dest, info);
+            if (e.weight > maxWeight) {
+                return;
+            }
+            info.freezeFields();
+            while (weight + e.weight > maxWeight) {
+                Entry victim = clock.poll();
+                if (victim.referenced) {
+                    victim.referenced = false;
+                    clock.offer(victim);
+                } else {
+                    entries.remove(victim.hash);
+                    weight -= victim.weight;
+                    evictions.increment();
+                }
+            }
+            clock.offer(e);
+            entries.put(hash, e);
+            weight += e.weight;
+            admissions.increment();
+        }
+    }
+
+    /**
+     * <p>clear.</p>
+     * Drop every entry; the counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        clock.clear();
+        Arrays.fill(doorkeeper, 0);
+        weight = 0;
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return int number of cached bodies
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * <p>Getter for the field <code>weight</code>.</p>
+     *
+     * @return long estimated bytes retained
+     */
+    public synchronized long getRetainedBytes() {
+        return weight;
+    }
+
+    /**
+     * <p>Getter for the field <code>hits</code>.</p>
+     *
+     * @return long lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * <p>Getter for the field <code>misses</code>.</p>
+     *
+     * @return long lookups of eligible bodies that had to be decoded
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * <p>getHitRate.</p>
+     *
+     * @return double fraction of lookups that hit, 0 before the first lookup
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * <p>Getter for the field <code>admissions</code>.</p>
+     *
+     * @return long bodies added to the cache
+     */
+    public long getAdmissions() {
+        return admissions.sum();
+    }
+
+    /**
+     * <p>Getter for the field <code>evictions</code>.</p>
+     *
+     * @return long bodies dropped to stay within the budget
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * one cached body: a private copy of the bytes, for confirming hits, and the frozen
+     * data fields it decoded to
+     */
+    private static final class Entry {
+        final long hash;
+        final String dest;
+        final byte[] body;
+        final Map<APRSTypes, APRSData> fields;
+        final DataExtension extension;
+        final long weight;
+        volatile boolean referenced;
+
+        Entry(long hash, String dest, InformationField info) {
+            this.hash = hash;
+            this.dest = dest;
+            this.body = info.getRawBytes().clone();
+            this.fields = new EnumMap<>(info.getAprsData());
+            this.extension = info.getExtension();
+            this.weight = body.length + dest.length() + ENTRY_OVERHEAD;
+        }
+    }
+}
@@ -23,8 +23,8 @@ package net.ab0oo.aprs.parser;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 /**
  * <p>Parser class.</p>
  *
@@ -37,7 +37,112 @@ import java.util.regex.Pattern;
  * @version $Id: $Id
  */
 public class Parser {
-    private static final Pattern altitudePattern = Pattern.compile(".*/A=(\\d{6}).*");
+    /**
+     * decoder for each DTI byte, or null; replaced wholesale when a decoder is registered
+     */
+    private static volatile PacketDecoder[] decoders = new PacketDecoder[256];
+    /**
+     * when set, telemetry metadata messages are cached and telemetry reports are scaled
+     */
+    private static volatile TelemetryMetadataCache telemetryCache;
+    /**
+     * when set, repeated beacon bodies share one decode
+     */
+    private static volatile ParsedBodyCache bodyCache;
+    /**
+     * per-thread TNC2 header scanner, reused across packets
+     */
+    private static final ThreadLocal<HeaderScanner> HEADER_SCANNER = ThreadLocal.withInitial(HeaderScanner::new);
+
+    /**
+     * <p>setTelemetryMetadataCache.</p>
+     *
+     * @param cache cache to feed PARM/UNIT/EQNS/BITS messages into and to scale telemetry
+     * reports from; null to stop
+     */
+    public static void setTelemetryMetadataCache(TelemetryMetadataCache cache) {
+        telemetryCache = cache;
+    }
+
+    /**
+     * <p>getTelemetryMetadataCache.</p>
+     *
+     * @return TelemetryMetadataCache the cache in use, or null
+     */
+    public static TelemetryMetadataCache getTelemetryMetadataCache() {
+        return telemetryCache;
+    }
+
+    /**
+     * <p>setParsedBodyCache.</p>
+     *
+     * @param cache cache of decoded information fields to consult and fill; null to stop
+     */
+    public static void setParsedBodyCache(ParsedBodyCache cache) {
+        bodyCache = cache;
+    }
+
+    /**
+     * <p>getParsedBodyCache.</p>
+     *
+     * @return ParsedBodyCache the cache in use, or null
+     */
+    public static ParsedBodyCache getParsedBodyCache() {
+        return bodyCache;
+    }
+
+    static {
+        for (PacketDecoder d : BuiltinDecoders.all()) {
+            registerDecoder(d);
+        }
+        try {
+            for (PacketDecoder d : ServiceLoader.load(PacketDecoder.class)) {
+                registerDecoder(d);
+            }
+        } catch (ServiceConfigurationError ex) {
+            System.err.println("Unable to load packet decoders: " + ex);
+        }
+    }
+
+    /**
+     * <p>registerDecoder.</p>
+     *
+     * @param decoder decoder to use from now on for every DTI it lists
+     */
+    public static synchronized void registerDecoder(PacketDecoder decoder) {
+        PacketDecoder[] table = decoders.clone();
+        String dtis = decoder.getDataTypeIdentifiers();
+        for (int i = 0; i < dtis.length(); i++) {
+            char c = dtis.charAt(i);
+            if (c > 0xff) {
+                throw new IllegalArgumentException("DTI out of range: " + c);
+            }
+            table[c] = decoder;
+        }
+        decoders = table;
+    }
+
+    /**
+     * <p>setDecoder.</p>
+     *
+     * @param dti a Data Type Identifier, 0-255
+     * @param decoder decoder for it, or null to stop decoding packets with it
+     */
+    static synchronized void setDecoder(char dti, PacketDecoder decoder) {
+        PacketDecoder[] table = decoders.clone();
+        table[dti] = decoder;
+        decoders = table;
+    }
+
+    /**
+     * <p>getDecoder.</p>
+     *
+     * @param dti a Data Type Identifier
+     * @return PacketDecoder the decoder for it, or null if packets with it are not decoded
+     */
+    public static PacketDecoder getDecoder(char dti) {
+        return dti > 0xff ? null : decoders[dti];
+    }
 
 	
 	/**
@@ -72,28 +177,69 @@ public class Parser {
 	/**
 	 * <p>parse.</p>
 	 *
+	 * The header goes through the same scanner as {@link #parse(byte[], int, int)}, as
+	 * ISO-8859-1 bytes, so both overloads split unusual headers the same way; the body is
+	 * encoded as {@link #parseBody(String, String, ArrayList, String)} does.
+	 *
 	 * @param packet inbound packet as a string
 	 * @return APRSPacket a fully parsed APRSPacket object
 	 * @throws java.lang.Exception Generic "I failed"
 	 */
 	public static APRSPacket parse(final String packet) throws Exception {
-        int cs = packet.indexOf('>');
-		if ( cs < 0 ) {
+        int ms = packet.indexOf(':');
+		if ( ms < 0 ) {
 			throw new UnparsablePacketException("Not a valid AX25-style packet");
 		}
-        String source = packet.substring(0,cs).toUpperCase();
-        int ms = packet.indexOf(':');
-        String digiList = packet.substring(cs+1,ms);
-        String[] digiTemp = digiList.split(",");
-        String dest = digiTemp[0].toUpperCase();
-        ArrayList<Digipeater> digis = Digipeater.parseList(digiList, false);
-        String body = packet.substring(ms+1);
-        APRSPacket ap = parseBody(source, dest, digis, body);
+        byte[] header = packet.substring(0, ms + 1).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] body = packet.substring(ms + 1).getBytes();
+        byte[] line = Arrays.copyOf(header, header.length + body.length);
+        System.arraycopy(body, 0, line, header.length, body.length);
+        APRSPacket ap = parse(line, 0, line.length, 0, false);
         ap.setOriginalString(packet);
         return ap;
     }
 
-    
+
+	/**
+	 * <p>parse.</p>
+	 *
+	 * @param packet buffer holding a TNC2-format packet, such as a line read from an APRS-IS socket
+	 * @param offset index of the first byte of the packet
+	 * @param length number of bytes in the packet, without any line terminator
+	 * @return APRSPacket a fully parsed APRSPacket object
+	 * @throws java.lang.Exception Generic "I failed"
+	 */
+	public static APRSPacket parse(final byte[] packet, int offset, int length) throws Exception {
+		return parse(packet, offset, length, 0);
+	}
+
+	/**
+	 * Header parse shared by top-level packets and the packets inside third-party ('}')
+	 * bodies, which arrive here straight from the outer buffer.
+	 */
+	static APRSPacket parse(final byte[] packet, int offset, int length, int depth) throws Exception {
+		return parse(packet, offset, length, depth, true);
+	}
+
+	private static APRSPacket parse(final byte[] packet, int offset, int length, int depth,
+			boolean keepOriginal) throws Exception {
+		HeaderScanner header = HEADER_SCANNER.get();
+		if ( !header.scan(packet, offset, length) ) {
+			throw new UnparsablePacketException("Not a valid AX25-style packet");
+		}
+		String source = header.source();
+		String dest = header.destination();
+		ArrayList<Digipeater> digis = header.digipeaters();
+		// read before parseBody: a third-party body rescans with this thread's scanner
+		int infoStart = header.getInfoStart();
+		byte[] body = Arrays.copyOfRange(packet, infoStart, offset + length);
+		APRSPacket ap = parseBody(source, dest, digis, body, depth);
+		if ( keepOriginal ) {
+			ap.setOriginal(Arrays.copyOfRange(packet, offset, infoStart), body);
+		}
+		return ap;
+	}
+
 	/**
 	 * <p>parseAX25.</p>
 	 *
@@ -116,8 +262,7 @@ public class Parser {
 	    if (packet[pos] != 0x03 || packet[pos+1] != -16 /*0xf0*/)
 		    throw new IllegalArgumentException("control + pid must be 0x03 0xF0!");
 	    pos += 2;
-	    String body = new String(packet, pos, packet.length - pos);
-	    return parseBody(source, dest, digis, body);
+	    return parseBody(source, dest, digis, Arrays.copyOfRange(packet, pos, packet.length));
     }
 
     /**
@@ -134,153 +279,67 @@ public class Parser {
      * @return a {@link net.ab0oo.aprs.parser.APRSPacket} object
      */
     public static APRSPacket parseBody(String source, String dest, ArrayList<Digipeater> digis, String body) throws Exception {
-		APRSPacket packet = new APRSPacket(source,dest,digis, body.getBytes());
-        byte[] msgBody = body.getBytes();
+		return parseBody(source, dest, digis, body.getBytes());
+	}
+
+    /**
+     * <p>parseBody.</p>
+     *
+     * @param source Source callsign
+     * @param dest Destination callsign, may be part of a compressed postion
+     * @param digis array of digipeaters this packet has passed through
+     * @param msgBody msg body of the on air message, starting with the Data Type Indicator
+     * @throws java.lang.Exception
+     * @return a {@link net.ab0oo.aprs.parser.APRSPacket} object
+     */
+    public static APRSPacket parseBody(String source, String dest, ArrayList<Digipeater> digis, byte[] msgBody) throws Exception {
+		return parseBody(source, dest, digis, msgBody, 0);
+	}
+
+	private static APRSPacket parseBody(String source, String dest, ArrayList<Digipeater> digis, byte[] msgBody, int depth) throws Exception {
+		APRSPacket packet = new APRSPacket(source,dest,digis, msgBody);
         byte dti = msgBody[0];
-		// get the invalid crap out of the way right away.
-		if ( (dti >='A' && dti <= 'S') || 
-		     (dti >='U' && dti <= 'Z') ||
-			 (dti >='0' && dti <= '9') ) {
+		// DTIs nobody decodes (A-S, U-Z, 0-9 among them) have no entry in the table
+		PacketDecoder decoder = decoders[dti & 0xff];
+		if ( decoder == null ) {
 			return packet;
 		}
+		ParsedBodyCache cache = bodyCache;
+		long key = 0;
+		if ( cache != null && decoder.isCacheable() ) {
+			key = ParsedBodyCache.hash(dest, msgBody);
+			if ( cache.apply(key, dest, msgBody, packet.getAprsInformation()) ) {
+				return packet;
+			}
+		}
 		InformationField infoField = packet.getAprsInformation();
-		int cursor = 0;
-        switch ( dti ) {
-        	case '/':
-        	case '@':
-				// These have timestamps, so we need to parse those, advance the cursor, and then look for
-				// the position data
-				TimeField timeField = new TimeField(msgBody, cursor);
-				infoField.addAprsData(APRSTypes.T_TIMESTAMP, timeField);
-				cursor = timeField.getLastCursorPosition();
-				PositionField pf = new PositionField(msgBody, dest, cursor+1);
-				infoField.addAprsData(APRSTypes.T_POSITION,pf);
-				infoField.setDataExtension(pf.getExtension());
-				cursor = pf.getLastCursorPosition();
-				if ( pf.getPosition().getSymbolCode() == '_' ) {
-					// this is a weather station, but it might NOT be transmitting WEATHER DATA
-					WeatherField wf = WeatherParser.parseWeatherData(msgBody, cursor);
-					wf.setType(APRSTypes.T_WX);
-					infoField.addAprsData(APRSTypes.T_WX, wf);
-					cursor = wf.getLastCursorPosition();
-				} else {
-					byte[] slice = Arrays.copyOfRange(msgBody, cursor, msgBody.length-1);
-					Matcher matcher = altitudePattern.matcher(new String(slice));
-					if (matcher.matches()) {
-						pf.getPosition().setAltitude(Integer.parseInt(matcher.group(1)));
-					}
+		int cursor = decoder.decode(packet, msgBody, dest, depth);
+		switch ( dti ) {
+			case '!':
+			case '=':
+			case '/':
+			case '@':
+			case '`':
+			case '\'':
+			case ';':
+			case ')':
+				// base-91 telemetry rides in the comment, between '|' characters
+				TelemetryField ctf = TelemetryField.findCompressed(msgBody, cursor);
+				if ( ctf != null ) {
+					infoField.addAprsData(APRSTypes.T_TELEMETRY, ctf);
 				}
 				break;
-	    	case '!':
-        	case '=':
-        	case '`':
-        	case '\'':
-        	case '$':
-        		if ( body.startsWith("$ULTW") ) {
-        			// Ultimeter II weather packet
-        		} else {
-					// these are non-timestamped packets with position.
-					pf = new PositionField(msgBody, dest, cursor+1);
-					cursor = pf.getLastCursorPosition();
-					infoField.addAprsData(APRSTypes.T_POSITION, pf );
-					infoField.setDataExtension(pf.getExtension());
-					if ( cursor >= msgBody.length ) {
-						// this is a position-only packet, time to leave
-						break;
-					}
-					if ( pf.getPosition().getSymbolCode() == '_' && msgBody.length > 20) {
-						// with weather...
-						WeatherField wf = WeatherParser.parseWeatherData(msgBody, cursor + 1);
-						infoField.addAprsData(APRSTypes.T_WX, wf);
-						cursor = wf.getLastCursorPosition();
-					} else {
-						Matcher matcher;
-						try {
-							byte[] slice = Arrays.copyOfRange(msgBody, cursor, msgBody.length-1);
-							matcher = altitudePattern.matcher(new String(slice));
-						} catch ( IllegalArgumentException iae ) {
-							iae.printStackTrace();
-							BadData bd = new BadData();
-							String msg = "Wandered off the end of the msg body at cursor pos "+cursor;
-							bd.setFaultReason(msg);
-							infoField.addAprsData(APRSTypes.T_UNSPECIFIED, bd);
-							return packet;
-						}
-						if (matcher.matches()) {
-							pf.getPosition().setAltitude(Integer.parseInt(matcher.group(1)));
-						}
-					}
-        		}
-    			break;
-        	case ':':
-        		infoField.addAprsData(APRSTypes.T_MESSAGE, new MessagePacket(msgBody,dest));
+			default:
 				break;
-
-    		case ';':
-				ObjectField of;
-    			if (msgBody.length > 29) {
-    				//System.out.println("Parsing an OBJECT");
-					of = new ObjectField(msgBody);
-    				infoField.addAprsData(APRSTypes.T_OBJECT, of);
-					cursor = of.getLastCursorPosition();
-					if (cursor > msgBody.length - 1 ) {
-						System.err.println("Ran off the end:");
-						System.err.println(msgBody);
-						break;
-					}
-					byte[] slice = Arrays.copyOfRange(msgBody, cursor, msgBody.length-1);
-					packet.setComment(new String(slice, StandardCharsets.UTF_8));
-    			} else {
-					of = new ObjectField("null", false, null, "foo");
-					String reason="Object packet body too short ("+msgBody.length+") for valid object";
-					System.err.println(reason);
-    				of.setHasFault(true); // too short for an object
-					of.setFaultReason(reason);
-    			}
-    			break;
-    		case '>':
-//				packet.setType(APRSTypes.T_STATUS);
-    			break;
-    		case '<':
-//				packet.setType(APRSTypes.T_STATCAPA);
-    			break;
-    		case '?':
-//				packet.setType(APRSTypes.T_QUERY);
-    			break;
-    		case ')':
-				ItemField itemField = new ItemField(msgBody);
-				infoField.addAprsData(APRSTypes.T_ITEM, itemField);
-				cursor = itemField.getLastCursorPosition();
-    			break;
-    		case 'T':
-    			if (msgBody.length > 18) {
-    				//System.out.println("Parsing TELEMETRY");
-    				//parseTelem(bodyBytes);
-    			} else {
-//    				packet.setHasFault(true); // too short
-//					packet.setFaultReason("Packet too short for telemetry packet");
-	   			}
-    			break;
-    		case '#': // Peet Bros U-II Weather Station
-    		case '*': // Peet Bros U-II Weather Station
-    		case '_': // Weather report without position
-				WeatherField  wf = WeatherParser.parseWeatherData(msgBody, cursor);
-				infoField.addAprsData(APRSTypes.T_WX, wf);
-				cursor = wf.getLastCursorPosition();
-    			break;
-    		case '{':
-//				packet.setType(APRSTypes.T_USERDEF);
-    			break;
-    		case '}': // 3rd-party
-//				packet.setType(APRSTypes.T_THIRDPARTY);
-    			break;
-
-    		default:
-//    			packet.setHasFault(true); // UNKNOWN!
-//				packet.setFaultReason("Unknown fault reason.  Sorry.");
-    			break;
-
-        }
+		}
+		TelemetryField tf = (TelemetryField)infoField.getAprsData(APRSTypes.T_TELEMETRY);
+		TelemetryMetadataCache metadata = telemetryCache;
+		if ( tf != null && metadata != null ) {
+			metadata.apply(packet.getSourceCall(), tf);
+		}
+		if ( key != 0 ) {
+			cache.offer(key, dest, infoField);
+		}
 		return packet;
     }
     
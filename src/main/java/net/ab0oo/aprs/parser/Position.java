@@ -64,6 +64,10 @@ public class Position implements Serializable {
 	 * umm....
 	 */
 	private String csTField = " sT";
+	/**
+	 * set once this position is shared between packets by the {@link ParsedBodyCache}
+	 */
+	private transient boolean frozen;
 	
 	/**
 	 * <p>Constructor for Position.</p>
@@ -105,12 +109,27 @@ public class Position implements Serializable {
 		return Double.parseDouble(df.format(latitude));
 	}
 
+	/**
+	 * unrounded latitude, for hot paths that must not go through the formatted getter
+	 */
+	double getRawLatitude() {
+		return latitude;
+	}
+
+	/**
+	 * unrounded longitude, for hot paths that must not go through the formatted getter
+	 */
+	double getRawLongitude() {
+		return longitude;
+	}
+
 	/**
 	 * <p>Setter for the field <code>latitude</code>.</p>
 	 *
 	 * @param latitude the latitude to set
 	 */
 	public void setLatitude(double latitude) {
+		checkWritable();
 		this.latitude = latitude;
 	}
 
@@ -129,6 +148,7 @@ public class Position implements Serializable {
 	 * @param longitude the longitude to set
 	 */
 	public void setLongitude(double longitude) {
+		checkWritable();
 		this.longitude = longitude;
 	}
 
@@ -147,6 +167,7 @@ public class Position implements Serializable {
 	 * @param altitude the altitude to set
 	 */
 	public void setAltitude(int altitude) {
+		checkWritable();
 		this.altitude = altitude;
 	}
 
@@ -165,6 +186,7 @@ public class Position implements Serializable {
 	 * @param positionAmbiguity the positionAmbiguity to set
 	 */
 	public void setPositionAmbiguity(int positionAmbiguity) {
+		checkWritable();
 		this.positionAmbiguity = positionAmbiguity;
 	}
 
@@ -183,6 +205,7 @@ public class Position implements Serializable {
 	 * @param symbolTable the symbolTable to set
 	 */
 	public void setSymbolTable(char symbolTable) {
+		checkWritable();
 		this.symbolTable = symbolTable;
 	}
 
@@ -201,6 +224,7 @@ public class Position implements Serializable {
 	 * @param symbolCode the symbolCode to set
 	 */
 	public void setSymbolCode(char symbolCode) {
+		checkWritable();
 		this.symbolCode = symbolCode;
 	}
 	
@@ -242,14 +266,40 @@ public class Position implements Serializable {
 	}
 	
 	
+	/**
+	 * <p>freeze.</p>
+	 * Make this position read-only; the setters throw from here on.
+	 */
+	void freeze() {
+		frozen = true;
+	}
+
+	private void checkWritable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("read-only: shared by the parsed-body cache");
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public String toString() {
-		StringBuffer sb = new StringBuffer();
-		sb.append("Latitude:\t"+df.format(this.latitude)+"\n");
-		sb.append("Longitude:\t"+df.format(this.longitude)+"\n");
+		StringBuilder sb = new StringBuilder();
+		formatTo(sb);
 		return sb.toString();
 	}
+
+	/**
+	 * <p>formatTo.</p>
+	 *
+	 * @param sb builder to append the same text as {@link #toString()} to
+	 */
+	public void formatTo(StringBuilder sb) {
+		sb.append("Latitude:\t");
+		Formatting.appendFixed(sb, this.latitude, 5);
+		sb.append("\nLongitude:\t");
+		Formatting.appendFixed(sb, this.longitude, 5);
+		sb.append('\n');
+	}
 	
 	
 	/**
@@ -268,6 +318,7 @@ public class Position implements Serializable {
 	 * @param val a {@link java.lang.String} object
 	 */
 	public void setCsTField(String val) {
+		checkWritable();
 		if(val == null || val == "") {
 			val = " sT";
 		}
@@ -337,11 +388,8 @@ public class Position implements Serializable {
 	 * @return float the distance in miles from the position in this message and given position
 	 */
 	public float distance(Position position2) {
-		double lat1 = this.getLatitude();
-		double lat2 = position2.getLatitude();
-		double lng1 = this.getLongitude();
-		double lng2 = position2.getLongitude();
-		return distFrom(lat1,lng1,lat2,lng2);
+		// read the fields directly; the getters round through a DecimalFormat
+		return distFrom(latitude, longitude, position2.latitude, position2.longitude);
 	}
 	
 	/**
@@ -357,10 +405,10 @@ public class Position implements Serializable {
 	 * @return bearing in degrees
 	 */
 	public float direction(Position position2) {
-		double Lat1 = Math.toRadians(position2.getLatitude());
-		double Lon1 = position2.getLongitude();
-		double Lat2 = Math.toRadians(getLatitude());
-		double Lon2 = getLongitude();
+		double Lat1 = Math.toRadians(position2.latitude);
+		double Lon1 = position2.longitude;
+		double Lat2 = Math.toRadians(latitude);
+		double Lon2 = longitude;
 		double dLon = Math.toRadians(Lon2 - Lon1);
 		double y = Math.sin(dLon) * Math.cos(Lat2);
 		double x = Math.cos(Lat1) * Math.sin(Lat2) - Math.sin(Lat1) *
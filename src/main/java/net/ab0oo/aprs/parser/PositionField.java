@@ -62,13 +62,13 @@ public class PositionField extends APRSData {
 	/**
 	 * <p>Constructor for PositionField.</p>
 	 *
-	 * @param msgBody an array of {@link byte} objects
+	 * @param msgBody an array of {@link byte} objects; shared, not copied
 	 * @param destinationField a {@link java.lang.String} object
 	 * @param cursor a int
 	 * @throws java.lang.Exception if any.
 	 */
 	public PositionField(byte[] msgBody, String destinationField, int cursor) throws Exception {
-		super(msgBody);
+		super(msgBody, 0, msgBody.length);
 		positionSource = "Unknown";
 		char packetType = (char) msgBody[0];
 		this.setHasFault(false);
@@ -94,6 +94,9 @@ public class PositionField extends APRSData {
 						this.type = APRSTypes.T_WX;
 						break;
 					}
+				case ';':
+				case ')':
+					// objects and items carry a plain or compressed position after their name
 				case '=':
 				case '/':
 				case '@':
@@ -141,8 +144,15 @@ public class PositionField extends APRSData {
 				case '$':
 					if (msgBody.length > 10) {
 						this.type = APRSTypes.T_POSITION;
-						this.position = PositionParser.parseNMEA(msgBody);
+						NMEAScanner nmea = PositionParser.NMEA_SCANNER.get();
+						this.position = PositionParser.parseNMEA(msgBody, nmea);
 						this.positionSource = "NMEA";
+						if ( !Double.isNaN(nmea.getSpeed()) && !Double.isNaN(nmea.getCourse()) ) {
+							CourseAndSpeedExtension cse = new CourseAndSpeedExtension();
+							cse.setCourse((int)Math.round(nmea.getCourse()) % 360);
+							cse.setSpeed((int)Math.round(nmea.getSpeed()));
+							this.extension = cse;
+						}
 					} else {
 						this.setHasFault(true);
 						this.setFaultReason("Unable to parse NMEA position");
@@ -154,7 +164,7 @@ public class PositionField extends APRSData {
 				// pass
 			} else {
 				if (cursor > 0 && cursor < msgBody.length) {
-					comment = new String(msgBody, cursor, msgBody.length - cursor, "UTF-8");
+					setCommentRange(cursor, msgBody.length - cursor);
 				}
 			}
 			this.setLastCursorPosition(cursor);
@@ -163,12 +173,12 @@ public class PositionField extends APRSData {
 			if ( ex instanceof UnparsablePositionException ) {
 				this.setHasFault(true);
 				this.setFaultReason(ex.getMessage());
-				this.comment = this.comment + "Unparsable Position.";
+				this.comment = getComment() + "Unparsable Position.";
 			}
 			else {
 				this.setHasFault(true);
 				this.setFaultReason(" Invalid position format");
-				this.comment = this.comment + " INVALID position format.";
+				this.comment = getComment() + " INVALID position format.";
 				System.err.println(ex);
 			}
 		}
@@ -206,6 +216,7 @@ public class PositionField extends APRSData {
 	 * @param val tells the encoder to compress this packet out output
 	 */
 	public void setCompressedFormat(boolean val) {
+		checkWritable();
 		compressedFormat = val;
 	}
 
@@ -256,6 +267,7 @@ public class PositionField extends APRSData {
 	 * @param position the position to set
 	 */
 	public void setPosition(Position position) {
+		checkWritable();
 		this.position = position;
 	}
 
@@ -274,20 +286,39 @@ public class PositionField extends APRSData {
 	 * @param e data extension to add to this position
 	 */
 	public void setExtension( DataExtension e) {
+		checkWritable();
 		this.extension = e;
 	}
 
+	@Override
+	void freeze() {
+		super.freeze();
+		if (position != null) {
+			position.freeze();
+		}
+		if (extension != null) {
+			extension.freeze();
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public String toString() {
-		StringBuffer sb = new StringBuffer("---POSITION---\n");
-		sb.append("Position Source\t" + this.positionSource + "\n");
-		sb.append("Is Compressed:\t" + this.compressedFormat + "\n");
-		sb.append(this.position.toString());
-		sb.append("Comment:  " + this.comment + "\n");
+		StringBuilder sb = new StringBuilder();
+		formatTo(sb);
 		return sb.toString();
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public void formatTo(StringBuilder sb) {
+		sb.append("---POSITION---\n");
+		sb.append("Position Source\t").append(this.positionSource).append('\n');
+		sb.append("Is Compressed:\t").append(this.compressedFormat).append('\n');
+		this.position.formatTo(sb);
+		sb.append("Comment:  ").append(getComment()).append('\n');
+	}
+
 	/**
 	 * <p>Getter for the field <code>positionSource</code>.</p>
 	 *
@@ -303,6 +334,7 @@ public class PositionField extends APRSData {
 	 * @param positionSource a {@link java.lang.String} object
 	 */
 	public void setPositionSource(String positionSource) {
+		checkWritable();
 		this.positionSource = positionSource;
 	}
 
@@ -37,7 +37,7 @@ import java.util.regex.Pattern;
  * @version $Id: $Id
  */
 public class PositionParser {
-    private static Pattern commaSplit = Pattern.compile(",");
+    static final ThreadLocal<NMEAScanner> NMEA_SCANNER = ThreadLocal.withInitial(NMEAScanner::new);
 
     /**
      * <p>parseUncompressed.</p>
@@ -343,169 +343,31 @@ public class PositionParser {
      * @throws java.lang.Exception if any.
      */
     public static Position parseNMEA(byte[] msgBody) throws Exception {
-        String[] nmea = commaSplit.split(new String(msgBody));
-        String lats = null; // Strings of Lat/Lon
-        String lngs = null;
-        String lath = null; // Polarity of Lat/Lon
-        String lngh = null;
-        if (nmea.length < 5) { // Too few parts
-            throw new UnparsablePositionException("Too few parts in NMEA sentence");
-        }
-
-        // NMEA sentences to understand:
-        // $GPGGA Global Positioning System Fix Data
-        // $GPGLL Geographic Position, Latitude/Longitude Data
-        // $GPRMC Remommended Minimum Specific GPS/Transit Data
-        // $GPWPT Way Point Location ?? (bug in APRS specs ?)
-        // $GPWPL Waypoint Load (not in APRS specs, but in NMEA specs)
-        // $PNTS Seen on APRS-IS, private sentense based on NMEA..
-        // $xxTLL Not seen on radio network, usually $RATLL - Target positions
-        // reported by RAdar.
-
-        if ("$GPGGA".equals(nmea[0]) && nmea.length >= 15) {
-            // GPGGA,175059,3347.4969,N,11805.7319,W,2,12,1.0,6.8,M,-32.1,M,,*7D
-            // v=1, looks fine
-            // GPGGA,000000,5132.038,N,11310.221,W,1,09,0.8,940.0,M,-17.7,,
-            // v=1, timestamp odd, coords look fine
-            // GPGGA,,,,,,0,00,,,,,,,*66
-            // v=0, invalid
-            // GPGGA,121230,4518.7931,N,07322.3202,W,2,08,1.0,40.0,M,-32.4,M,,*46
-            // v=2, looks valid ?
-            // GPGGA,193115.00,3302.50182,N,11651.22581,W,1,08,01.6,00465.90,M,-32.891,M,,*5F
-            // $GPGGA,hhmmss.dd,xxmm.dddd,<N|S>,yyymm.dddd,<E|W>,v,
-            // ss,d.d,h.h,M,g.g,M,a.a,xxxx*hh<CR><LF>
-
-            if (!("1".equals(nmea[6]))) { // Not valid position fix
-                throw new UnparsablePositionException("Not a valid position fix");
-            }
-
-            lats = nmea[2];
-            lath = nmea[3];
-            lngs = nmea[4];
-            lngh = nmea[5];
-
-        } else if ("$GPGLL".equals(nmea[0]) && nmea.length > 7) {
-            // $GPGLL,xxmm.dddd,<N|S>,yyymm.dddd,<E|W>,hhmmss.dd,S,M*hh<CR><LF>
-            if (!"A".equals(nmea[6]) || nmea[7].charAt(0) != 'A') {
-                // Not valid ("A") or not autonomous ("A")
-                throw new UnparsablePositionException("Not valid or not autonomous NMEA sentence");
-            }
-
-            lats = nmea[1];
-            lath = nmea[2];
-            lngs = nmea[3];
-            lngh = nmea[4];
-
-        } else if ("$GPRMC".equals(nmea[0]) && nmea.length > 11) {
-            // $GPRMC,hhmmss.dd,S,xxmm.dddd,<N|S>,yyymm.dddd,<E|W>,s.s,h.h,ddmmyy,d.d,
-            // <E|W>,M*hh<CR><LF>
-            // ,S, = Status: 'A' = Valid, 'V' = Invalid
-            // 
-            // GPRMC,175050,A,4117.8935,N,10535.0871,W,0.0,324.3,100208,10.0,E,A*3B
-            // GPRMC,000000,V,0000.0000,0,00000.0000,0,000,000,000000,,*01/It
-            // wasn't me :)
-            // invalid..
-            // GPRMC,000043,V,4411.7761,N,07927.0448,W,0.000,0.0,290697,10.7,W*57
-            // GPRMC,003803,A,3347.1727,N,11812.7184,W,000.0,000.0,140208,013.7,E*67
-            // GPRMC,050058,A,4609.1143,N,12258.8184,W,0.000,0.0,100208,18.0,E*5B
-
-            if (!nmea[2].equals("A")) {
-                throw new UnparsablePositionException("Not valid or not autonomous NMEA sentence");
-            }
-
-            lats = nmea[3];
-            lath = nmea[4];
-            lngs = nmea[5];
-            lngh = nmea[6];
-
-        } else if ("$GPWPL".equals(nmea[0]) && nmea.length > 5) {
-            // $GPWPL,4610.586,N,00607.754,E,4*70
-            // $GPWPL,4610.452,N,00607.759,E,5*74
-
-            lats = nmea[1];
-            lath = nmea[2];
-            lngs = nmea[3];
-            lngh = nmea[4];
-
-        } else if (nmea.length > 15 && "$PNTS".equals(nmea[0]) && "1".equals(nmea[1])) {
-            // PNTS version 1
-            // $PNTS,1,0,11,01,2002,231932,3539.687,N,13944.480,E,0,000,5,Roppongi
-            // UID RELAY,000,1*35
-            // $PNTS,1,0,14,01,2007,131449,3535.182,N,13941.200,E,0,0.0,6,Oota-Ku
-            // KissUIDigi,000,1*1D
-            // $PNTS,1,0,17,02,2008,120824,3117.165,N,13036.481,E,49,059,1,Kagoshima,000,1*71
-            // $PNTS,1,0,17,02,2008,120948,3504.283,N,13657.933,E,00,000.0,6,,000,1*36
-            // 
-            // From Alinco EJ-41U Terminal Node Controller manual:
-            // 
-            // 5-4-7 $PNTS
-            // This is a private-sentence based on NMEA-0183. The data contains date,
-            // time, latitude, longitude, moving speed, direction, altitude plus a short
-            // message, group codes, and icon numbers. The EJ-41U does not analyze this
-            // format but can re-structure it.
-            // The data contains the following information:
-            // . $PNTS Starts the $PNTS sentence
-            // . version
-            // . the registered information. [0]=normal geographical location data.
-            // This is the only data EJ-41U can re-structure. [s]=Initial position
-            // for the course setting [E]=ending position for the course setting
-            // [1]=the course data between initial and ending [P]=the check point
-            // registration [A]=check data when the automatic position transmission
-            // is set OFF [R]=check data when the course data or check point
-            // data is
-            // received.
-            // . dd,mm,yyyy,hhmmss: Date and time indication.
-            // . Latitude in DMD followed by N or S
-            // . Longitude in DMD followed by E or W
-            // . Direction: Shown with the number 360 degrees divided by 64.
-            // 00 stands for true north, 16 for east. Speed in Km/h
-            // . One of 15 characters [0] to [9], [A] to [E].
-            // NTSMRK command determines this character when EJ-41U is used.
-            // . A short message up to 20 bites. Use NTSMSG command to determine
-            // this message.
-            // . A group code: 3 letters with a combination of [0] to [9], [A] to [Z].
-            // Use NTSGRP command to determine.
-            // . Status: [1] for usable information, [0] for non-usable information.
-            // . *hh<CR><LF> the check-sum and end of PNTS sentence.
-
-            lats = nmea[7];
-            lath = nmea[8];
-            lngs = nmea[9];
-            lngh = nmea[10];
-
-        } else if ("$GPGSA".equals(nmea[0]) || "$GPVTG".equals(nmea[0]) || "$GPGSV".equals(nmea[0])) {
-            // recognized but ignored
-            throw new UnparsablePositionException("Ignored NMEA sentence");
-        }
-
-        // Parse lats,lath, lngs, lngh
-        if (lats == null) {
-            throw new UnparsablePositionException("Invalid NMEA sentence");
-        }
-        try {
-            double lat = parseDegMin(lats.toCharArray(), 0, 2, 9, true);
-            double lng = parseDegMin(lngs.toCharArray(), 0, 3, 9, true);
-            if (lat > 90.0F)
-                throw new UnparsablePositionException("Latitude too high");
-            if (lng > 180.0F)
-                throw new UnparsablePositionException("Longitude too high");
-
-            if (lath.equals("S") || lath.equals("s"))
-                lat = 0.0F - lat; // South negative
-            else if (!(lath.equals("N") || lath.equals("n")))
-                throw new UnparsablePositionException("Bad latitude sign");
-
-            if (lngh.equals("W") || lngh.equals("w"))
-                lng = 0.0F - lng; // West negative
-            else if (!(lngh.equals("E") || lngh.equals("e")))
-                throw new UnparsablePositionException("Bad longitude sign");
-
-            return new Position(lat, lng, 0, '/', '>'); // FIXME: GPS symbols
-            // fillPos(fap, lat, lng, '/', '>', 0);
+        return parseNMEA(msgBody, NMEA_SCANNER.get());
+    }
 
-        } catch (Exception e) {
-            throw new UnparsablePositionException("Abject failure parsing NMEA sentence");
-        }
+    /**
+     * Decodes the sentence with the given scanner, which is left holding the speed, course
+     * and time of the fix for the caller.
+     */
+    static Position parseNMEA(byte[] msgBody, NMEAScanner nmea) throws Exception {
+        // NMEA sentences understood, from any talker ($GP, $GN, $GL...):
+        // GGA Global Positioning System Fix Data
+        // GLL Geographic Position, Latitude/Longitude Data
+        // RMC Recommended Minimum Specific GPS/Transit Data
+        // WPL Waypoint Load (not in APRS specs, but in NMEA specs)
+        // $PNTS Seen on APRS-IS, private sentence based on NMEA
+        // GSA, VTG and GSV are recognized but carry no position.
+        if (!nmea.scan(msgBody, 0, msgBody.length)) {
+            throw new UnparsablePositionException(nmea.getFailure());
+        }
+        Position p = new Position(nmea.getLatitude(), nmea.getLongitude(), 0, '/', '>'); // FIXME: GPS symbols
+        double alt = nmea.getAltitude();
+        if (!Double.isNaN(alt)) {
+            // APRS altitudes are in feet
+            p.setAltitude((int) Math.round(alt / 0.3048));
+        }
+        return p;
     }
 
     /**
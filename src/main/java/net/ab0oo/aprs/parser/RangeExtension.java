@@ -53,6 +53,7 @@ public class RangeExtension extends DataExtension implements Serializable {
 	 * @param range the range to set
 	 */
 	public void setRange(int range) {
+		checkWritable();
 		this.range = range;
 	}
 
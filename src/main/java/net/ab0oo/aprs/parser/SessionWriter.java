@@ -0,0 +1,252 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>SessionWriter class.</p>
+ *
+ * Outbound side of one APRS-IS client connection.  Pre-encoded packet buffers (usually
+ * read-only duplicates of a buffer shared by every client that matched the packet) are queued
+ * with {@link #offer(ByteBuffer)}, and the writer task sends them in batches with a single
+ * gathering write.  Once the first buffer of a batch is queued the writer waits at most the
+ * linger time for more to arrive, so a burst costs one system call while a lone packet is
+ * delayed by no more than the linger bound.
+ *
+ * The queue is bounded.  A client that reads slower than it is fed fills its queue, and the
+ * next offer closes the connection instead of blocking the thread that is fanning out packets.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class SessionWriter implements Runnable, Closeable {
+    /**
+     * default latency bound for coalescing, in ms
+     */
+    public static final long DEFAULT_LINGER = 5;
+    /**
+     * default number of queued buffers before a client is considered too slow
+     */
+    public static final int DEFAULT_MAX_QUEUE = 4096;
+    private static final ByteBuffer WAKEUP = ByteBuffer.allocate(0);
+
+    private final GatheringByteChannel channel;
+    private final ArrayBlockingQueue<ByteBuffer> queue;
+    private final ByteBuffer[] batch;
+    private final long lingerNanos;
+    private volatile boolean open = true;
+    private volatile boolean overflowed = false;
+    private volatile long batches = 0;
+    private volatile long buffersWritten = 0;
+    private volatile long bytesWritten = 0;
+
+    /**
+     * <p>Constructor for SessionWriter.</p>
+     *
+     * @param channel connected socket (or any gathering channel) in blocking mode
+     */
+    public SessionWriter(GatheringByteChannel channel) {
+        this(channel, DEFAULT_LINGER, DEFAULT_MAX_QUEUE, 64);
+    }
+
+    /**
+     * <p>Constructor for SessionWriter.</p>
+     *
+     * @param channel connected socket (or any gathering channel) in blocking mode
+     * @param lingerMillis longest time a queued buffer waits for company before it is written
+     * @param maxQueue queued buffers allowed before the client is dropped as too slow
+     * @param maxBatch most buffers handed to one gathering write
+     */
+    public SessionWriter(GatheringByteChannel channel, long lingerMillis, int maxQueue, int maxBatch) {
+        if (maxQueue < 1 || maxBatch < 1 || lingerMillis < 0) {
+            throw new IllegalArgumentException("Bad writer limits");
+        }
+        this.channel = channel;
+        this.queue = new ArrayBlockingQueue<>(maxQueue + 1);
+        this.batch = new ByteBuffer[maxBatch];
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+    }
+
+    /**
+     * <p>offer.</p>
+     *
+     * @param buffer bytes to send; its position and limit are consumed, so pass a duplicate of
+     * any buffer shared with other writers
+     * @return boolean false if the writer is closed, or was just closed because the client is
+     * too slow
+     */
+    public boolean offer(ByteBuffer buffer) {
+        if (!open) {
+            return false;
+        }
+        // one slot is kept back for the wakeup marker
+        if (queue.remainingCapacity() <= 1 || !queue.offer(buffer)) {
+            overflowed = true;
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void run() {
+        try {
+            while (open) {
+                ByteBuffer first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null || first == WAKEUP) {
+                    continue;
+                }
+                int n = gather(first);
+                write(n);
+            }
+        } catch (IOException ex) {
+            // client went away
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * collects buffers behind the first one until the batch is full or the linger time is up
+     */
+    private int gather(ByteBuffer first) throws InterruptedException {
+        batch[0] = first;
+        int n = 1;
+        long deadline = System.nanoTime() + lingerNanos;
+        while (n < batch.length && open) {
+            ByteBuffer b = queue.poll();
+            if (b == null) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    break;
+                }
+                b = queue.poll(left, TimeUnit.NANOSECONDS);
+                if (b == null) {
+                    break;
+                }
+            }
+            if (b != WAKEUP) {
+                batch[n++] = b;
+            }
+        }
+        return n;
+    }
+
+    private void write(int n) throws IOException {
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            total += batch[i].remaining();
+        }
+        long left = total;
+        int from = 0;
+        while (left > 0) {
+            left -= channel.write(batch, from, n - from);
+            while (from < n && !batch[from].hasRemaining()) {
+                from++;
+            }
+        }
+        batches++;
+        buffersWritten += n;
+        bytesWritten += total;
+        for (int i = 0; i < n; i++) {
+            batch[i] = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        queue.clear();
+        queue.offer(WAKEUP);
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            // already gone
+        }
+    }
+
+    /**
+     * <p>isOpen.</p>
+     *
+     * @return boolean true until the writer is closed
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * <p>isOverflowed.</p>
+     *
+     * @return boolean true if the writer was closed because its queue filled up
+     */
+    public boolean isOverflowed() {
+        return overflowed;
+    }
+
+    /**
+     * <p>getQueueDepth.</p>
+     *
+     * @return int buffers waiting to be written
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * <p>Getter for the field <code>batches</code>.</p>
+     *
+     * @return long number of gathering writes issued
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * <p>Getter for the field <code>buffersWritten</code>.</p>
+     *
+     * @return long number of queued buffers written
+     */
+    public long getBuffersWritten() {
+        return buffersWritten;
+    }
+
+    /**
+     * <p>Getter for the field <code>bytesWritten</code>.</p>
+     *
+     * @return long number of bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+}
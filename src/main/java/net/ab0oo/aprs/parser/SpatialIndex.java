@@ -0,0 +1,461 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>SpatialIndex class.</p>
+ *
+ * A grid index over live positions, for "who is within 50 km of here" without scanning every
+ * station.  The globe is cut into cells of a fixed number of degrees; each cell keeps its
+ * members in parallel arrays, and each item remembers its cell and slot, so moving a station
+ * is an in-place coordinate update or a swap-remove plus an append, O(1) either way.
+ *
+ * Queries only visit the cells that can hold a match.  Candidates in those cells are first
+ * checked against the exact latitude band, then against a flat-earth (equirectangular)
+ * distance with a safety margin, and only the survivors pay for a haversine distance.
+ * Distances are in kilometers.  Reads share a lock, updates take it exclusively.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class SpatialIndex<T> {
+    private static final double R = GeoKernels.EARTH_RADIUS_KM;
+    private static final double KM_PER_DEG = R * Math.PI / 180.0;
+    /**
+     * the flat-earth estimate is trusted to within this factor.  It is only used when the search
+     * spans at most PREFILTER_MAX_KM and PREFILTER_MAX_LON degrees of longitude, where its error
+     * is well under 1%; wider searches (or searches near the poles) go straight to haversine.
+     */
+    private static final double PREFILTER_SLACK = 1.05;
+    private static final double PREFILTER_MAX_KM = 500;
+    private static final double PREFILTER_MAX_LON = 10;
+
+    private final double cellDeg;
+    private final int latCells;
+    private final int lonCells;
+    private final Cell[] cells;
+    private final Map<T, Slot> slots = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * <p>Constructor for SpatialIndex.</p>
+     * Half-degree cells, about 55 km north-south.
+     */
+    public SpatialIndex() {
+        this(0.5);
+    }
+
+    /**
+     * <p>Constructor for SpatialIndex.</p>
+     *
+     * @param cellDegrees cell size in degrees, at least 0.1; pick it near the typical query radius
+     */
+    public SpatialIndex(double cellDegrees) {
+        if (!(cellDegrees >= 0.1) || cellDegrees > 90) {
+            throw new IllegalArgumentException("cell size must be between 0.1 and 90 degrees");
+        }
+        this.cellDeg = cellDegrees;
+        this.latCells = (int) Math.ceil(180.0 / cellDegrees);
+        this.lonCells = (int) Math.ceil(360.0 / cellDegrees);
+        this.cells = new Cell[latCells * lonCells];
+    }
+
+    private int latIndex(double lat) {
+        int i = (int) Math.floor((lat + 90.0) / cellDeg);
+        return i < 0 ? 0 : (i >= latCells ? latCells - 1 : i);
+    }
+
+    private int lonIndex(double lon) {
+        int i = (int) Math.floor((lon + 180.0) / cellDeg) % lonCells;
+        return i < 0 ? i + lonCells : i;
+    }
+
+    /**
+     * <p>put.</p>
+     *
+     * @param item item to add, or to move if it is already indexed
+     * @param lat latitude in degrees
+     * @param lon longitude in degrees
+     */
+    public void put(T item, double lat, double lon) {
+        int c = latIndex(lat) * lonCells + lonIndex(lon);
+        lock.writeLock().lock();
+        try {
+            Slot s = slots.get(item);
+            if (s == null) {
+                s = new Slot();
+                slots.put(item, s);
+            } else if (s.cell == c) {
+                cells[c].lat[s.index] = lat;
+                cells[c].lon[s.index] = lon;
+                return;
+            } else {
+                cells[s.cell].remove(s.index, slots);
+            }
+            Cell cell = cells[c];
+            if (cell == null) {
+                cell = cells[c] = new Cell();
+            }
+            s.cell = c;
+            s.index = cell.add(item, lat, lon);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>put.</p>
+     *
+     * @param item item to add or move
+     * @param position its new position
+     */
+    public void put(T item, Position position) {
+        put(item, position.getRawLatitude(), position.getRawLongitude());
+    }
+
+    /**
+     * <p>remove.</p>
+     *
+     * @param item item to drop from the index
+     * @return boolean true if it was indexed
+     */
+    public boolean remove(T item) {
+        lock.writeLock().lock();
+        try {
+            Slot s = slots.remove(item);
+            if (s == null) {
+                return false;
+            }
+            cells[s.cell].remove(s.index, slots);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return int number of items indexed
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>within.</p>
+     *
+     * @param lat latitude of the center, in degrees
+     * @param lon longitude of the center, in degrees
+     * @param km radius in kilometers
+     * @return List items within the radius, in no particular order
+     */
+    public List<T> within(double lat, double lon, double km) {
+        List<T> out = new ArrayList<>();
+        double ang = Math.min(km / R, Math.PI);
+        double dLatDeg = Math.toDegrees(ang);
+        double dLonDeg = lonReach(lat, ang);
+        double lat0 = Math.toRadians(lat);
+        double cosLat0 = Math.cos(lat0);
+        double sinHalf = Math.sin(ang / 2);
+        double maxHav = sinHalf * sinHalf;
+        boolean prefilter = km <= PREFILTER_MAX_KM && dLonDeg <= PREFILTER_MAX_LON;
+        double maxFlat2 = (km * PREFILTER_SLACK) * (km * PREFILTER_SLACK);
+        int lat1 = latIndex(lat - dLatDeg);
+        int lat2 = latIndex(lat + dLatDeg);
+        int lonSpan = dLonDeg >= 180 ? lonCells : (int) Math.ceil(dLonDeg / cellDeg) * 2 + 2;
+        int lonFirst = dLonDeg >= 180 ? 0 : lonIndex(lon - dLonDeg);
+        lock.readLock().lock();
+        try {
+            for (int li = lat1; li <= lat2; li++) {
+                for (int k = 0; k < Math.min(lonSpan, lonCells); k++) {
+                    Cell cell = cells[li * lonCells + (lonFirst + k) % lonCells];
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int j = 0; j < cell.size; j++) {
+                        double pl = cell.lat[j];
+                        double dLat = pl - lat;
+                        if (dLat > dLatDeg || dLat < -dLatDeg) {
+                            continue;
+                        }
+                        double dLon = wrap(cell.lon[j] - lon);
+                        if (prefilter) {
+                            double x = dLon * Math.cos(Math.toRadians((pl + lat) / 2)) * KM_PER_DEG;
+                            double y = dLat * KM_PER_DEG;
+                            if (x * x + y * y > maxFlat2) {
+                                continue;
+                            }
+                        }
+                        double sLat = Math.sin(Math.toRadians(dLat) / 2);
+                        double sLon = Math.sin(Math.toRadians(dLon) / 2);
+                        if (sLat * sLat + cosLat0 * Math.cos(Math.toRadians(pl)) * sLon * sLon <= maxHav) {
+                            out.add(cell.item(j));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    /**
+     * <p>within.</p>
+     *
+     * @param center center of the search
+     * @param km radius in kilometers
+     * @return List items within the radius
+     */
+    public List<T> within(Position center, double km) {
+        return within(center.getRawLatitude(), center.getRawLongitude(), km);
+    }
+
+    /**
+     * <p>inBox.</p>
+     *
+     * @param latN northern edge
+     * @param lonW western edge
+     * @param latS southern edge
+     * @param lonE eastern edge; may be less than lonW for a box across the date line
+     * @return List items inside the box
+     */
+    public List<T> inBox(double latN, double lonW, double latS, double lonE) {
+        List<T> out = new ArrayList<>();
+        double width = lonE - lonW;
+        if (width < 0) {
+            width += 360;
+        }
+        int lat1 = latIndex(latS);
+        int lat2 = latIndex(latN);
+        int first = lonIndex(lonW);
+        int span = width >= 360 ? lonCells : Math.min(lonCells, (int) Math.ceil(width / cellDeg) + 1);
+        lock.readLock().lock();
+        try {
+            for (int li = lat1; li <= lat2; li++) {
+                for (int k = 0; k < span; k++) {
+                    Cell cell = cells[li * lonCells + (first + k) % lonCells];
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int j = 0; j < cell.size; j++) {
+                        double pl = cell.lat[j];
+                        if (pl > latN || pl < latS) {
+                            continue;
+                        }
+                        double east = cell.lon[j] - lonW;
+                        if (east < 0) {
+                            east += 360;
+                        }
+                        if (east <= width) {
+                            out.add(cell.item(j));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    /**
+     * <p>nearest.</p>
+     *
+     * @param lat latitude in degrees
+     * @param lon longitude in degrees
+     * @param k number of items wanted
+     * @return List up to k items, nearest first
+     */
+    public List<T> nearest(double lat, double lon, int k) {
+        List<T> out = new ArrayList<>();
+        if (k < 1) {
+            return out;
+        }
+        // max-heap on distance, holding the best k so far
+        PriorityQueue<Hit<T>> best = new PriorityQueue<>(k + 1, (a, b) -> Double.compare(b.km, a.km));
+        int cLat = latIndex(lat);
+        int cLon = lonIndex(lon);
+        double cosLat0 = Math.cos(Math.toRadians(lat));
+        lock.readLock().lock();
+        try {
+            for (int r = 0; ; r++) {
+                if (2 * r + 1 >= lonCells) {
+                    // the ring would wrap around the globe; just look at everything
+                    best.clear();
+                    for (Cell cell : cells) {
+                        if (cell != null) {
+                            offer(best, k, cell, lat, lon, cosLat0);
+                        }
+                    }
+                    break;
+                }
+                for (int li = Math.max(0, cLat - r); li <= Math.min(latCells - 1, cLat + r); li++) {
+                    // whole rows at the top and bottom of the ring, just the two ends in between
+                    int step = (li == cLat - r || li == cLat + r) ? 1 : 2 * r;
+                    for (int lo = -r; lo <= r; lo += step) {
+                        Cell cell = cells[li * lonCells + ((cLon + lo) % lonCells + lonCells) % lonCells];
+                        if (cell != null) {
+                            offer(best, k, cell, lat, lon, cosLat0);
+                        }
+                    }
+                }
+                if (best.size() == k && best.peek().km <= ringBound(lat, r)) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        while (!best.isEmpty()) {
+            out.add(best.poll().item);
+        }
+        Collections.reverse(out);
+        return out;
+    }
+
+    private void offer(PriorityQueue<Hit<T>> best, int k, Cell cell, double lat, double lon, double cosLat0) {
+        for (int j = 0; j < cell.size; j++) {
+            double d = haversine(lat, lon, cosLat0, cell.lat[j], cell.lon[j]);
+            if (best.size() < k) {
+                best.add(new Hit<>(cell.item(j), d));
+            } else if (d < best.peek().km) {
+                best.poll();
+                best.add(new Hit<>(cell.item(j), d));
+            }
+        }
+    }
+
+    /**
+     * lower bound on the distance to anything outside the (2r+1)^2 block of cells around the
+     * query: it is at least r cells away in latitude, or r cells away in longitude.  The
+     * shortest path to a meridian d degrees of longitude away has sin(dist) = cos(lat) sin(d).
+     */
+    private double ringBound(double lat, int r) {
+        double deg = r * cellDeg;
+        double byLat = deg * KM_PER_DEG;
+        double byLon = Math.asin(Math.cos(Math.toRadians(lat)) * Math.sin(Math.toRadians(Math.min(deg, 90)))) * R;
+        return Math.min(byLat, byLon);
+    }
+
+    /**
+     * how far east or west (in degrees) a point within ang radians of a point at lat can be
+     */
+    private static double lonReach(double lat, double ang) {
+        double c = Math.cos(Math.toRadians(lat));
+        double s = Math.sin(ang);
+        if (ang >= Math.PI / 2 || s >= c) {
+            return 180;
+        }
+        return Math.toDegrees(Math.asin(s / c));
+    }
+
+    private static double wrap(double dLon) {
+        if (dLon > 180) {
+            return dLon - 360;
+        }
+        if (dLon < -180) {
+            return dLon + 360;
+        }
+        return dLon;
+    }
+
+    private static double haversine(double lat0, double lon0, double cosLat0, double lat, double lon) {
+        double sLat = Math.sin(Math.toRadians(lat - lat0) / 2);
+        double sLon = Math.sin(Math.toRadians(wrap(lon - lon0)) / 2);
+        double a = sLat * sLat + cosLat0 * Math.cos(Math.toRadians(lat)) * sLon * sLon;
+        return 2 * R * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static final class Slot {
+        int cell;
+        int index;
+    }
+
+    private static final class Hit<T> {
+        final T item;
+        final double km;
+
+        Hit(T item, double km) {
+            this.item = item;
+            this.km = km;
+        }
+    }
+
+    /**
+     * members of one grid cell, in parallel arrays
+     */
+    private static final class Cell {
+        Object[] items = new Object[4];
+        double[] lat = new double[4];
+        double[] lon = new double[4];
+        int size = 0;
+
+        @SuppressWarnings("unchecked")
+        <T> T item(int j) {
+            return (T) items[j];
+        }
+
+        int add(Object item, double la, double lo) {
+            if (size == items.length) {
+                int n = size * 2;
+                items = Arrays.copyOf(items, n);
+                lat = Arrays.copyOf(lat, n);
+                lon = Arrays.copyOf(lon, n);
+            }
+            items[size] = item;
+            lat[size] = la;
+            lon[size] = lo;
+            return size++;
+        }
+
+        /**
+         * swap-remove: the last member takes the freed slot
+         */
+        <T> void remove(int j, Map<T, Slot> slots) {
+            int last = --size;
+            if (j != last) {
+                items[j] = items[last];
+                lat[j] = lat[last];
+                lon[j] = lon[last];
+                @SuppressWarnings("unchecked")
+                T moved = (T) items[j];
+                slots.get(moved).index = j;
+            }
+            items[last] = null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+/**
+ * <p>StationLocator interface.</p>
+ *
+ * Looks up the last known position of a station.  Used by filters that are relative to a
+ * moving station (APRS-IS m/ and f/ filters) instead of a fixed point.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public interface StationLocator {
+    /**
+     * <p>locate.</p>
+     *
+     * @param callsign callsign, with SSID if any
+     * @return Position last known position of the station, or null if it has not been heard
+     */
+    Position locate(String callsign);
+}
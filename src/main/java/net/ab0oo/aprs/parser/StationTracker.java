@@ -0,0 +1,565 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>StationTracker class.</p>
+ *
+ * Keeps the latest known state of every station heard: position, symbol, course and speed,
+ * altitude, weather, status text, last-heard time and path.  Feed it every packet with
+ * {@link #update(APRSPacket)}; read it back with {@link #get(String)} or, for m/ and f/
+ * filters, as a {@link StationLocator}.
+ *
+ * Stations are keyed by their callsign packed into a long (7 bits per character, up to nine
+ * characters, which covers every valid AX.25 call with SSID).  The table is split into
+ * lock stripes, each a primitive-keyed open-addressing map, so updates from many threads only
+ * contend when they hit the same stripe.  Longer or non-ASCII names go to a small side table.
+ *
+ * Stations not heard for the time-to-live are dropped by a timing wheel: each station sits in
+ * exactly one wheel slot, for the tick in which it would expire.  Updates only move the
+ * last-heard time; when the sweeper reaches the slot it drops the stations that really have
+ * expired and re-files the rest, so sweeping costs time proportional to the stations due, not
+ * to the size of the table.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class StationTracker implements StationLocator, Closeable {
+    private static final int STRIPES = 64;
+    private static final int WHEEL = 512;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Map<String, Station> unpacked = new ConcurrentHashMap<>();
+    private final long[][] slots = new long[WHEEL][];
+    private final int[] slotSizes = new int[WHEEL];
+    private final long ttl;
+    private final long tick;
+    /**
+     * last tick swept; written holding both this and <code>slots</code>
+     */
+    private long sweptTick;
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * <p>Constructor for StationTracker.</p>
+     *
+     * @param ttlMillis how long a station is kept after it was last heard
+     */
+    public StationTracker(long ttlMillis) {
+        this(ttlMillis, System.currentTimeMillis());
+    }
+
+    StationTracker(long ttlMillis, long nowMillis) {
+        if (ttlMillis < 1) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.ttl = ttlMillis;
+        // the wheel spans twice the ttl, so every deadline fits without wrapping
+        this.tick = Math.max(1, 2 * ttlMillis / WHEEL);
+        this.sweptTick = nowMillis / tick;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * <p>pack.</p>
+     *
+     * @param call callsign, any case
+     * @return long the callsign packed 7 bits per character, or 0 if it is empty, longer than
+     * nine characters or not 7-bit ASCII
+     */
+    static long pack(CharSequence call) {
+        int n = call.length();
+        if (n == 0 || n > 9) {
+            return 0;
+        }
+        long k = 0;
+        for (int i = 0; i < n; i++) {
+            char c = call.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                c -= 32;
+            }
+            if (c == 0 || c > 127) {
+                return 0;
+            }
+            k = (k << 7) | c;
+        }
+        return k;
+    }
+
+    /**
+     * <p>unpack.</p>
+     *
+     * @param key a packed callsign
+     * @return String the callsign
+     */
+    static String unpack(long key) {
+        byte[] b = new byte[9];
+        int n = 9;
+        while (key != 0) {
+            b[--n] = (byte) (key & 0x7F);
+            key >>>= 7;
+        }
+        return new String(b, n, 9 - n, StandardCharsets.US_ASCII);
+    }
+
+    private Stripe stripe(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h >>> 58)];
+    }
+
+    /**
+     * <p>update.</p>
+     *
+     * @param packet a parsed packet; its source station's state is updated
+     */
+    public void update(APRSPacket packet) {
+        update(packet, System.currentTimeMillis());
+    }
+
+    void update(APRSPacket packet, long nowMillis) {
+        String call = packet.getSourceCall();
+        long key = pack(call);
+        if (key == 0) {
+            unpacked.compute(call.toUpperCase(), (c, s) -> {
+                Station st = s == null ? new Station(c) : s;
+                st.apply(packet, nowMillis);
+                return st;
+            });
+            return;
+        }
+        Stripe s = stripe(key);
+        boolean added = false;
+        synchronized (s) {
+            Station st = s.map.get(key);
+            if (st == null) {
+                st = new Station(call);
+                s.map.put(key, st);
+                added = true;
+            }
+            st.apply(packet, nowMillis);
+        }
+        if (added) {
+            schedule(key, nowMillis + ttl);
+        }
+    }
+
+    private void schedule(long key, long deadline) {
+        synchronized (slots) {
+            // never into a tick already swept, or the station waits a whole lap
+            int i = (int) (Math.max(deadline / tick, sweptTick + 1) % WHEEL);
+            long[] a = slots[i];
+            if (a == null) {
+                a = slots[i] = new long[16];
+            } else if (slotSizes[i] == a.length) {
+                a = slots[i] = Arrays.copyOf(a, a.length * 2);
+            }
+            a[slotSizes[i]++] = key;
+        }
+    }
+
+    /**
+     * <p>expire.</p>
+     *
+     * @param nowMillis current time, in ms
+     * @return int number of stations dropped
+     */
+    public int expire(long nowMillis) {
+        long target = nowMillis / tick;
+        int removed = 0;
+        long from;
+        synchronized (this) {
+            from = sweptTick;
+            if (target <= from) {
+                return 0;
+            }
+            synchronized (slots) {
+                sweptTick = target;
+            }
+        }
+        // a long pause can cover more than one lap; every slot is then due once
+        long last = Math.min(target, from + WHEEL);
+        for (long t = from + 1; t <= last; t++) {
+            int i = (int) (t % WHEEL);
+            long[] due;
+            int n;
+            synchronized (slots) {
+                due = slots[i];
+                n = slotSizes[i];
+                slots[i] = null;
+                slotSizes[i] = 0;
+            }
+            for (int j = 0; j < n; j++) {
+                long key = due[j];
+                Stripe s = stripe(key);
+                long deadline;
+                synchronized (s) {
+                    Station st = s.map.get(key);
+                    if (st == null) {
+                        continue;
+                    }
+                    deadline = st.lastHeard + ttl;
+                    if (deadline <= nowMillis) {
+                        s.map.remove(key);
+                        removed++;
+                        continue;
+                    }
+                }
+                schedule(key, deadline);
+            }
+        }
+        long cutoff = nowMillis - ttl;
+        int before = unpacked.size();
+        unpacked.values().removeIf(st -> st.lastHeard <= cutoff);
+        return removed + before - unpacked.size();
+    }
+
+    /**
+     * <p>start.</p>
+     * Runs {@link #expire(long)} once per wheel tick on a daemon thread.
+     */
+    public synchronized void start() {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "StationTracker sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(tick, 100);
+        sweeper.scheduleAtFixedRate(() -> expire(System.currentTimeMillis()), period, period,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * <p>get.</p>
+     *
+     * @param callsign station callsign, with SSID if it has one
+     * @return Station a snapshot of the station's state, or null if it is not tracked
+     */
+    public Station get(String callsign) {
+        long key = pack(callsign);
+        if (key == 0) {
+            Station st = unpacked.get(callsign.toUpperCase());
+            if (st == null) {
+                return null;
+            }
+            synchronized (st) {
+                return new Station(st);
+            }
+        }
+        Stripe s = stripe(key);
+        synchronized (s) {
+            Station st = s.map.get(key);
+            return st == null ? null : new Station(st);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Position locate(String callsign) {
+        long key = pack(callsign);
+        if (key == 0) {
+            Station st = unpacked.get(callsign.toUpperCase());
+            if (st == null) {
+                return null;
+            }
+            synchronized (st) {
+                return st.position;
+            }
+        }
+        Stripe s = stripe(key);
+        synchronized (s) {
+            Station st = s.map.get(key);
+            return st == null ? null : st.position;
+        }
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return int number of stations tracked
+     */
+    public int size() {
+        int n = unpacked.size();
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                n += s.map.size();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * <p>snapshot.</p>
+     *
+     * @return List copies of every tracked station, stripe by stripe
+     */
+    public List<Station> snapshot() {
+        List<Station> out = new ArrayList<>();
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                s.map.forEach((k, st) -> out.add(new Station(st)));
+            }
+        }
+        for (Station st : unpacked.values()) {
+            synchronized (st) {
+                out.add(new Station(st));
+            }
+        }
+        return out;
+    }
+
+    private static final class Stripe {
+        final LongObjectMap<Station> map = new LongObjectMap<>(1024);
+    }
+
+    /**
+     * <p>Station class.</p>
+     * The last known state of one station.  Instances handed out by the tracker are copies.
+     */
+    public static final class Station {
+        private final String callsign;
+        private Position position;
+        private int course = -1;
+        private int speed = -1;
+        private int altitude = -1;
+        private WeatherField weather;
+        private String status;
+        private List<Digipeater> path;
+        private long lastHeard;
+        private long lastPositionTime;
+        private long packets;
+
+        Station(String callsign) {
+            this.callsign = callsign;
+        }
+
+        Station(Station o) {
+            this.callsign = o.callsign;
+            this.position = o.position;
+            this.course = o.course;
+            this.speed = o.speed;
+            this.altitude = o.altitude;
+            this.weather = o.weather;
+            this.status = o.status;
+            this.path = o.path;
+            this.lastHeard = o.lastHeard;
+            this.lastPositionTime = o.lastPositionTime;
+            this.packets = o.packets;
+        }
+
+        synchronized void apply(APRSPacket packet, long now) {
+            lastHeard = now;
+            packets++;
+            path = packet.getDigipeaters();
+            InformationField info = packet.getAprsInformation();
+            if (info == null || info.getAprsData() == null) {
+                return;
+            }
+            APRSData d = info.getAprsData(APRSTypes.T_POSITION);
+            if (d instanceof PositionField) {
+                Position p = ((PositionField) d).getPosition();
+                if (p != null) {
+                    position = p;
+                    lastPositionTime = now;
+                    Integer alt = p.getAltitude();
+                    if (alt != null && alt >= 0) {
+                        altitude = alt;
+                    }
+                    DataExtension ext = info.getExtension();
+                    if (ext instanceof CourseAndSpeedExtension) {
+                        course = ((CourseAndSpeedExtension) ext).getCourse();
+                        speed = ((CourseAndSpeedExtension) ext).getSpeed();
+                    } else {
+                        course = -1;
+                        speed = -1;
+                    }
+                }
+            }
+            d = info.getAprsData(APRSTypes.T_WX);
+            if (d instanceof WeatherField) {
+                weather = (WeatherField) d;
+            }
+            d = info.getAprsData(APRSTypes.T_STATUS);
+            if (d instanceof StatusField) {
+                status = ((StatusField) d).getText();
+            }
+        }
+
+        /**
+         * <p>Getter for the field <code>callsign</code>.</p>
+         *
+         * @return String the station's callsign
+         */
+        public String getCallsign() {
+            return callsign;
+        }
+
+        /**
+         * <p>Getter for the field <code>position</code>.</p>
+         *
+         * @return Position last reported position, with its symbol, or null
+         */
+        public Position getPosition() {
+            return position;
+        }
+
+        /**
+         * <p>Getter for the field <code>course</code>.</p>
+         *
+         * @return int course from the last position report, -1 if it had none
+         */
+        public int getCourse() {
+            return course;
+        }
+
+        /**
+         * <p>Getter for the field <code>speed</code>.</p>
+         *
+         * @return int speed from the last position report, -1 if it had none
+         */
+        public int getSpeed() {
+            return speed;
+        }
+
+        /**
+         * <p>Getter for the field <code>altitude</code>.</p>
+         *
+         * @return int last reported altitude in feet, -1 if never reported
+         */
+        public int getAltitude() {
+            return altitude;
+        }
+
+        /**
+         * <p>Getter for the field <code>weather</code>.</p>
+         *
+         * @return WeatherField last weather report, or null
+         */
+        public WeatherField getWeather() {
+            return weather;
+        }
+
+        /**
+         * <p>Getter for the field <code>status</code>.</p>
+         *
+         * @return String last status text, or null
+         */
+        public String getStatus() {
+            return status;
+        }
+
+        /**
+         * <p>getSymbolTable.</p>
+         *
+         * @return char symbol table of the last position, or 0
+         */
+        public char getSymbolTable() {
+            return position == null ? 0 : position.getSymbolTable();
+        }
+
+        /**
+         * <p>getSymbolCode.</p>
+         *
+         * @return char symbol code of the last position, or 0
+         */
+        public char getSymbolCode() {
+            return position == null ? 0 : position.getSymbolCode();
+        }
+
+        /**
+         * <p>Getter for the field <code>path</code>.</p>
+         *
+         * @return List the path of the last packet heard
+         */
+        public List<Digipeater> getPath() {
+            return path;
+        }
+
+        /**
+         * <p>getPathString.</p>
+         *
+         * @return String the last-heard path as a comma separated list
+         */
+        public String getPathString() {
+            StringBuilder sb = new StringBuilder();
+            if (path != null) {
+                for (Digipeater d : path) {
+                    if (sb.length() > 0) {
+                        sb.append(',');
+                    }
+                    sb.append(d.toString());
+                }
+            }
+            return sb.toString();
+        }
+
+        /**
+         * <p>Getter for the field <code>lastHeard</code>.</p>
+         *
+         * @return long time of the last packet, in ms since the epoch
+         */
+        public long getLastHeard() {
+            return lastHeard;
+        }
+
+        /**
+         * <p>Getter for the field <code>lastPositionTime</code>.</p>
+         *
+         * @return long time of the last position report, in ms since the epoch
+         */
+        public long getLastPositionTime() {
+            return lastPositionTime;
+        }
+
+        /**
+         * <p>Getter for the field <code>packets</code>.</p>
+         *
+         * @return long packets heard from this station
+         */
+        public long getPackets() {
+            return packets;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * <p>StatusField class.</p>
+ *
+ * A status report: '&gt;', an optional DHM zulu timestamp, then free text.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class StatusField extends APRSData {
+    private static final long serialVersionUID = 1L;
+    /**
+     * the timestamp as sent, e.g. "092345z", or null
+     */
+    private String timestamp;
+    /**
+     * the status text
+     */
+    private String text;
+
+    /**
+     * <p>Constructor for StatusField.</p>
+     *
+     * @param msgBody complete message body, starting with '&gt;'; shared, not copied
+     */
+    public StatusField(byte[] msgBody) {
+        setRawSlice(msgBody, 0, msgBody.length);
+        this.type = APRSTypes.T_STATUS;
+        int start = 1;
+        if (msgBody.length >= 8 && msgBody[7] == 'z') {
+            boolean digits = true;
+            for (int i = 1; i < 7; i++) {
+                digits &= msgBody[i] >= '0' && msgBody[i] <= '9';
+            }
+            if (digits) {
+                timestamp = new String(msgBody, 1, 7, StandardCharsets.US_ASCII);
+                start = 8;
+            }
+        }
+        text = new String(msgBody, start, msgBody.length - start, StandardCharsets.UTF_8);
+        setLastCursorPosition(msgBody.length);
+    }
+
+    /**
+     * <p>Getter for the field <code>timestamp</code>.</p>
+     *
+     * @return String the DHM zulu timestamp as sent, or null
+     */
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * <p>Getter for the field <code>text</code>.</p>
+     *
+     * @return String the status text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        formatTo(sb);
+        return sb.toString();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void formatTo(StringBuilder sb) {
+        sb.append("---STATUS---\n");
+        if (timestamp != null) {
+            sb.append("Timestamp:\t").append(timestamp).append('\n');
+        }
+        sb.append("Status:\t").append(text).append('\n');
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof StatusField)) {
+            return false;
+        }
+        StatusField s = (StatusField) o;
+        return Objects.equals(timestamp, s.timestamp) && Objects.equals(text, s.text);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamp, text);
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>TelemetryField class.</p>
+ *
+ * One telemetry sample: a sequence number, up to five analog channels and eight digital bits.
+ * Decodes both the T#sss,aaa,aaa,aaa,aaa,aaa,bbbbbbbb report and the base-91 form carried in
+ * comments between '|' characters.  Raw values are kept as sent; once the station's
+ * {@link TelemetryMetadata} is attached, {@link #getValue(int)} applies its equations.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class TelemetryField extends APRSData {
+    private static final long serialVersionUID = 1L;
+    /**
+     * number of analog channels in a report
+     */
+    public static final int ANALOG = 5;
+    /**
+     * number of digital bits in a report
+     */
+    public static final int DIGITAL = 8;
+    /**
+     * report sequence number, -1 if the station sent none (or "MIC")
+     */
+    private int sequence = -1;
+    /**
+     * raw analog values as sent
+     */
+    private final double[] analog = new double[ANALOG];
+    /**
+     * how many analog channels the report carried
+     */
+    private int analogCount;
+    /**
+     * the digital bits, first bit in the most significant position; -1 if none were sent
+     */
+    private int bits = -1;
+    /**
+     * true for the base-91 comment form
+     */
+    private boolean compressed;
+    /**
+     * names, units and equations for the sending station, if known
+     */
+    private transient TelemetryMetadata metadata;
+
+    /**
+     * <p>Constructor for TelemetryField.</p>
+     */
+    public TelemetryField() {
+    }
+
+    /**
+     * <p>Constructor for TelemetryField.</p>
+     *
+     * @param msgBody complete message body, starting with "T#"; shared, not copied
+     * @param start where the sequence number begins
+     */
+    public TelemetryField(byte[] msgBody, int start) {
+        super(msgBody, 0, msgBody.length);
+        this.type = APRSTypes.T_TELEMETRY;
+        int cursor = start;
+        int end = field(msgBody, cursor);
+        String seq = new String(msgBody, cursor, end - cursor, StandardCharsets.US_ASCII).trim();
+        if (!seq.equalsIgnoreCase("MIC")) {
+            try {
+                sequence = Integer.parseInt(seq);
+            } catch (NumberFormatException ex) {
+                setHasFault(true);
+                setFaultReason("Bad telemetry sequence " + seq);
+            }
+        }
+        cursor = end + 1;
+        while (analogCount < ANALOG && cursor < msgBody.length) {
+            end = field(msgBody, cursor);
+            String v = new String(msgBody, cursor, end - cursor, StandardCharsets.US_ASCII).trim();
+            try {
+                analog[analogCount] = v.isEmpty() ? 0 : Double.parseDouble(v);
+            } catch (NumberFormatException ex) {
+                setHasFault(true);
+                setFaultReason("Bad telemetry value " + v);
+                break;
+            }
+            analogCount++;
+            cursor = end + 1;
+        }
+        if (analogCount == ANALOG && cursor < msgBody.length) {
+            int b = 0;
+            int n = 0;
+            while (n < DIGITAL && cursor + n < msgBody.length
+                    && (msgBody[cursor + n] == '0' || msgBody[cursor + n] == '1')) {
+                b = (b << 1) | (msgBody[cursor + n] - '0');
+                n++;
+            }
+            if (n > 0) {
+                bits = b << (DIGITAL - n);
+                cursor += n;
+            }
+        }
+        if (cursor < msgBody.length) {
+            setCommentRange(cursor, msgBody.length - cursor);
+        }
+        setLastCursorPosition(Math.min(cursor, msgBody.length));
+    }
+
+    private static int field(byte[] b, int from) {
+        int i = from;
+        while (i < b.length && b[i] != ',') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * <p>findCompressed.</p>
+     *
+     * @param msgBody complete message body
+     * @param from where the comment starts
+     * @return TelemetryField the base-91 telemetry found in the comment, or null if there is none
+     */
+    public static TelemetryField findCompressed(byte[] msgBody, int from) {
+        int open = from;
+        while (open >= 0 && open < msgBody.length) {
+            while (open < msgBody.length && msgBody[open] != '|') {
+                open++;
+            }
+            int close = open + 1;
+            while (close < msgBody.length && msgBody[close] != '|') {
+                close++;
+            }
+            if (close >= msgBody.length) {
+                return null;
+            }
+            int len = close - open - 1;
+            if (len >= 4 && len <= 14 && (len & 1) == 0 && base91(msgBody, open + 1, close)) {
+                TelemetryField t = new TelemetryField();
+                t.type = APRSTypes.T_TELEMETRY;
+                t.compressed = true;
+                t.sequence = pair(msgBody, open + 1);
+                int pairs = len / 2 - 1;
+                for (int i = 0; i < pairs && i < ANALOG; i++) {
+                    t.analog[i] = pair(msgBody, open + 3 + 2 * i);
+                    t.analogCount++;
+                }
+                if (pairs > ANALOG) {
+                    t.bits = pair(msgBody, open + 3 + 2 * ANALOG) & 0xff;
+                }
+                t.setLastCursorPosition(close + 1);
+                return t;
+            }
+            open = close;
+        }
+        return null;
+    }
+
+    private static boolean base91(byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] < 33 || b[i] > 123) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int pair(byte[] b, int at) {
+        return (b[at] - 33) * 91 + (b[at + 1] - 33);
+    }
+
+    /**
+     * <p>Getter for the field <code>sequence</code>.</p>
+     *
+     * @return int the sequence number, or -1 if there is none
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * <p>Getter for the field <code>analogCount</code>.</p>
+     *
+     * @return int number of analog channels reported
+     */
+    public int getAnalogCount() {
+        return analogCount;
+    }
+
+    /**
+     * <p>getRawValue.</p>
+     *
+     * @param channel analog channel, 0 to 4
+     * @return double the value as sent
+     */
+    public double getRawValue(int channel) {
+        return analog[channel];
+    }
+
+    /**
+     * <p>getValue.</p>
+     *
+     * @param channel analog channel, 0 to 4
+     * @return double the value scaled by the station's equations, or as sent if none are known
+     */
+    public double getValue(int channel) {
+        TelemetryMetadata m = metadata;
+        return m == null ? analog[channel] : m.scale(channel, analog[channel]);
+    }
+
+    /**
+     * <p>Getter for the field <code>bits</code>.</p>
+     *
+     * @return int the digital bits, bit 1 in the most significant of eight, or -1 if none were sent
+     */
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * <p>isBitActive.</p>
+     *
+     * @param bit digital channel, 0 to 7
+     * @return boolean true if the bit is in its active state, per the station's BITS message
+     */
+    public boolean isBitActive(int bit) {
+        if (bits < 0) {
+            return false;
+        }
+        int mask = 0x80 >> bit;
+        TelemetryMetadata m = metadata;
+        int sense = m == null ? 0xff : m.getBitSense();
+        return ((bits ^ ~sense) & mask) != 0;
+    }
+
+    /**
+     * <p>isCompressed.</p>
+     *
+     * @return boolean true if this came from the base-91 comment form
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * <p>Getter for the field <code>metadata</code>.</p>
+     *
+     * @return TelemetryMetadata the station's names, units and equations, or null
+     */
+    public TelemetryMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * <p>Setter for the field <code>metadata</code>.</p>
+     *
+     * @param metadata the station's names, units and equations
+     */
+    public void setMetadata(TelemetryMetadata metadata) {
+        checkWritable();
+        this.metadata = metadata;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        formatTo(sb);
+        return sb.toString();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void formatTo(StringBuilder sb) {
+        sb.append("---TELEMETRY---\n");
+        sb.append("Sequence:\t").append(sequence).append('\n');
+        TelemetryMetadata m = metadata;
+        for (int i = 0; i < analogCount; i++) {
+            if (m == null) {
+                sb.append('A').append(i + 1);
+            } else {
+                sb.append(m.getName(i));
+            }
+            sb.append(":\t").append(getValue(i));
+            if (m != null) {
+                sb.append(' ').append(m.getUnit(i));
+            }
+            sb.append('\n');
+        }
+        if (bits >= 0) {
+            sb.append("Bits:\t");
+            for (int b = 7; b >= 0; b--) {
+                sb.append((bits >> b & 1) == 0 ? '0' : '1');
+            }
+            sb.append('\n');
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof TelemetryField)) {
+            return false;
+        }
+        TelemetryField t = (TelemetryField) o;
+        return sequence == t.sequence && analogCount == t.analogCount && bits == t.bits
+                && compressed == t.compressed && Arrays.equals(analog, t.analog);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Objects.hash(sequence, analogCount, bits, compressed, Arrays.hashCode(analog));
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.util.Arrays;
+
+/**
+ * <p>TelemetryMetadata class.</p>
+ *
+ * What a station has told us about its telemetry through PARM, UNIT, EQNS and BITS messages:
+ * channel names and units, the a, b, c coefficients of each analog channel (value = a*x*x +
+ * b*x + c), the active sense of each bit and a project title.  Instances never change; each
+ * metadata message produces a new instance, so the coefficients are parsed once and then read
+ * without locking by every sample that is scaled with them.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public final class TelemetryMetadata {
+    /**
+     * channels that can be named: five analog, then eight digital
+     */
+    public static final int CHANNELS = TelemetryField.ANALOG + TelemetryField.DIGITAL;
+    /**
+     * metadata for a station that has sent none: raw values, default names
+     */
+    public static final TelemetryMetadata EMPTY = new TelemetryMetadata();
+
+    private final String[] names;
+    private final String[] units;
+    private final double[] eqns;
+    private final int bitSense;
+    private final String project;
+
+    private TelemetryMetadata() {
+        names = new String[CHANNELS];
+        for (int i = 0; i < CHANNELS; i++) {
+            names[i] = i < TelemetryField.ANALOG ? "A" + (i + 1) : "B" + (i - TelemetryField.ANALOG + 1);
+        }
+        units = new String[CHANNELS];
+        Arrays.fill(units, "");
+        eqns = new double[3 * TelemetryField.ANALOG];
+        for (int i = 0; i < TelemetryField.ANALOG; i++) {
+            eqns[3 * i + 1] = 1;
+        }
+        bitSense = 0xff;
+        project = "";
+    }
+
+    private TelemetryMetadata(String[] names, String[] units, double[] eqns, int bitSense, String project) {
+        this.names = names;
+        this.units = units;
+        this.eqns = eqns;
+        this.bitSense = bitSense;
+        this.project = project;
+    }
+
+    /**
+     * <p>withMessage.</p>
+     *
+     * @param body message text, e.g. "PARM.Battery,Temp" or "EQNS.0,0.1,0,..."
+     * @return TelemetryMetadata a copy with the message applied, or this one if the text is not
+     * a telemetry metadata message
+     */
+    public TelemetryMetadata withMessage(String body) {
+        if (body == null || body.length() < 5 || body.charAt(4) != '.') {
+            return this;
+        }
+        String kind = body.substring(0, 4);
+        String[] parts = body.substring(5).split(",", -1);
+        switch (kind) {
+            case "PARM":
+                return new TelemetryMetadata(labels(names, parts), units, eqns, bitSense, project);
+            case "UNIT":
+                return new TelemetryMetadata(names, labels(units, parts), eqns, bitSense, project);
+            case "EQNS": {
+                double[] e = eqns.clone();
+                for (int i = 0; i < parts.length && i < e.length; i++) {
+                    String p = parts[i].trim();
+                    if (!p.isEmpty()) {
+                        try {
+                            e[i] = Double.parseDouble(p);
+                        } catch (NumberFormatException ex) {
+                            // leave the coefficient as it was
+                        }
+                    }
+                }
+                return new TelemetryMetadata(names, units, e, bitSense, project);
+            }
+            case "BITS": {
+                String b = parts[0].trim();
+                int sense = 0;
+                for (int i = 0; i < TelemetryField.DIGITAL; i++) {
+                    sense = (sense << 1) | (i < b.length() && b.charAt(i) == '0' ? 0 : 1);
+                }
+                String title = body.length() > 5 + parts[0].length() ? body.substring(6 + parts[0].length()) : project;
+                return new TelemetryMetadata(names, units, eqns, sense, title.trim());
+            }
+            default:
+                return this;
+        }
+    }
+
+    private static String[] labels(String[] old, String[] parts) {
+        String[] l = old.clone();
+        for (int i = 0; i < parts.length && i < l.length; i++) {
+            // an empty entry leaves the channel as it was
+            if (!parts[i].trim().isEmpty()) {
+                l[i] = parts[i].trim();
+            }
+        }
+        return l;
+    }
+
+    /**
+     * <p>isMetadataMessage.</p>
+     *
+     * @param body message text
+     * @return boolean true if it is a PARM, UNIT, EQNS or BITS message
+     */
+    public static boolean isMetadataMessage(String body) {
+        return body != null && body.length() >= 5 && body.charAt(4) == '.'
+                && (body.startsWith("PARM") || body.startsWith("UNIT") || body.startsWith("EQNS")
+                        || body.startsWith("BITS"));
+    }
+
+    /**
+     * <p>scale.</p>
+     *
+     * @param channel analog channel, 0 to 4
+     * @param raw the value as sent
+     * @return double the value after the channel's equation
+     */
+    public double scale(int channel, double raw) {
+        int i = 3 * channel;
+        return (eqns[i] * raw + eqns[i + 1]) * raw + eqns[i + 2];
+    }
+
+    /**
+     * <p>getName.</p>
+     *
+     * @param channel 0 to 4 for analog channels, 5 to 12 for bits
+     * @return String the channel's name
+     */
+    public String getName(int channel) {
+        return names[channel];
+    }
+
+    /**
+     * <p>getUnit.</p>
+     *
+     * @param channel 0 to 4 for analog channels, 5 to 12 for bits
+     * @return String the channel's unit, or label for a bit
+     */
+    public String getUnit(int channel) {
+        return units[channel];
+    }
+
+    /**
+     * <p>getCoefficients.</p>
+     *
+     * @param channel analog channel, 0 to 4
+     * @return double[] a copy of a, b and c for the channel
+     */
+    public double[] getCoefficients(int channel) {
+        return Arrays.copyOfRange(eqns, 3 * channel, 3 * channel + 3);
+    }
+
+    /**
+     * <p>Getter for the field <code>bitSense</code>.</p>
+     *
+     * @return int the active state of each bit, bit 1 most significant
+     */
+    public int getBitSense() {
+        return bitSense;
+    }
+
+    /**
+     * <p>Getter for the field <code>project</code>.</p>
+     *
+     * @return String the project title from the BITS message
+     */
+    public String getProject() {
+        return project;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>TelemetryMetadataCache class.</p>
+ *
+ * Keeps the latest {@link TelemetryMetadata} for every station that has sent PARM, UNIT, EQNS
+ * or BITS messages.  Those messages are addressed to the station whose telemetry they
+ * describe, so they are filed under the addressee.  Each message is parsed once, into a new
+ * immutable entry; scaling a sample is then a map lookup and a few multiplies.  Give one to
+ * {@link Parser#setTelemetryMetadataCache(TelemetryMetadataCache)} to have every parsed
+ * report scaled as it is decoded.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class TelemetryMetadataCache {
+    private final Map<String, TelemetryMetadata> byStation = new ConcurrentHashMap<>();
+
+    /**
+     * <p>update.</p>
+     *
+     * @param packet any packet
+     * @return boolean true if it was a telemetry metadata message and was cached
+     */
+    public boolean update(APRSPacket packet) {
+        APRSData d = packet.getAprsInformation() == null ? null
+                : packet.getAprsInformation().getAprsData(APRSTypes.T_MESSAGE);
+        if (!(d instanceof MessagePacket)) {
+            return false;
+        }
+        MessagePacket m = (MessagePacket) d;
+        return update(m.getTargetCallsign(), m.getMessageBody());
+    }
+
+    /**
+     * <p>update.</p>
+     *
+     * @param station station the message describes
+     * @param body message text
+     * @return boolean true if it was a telemetry metadata message and was cached
+     */
+    public boolean update(String station, String body) {
+        if (!TelemetryMetadata.isMetadataMessage(body)) {
+            return false;
+        }
+        byStation.compute(station.toUpperCase(),
+                (k, old) -> (old == null ? TelemetryMetadata.EMPTY : old).withMessage(body));
+        return true;
+    }
+
+    /**
+     * <p>get.</p>
+     *
+     * @param station callsign, with SSID if any
+     * @return TelemetryMetadata what the station has sent, or null if nothing
+     */
+    public TelemetryMetadata get(String station) {
+        return byStation.get(station.toUpperCase());
+    }
+
+    /**
+     * <p>apply.</p>
+     *
+     * @param station the station that sent the report
+     * @param t the report to attach the station's metadata to
+     */
+    public void apply(String station, TelemetryField t) {
+        TelemetryMetadata m = byStation.get(station.toUpperCase());
+        if (m != null) {
+            t.setMetadata(m);
+        }
+    }
+
+    /**
+     * <p>remove.</p>
+     *
+     * @param station callsign, with SSID if any
+     */
+    public void remove(String station) {
+        byStation.remove(station.toUpperCase());
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return int number of stations with metadata
+     */
+    public int size() {
+        return byStation.size();
+    }
+}
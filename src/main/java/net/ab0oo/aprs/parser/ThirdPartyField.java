@@ -0,0 +1,130 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.util.Objects;
+
+/**
+ * <p>ThirdPartyField class.</p>
+ *
+ * A third-party packet: '}' followed by a complete TNC2 packet that some gateway carried on
+ * behalf of another station.  The inner packet is decoded with the same header and body
+ * parsers as the outer one, straight from the outer buffer, and nesting is cut off at
+ * {@link #MAX_DEPTH} levels so a crafted packet cannot recurse without bound.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+public class ThirdPartyField extends APRSData {
+    private static final long serialVersionUID = 1L;
+    /**
+     * deepest third-party nesting decoded; the spec allows only one level
+     */
+    public static final int MAX_DEPTH = 3;
+    /**
+     * the decoded inner packet, null if it could not be decoded
+     */
+    private APRSPacket packet;
+    /**
+     * how many third-party headers enclose this one
+     */
+    private final int depth;
+
+    /**
+     * <p>Constructor for ThirdPartyField.</p>
+     *
+     * @param msgBody outer message body, starting with '}'; shared, not copied
+     * @param depth third-party levels already unwrapped around this one
+     */
+    ThirdPartyField(byte[] msgBody, int depth) {
+        setRawSlice(msgBody, 0, msgBody.length);
+        this.type = APRSTypes.T_THIRDPARTY;
+        this.depth = depth;
+        if (depth >= MAX_DEPTH) {
+            setHasFault(true);
+            setFaultReason("Third-party packets nested more than " + MAX_DEPTH + " deep");
+        } else {
+            try {
+                packet = Parser.parse(msgBody, 1, msgBody.length - 1, depth + 1);
+            } catch (Exception ex) {
+                setHasFault(true);
+                setFaultReason("Unparsable third-party packet: " + ex.getMessage());
+            }
+        }
+        setLastCursorPosition(msgBody.length);
+    }
+
+    /**
+     * <p>Getter for the field <code>packet</code>.</p>
+     *
+     * @return APRSPacket the packet that was carried, or null if it could not be decoded
+     */
+    public APRSPacket getPacket() {
+        return packet;
+    }
+
+    /**
+     * <p>Getter for the field <code>depth</code>.</p>
+     *
+     * @return int how many third-party headers enclose this one; 0 for the outermost
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        formatTo(sb);
+        return sb.toString();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void formatTo(StringBuilder sb) {
+        sb.append("---THIRD PARTY---\n");
+        if (packet == null) {
+            sb.append("Undecoded: ").append(getFaultReason()).append('\n');
+        } else {
+            packet.formatTo(sb);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof ThirdPartyField)) {
+            return false;
+        }
+        ThirdPartyField t = (ThirdPartyField) o;
+        return depth == t.depth && Objects.equals(packet == null ? null : packet.getOriginalString(),
+                t.packet == null ? null : t.packet.getOriginalString());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return Objects.hash(depth, packet == null ? null : packet.getOriginalString());
+    }
+}
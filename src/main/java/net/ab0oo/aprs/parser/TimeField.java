@@ -20,7 +20,6 @@
  */
 package net.ab0oo.aprs.parser;
 
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Objects;
@@ -158,12 +157,24 @@ public class TimeField extends APRSData {
     /** {@inheritDoc} */
     @Override
     public String toString() {
-        SimpleDateFormat f = new SimpleDateFormat("dd HH:MM");          
-        StringBuffer sb = new StringBuffer("---TIMESTAMP---\n");
-        sb.append("Reported Timestamp: "+f.format(reportedTimestamp.getTime())+"\n");
+        StringBuilder sb = new StringBuilder();
+        formatTo(sb);
         return sb.toString();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void formatTo(StringBuilder sb) {
+        sb.append("---TIMESTAMP---\n");
+        sb.append("Reported Timestamp: ");
+        Formatting.append2(sb, reportedTimestamp.get(Calendar.DAY_OF_MONTH));
+        sb.append(' ');
+        Formatting.append2(sb, reportedTimestamp.get(Calendar.HOUR_OF_DAY));
+        sb.append(':');
+        Formatting.append2(sb, reportedTimestamp.get(Calendar.MINUTE));
+        sb.append('\n');
+    }
+
     
     /** {@inheritDoc} */
     @Override
@@ -0,0 +1,145 @@
+/*
+ * javAPRSlib - https://github.com/ab0oo/javAPRSlib
+ *
+ * Copyright (C) 2011, 2024 John Gorkos, AB0OO
+ *
+ * javAPRSlib is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation; either version 2 of the License,
+ * or (at your option) any later version.
+ *
+ * javAPRSlib is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ * USA
+ */
+package net.ab0oo.aprs.parser;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * <p>TimingWheel class.</p>
+ *
+ * A hashed timing wheel.  An item lands in the slot for the tick of its deadline; deadlines
+ * more than one lap away share the slot and are simply passed over until their lap comes.
+ * Scheduling is constant time, and advancing the clock costs only the slots it crosses and the
+ * items in them, however many timers are outstanding.  Items cannot be cancelled: the owner
+ * checks on firing whether the timer still matters.  Deadlines are honoured to the tick.
+ *
+ * @author john
+ * @version $Id: $Id
+ */
+final class TimingWheel<T> {
+    private final Object[][] items;
+    private final long[][] deadlines;
+    private final int[] sizes;
+    private final long tick;
+    private long sweptTick;
+    private int count;
+
+    /**
+     * <p>Constructor for TimingWheel.</p>
+     *
+     * @param tickMillis width of one slot, in ms
+     * @param slots number of slots in one lap
+     * @param nowMillis current time, in ms
+     */
+    TimingWheel(long tickMillis, int slots, long nowMillis) {
+        if (tickMillis < 1 || slots < 1) {
+            throw new IllegalArgumentException("tick and slots must be positive");
+        }
+        this.tick = tickMillis;
+        this.items = new Object[slots][];
+        this.deadlines = new long[slots][];
+        this.sizes = new int[slots];
+        this.sweptTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * <p>schedule.</p>
+     *
+     * @param item what to hand back when the deadline passes
+     * @param deadlineMillis when, in ms; a deadline already passed fires on the next advance
+     */
+    synchronized void schedule(T item, long deadlineMillis) {
+        long t = Math.max(deadlineMillis / tick, sweptTick + 1);
+        int i = (int) (t % items.length);
+        Object[] a = items[i];
+        if (a == null) {
+            items[i] = a = new Object[8];
+            deadlines[i] = new long[8];
+        } else if (sizes[i] == a.length) {
+            items[i] = a = Arrays.copyOf(a, a.length * 2);
+            deadlines[i] = Arrays.copyOf(deadlines[i], a.length);
+        }
+        a[sizes[i]] = item;
+        deadlines[i][sizes[i]++] = t;
+        count++;
+    }
+
+    /**
+     * <p>advance.</p>
+     *
+     * @param nowMillis current time, in ms
+     * @param due called, outside the wheel's lock, for every item whose deadline has passed
+     * @return int number of items handed to <code>due</code>
+     */
+    int advance(long nowMillis, Consumer<? super T> due) {
+        Object[] fired;
+        int n = 0;
+        synchronized (this) {
+            long target = nowMillis / tick;
+            if (target <= sweptTick || count == 0) {
+                sweptTick = Math.max(sweptTick, target);
+                return 0;
+            }
+            fired = new Object[Math.min(count, 64)];
+            // past one lap every slot is due once, so visit each at most one time
+            for (long t = Math.max(sweptTick + 1, target - items.length + 1); t <= target; t++) {
+                int i = (int) (t % items.length);
+                if (sizes[i] == 0) {
+                    continue;
+                }
+                Object[] a = items[i];
+                long[] d = deadlines[i];
+                int kept = 0;
+                for (int j = 0; j < sizes[i]; j++) {
+                    if (d[j] <= t) {
+                        if (n == fired.length) {
+                            fired = Arrays.copyOf(fired, n * 2);
+                        }
+                        fired[n++] = a[j];
+                    } else {
+                        a[kept] = a[j];
+                        d[kept++] = d[j];
+                    }
+                }
+                Arrays.fill(a, kept, sizes[i], null);
+                sizes[i] = kept;
+            }
+            count -= n;
+            sweptTick = target;
+        }
+        for (int j = 0; j < n; j++) {
+            @SuppressWarnings("unchecked")
+            T item = (T) fired[j];
+            due.accept(item);
+        }
+        return n;
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return int number of items waiting
+     */
+    synchronized int size() {
+        return count;
+    }
+}
@@ -98,21 +98,28 @@ public class WeatherField extends APRSData {
     /** {@inheritDoc} */
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder("---WEATHER---\n");
-        sb.append("Wind Direction:\t" + this.windDirection + "\n");
-        sb.append("Wind Speed:\t" + this.windSpeed + "\n");
-        sb.append("Wind Gust:\t" + this.windGust + "\n");
-        sb.append("Temperature:\t" + this.temp + "\n");
-        sb.append("Rain last hour:\t" + this.rainLastHour + "\n");
-        sb.append("Rain 24 hours:\t" + this.rainLast24Hours + "\n");
-        sb.append("Rain since 00:00:\t" + this.rainSinceMidnight + "\n");
-        sb.append("Humidity:\t" + this.humidity + "\n");
-        sb.append("Pressure:\t" + this.pressure + "\n");
-        sb.append("Luminosity:\t" + this.luminosity + "\n" );
-        sb.append("Snowfall 24 hours:\t" + this.snowfallLast24Hours + "\n" );
+        StringBuilder sb = new StringBuilder();
+        formatTo(sb);
         return sb.toString();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void formatTo(StringBuilder sb) {
+        sb.append("---WEATHER---\n");
+        sb.append("Wind Direction:\t").append(this.windDirection).append('\n');
+        sb.append("Wind Speed:\t").append(this.windSpeed).append('\n');
+        sb.append("Wind Gust:\t").append(this.windGust).append('\n');
+        sb.append("Temperature:\t").append(this.temp).append('\n');
+        sb.append("Rain last hour:\t").append(this.rainLastHour).append('\n');
+        sb.append("Rain 24 hours:\t").append(this.rainLast24Hours).append('\n');
+        sb.append("Rain since 00:00:\t").append(this.rainSinceMidnight).append('\n');
+        sb.append("Humidity:\t").append(this.humidity).append('\n');
+        sb.append("Pressure:\t").append(this.pressure).append('\n');
+        sb.append("Luminosity:\t").append(this.luminosity).append('\n');
+        sb.append("Snowfall 24 hours:\t").append(this.snowfallLast24Hours).append('\n');
+    }
+
     /**
      * <p>Getter for the field <code>windDirection</code>.</p>
      *
@@ -132,6 +139,7 @@ public class WeatherField extends APRSData {
      * Sets the wind direction in a new WeatherField object
      */
     public void setWindDirection(Integer windDirection) {
+        checkWritable();
         this.windDirection = windDirection;
     }
 
@@ -154,6 +162,7 @@ public class WeatherField extends APRSData {
      * Sets the sustained 1 minute wind speed in a new object
      */
     public void setWindSpeed(Integer windSpeed) {
+        checkWritable();
         this.windSpeed = windSpeed;
     }
 
@@ -172,6 +181,7 @@ public class WeatherField extends APRSData {
      * @param windGust gust (peak wind speed in last 5 minutes) in miles per hour
      */
     public void setWindGust(Integer windGust) {
+        checkWritable();
         this.windGust = windGust;
     }
 
@@ -190,6 +200,7 @@ public class WeatherField extends APRSData {
      * @param temp temperature in degrees Fahrenheit
      */
     public void setTemp(Integer temp) {
+        checkWritable();
         this.temp = temp;
     }
 
@@ -208,6 +219,7 @@ public class WeatherField extends APRSData {
      * @param rainLastHour rainfall in hundredths of an inch in the last hour
      */
     public void setRainLastHour(Double rainLastHour) {
+        checkWritable();
         this.rainLastHour = rainLastHour;
     }
 
@@ -226,6 +238,7 @@ public class WeatherField extends APRSData {
      * @param rainLast24Hours rainfall in hundredths of an inch in the last 24 hours
      */
     public void setRainLast24Hours(Double rainLast24Hours) {
+        checkWritable();
         this.rainLast24Hours = rainLast24Hours;
     }
 
@@ -244,6 +257,7 @@ public class WeatherField extends APRSData {
      * @param rainSinceMidnight rainfall in hundredths of an inch since local midnight
      */
     public void setRainSinceMidnight(Double rainSinceMidnight) {
+        checkWritable();
         this.rainSinceMidnight = rainSinceMidnight;
     }
 
@@ -262,6 +276,7 @@ public class WeatherField extends APRSData {
      * @param humidity humidity in percent.  00 = 100%
      */
     public void setHumidity(Double humidity) {
+        checkWritable();
         this.humidity = humidity;
     }
 
@@ -280,6 +295,7 @@ public class WeatherField extends APRSData {
      * @param pressure barometric pressure in 10th of millibars
      */
     public void setPressure(Double pressure) {
+        checkWritable();
         this.pressure = pressure;
     }
 
@@ -298,6 +314,7 @@ public class WeatherField extends APRSData {
      * @param luminosity luminosity in watts per square meter (&lt;=999)
      */
     public void setLuminosity(Integer luminosity) {
+        checkWritable();
         if ( luminosity < 0 ) luminosity = 0;
         this.luminosity = luminosity;
     }
@@ -317,6 +334,7 @@ public class WeatherField extends APRSData {
      * @param snowfallLast24Hours snowfall in inches in the last 24 hours
      */
     public void setSnowfallLast24Hours(Double snowfallLast24Hours) {
+        checkWritable();
         this.snowfallLast24Hours = snowfallLast24Hours;
     }
 
@@ -335,6 +353,7 @@ public class WeatherField extends APRSData {
      * @param rawRainCounter raw rain counter number
      */
     public void setRawRainCounter(Integer rawRainCounter) {
+        checkWritable();
         this.rawRainCounter = rawRainCounter;
     }
 
@@ -0,0 +1,73 @@
+package net.ab0oo.aprs.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class AFSKModulatorTest {
+
+    @Test
+    void fcsMatchesX25CheckValue() {
+        byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0x906E, AFSKModulator.crc16(check, 0, check.length));
+    }
+
+    @Test
+    void bitStuffingInsertsZeroAfterFiveOnes() {
+        AFSKModulator mod = new AFSKModulator(48000);
+        mod.setPreambleFlags(0);
+        mod.setPostambleFlags(0);
+        boolean[] tones = mod.encodeBits(new byte[] { (byte) 0xFF });
+        // 8 data bits + 1 stuffed, then 16 FCS bits plus their stuffing
+        assertTrue(tones.length > 8 + 16);
+        // five ones hold the tone, the stuffed zero flips it
+        for (int i = 1; i < 5; i++) {
+            assertEquals(tones[0], tones[i]);
+        }
+        assertNotEquals(tones[4], tones[5]);
+    }
+
+    @Test
+    void sampleCountMatchesBitTiming() throws Exception {
+        AFSKModulator mod = new AFSKModulator(44100);
+        APRSPacket packet = Parser.parse("AB0OO>APRS,WIDE1-1:!4903.50N/07201.75W-Test 001234");
+        byte[] frame = packet.toAX25Frame();
+        boolean[] tones = mod.encodeBits(frame);
+        short[] audio = mod.modulate(frame);
+        assertEquals(mod.sampleCount(tones.length), audio.length);
+        assertEquals((long) tones.length * 44100 / 1200, audio.length, 1.0);
+    }
+
+    @Test
+    void noiseIsReproducible() {
+        byte[] frame = "test frame".getBytes(StandardCharsets.US_ASCII);
+        AFSKModulator a = new AFSKModulator(22050);
+        a.setNoiseLevel(0.1);
+        a.setSeed(1234);
+        AFSKModulator b = new AFSKModulator(22050);
+        b.setNoiseLevel(0.1);
+        b.setSeed(1234);
+        assertArrayEquals(a.modulate(frame), b.modulate(frame));
+    }
+
+    @Test
+    void multiChannelBufferMatchesMono() throws Exception {
+        byte[] frame = "stereo".getBytes(StandardCharsets.US_ASCII);
+        AFSKModulator mod = new AFSKModulator(8000);
+        short[] mono = mod.modulate(frame);
+        ByteBuffer pcm = ByteBuffer.allocate(mono.length * 4);
+        assertEquals(mono.length, mod.modulate(frame, pcm, 1, 2));
+        ByteBuffer le = pcm.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < mono.length; i++) {
+            assertEquals(0, le.getShort(i * 4));
+            assertEquals(mono[i], le.getShort(i * 4 + 2));
+        }
+        ByteArrayOutputStream wav = new ByteArrayOutputStream();
+        AFSKModulator.writeWav(wav, pcm, 8000, 2);
+        assertEquals(44 + pcm.capacity(), wav.size());
+    }
+}
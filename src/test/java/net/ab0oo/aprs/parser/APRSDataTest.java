@@ -0,0 +1,59 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class APRSDataTest {
+
+    @Test
+    public void fieldsShareThePacketBody() throws Exception {
+        APRSPacket packet = Parser.parse("N0CALL>APRS:!4903.50N/07201.75W-Test");
+        InformationField info = packet.getAprsInformation();
+        APRSData position = info.getAprsData(APRSTypes.T_POSITION);
+        assertNotNull(position);
+        assertSame(info.getRawBytes(), position.rawBytes);
+        assertEquals(info.getRawBytes().length, position.getRawLength());
+        byte[] copy = position.getRawBytes();
+        assertNotSame(position.rawBytes, copy);
+        copy[0] = 'X';
+        assertEquals('!', position.rawBytes[0]);
+    }
+
+    @Test
+    public void publicConstructorCopies() {
+        byte[] body = "x".getBytes();
+        APRSData d = new APRSData(body) {
+            @Override
+            public String toString() {
+                return "";
+            }
+        };
+        body[0] = 'y';
+        assertArrayEquals("x".getBytes(), d.getRawBytes());
+    }
+
+    @Test
+    public void sliceIsCopiedOnlyOnRequest() {
+        byte[] buffer = "}inner:>hello".getBytes();
+        StatusField status = new StatusField(">hello".getBytes());
+        status.setRawSlice(buffer, 7, 6);
+        assertEquals(6, status.getRawLength());
+        byte[] copy = status.getRawBytes();
+        assertNotSame(buffer, copy);
+        assertArrayEquals(">hello".getBytes(), copy);
+    }
+
+    @Test
+    public void sliceMustFitBuffer() {
+        StatusField status = new StatusField(">x".getBytes());
+        assertThrows(IllegalArgumentException.class, () -> status.setRawSlice(new byte[4], 2, 3));
+    }
+
+    @Test
+    public void messageToStringUsesSlice() throws Exception {
+        APRSPacket packet = Parser.parse("N0CALL>APRS::KB0ABC   :hi there{12");
+        APRSData msg = packet.getAprsInformation().getAprsData(APRSTypes.T_MESSAGE);
+        assertEquals(":KB0ABC   :hi there{12", msg.toString());
+    }
+}
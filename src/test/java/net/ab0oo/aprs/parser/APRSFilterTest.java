@@ -0,0 +1,67 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class APRSFilterTest {
+
+    private static final String POSIT = "N0CALL-9>APRS,WIDE1*,qAR,IGATE1:!4903.50N/07201.75W>Test";
+
+    private static APRSPacket p(String line) throws Exception {
+        return Parser.parse(line);
+    }
+
+    @Test
+    void rangeAndArea() throws Exception {
+        APRSPacket pkt = p(POSIT);
+        assertTrue(APRSFilter.compile("r/49.0/-72.0/10").test(pkt));
+        assertFalse(APRSFilter.compile("r/49.0/-73.0/10").test(pkt));
+        assertTrue(APRSFilter.compile("a/50/-73/48/-71").test(pkt));
+        assertFalse(APRSFilter.compile("a/48/-73/47/-71").test(pkt));
+    }
+
+    @Test
+    void callsignTerms() throws Exception {
+        APRSPacket pkt = p(POSIT);
+        assertTrue(APRSFilter.compile("p/N0").test(pkt));
+        assertTrue(APRSFilter.compile("b/K1ABC/n0call-*").test(pkt));
+        assertFalse(APRSFilter.compile("b/N0CALL").test(pkt));
+        assertTrue(APRSFilter.compile("d/WIDE1").test(pkt));
+        assertTrue(APRSFilter.compile("e/IGATE?").test(pkt));
+        assertTrue(APRSFilter.compile("q/RC").test(pkt));
+        assertFalse(APRSFilter.compile("q/C").test(pkt));
+        assertTrue(APRSFilter.compile("u/APR*").test(pkt));
+        assertTrue(APRSFilter.compile("s/>").test(pkt));
+    }
+
+    @Test
+    void typesAndExclusions() throws Exception {
+        APRSPacket pkt = p(POSIT);
+        APRSPacket msg = p("N0CALL>APRS,TCPIP*::BLN1     :Bulletin text");
+        assertTrue(APRSFilter.compile("t/p").test(pkt));
+        assertFalse(APRSFilter.compile("t/m").test(pkt));
+        assertTrue(APRSFilter.compile("t/m").test(msg));
+        assertTrue(APRSFilter.compile("g/BLN*").test(msg));
+        assertFalse(APRSFilter.compile("t/pm -p/N0").test(pkt));
+        assertFalse(APRSFilter.compile("").test(pkt));
+        assertTrue(APRSFilter.compile("").isEmpty());
+    }
+
+    @Test
+    void stationRanges() throws Exception {
+        APRSPacket pkt = p(POSIT);
+        StationLocator locator = call -> "K1ABC".equals(call) ? new Position(49.0, -72.0, 0, '/', '-') : null;
+        assertTrue(APRSFilter.compile("m/10", "K1ABC", locator).test(pkt));
+        assertTrue(APRSFilter.compile("f/K1ABC/10", null, locator).test(pkt));
+        assertFalse(APRSFilter.compile("f/W1XYZ/10", null, locator).test(pkt));
+        assertTrue(APRSFilter.compile("t/p/K1ABC/10", null, locator).test(pkt));
+    }
+
+    @Test
+    void rejectsBadTerms() {
+        assertThrows(IllegalArgumentException.class, () -> APRSFilter.compile("z/1"));
+        assertThrows(IllegalArgumentException.class, () -> APRSFilter.compile("r/1/2"));
+        assertThrows(IllegalArgumentException.class, () -> APRSFilter.compile("r/a/b/c"));
+        assertThrows(IllegalArgumentException.class, () -> APRSFilter.compile("t/x"));
+    }
+}
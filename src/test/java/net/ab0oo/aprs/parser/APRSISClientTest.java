@@ -0,0 +1,85 @@
+package net.ab0oo.aprs.parser;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class APRSISClientTest {
+
+    @Test
+    void logsInReceivesPacketsAndReconnects() throws Exception {
+        List<String> logins = new CopyOnWriteArrayList<>();
+        List<APRSPacket> packets = new CopyOnWriteArrayList<>();
+        CountDownLatch twoSessions = new CountDownLatch(2);
+        CountDownLatch received = new CountDownLatch(3);
+        try (ServerSocket server = new ServerSocket(0, 5, InetAddress.getLoopbackAddress())) {
+            Thread fake = new Thread(() -> {
+                try {
+                    for (int session = 0; session < 2; session++) {
+                        try (Socket s = server.accept()) {
+                            OutputStream out = s.getOutputStream();
+                            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream()));
+                            out.write("# fake aprsc 2.1.0\r\n".getBytes(StandardCharsets.US_ASCII));
+                            logins.add(in.readLine());
+                            out.write("# logresp N0CALL verified, server TEST\r\n".getBytes(StandardCharsets.US_ASCII));
+                            // split a line across writes to exercise the framer
+                            out.write("N0CALL>APRS,TCPIP*,qAC,TEST:!4903.50N/0720".getBytes(StandardCharsets.US_ASCII));
+                            out.flush();
+                            Thread.sleep(20);
+                            out.write("1.75W-Test\r\n# keepalive\r\n".getBytes(StandardCharsets.US_ASCII));
+                            out.write("W1AW>APRS::N0CALL   :hello{1\r\n".getBytes(StandardCharsets.US_ASCII));
+                            out.flush();
+                            twoSessions.countDown();
+                            Thread.sleep(100);
+                        }
+                    }
+                } catch (Exception ex) {
+                    // test fails on the latches
+                }
+            });
+            fake.setDaemon(true);
+            fake.start();
+
+            APRSISClient client = new APRSISClient("127.0.0.1", server.getLocalPort(), "n0call");
+            client.setFilter("t/m");
+            client.setReconnectDelay(10, 50);
+            client.setListener((buf, off, len) -> {
+                try {
+                    packets.add(Parser.parse(buf, off, len));
+                } catch (Exception ex) {
+                    fail(ex);
+                }
+                received.countDown();
+            });
+            client.start();
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            assertTrue(twoSessions.await(5, TimeUnit.SECONDS));
+            client.close();
+
+            String expected = "user N0CALL pass " + Utilities.doHash("N0CALL") + " vers javAPRSlib";
+            assertTrue(logins.get(0).startsWith(expected), logins.get(0));
+            assertTrue(logins.get(0).endsWith(" filter t/m"));
+            assertEquals(2, logins.size());
+            assertTrue(client.getReconnects() >= 1);
+            assertTrue(client.getKeepalivesReceived() >= 1);
+            APRSPacket first = packets.get(0);
+            assertEquals("N0CALL", first.getSourceCall());
+            PositionField pf = (PositionField) first.getAprsInformation().getAprsData(APRSTypes.T_POSITION);
+            assertEquals(-72.02917, pf.getPosition().getLongitude());
+            assertEquals("N0CALL>APRS,TCPIP*,qAC,TEST:!4903.50N/07201.75W-Test", first.getOriginalString());
+            MessagePacket mp = (MessagePacket) packets.get(1).getAprsInformation().getAprsData(APRSTypes.T_MESSAGE);
+            assertEquals("hello", mp.getMessageBody());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package net.ab0oo.aprs.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class APRSISIngestTest {
+
+    private static byte[] line(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void forwardsFirstArrivalOnly() {
+        List<String> out = new ArrayList<>();
+        APRSISIngest ingest = new APRSISIngest(
+                (buf, off, len) -> out.add(new String(buf, off, len, StandardCharsets.US_ASCII)), 30000);
+        int a = ingest.addUpstream("a");
+        int b = ingest.addUpstream("b");
+        byte[] viaA = line("N0CALL>APRS,WIDE1-1,qAR,IGATE1:!4903.50N/07201.75W-Test");
+        byte[] viaB = line("N0CALL>APRS,qAR,IGATE2:!4903.50N/07201.75W-Test");
+        byte[] other = line("N0CALL>APRS,qAR,IGATE2:!4903.50N/07201.75W-Test 2");
+
+        assertTrue(ingest.accept(b, viaB, 0, viaB.length));
+        assertFalse(ingest.accept(a, viaA, 0, viaA.length));
+        assertTrue(ingest.accept(a, other, 0, other.length));
+
+        assertEquals(2, out.size());
+        assertEquals(1, ingest.getStats().get(a).getWins());
+        assertEquals(1, ingest.getStats().get(a).getDuplicates());
+        assertEquals(1, ingest.getStats().get(b).getWins());
+        assertEquals(0, ingest.getStats().get(b).getDuplicates());
+        assertTrue(ingest.getStats().get(a).getMaxLagMillis() >= 0);
+        assertEquals(2, ingest.getForwarded());
+        assertEquals(0, ingest.getOverflows());
+    }
+
+    @Test
+    void hashIgnoresPathButNotBody() {
+        byte[] x = line("N0CALL>APRS,WIDE2-2:>status");
+        byte[] y = line("N0CALL>APRS,TCPIP*,qAC,T2TEST:>status");
+        byte[] z = line("N0CALL>APRT,TCPIP*,qAC,T2TEST:>status");
+        assertEquals(PacketHash.hashLine(x, 0, x.length), PacketHash.hashLine(y, 0, y.length));
+        assertNotEquals(PacketHash.hashLine(y, 0, y.length), PacketHash.hashLine(z, 0, z.length));
+    }
+}
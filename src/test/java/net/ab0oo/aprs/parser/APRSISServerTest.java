@@ -0,0 +1,101 @@
+package net.ab0oo.aprs.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class APRSISServerTest {
+
+    private static APRSISClient client(int port, String call, String filter, List<String> lines,
+            CountDownLatch login) {
+        APRSISClient c = new APRSISClient("127.0.0.1", port, call);
+        c.setFilter(filter);
+        c.setListener(new APRSISListener() {
+            @Override
+            public void onPacketLine(byte[] buf, int offset, int length) {
+                lines.add(new String(buf, offset, length, StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void onServerLine(byte[] buf, int offset, int length) {
+                if (new String(buf, offset, length, StandardCharsets.UTF_8).startsWith("# logresp")) {
+                    login.countDown();
+                }
+            }
+        });
+        return c;
+    }
+
+    private static void publish(APRSISServer server, String line) {
+        byte[] b = line.getBytes(StandardCharsets.UTF_8);
+        server.publish(b, 0, b.length);
+    }
+
+    @Test
+    void fansOutByFilter() throws Exception {
+        List<String> near = new CopyOnWriteArrayList<>();
+        List<String> msgs = new CopyOnWriteArrayList<>();
+        CountDownLatch login = new CountDownLatch(2);
+        try (APRSISServer server = new APRSISServer(0, "T2TEST")) {
+            server.start();
+            APRSISClient a = client(server.getLocalPort(), "N0CALL", "r/49/-72/50", near, login);
+            APRSISClient b = client(server.getLocalPort(), "K1ABC", "t/m", msgs, login);
+            a.start();
+            b.start();
+            assertTrue(login.await(5, TimeUnit.SECONDS));
+
+            publish(server, "W1AW>APRS,TCPIP*,qAC,T2TEST:!4903.50N/07201.75W-Near");
+            publish(server, "W1AW>APRS,TCPIP*,qAC,T2TEST:!3903.50N/07201.75W-Far");
+            publish(server, "W1AW>APRS,TCPIP*,qAC,T2TEST::N0CALL   :hi{1");
+            assertEquals(-1, server.publish(new byte[] { 'x' }, 0, 1));
+            byte[] dupe = "W1AW>APRS,WIDE2-1,qAR,K1ABC:!4903.50N/07201.75W-Near".getBytes(StandardCharsets.UTF_8);
+            assertEquals(0, server.publish(dupe, 0, dupe.length));
+            // packets are forwarded as received, and built ones are refused
+            byte[] parsed = "W1AW>APRS,TCPIP*,qAC,T2TEST::K1ABC    :hey{3".getBytes(StandardCharsets.UTF_8);
+            assertEquals(1, server.publish(Parser.parse(parsed, 0, parsed.length)));
+            assertEquals(-1, server.publish(new APRSPacket("W1AW", "APRS", new ArrayList<Digipeater>(),
+                    ":K1ABC    :built{4".getBytes(StandardCharsets.UTF_8))));
+            // a verified client's packets go to everyone else who wants them
+            a.send("N0CALL>APRS,TCPIP*::K1ABC    :back{2");
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((near.size() < 1 || msgs.size() < 3) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(a.isVerified());
+            a.close();
+            b.close();
+
+            assertEquals(1, near.size());
+            assertTrue(near.get(0).endsWith("-Near"));
+            assertEquals(3, msgs.size());
+            assertTrue(msgs.get(0).endsWith(":hi{1"));
+            assertEquals("W1AW>APRS,TCPIP*,qAC,T2TEST::K1ABC    :hey{3", msgs.get(1));
+            assertTrue(msgs.get(2).endsWith(":back{2"));
+            assertEquals(1, server.getParseErrors());
+            assertEquals(1, server.getDuplicatesDropped());
+            assertNotNull(server.locate("W1AW"));
+        }
+    }
+
+    @Test
+    void positionsExpire() throws Exception {
+        APRSISServer server = new APRSISServer(0, "T2TEST");
+        StationTracker tracker = new StationTracker(1000);
+        server.setStationTracker(tracker);
+        server.publish(Parser.parse("W1AW>APRS,TCPIP*:!4903.50N/07201.75W-Test"));
+        server.publish(Parser.parse("K1ABC>APRS,TCPIP*:>status only"));
+        assertNotNull(server.locate("W1AW"));
+        assertNull(server.locate("K1ABC"));
+        assertEquals(1, tracker.size());
+        tracker.expire(System.currentTimeMillis() + 5000);
+        assertNull(server.locate("W1AW"));
+        assertEquals(0, tracker.size());
+    }
+}
@@ -0,0 +1,88 @@
+package net.ab0oo.aprs.parser;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class APRSISUDPListenerTest {
+
+    private static ByteBuffer datagram(String call, int pass, String packet) {
+        String s = "user " + call + " pass " + pass + " vers test 1.0\n" + packet + "\n";
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void verifiesAndParsesBatches() throws Exception {
+        AtomicInteger seen = new AtomicInteger();
+        try (APRSISUDPListener listener = new APRSISUDPListener(0,
+                (packet, login, from) -> {
+                    assertEquals("N0CALL", login);
+                    assertEquals("N0CALL-9", packet.getSourceCall());
+                    seen.incrementAndGet();
+                }, 16);
+             DatagramChannel sender = DatagramChannel.open()) {
+            listener.start();
+            InetSocketAddress to = new InetSocketAddress("127.0.0.1", listener.getLocalPort());
+            int pass = Utilities.doHash("N0CALL");
+            ByteBuffer good = datagram("n0call", pass, "N0CALL-9>APRS,TCPIP*:!4903.50N/07201.75W-Test");
+            ByteBuffer wrongPass = datagram("N0CALL", pass ^ 1, "N0CALL-9>APRS,TCPIP*:>status");
+            ByteBuffer noPacket = ByteBuffer.wrap("user N0CALL pass 1\n".getBytes(StandardCharsets.US_ASCII));
+            ByteBuffer garbage = datagram("N0CALL", pass, "not a packet");
+
+            int total = 0;
+            for (int i = 0; i < 500; i++) {
+                sender.send(good.duplicate(), to);
+                total++;
+                if (i % 50 == 0) {
+                    sender.send(wrongPass.duplicate(), to);
+                    sender.send(noPacket.duplicate(), to);
+                    sender.send(garbage.duplicate(), to);
+                    total += 3;
+                    Thread.sleep(1);
+                }
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (listener.getReceived() < total && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(20);
+            assertEquals(total, listener.getReceived());
+            assertEquals(500, listener.getAccepted());
+            assertEquals(500, seen.get());
+            assertEquals(10, listener.getVerifyFailures());
+            assertEquals(10, listener.getDropped());
+            assertEquals(10, listener.getParseFailures());
+        }
+    }
+
+    @Test
+    void handlerFailureIsCounted() {
+        AtomicInteger seen = new AtomicInteger();
+        APRSISUDPListener listener = new APRSISUDPListener(0, (packet, login, from) -> {
+            if (seen.incrementAndGet() == 1) {
+                throw new IllegalStateException("boom");
+            }
+        }, 1);
+        ByteBuffer good = datagram("N0CALL", Utilities.doHash("N0CALL"), "N0CALL-9>APRS:>status");
+        assertFalse(listener.process(good.duplicate(), null));
+        assertTrue(listener.process(good.duplicate(), null));
+        assertEquals(2, seen.get());
+        assertEquals(2, listener.getAccepted());
+        assertEquals(1, listener.getHandlerFailures());
+    }
+
+    @Test
+    void loginLineVerification() {
+        byte[] ok = ("user N0CALL-5 pass " + Utilities.doHash("N0CALL") + " vers x 1").getBytes(StandardCharsets.US_ASCII);
+        assertEquals("N0CALL-5", APRSISUDPListener.verify(ok, ok.length));
+        byte[] noPass = "user N0CALL vers x 1".getBytes(StandardCharsets.US_ASCII);
+        assertNull(APRSISUDPListener.verify(noPass, noPass.length));
+        byte[] readOnly = "user N0CALL pass -1".getBytes(StandardCharsets.US_ASCII);
+        assertNull(APRSISUDPListener.verify(readOnly, readOnly.length));
+    }
+}
@@ -65,4 +65,17 @@ public class APRSPacketTests {
 			}
 		}
 	}
+
+	@Test
+	@DisplayName("A packet parsed from bytes keeps the line as received")
+	void originalLineFromBytes() throws Exception {
+		byte[] line = "n0call>APRS,TCPIP*,qAC,T2TEST:>Caf\u00e9".getBytes(java.nio.charset.StandardCharsets.ISO_8859_1);
+		byte[] buf = new byte[line.length + 4];
+		System.arraycopy(line, 0, buf, 2, line.length);
+		APRSPacket p = Parser.parse(buf, 2, line.length);
+		assertEquals("n0call>APRS,TCPIP*,qAC,T2TEST:>Caf\u00e9", p.getOriginalString());
+		assertArrayEquals(line, p.originalBytes());
+		assertEquals("N0CALL>APRS,TCPIP*,QAC,T2TEST:>Caf\u00e9", p.toTNC2());
+		assertNull(new APRSPacket("A1BC", "APRS01", new java.util.ArrayList<Digipeater>(), ">x".getBytes()).getOriginalString());
+	}
 }
@@ -0,0 +1,93 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+public class CallsignIndexTest {
+
+    @Test
+    public void testExactAndPrefix() {
+        CallsignIndex idx = new CallsignIndex();
+        assertTrue(idx.add("N0CALL"));
+        assertTrue(idx.add("N0CALL-9"));
+        assertTrue(idx.add("N0C"));
+        assertTrue(idx.add("KB0XYZ"));
+        assertFalse(idx.add("N0CALL"));
+        assertEquals(4, idx.size());
+        assertTrue(idx.contains("N0C"));
+        assertFalse(idx.contains("N0CA"));
+        assertEquals(Arrays.asList("N0C", "N0CALL", "N0CALL-9"), idx.withPrefix("N0", 10));
+        assertEquals(Arrays.asList("N0CALL", "N0CALL-9"), idx.withPrefix("N0CA", 10));
+        assertEquals(Arrays.asList("N0C"), idx.withPrefix("N0", 1));
+        assertTrue(idx.withPrefix("W", 10).isEmpty());
+    }
+
+    @Test
+    public void testRemoveMergesNodes() {
+        CallsignIndex idx = new CallsignIndex();
+        idx.add("ABC");
+        idx.add("ABD");
+        idx.add("AB");
+        assertTrue(idx.remove("ABC"));
+        assertFalse(idx.remove("ABC"));
+        assertFalse(idx.remove("A"));
+        assertTrue(idx.remove("AB"));
+        assertEquals(Arrays.asList("ABD"), idx.withPrefix("A", 10));
+        assertTrue(idx.contains("ABD"));
+        assertTrue(idx.add("ABE"));
+        assertEquals(Arrays.asList("ABD", "ABE"), idx.matching("AB?", 10));
+        assertEquals(2, idx.size());
+    }
+
+    @Test
+    public void testCallsignForms() {
+        CallsignIndex idx = new CallsignIndex();
+        idx.add(new Digipeater("wide1-1*"));
+        idx.add(new Callsign("KB0XYZ"));
+        assertTrue(idx.contains("WIDE1-1"));
+        assertTrue(idx.contains("KB0XYZ"));
+        assertTrue(idx.remove(new Digipeater("WIDE1-1")));
+        assertEquals(1, idx.size());
+    }
+
+    @Test
+    public void testWildcardsAgainstRegex() {
+        Random r = new Random(7);
+        CallsignIndex idx = new CallsignIndex();
+        TreeSet<String> names = new TreeSet<>();
+        String alphabet = "AB0-";
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int len = 1 + r.nextInt(7);
+            for (int j = 0; j < len; j++) {
+                sb.append(alphabet.charAt(r.nextInt(alphabet.length())));
+            }
+            String s = sb.toString();
+            assertEquals(names.add(s), idx.add(s));
+            if (r.nextInt(4) == 0) {
+                String gone = names.pollFirst();
+                assertTrue(idx.remove(gone));
+            }
+        }
+        assertEquals(names.size(), idx.size());
+        String[] patterns = { "A*", "*B", "A*B*0", "?0*", "*-*-*", "AB?A", "*", "**A**", "B0-A", "?" };
+        for (String p : patterns) {
+            Pattern re = Pattern.compile(p.replace("?", ".").replace("*", ".*"));
+            List<String> want = new ArrayList<>();
+            for (String s : names) {
+                if (re.matcher(s).matches()) {
+                    want.add(s);
+                }
+            }
+            assertEquals(want, idx.matching(p, Integer.MAX_VALUE), p);
+        }
+    }
+}
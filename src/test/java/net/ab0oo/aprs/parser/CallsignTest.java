@@ -259,6 +259,24 @@ class CallsignTest {
 			}
 		}
 
+		@Nested
+		@DisplayName("When clearing the ssid with a computed empty string")
+		class WhenSsidCleared {
+			@BeforeEach
+			void setUp() {
+				object.setSsid(new String(new char[0]));
+			}
+
+			@Test
+			@DisplayName("Then it should return the bare callsign")
+			void thenReturnProperString() {
+				assertEquals("W1AW", object.toString());
+				StringBuilder sb = new StringBuilder();
+				object.formatTo(sb);
+				assertEquals("W1AW", sb.toString());
+			}
+		}
+
 		@Nested
 		@DisplayName("When changing ssid")
 		class WhenSsidChanged {
@@ -0,0 +1,54 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class CommentDecoderTest {
+
+    @Test
+    public void asciiRange() {
+        byte[] b = "xxhello worldyy".getBytes(StandardCharsets.US_ASCII);
+        assertEquals("hello world", CommentDecoder.decode(b, 2, 11));
+    }
+
+    @Test
+    public void utf8() {
+        byte[] b = "Grüße 73 Привет".getBytes(StandardCharsets.UTF_8);
+        assertEquals("Grüße 73 Привет", CommentDecoder.decode(b, 0, b.length));
+    }
+
+    @Test
+    public void latin1Fallback() {
+        byte[] b = "Grüße à tous".getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals("Grüße à tous", CommentDecoder.decode(b, 0, b.length));
+    }
+
+    @Test
+    public void rejectsMalformedUtf8() {
+        assertFalse(CommentDecoder.isUtf8(new byte[] { (byte) 0xc0, (byte) 0xaf }, 0, 2));
+        assertFalse(CommentDecoder.isUtf8(new byte[] { (byte) 0xed, (byte) 0xa0, (byte) 0x80 }, 0, 3));
+        assertFalse(CommentDecoder.isUtf8(new byte[] { (byte) 0xe2, (byte) 0x82 }, 0, 2));
+        assertTrue(CommentDecoder.isUtf8(new byte[] { (byte) 0xe2, (byte) 0x82, (byte) 0xac }, 0, 3));
+    }
+
+    @Test
+    public void positionCommentDecodedOnDemand() throws Exception {
+        byte[] frame = "N0CALL>APRS:!4903.50N/07201.75W-Café net".getBytes(StandardCharsets.ISO_8859_1);
+        APRSPacket packet = Parser.parse(frame, 0, frame.length);
+        APRSData position = packet.getAprsInformation().getAprsData(APRSTypes.T_POSITION);
+        assertNull(position.comment);
+        assertTrue(position.getComment().endsWith("Café net"));
+        assertSame(position.getComment(), position.getComment());
+    }
+
+    @Test
+    public void itemCommentIsTrimmed() throws Exception {
+        APRSPacket packet = Parser.parse("N0CALL>APRS:)AID #2!4903.50N/07201.75WA  first aid  ");
+        APRSData item = packet.getAprsInformation().getAprsData(APRSTypes.T_ITEM);
+        assertNotNull(item);
+        assertTrue(item.getComment().endsWith("first aid"));
+    }
+}
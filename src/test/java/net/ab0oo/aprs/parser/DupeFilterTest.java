@@ -0,0 +1,95 @@
+package net.ab0oo.aprs.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class DupeFilterTest {
+
+    @Test
+    void windowExpiry() {
+        DupeFilter f = new DupeFilter(7000, 1000);
+        assertFalse(f.isDuplicate(42L, 0));
+        assertTrue(f.isDuplicate(42L, 500));
+        assertTrue(f.isDuplicate(42L, 6999));
+        // remembered for the window, plus at most one slice
+        assertFalse(f.isDuplicate(43L, 3000));
+        assertFalse(f.isDuplicate(42L, 8000));
+        assertTrue(f.isDuplicate(43L, 9999));
+        assertFalse(f.isDuplicate(0L, 9999));
+        assertFalse(f.isDuplicate(0L, 9999));
+        assertEquals(3, f.getDuplicates());
+    }
+
+    @Test
+    void pathIsIgnored() throws Exception {
+        DupeFilter f = new DupeFilter();
+        byte[] a = "N0CALL>APRS,WIDE1-1:>hello".getBytes(StandardCharsets.US_ASCII);
+        assertFalse(f.isDuplicate(a, 0, a.length));
+        APRSPacket p = Parser.parse("N0CALL>APRS,TCPIP*,qAC,T2TEST:>hello");
+        assertTrue(f.isDuplicate(p));
+        assertEquals(PacketHash.hashLine(a, 0, a.length), PacketHash.hash(p));
+        byte[] lower = "n0call>aprs,WIDE1-1:>hello".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(PacketHash.hashLine(lower, 0, lower.length),
+                PacketHash.hash(Parser.parse("n0call>aprs:>hello")));
+    }
+
+    @Test
+    void stampedFilterReportsLag() {
+        DupeFilter f = new DupeFilter(7000, 64, true);
+        long base = System.nanoTime();
+        assertEquals(-1, f.lagNanos(42L, base));
+        assertEquals(5000000, f.lagNanos(42L, base + 5000000));
+        assertEquals(-1, f.lagNanos(42L, base + 9000000000L));
+        assertEquals(-1, f.lagNanos(0L, base));
+        DupeFilter plain = new DupeFilter(7000, 64);
+        assertEquals(-1, plain.lagNanos(42L, base));
+        assertEquals(0, plain.lagNanos(42L, base + 5000000));
+    }
+
+    @Test
+    void overflowLetsPacketsThrough() {
+        DupeFilter f = new DupeFilter(7000, 7);
+        for (long h = 1; h <= 16; h++) {
+            assertFalse(f.isDuplicate(h, 10));
+        }
+        assertFalse(f.isDuplicate(17L, 10));
+        assertEquals(1, f.getOverflows());
+    }
+
+    @Test
+    void concurrentInsertsAgree() throws Exception {
+        DupeFilter f = new DupeFilter(30000, 200000);
+        int threads = 4;
+        AtomicInteger firsts = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread w = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                for (long h = 1; h <= 20000; h++) {
+                    if (!f.isDuplicate(PacketHash.finish(h), 100)) {
+                        firsts.incrementAndGet();
+                    }
+                }
+            });
+            w.start();
+            workers.add(w);
+        }
+        go.countDown();
+        for (Thread w : workers) {
+            w.join();
+        }
+        assertEquals(20000, firsts.get());
+        assertEquals(20000L * (threads - 1), f.getDuplicates());
+    }
+}
@@ -0,0 +1,131 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+public class FormattingTest {
+
+    @Test
+    public void utcTimestamps() {
+        StringBuilder sb = new StringBuilder();
+        Formatting.appendUtc(sb, 0);
+        assertEquals("1970-01-01T00:00:00.000Z", sb.toString());
+        sb.setLength(0);
+        Formatting.appendUtc(sb, 951782400123L);
+        assertEquals("2000-02-29T00:00:00.123Z", sb.toString());
+        sb.setLength(0);
+        Formatting.appendUtc(sb, 1792416896007L);
+        assertEquals(Instant.ofEpochMilli(1792416896007L).toString(), sb.toString());
+    }
+
+    @Test
+    public void fixedPointMatchesDecimalFormat() {
+        DecimalFormat df = new DecimalFormat("0.00000");
+        double[] values = { 0, 49.0583, -72.029167, 179.999999, -0.5, 12.345678, 1e-7 };
+        for (double v : values) {
+            StringBuilder sb = new StringBuilder();
+            Formatting.appendFixed(sb, v, 5);
+            assertEquals(df.format(v), sb.toString(), Double.toString(v));
+        }
+    }
+
+    @Test
+    public void paddedLikeFormat() {
+        StringBuilder sb = new StringBuilder();
+        Formatting.appendPadded(sb, "N0CALL", 9);
+        assertEquals(String.format("%-9s", "N0CALL"), sb.toString());
+    }
+
+    private static final String HEADER = "-------------------------------\nN0CALL>APRS\nVia Digis: \n";
+
+    /**
+     * replaces each create timestamp, after checking its format, so the text can be compared
+     */
+    private static String masked(String text) {
+        String ts = "Create Timestamp:\t\\d{4}-\\d\\d-\\d\\dT\\d\\d:\\d\\d:\\d\\d\\.\\d{3}Z\n";
+        String out = text.replaceAll(ts, "Create Timestamp:\t<TS>\n");
+        assertFalse(out.matches("(?s).*Create Timestamp:\t[^<].*"), text);
+        return out;
+    }
+
+    @Test
+    public void packetFormatsToExpectedText() throws Exception {
+        String[][] cases = {
+            { "N0CALL>APRS::KB0ABC   :hi there{12}AB",
+                HEADER
+                + "Raw Bytes:\t:KB0ABC   :hi there{12}AB\n"
+                + "Data Type Identifier: :\n"
+                + "Create Timestamp:\t<TS>\n"
+                + "Comment:  \n"
+                + "Class net.ab0oo.aprs.parser.MessagePacket\n"
+                + ":KB0ABC   :hi there{12}AB" },
+            { "N0CALL>APRS:>status text",
+                HEADER
+                + "Raw Bytes:\t>status text\n"
+                + "Data Type Identifier: >\n"
+                + "Create Timestamp:\t<TS>\n"
+                + "Comment:  \n"
+                + "Class net.ab0oo.aprs.parser.StatusField\n"
+                + "---STATUS---\n"
+                + "Status:\tstatus text\n" },
+            { "N0CALL>APRS:}KB0ABC>APRS,TCPIP,N0CALL*::N0CALL   :inner{1",
+                HEADER
+                + "Raw Bytes:\t}KB0ABC>APRS,TCPIP,N0CALL*::N0CALL   :inner{1\n"
+                + "Data Type Identifier: }\n"
+                + "Create Timestamp:\t<TS>\n"
+                + "Comment:  \n"
+                + "Class net.ab0oo.aprs.parser.ThirdPartyField\n"
+                + "---THIRD PARTY---\n"
+                + "-------------------------------\n"
+                + "KB0ABC>APRS\n"
+                + "Via Digis: TCPIP,N0CALL*\n"
+                + "Raw Bytes:\t:N0CALL   :inner{1\n"
+                + "Data Type Identifier: :\n"
+                + "Create Timestamp:\t<TS>\n"
+                + "Comment:  \n"
+                + "Class net.ab0oo.aprs.parser.MessagePacket\n"
+                + ":N0CALL   :inner{1" },
+        };
+        for (String[] c : cases) {
+            APRSPacket p = Parser.parse(c[0]);
+            assertEquals(c[1], masked(p.toString()), c[0]);
+            StringWriter w = new StringWriter();
+            p.formatTo(w);
+            assertEquals(c[1], masked(w.toString()), c[0]);
+        }
+    }
+
+    @Test
+    public void formatToOverloadsAgree() throws Exception {
+        String[] lines = {
+            "N0CALL>APRS,WIDE1-1,K0ABC-3*:!4903.50N/07201.75W-Test 73",
+            "N0CALL>APRS:T#005,199,000,255,073,123,01101001",
+            "N0CALL>APRS:_10090556c220s004g005t077r000p000P000h50b09900wRSW",
+        };
+        for (String line : lines) {
+            APRSPacket p = Parser.parse(line);
+            StringBuilder sb = new StringBuilder("> ");
+            p.formatTo(sb);
+            StringWriter w = new StringWriter();
+            p.formatTo(w);
+            assertEquals(masked(sb.substring(2)), masked(w.toString()), line);
+            assertTrue(sb.indexOf("Via Digis: " + p.getDigiString() + "\n") > 0, line);
+        }
+    }
+
+    @Test
+    public void messageFormatsWithoutRawBytes() {
+        MessagePacket m = new MessagePacket("N0CALL", "hello", "12");
+        assertEquals(":N0CALL   :hello{12", m.toString());
+        m.setReplyAck("");
+        assertEquals(":N0CALL   :hello{12}", m.toString());
+        assertEquals(":KB0ABC   :ack7", new MessagePacket("KB0ABC", "ack", "7").toString());
+        ObjectField o = new ObjectField("LEADER", true, new Position(49.0583, -72.029167), "net");
+        assertEquals(";LEADER   *net", o.toString());
+    }
+}
@@ -0,0 +1,75 @@
+package net.ab0oo.aprs.parser;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class GeoKernelsTest {
+
+    @Test
+    void exactKernelsMatchPosition() {
+        Random r = new Random(3);
+        int n = 1000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = r.nextDouble() * 180 - 90;
+            lon[i] = r.nextDouble() * 360 - 180;
+        }
+        Position here = new Position(33.25, -96.5);
+        GeoKernels.Reference ref = new GeoKernels.Reference(here);
+        double[] km = new double[n];
+        double[] brg = new double[n];
+        GeoKernels.distancesKm(ref, lat, lon, n, km);
+        GeoKernels.bearings(ref, lat, lon, n, brg);
+        for (int i = 0; i < n; i++) {
+            Position there = new Position(lat[i], lon[i]);
+            double miles = here.distance(there);
+            assertEquals(miles / 3958.75, km[i] / GeoKernels.EARTH_RADIUS_KM, 1e-5);
+            assertEquals(ref.distanceKm(lat[i], lon[i]), km[i], 1e-9);
+            // Position.direction is measured from the argument to this position
+            assertEquals(there.direction(here), brg[i], 1e-2);
+        }
+
+        double[] scratch = new double[n];
+        int[] hits = new int[n];
+        int count = GeoKernels.withinKm(ref, lat, lon, n, 3000, scratch, hits);
+        int expected = 0;
+        for (int i = 0; i < n; i++) {
+            if (km[i] <= 3000) {
+                assertEquals(i, hits[expected++]);
+            }
+        }
+        assertEquals(expected, count);
+    }
+
+    @Test
+    void approximateModeStaysWithinBound() {
+        Random r = new Random(5);
+        int n = 20000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        double[] exact = new double[n];
+        double[] approx = new double[n];
+        for (int round = 0; round < 20; round++) {
+            double lat0 = r.nextDouble() * 140 - 70;
+            double lon0 = r.nextDouble() * 360 - 180;
+            GeoKernels.Reference ref = new GeoKernels.Reference(lat0, lon0);
+            for (int i = 0; i < n; i++) {
+                // random points up to ~4.5 degrees away, across the date line too
+                lat[i] = lat0 + (r.nextDouble() - 0.5) * 9;
+                double l = lon0 + (r.nextDouble() - 0.5) * 9 / Math.cos(Math.toRadians(lat0));
+                lon[i] = l > 180 ? l - 360 : (l < -180 ? l + 360 : l);
+            }
+            GeoKernels.distancesKm(ref, lat, lon, n, exact);
+            GeoKernels.distancesKmApprox(ref, lat, lon, n, approx);
+            for (int i = 0; i < n; i++) {
+                if (exact[i] <= 500 && exact[i] > 1) {
+                    assertEquals(exact[i], approx[i], exact[i] * 0.005, "at " + lat[i] + "," + lon[i]);
+                }
+            }
+        }
+        assertEquals(Math.cos(1.5), GeoKernels.cosPoly(1.5), 1e-6);
+    }
+}
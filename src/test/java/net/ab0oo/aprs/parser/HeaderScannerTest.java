@@ -0,0 +1,87 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class HeaderScannerTest {
+
+    private static final String[] HEADERS = {
+        "N0CALL>APRS:",
+        "n0call-9>apdr15,wide1-1,wide2-1:",
+        "KB0ABC-12>APOT30,K0XYZ-3*,WIDE2-1,qAR,KC0LMN-10:",
+        "DB0ABC>APNU19,DB0XYZ*,DB0QRS*,WIDE3,qAO,DF1ABC:",
+        "W1AW>ID,WIDE*-1,  RELAY ,,TRACE3-3:",
+        "ab>cd::",
+        "X>Y,a-b-c,z**:",
+        "N0CALL>APRS,RELAY-,WIDE-*:",
+        "OH7Ä>APRS,wide:",
+    };
+
+    @Test
+    public void matchesStringSplitting() {
+        HeaderScanner scanner = new HeaderScanner();
+        for (String header : HEADERS) {
+            for (int pad = 0; pad < 9; pad++) {
+                String line = "#########".substring(0, pad) + header + "!body";
+                byte[] b = line.getBytes(StandardCharsets.ISO_8859_1);
+                assertTrue(scanner.scan(b, pad, b.length - pad), header);
+                int cs = header.indexOf('>');
+                int ms = header.indexOf(':', cs);
+                String digiList = header.substring(cs + 1, ms);
+                assertEquals(header.substring(0, cs).toUpperCase(), scanner.source(), header);
+                assertEquals(digiList.split(",")[0].toUpperCase(), scanner.destination(), header);
+                assertEquals(Digipeater.parseList(digiList, false).toString(),
+                        scanner.digipeaters().toString(), header);
+                assertEquals(pad + ms + 1, scanner.getInfoStart(), header);
+            }
+        }
+    }
+
+    @Test
+    public void stringAndByteParsesAgree() throws Exception {
+        for (String header : HEADERS) {
+            String line = header + ">status";
+            byte[] b = line.getBytes(StandardCharsets.ISO_8859_1);
+            APRSPacket fromString = Parser.parse(line);
+            APRSPacket fromBytes = Parser.parse(b, 0, b.length);
+            assertEquals(fromBytes.getSourceCall(), fromString.getSourceCall(), header);
+            assertEquals(fromBytes.getDestinationCall(), fromString.getDestinationCall(), header);
+            assertEquals(fromBytes.getDigiString(), fromString.getDigiString(), header);
+            assertEquals(line, fromString.getOriginalString(), header);
+        }
+    }
+
+    @Test
+    public void usedFlagAndSsid() {
+        HeaderScanner scanner = new HeaderScanner();
+        byte[] b = "src>dst,k0abc-a*,wide2-2:>hi".getBytes(StandardCharsets.US_ASCII);
+        assertTrue(scanner.scan(b, 0, b.length));
+        Digipeater d = scanner.digipeaters().get(0);
+        assertEquals("K0ABC", d.getCallsign());
+        assertEquals("a", d.getSsid());
+        assertTrue(d.isUsed());
+        assertFalse(scanner.digipeaters().get(1).isUsed());
+    }
+
+    @Test
+    public void rejectsIncompleteHeaders() {
+        HeaderScanner scanner = new HeaderScanner();
+        for (String s : new String[] { "N0CALL:APRS>x", "N0CALL>APRS", "N0CALL>APRS:", "" }) {
+            byte[] b = s.getBytes(StandardCharsets.US_ASCII);
+            assertFalse(scanner.scan(b, 0, b.length), s);
+        }
+    }
+
+    @Test
+    public void swarLanes() {
+        long w = 0x2d3a2a2c3e7a617aL; // "zaz>,*:-" little-endian
+        assertEquals(0x0000000080000000L, HeaderScanner.match(w, '>' * 0x0101010101010101L));
+        assertEquals(0x2d3a2a2c3e5a415aL, HeaderScanner.upper(w));
+        long high = 0xe1e1e1e1e1e1e1e1L;
+        assertEquals(high, HeaderScanner.upper(high));
+        assertEquals(0L, HeaderScanner.match(high, 0x6161616161616161L));
+    }
+}
@@ -0,0 +1,135 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class MessageEngineTest {
+    private final List<String> sent = new ArrayList<>();
+    private final List<MessagePacket> delivered = new ArrayList<>();
+    private final List<MessageEngine.Outbound> settled = new ArrayList<>();
+
+    private MessageEngine engine(long now) {
+        return new MessageEngine(p -> sent.add(p.toTNC2()), new MessageEngine.Listener() {
+            @Override
+            public void onMessage(APRSPacket packet, MessagePacket message) {
+                delivered.add(message);
+            }
+
+            @Override
+            public void onSettled(MessageEngine.Outbound message) {
+                settled.add(message);
+            }
+        }, now, "N0CALL");
+    }
+
+    @Test
+    public void testReplyAckParsing() throws Exception {
+        MessagePacket m = (MessagePacket) Parser.parse("KB0XYZ>APRS::N0CALL   :hello{12}7")
+                .getAprsInformation().getAprsData(APRSTypes.T_MESSAGE);
+        assertEquals("12", m.getMessageNumber());
+        assertEquals("7", m.getReplyAck());
+        assertEquals(":N0CALL   :hello{12}7", new MessagePacket("N0CALL", "hello", "12") {
+            {
+                setReplyAck("7");
+            }
+        }.toString());
+        m = (MessagePacket) Parser.parse("KB0XYZ>APRS::N0CALL   :plain{3")
+                .getAprsInformation().getAprsData(APRSTypes.T_MESSAGE);
+        assertEquals("3", m.getMessageNumber());
+        assertNull(m.getReplyAck());
+    }
+
+    @Test
+    public void testRetriesThenAck() throws Exception {
+        MessageEngine e = engine(0);
+        e.setRetry(10000, 40000, 5);
+        MessageEngine.Outbound o = e.send("N0CALL", "kb0xyz", "hi there", 0);
+        assertEquals("1", o.getNumber());
+        assertEquals(1, sent.size());
+        assertTrue(sent.get(0).endsWith("::KB0XYZ   :hi there{1"), sent.get(0));
+        e.advance(9000);
+        assertEquals(1, sent.size());
+        e.advance(10000);
+        assertEquals(2, sent.size());
+        // the second wait doubles
+        e.advance(29000);
+        assertEquals(2, sent.size());
+        e.advance(30000);
+        assertEquals(3, sent.size());
+        assertTrue(e.receive(Parser.parse("KB0XYZ>APRS::N0CALL   :ack1"), 31000));
+        assertEquals(MessageEngine.State.ACKED, o.getState());
+        assertEquals(1, settled.size());
+        assertEquals(0, e.getPendingCount());
+        e.advance(200000);
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    public void testTimeoutAndReject() throws Exception {
+        MessageEngine e = engine(0);
+        e.setRetry(1000, 2000, 3);
+        MessageEngine.Outbound a = e.send("N0CALL", "KB0XYZ", "one", 0);
+        MessageEngine.Outbound b = e.send("N0CALL", "KB0XYZ", "two", 0);
+        assertEquals("2", b.getNumber());
+        e.receive(Parser.parse("KB0XYZ>APRS::N0CALL   :rej2"), 500);
+        assertEquals(MessageEngine.State.REJECTED, b.getState());
+        for (long t = 1000; t <= 10000; t += 1000) {
+            e.advance(t);
+        }
+        assertEquals(MessageEngine.State.TIMED_OUT, a.getState());
+        assertEquals(3, a.getAttempts());
+        assertEquals(1, e.getTimedOut());
+        assertEquals(1, e.getRejected());
+    }
+
+    @Test
+    public void testIncomingDupesAndReplyAck() throws Exception {
+        MessageEngine e = engine(0);
+        MessageEngine.Outbound o = e.send("N0CALL", "KB0XYZ", "ping", 0);
+        sent.clear();
+        assertTrue(e.receive(Parser.parse("KB0XYZ>APRS::N0CALL   :pong{AB}1"), 1000));
+        assertEquals(MessageEngine.State.ACKED, o.getState());
+        assertEquals(1, delivered.size());
+        assertEquals(1, sent.size());
+        assertTrue(sent.get(0).endsWith("::KB0XYZ   :ackAB"), sent.get(0));
+        // a retry of the same message is acked again but not delivered again
+        assertTrue(e.receive(Parser.parse("KB0XYZ>APRS::N0CALL   :pong{AB}1"), 5000));
+        assertEquals(1, delivered.size());
+        assertEquals(2, sent.size());
+        assertEquals(1, e.getDuplicates());
+        // the peer uses reply-acks, so our next message carries its last number
+        e.send("N0CALL", "KB0XYZ", "again", 6000);
+        assertTrue(sent.get(2).endsWith(":again{2}AB"), sent.get(2));
+        assertFalse(e.receive(Parser.parse("KB0XYZ>APRS::SOMEONE  :hi{5"), 7000));
+    }
+
+    @Test
+    public void testBadInput() {
+        MessageEngine e = engine(0);
+        assertThrows(IllegalArgumentException.class, () -> e.send("W1AW", "KB0XYZ", "x"));
+        assertThrows(IllegalArgumentException.class, () -> e.send("N0CALL", "KB0XYZ", "a{b"));
+    }
+
+    @Test
+    public void testTimingWheel() {
+        TimingWheel<String> w = new TimingWheel<>(100, 8, 0);
+        List<String> fired = new ArrayList<>();
+        w.schedule("near", 250);
+        w.schedule("lap", 1250);
+        w.schedule("past", -5);
+        assertEquals(1, w.advance(100, fired::add));
+        assertEquals("past", fired.get(0));
+        w.advance(300, fired::add);
+        assertEquals(2, fired.size());
+        assertEquals(1, w.size());
+        w.advance(1100, fired::add);
+        assertEquals(2, fired.size());
+        w.advance(5000, fired::add);
+        assertEquals("lap", fired.get(2));
+        assertEquals(0, w.size());
+    }
+}
@@ -0,0 +1,138 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MessageJournalTest {
+    @TempDir
+    Path dir;
+
+    private final List<String> sent = new ArrayList<>();
+    private final List<MessagePacket> delivered = new ArrayList<>();
+
+    private MessageEngine engine(long now) {
+        return new MessageEngine(p -> sent.add(p.toTNC2()), new MessageEngine.Listener() {
+            @Override
+            public void onMessage(APRSPacket packet, MessagePacket message) {
+                delivered.add(message);
+            }
+
+            @Override
+            public void onSettled(MessageEngine.Outbound message) {
+            }
+        }, now, "N0CALL");
+    }
+
+    @Test
+    public void testRecoverDeliveryState() throws Exception {
+        Path file = dir.resolve("messages.journal");
+        MessageJournal j = new MessageJournal(file);
+        MessageEngine e = engine(0);
+        e.setRetry(10000, 60000, 5);
+        e.setJournal(j, 0);
+        e.send("N0CALL", "KB0XYZ", "first", 0);
+        MessageEngine.Outbound second = e.send("N0CALL", "KB0XYZ", "second", 0);
+        e.advance(10000);
+        e.receive(Parser.parse("KB0XYZ>APRS::N0CALL   :ack1"), 11000);
+        e.receive(Parser.parse("KB0XYZ>APRS::N0CALL   :hello{7"), 12000);
+        assertEquals(1, delivered.size());
+        j.close();
+        assertEquals(j.getSize(), j.getDurableSize());
+
+        sent.clear();
+        j = new MessageJournal(file);
+        e = engine(13000);
+        e.setRetry(10000, 60000, 5);
+        e.setJournal(j, 13000);
+        assertEquals(1, e.getPendingCount());
+        // the retry continues where it left off: two attempts made, so a 20 s wait
+        e.advance(29000);
+        assertTrue(sent.isEmpty());
+        e.advance(30000);
+        assertEquals(1, sent.size());
+        assertTrue(sent.get(0).endsWith(":second{" + second.getNumber()), sent.get(0));
+        // the message received before the restart is still a duplicate
+        e.receive(Parser.parse("KB0XYZ>APRS::N0CALL   :hello{7"), 31000);
+        assertEquals(1, delivered.size());
+        assertEquals(1, e.getDuplicates());
+        assertEquals("3", e.send("N0CALL", "KB0XYZ", "third", 32000).getNumber());
+        j.close();
+    }
+
+    @Test
+    public void testTornTailIsDropped() throws Exception {
+        Path file = dir.resolve("torn.journal");
+        MessageJournal j = new MessageJournal(file);
+        j.received(1, "N0CALL", "KB0XYZ", "1");
+        j.received(2, "N0CALL", "KB0XYZ", "2");
+        int good = j.getSize();
+        j.received(3, "N0CALL", "KB0XYZ", "3");
+        j.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(good + 10);
+            raf.write(0x55);
+        }
+        j = new MessageJournal(file);
+        assertEquals(good, j.getSize());
+        List<String> numbers = new ArrayList<>();
+        j.replay(new MessageJournal.Visitor() {
+            @Override
+            public void sent(long time, String from, String to, String number, String text, int attempts) {
+            }
+
+            @Override
+            public void attempt(long time, String from, String to, String number, int attempts) {
+            }
+
+            @Override
+            public void settled(long time, String from, String to, String number, int state) {
+            }
+
+            @Override
+            public void received(long time, String local, String remote, String number) {
+                numbers.add(number);
+            }
+
+            @Override
+            public void next(long time, String local, String remote, int number) {
+            }
+        });
+        assertEquals(List.of("1", "2"), numbers);
+        j.received(4, "N0CALL", "KB0XYZ", "4");
+        j.close();
+        assertEquals(good * 3 / 2, new MessageJournal(file).getSize());
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        Path file = dir.resolve("compact.journal");
+        MessageJournal j = new MessageJournal(file);
+        j.setCompactThreshold(4096);
+        MessageEngine e = engine(0);
+        e.setJournal(j, 0);
+        for (int i = 0; i < 200; i++) {
+            MessageEngine.Outbound o = e.send("N0CALL", "KB0XYZ", "message " + i, i);
+            if (i != 150) {
+                e.receive(Parser.parse("KB0XYZ>APRS::N0CALL   :ack" + o.getNumber()), i);
+            }
+        }
+        int before = j.getSize();
+        e.advance(1000);
+        assertTrue(j.getSize() < before / 4, j.getSize() + " vs " + before);
+        j.close();
+
+        j = new MessageJournal(file);
+        e = engine(2000);
+        e.setJournal(j, 2000);
+        assertEquals(1, e.getPendingCount());
+        assertEquals("201", e.send("N0CALL", "KB0XYZ", "after", 2000).getNumber());
+        j.close();
+    }
+}
@@ -61,4 +61,35 @@ public class MessageTest {
         assertFalse(((MessagePacket) mp).isAck());
     }
 
+    @Test
+    void replyAckAndShortAddressee() {
+        MessagePacket mp = new MessagePacket(":n0call:Hi there{AB}7 ".getBytes(), "APRS");
+        assertEquals("N0CALL", mp.getTargetCallsign());
+        assertEquals("Hi there", mp.getMessageBody());
+        assertEquals("AB", mp.getMessageNumber());
+        assertEquals("7", mp.getReplyAck());
+    }
+
+    @Test
+    void ackDetectedWithoutDecoding() {
+        MessagePacket mp = new MessagePacket(":KB0ABC-7 :ACK42}".getBytes(), "APRS");
+        assertTrue(mp.isAck());
+        assertFalse(mp.isRej());
+        assertTrue(mp.isAddressedTo("kb0abc-7"));
+        assertFalse(mp.isAddressedTo("KB0ABC"));
+        assertEquals("ACK", mp.getMessageBody());
+        assertEquals("42", mp.getMessageNumber());
+        assertEquals("", mp.getReplyAck());
+    }
+
+    @Test
+    void plainMessageHasNoReplyAck() {
+        MessagePacket mp = new MessagePacket(":BLN1     :net tonight".getBytes(), "APRS");
+        assertEquals("BLN1", mp.getTargetCallsign());
+        assertEquals("net tonight", mp.getMessageBody());
+        assertEquals("", mp.getMessageNumber());
+        assertNull(mp.getReplyAck());
+        mp.setTargetCallsign("BLN2");
+        assertTrue(mp.isAddressedTo("bln2"));
+    }
 }
@@ -0,0 +1,84 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class NMEAScannerTest {
+
+    private static String withChecksum(String sentence) {
+        int sum = 0;
+        for (int i = 1; i < sentence.length(); i++) {
+            sum ^= sentence.charAt(i);
+        }
+        return String.format("%s*%02X", sentence, sum);
+    }
+
+    private static boolean scan(NMEAScanner s, String sentence) {
+        byte[] b = sentence.getBytes();
+        return s.scan(b, 0, b.length);
+    }
+
+    @Test
+    public void testAnyTalker() {
+        NMEAScanner s = new NMEAScanner();
+        for (String talker : new String[] { "GP", "GN", "GL", "GA" }) {
+            assertTrue(scan(s, withChecksum("$" + talker
+                    + "RMC,175050,A,4117.8935,N,10535.0871,W,12.5,324.3,100208,10.0,E,A")), talker);
+            assertEquals("RMC", s.getSentence());
+            assertEquals(41.298225, s.getLatitude(), 1e-6);
+            assertEquals(-105.584785, s.getLongitude(), 1e-6);
+            assertEquals(12.5, s.getSpeed(), 1e-9);
+            assertEquals(324.3, s.getCourse(), 1e-9);
+            assertEquals(17 * 3600 + 50 * 60 + 50, s.getTimeOfDay());
+            assertTrue(s.hasChecksum());
+        }
+    }
+
+    @Test
+    public void testGgaAltitudeAndQuality() {
+        NMEAScanner s = new NMEAScanner();
+        assertTrue(scan(s, withChecksum(
+                "$GNGGA,193115.00,3302.50182,N,11651.22581,W,2,08,01.6,00465.90,M,-32.891,M,,")));
+        assertEquals("GGA", s.getSentence());
+        assertEquals(465.9, s.getAltitude(), 1e-9);
+        assertTrue(Double.isNaN(s.getSpeed()));
+        assertFalse(scan(s, withChecksum("$GPGGA,,,,,,0,00,,,,,,,")));
+        assertEquals("Not a valid position fix", s.getFailure());
+    }
+
+    @Test
+    public void testChecksumAndOtherSentences() {
+        NMEAScanner s = new NMEAScanner();
+        assertFalse(scan(s, "$GPWPL,4610.586,N,00607.754,E,4*00"));
+        assertEquals("Bad NMEA checksum", s.getFailure());
+        assertTrue(scan(s, "$GPWPL,4610.586,N,00607.754,E,4"));
+        assertFalse(s.hasChecksum());
+        assertEquals(6.129233, s.getLongitude(), 1e-6);
+        assertTrue(scan(s, withChecksum("$GLGLL,4916.45,N,12311.12,W,225444,A,D")));
+        assertEquals(-123.185333, s.getLongitude(), 1e-6);
+        assertFalse(scan(s, withChecksum("$GPGLL,4916.45,N,12311.12,W,225444,A,N")));
+        assertFalse(scan(s, withChecksum("$GPVTG,054.7,T,034.4,M,005.5,N,010.2,K")));
+        assertEquals("Ignored NMEA sentence", s.getFailure());
+        assertTrue(scan(s, withChecksum("$PNTS,1,0,17,02,2008,120824,3117.165,N,13036.481,E,16,59,1,Kagoshima,000,1")));
+        assertEquals("PNTS", s.getSentence());
+        assertEquals(90.0, s.getCourse(), 1e-9);
+        assertEquals(59 / 1.852, s.getSpeed(), 1e-9);
+        assertFalse(scan(s, "$GPRMC,175050,A,4117.8935,X,10535.0871,W,0,0,100208,,"));
+        assertEquals("Bad latitude sign", s.getFailure());
+    }
+
+    @Test
+    public void testParsedPacket() throws Exception {
+        APRSPacket p = Parser.parse("N0CALL>APRS:"
+                + withChecksum("$GNRMC,175050,A,4117.8935,N,10535.0871,W,012.0,090.0,100208,10.0,E,A"));
+        PositionField pf = (PositionField) p.getAprsInformation().getAprsData(APRSTypes.T_POSITION);
+        assertEquals(41.29823, pf.getPosition().getLatitude(), 1e-5);
+        CourseAndSpeedExtension cse = (CourseAndSpeedExtension) pf.getExtension();
+        assertEquals(90, cse.getCourse());
+        assertEquals(12, cse.getSpeed());
+        Position gga = PositionParser.parseNMEA(
+                withChecksum("$GPGGA,121230,4518.7931,N,07322.3202,W,1,08,1.0,100.0,M,-32.4,M,,").getBytes());
+        assertEquals(328, gga.getAltitude());
+    }
+}
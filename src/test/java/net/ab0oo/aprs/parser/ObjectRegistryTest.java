@@ -0,0 +1,48 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class ObjectRegistryTest {
+
+    private static APRSPacket p(String line) throws Exception {
+        return Parser.parse(line);
+    }
+
+    @Test
+    void lifecycle() throws Exception {
+        ObjectRegistry r = new ObjectRegistry(600000);
+        String net = ";NET 146.5*111111z4903.50N/07201.75Wr Net tonight 8pm";
+        assertEquals(ObjectRegistry.Change.CREATED, r.update(p("N0CALL>APRS:" + net), 1000));
+        // same object, new timestamp only
+        assertEquals(ObjectRegistry.Change.REFRESHED,
+                r.update(p("N0CALL>APRS,WIDE2-1:;NET 146.5*121212z4903.50N/07201.75Wr Net tonight 8pm"), 2000));
+        // someone else announcing the same name is a separate entry
+        assertEquals(ObjectRegistry.Change.CREATED, r.update(p("K1ABC>APRS:" + net), 2000));
+        assertEquals(ObjectRegistry.Change.UPDATED,
+                r.update(p("N0CALL>APRS:;NET 146.5*121212z4903.50N/07201.75Wr Net tonight 9pm"), 3000));
+        assertEquals(ObjectRegistry.Change.CREATED, r.update(p("W1AW>APRS:)AID #2!4903.60N/07201.80WA first aid"), 3000));
+        assertEquals(ObjectRegistry.Change.NONE, r.update(p("W1AW>APRS:>status"), 3000));
+
+        ObjectRegistry.Entry e = r.get("NET 146.5", "n0call");
+        assertEquals(1000, e.getFirstHeard());
+        assertEquals(3000, e.getLastChanged());
+        assertEquals(49.05833, e.getPosition().getLatitude());
+        assertEquals(2, r.byName("NET 146.5").size());
+        assertEquals(3, r.within(49.05, -72.0, 10).size());
+        assertEquals(0, r.within(40, -72.0, 10).size());
+        assertEquals(3, r.inBox(50, -73, 48, -71).size());
+
+        assertEquals(ObjectRegistry.Change.KILLED,
+                r.update(p("N0CALL>APRS:;NET 146.5_131313z4903.50N/07201.75Wr"), 4000));
+        assertEquals(ObjectRegistry.Change.KILLED, r.update(p("W1AW>APRS:)AID #2_4903.60N/07201.80WA"), 4000));
+        assertEquals(ObjectRegistry.Change.NONE, r.update(p("W1AW>APRS:)AID #2_4903.60N/07201.80WA"), 4000));
+        assertNull(r.get("NET 146.5", "N0CALL"));
+        assertEquals(1, r.within(49.05, -72.0, 10).size());
+
+        assertEquals(0, r.expire(601999));
+        assertEquals(1, r.expire(602000));
+        assertEquals(0, r.size());
+        assertEquals(0, r.within(49.05, -72.0, 10).size());
+    }
+}
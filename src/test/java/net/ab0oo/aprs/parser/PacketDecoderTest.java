@@ -0,0 +1,97 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class PacketDecoderTest {
+
+    /**
+     * found through META-INF/services in the test resources
+     */
+    public static class QueryDecoder implements PacketDecoder {
+        @Override
+        public String getDataTypeIdentifiers() {
+            return "?";
+        }
+
+        @Override
+        public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) {
+            BadData marker = new BadData();
+            marker.setFaultReason("query " + new String(msgBody, 1, msgBody.length - 1));
+            packet.getAprsInformation().addAprsData(APRSTypes.T_QUERY, marker);
+            return msgBody.length;
+        }
+    }
+
+    static class UserDefinedDecoder implements PacketDecoder {
+        @Override
+        public String getDataTypeIdentifiers() {
+            return "{";
+        }
+
+        @Override
+        public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) {
+            packet.getAprsInformation().addAprsData(APRSTypes.T_USERDEF, new StatusField(msgBody));
+            return msgBody.length;
+        }
+    }
+
+    @Test
+    public void testBuiltinsRegistered() {
+        for (char c : "!=/@`'$:;)>T_#*}".toCharArray()) {
+            assertNotNull(Parser.getDecoder(c), "no decoder for " + c);
+        }
+        assertNull(Parser.getDecoder('A'));
+        assertNull(Parser.getDecoder('7'));
+        assertNull(Parser.getDecoder('Ā'));
+    }
+
+    @Test
+    public void testStatus() throws Exception {
+        APRSPacket p = Parser.parse("N0CALL>APRS:>092345zNet Control Center");
+        StatusField s = (StatusField) p.getAprsInformation().getAprsData(APRSTypes.T_STATUS);
+        assertEquals("092345z", s.getTimestamp());
+        assertEquals("Net Control Center", s.getText());
+        s = (StatusField) Parser.parse("N0CALL>APRS:>on the air").getAprsInformation()
+                .getAprsData(APRSTypes.T_STATUS);
+        assertNull(s.getTimestamp());
+        assertEquals("on the air", s.getText());
+
+        StationTracker tracker = new StationTracker(60000);
+        tracker.update(p);
+        assertEquals("Net Control Center", tracker.get("N0CALL").getStatus());
+    }
+
+    @Test
+    public void testServiceLoaderDiscovery() throws Exception {
+        assertTrue(Parser.getDecoder('?') instanceof QueryDecoder);
+        APRSPacket p = Parser.parse("N0CALL>APRS:?APRS?");
+        assertEquals("query APRS?", p.getAprsInformation().getAprsData(APRSTypes.T_QUERY).getFaultReason());
+    }
+
+    @Test
+    public void testRegisteredDecoderReplacesStub() throws Exception {
+        PacketDecoder previous = Parser.getDecoder('{');
+        assertNull(previous);
+        try {
+            Parser.registerDecoder(new UserDefinedDecoder());
+            APRSPacket p = Parser.parse("N0CALL>APRS:{Q1custom");
+            assertEquals("Q1custom", ((StatusField) p.getAprsInformation().getAprsData(APRSTypes.T_USERDEF)).getText());
+        } finally {
+            Parser.setDecoder('{', previous);
+        }
+        assertNull(Parser.getDecoder('{'));
+        assertThrows(IllegalArgumentException.class, () -> Parser.registerDecoder(new PacketDecoder() {
+            @Override
+            public String getDataTypeIdentifiers() {
+                return "€";
+            }
+
+            @Override
+            public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) {
+                return 0;
+            }
+        }));
+    }
+}
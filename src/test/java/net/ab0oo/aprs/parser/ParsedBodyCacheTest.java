@@ -0,0 +1,149 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ParsedBodyCacheTest {
+
+    private static final String BEACON = ">APRS,WIDE2-1:!4903.50N/07201.75W-PHG5132 fixed station";
+
+    @AfterEach
+    public void tearDown() {
+        Parser.setParsedBodyCache(null);
+    }
+
+    @Test
+    public void repeatedBeaconSharesOneDecode() throws Exception {
+        ParsedBodyCache cache = new ParsedBodyCache();
+        Parser.setParsedBodyCache(cache);
+        APRSPacket first = Parser.parse("N0CALL" + BEACON);
+        APRSPacket second = Parser.parse("N0CALL" + BEACON);
+        assertEquals(1, cache.size());
+        APRSPacket third = Parser.parse("N0CALL" + BEACON);
+        APRSPacket other = Parser.parse("KB0ABC" + BEACON);
+        InformationField firstInfo = first.getAprsInformation();
+        InformationField thirdInfo = third.getAprsInformation();
+        assertNotSame(firstInfo, thirdInfo);
+        assertNotSame(second.getAprsInformation(), thirdInfo);
+        assertNotSame(thirdInfo, other.getAprsInformation());
+        assertSame(second.getAprsInformation().getAprsData(APRSTypes.T_POSITION),
+                thirdInfo.getAprsData(APRSTypes.T_POSITION));
+        assertSame(thirdInfo.getAprsData(APRSTypes.T_POSITION),
+                other.getAprsInformation().getAprsData(APRSTypes.T_POSITION));
+        assertSame(second.getAprsInformation().getExtension(), thirdInfo.getExtension());
+        assertEquals("KB0ABC", other.getSourceCall());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+        PositionField pf = (PositionField) thirdInfo.getAprsData(APRSTypes.T_POSITION);
+        assertEquals(firstInfo.getAprsData(APRSTypes.T_POSITION).getComment(), pf.getComment());
+    }
+
+    @Test
+    public void sharedFieldsAreReadOnly() throws Exception {
+        Parser.setParsedBodyCache(new ParsedBodyCache());
+        Parser.parse("N0CALL" + BEACON);
+        Parser.parse("N0CALL" + BEACON);
+        APRSPacket hit = Parser.parse("N0CALL" + BEACON);
+        PositionField pf = (PositionField) hit.getAprsInformation().getAprsData(APRSTypes.T_POSITION);
+        assertThrows(UnsupportedOperationException.class, () -> pf.getPosition().setLatitude(0));
+        assertThrows(UnsupportedOperationException.class, () -> pf.setPositionSource("x"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> ((PHGExtension) hit.getAprsInformation().getExtension()).setPower(9));
+        assertEquals(49.058333, pf.getPosition().getLatitude(), 1e-5);
+        // the packet's own information field is still its own
+        hit.getAprsInformation().addAprsData(APRSTypes.T_STATUS, new StatusField(">x".getBytes()));
+        assertNotNull(hit.getAprsInformation().getAprsData(APRSTypes.T_STATUS));
+        assertNull(Parser.parse("N0CALL" + BEACON).getAprsInformation().getAprsData(APRSTypes.T_STATUS));
+    }
+
+    @Test
+    public void eachHitHasItsOwnTimestamp() throws Exception {
+        Parser.setParsedBodyCache(new ParsedBodyCache());
+        Parser.parse("N0CALL" + BEACON);
+        APRSPacket cached = Parser.parse("N0CALL" + BEACON);
+        Thread.sleep(5);
+        APRSPacket hit = Parser.parse("N0CALL" + BEACON);
+        assertTrue(hit.getAprsInformation().getCreateTimestamp()
+                > cached.getAprsInformation().getCreateTimestamp());
+    }
+
+    @Test
+    public void timeDependentBodiesAreNotCached() throws Exception {
+        ParsedBodyCache cache = new ParsedBodyCache();
+        Parser.setParsedBodyCache(cache);
+        for (int i = 0; i < 3; i++) {
+            Parser.parse("N0CALL>APRS:/092345z4903.50N/07201.75W>moving");
+            Parser.parse("N0CALL>APRS:;LEADER   *092345z4903.50N/07201.75W>object");
+            Parser.parse("N0CALL>APRS::KB0ABC   :hello{1");
+        }
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    public void registeredDecodersAreNotCachedUnlessTheySaySo() throws Exception {
+        ParsedBodyCache cache = new ParsedBodyCache();
+        Parser.setParsedBodyCache(cache);
+        PacketDecoder previous = Parser.getDecoder('>');
+        AtomicInteger decoded = new AtomicInteger();
+        try {
+            Parser.registerDecoder(new PacketDecoder() {
+                @Override
+                public String getDataTypeIdentifiers() {
+                    return ">";
+                }
+
+                @Override
+                public int decode(APRSPacket packet, byte[] msgBody, String dest, int depth) {
+                    decoded.incrementAndGet();
+                    return msgBody.length;
+                }
+            });
+            assertFalse(ParsedBodyCache.isEligible((byte) '>'));
+            for (int i = 0; i < 3; i++) {
+                Parser.parse("N0CALL>APRS:>status text");
+            }
+            assertEquals(3, decoded.get());
+            assertEquals(0, cache.size());
+            assertEquals(0, cache.getHits() + cache.getMisses());
+        } finally {
+            Parser.setDecoder('>', previous);
+        }
+        assertTrue(ParsedBodyCache.isEligible((byte) '>'));
+    }
+
+    @Test
+    public void destinationIsPartOfTheKey() throws Exception {
+        ParsedBodyCache cache = new ParsedBodyCache();
+        Parser.setParsedBodyCache(cache);
+        for (int i = 0; i < 2; i++) {
+            Parser.parse("N0CALL>APRS:>status text");
+        }
+        APRSPacket p = Parser.parse("N0CALL>APZZZZ:>status text");
+        assertEquals(0, cache.getHits());
+        assertNotNull(p.getAprsInformation().getAprsData(APRSTypes.T_STATUS));
+    }
+
+    @Test
+    public void clockEvictsUnreferencedEntries() throws Exception {
+        ParsedBodyCache cache = new ParsedBodyCache(3 * (ParsedBodyCache.ENTRY_OVERHEAD + 40));
+        Parser.setParsedBodyCache(cache);
+        for (int n = 0; n < 6; n++) {
+            for (int i = 0; i < 2; i++) {
+                Parser.parse("N0CALL>APRS:>status " + n);
+            }
+            // keep the first one hot
+            Parser.parse("N0CALL>APRS:>status 0");
+        }
+        assertTrue(cache.getEvictions() > 0);
+        assertTrue(cache.getRetainedBytes() <= 3 * (ParsedBodyCache.ENTRY_OVERHEAD + 40));
+        long hits = cache.getHits();
+        Parser.parse("N0CALL>APRS:>status 0");
+        assertEquals(hits + 1, cache.getHits());
+    }
+}
@@ -0,0 +1,56 @@
+package net.ab0oo.aprs.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class SessionWriterTest {
+
+    private static ByteBuffer line(String s) {
+        return ByteBuffer.wrap((s + "\r\n").getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
+    }
+
+    @Test
+    void coalescesBurstIntoOneWrite() throws Exception {
+        Pipe pipe = Pipe.open();
+        SessionWriter writer = new SessionWriter(pipe.sink(), 200, 100, 64);
+        ByteBuffer shared = line("N0CALL>APRS:>status");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(writer.offer(shared.duplicate()));
+            expected.append("N0CALL>APRS:>status\r\n");
+        }
+        Thread t = new Thread(writer);
+        t.setDaemon(true);
+        t.start();
+
+        ByteBuffer in = ByteBuffer.allocate(expected.length());
+        while (in.hasRemaining()) {
+            pipe.source().read(in);
+        }
+        assertEquals(expected.toString(), new String(in.array(), StandardCharsets.US_ASCII));
+        writer.close();
+        t.join(2000);
+        assertEquals(1, writer.getBatches());
+        assertEquals(10, writer.getBuffersWritten());
+        assertEquals(expected.length(), writer.getBytesWritten());
+        assertEquals(0, shared.position());
+    }
+
+    @Test
+    void dropsSlowClient() throws Exception {
+        Pipe pipe = Pipe.open();
+        SessionWriter writer = new SessionWriter(pipe.sink(), 5, 4, 64);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(writer.offer(line("x")));
+        }
+        assertFalse(writer.offer(line("x")));
+        assertTrue(writer.isOverflowed());
+        assertFalse(writer.isOpen());
+        assertFalse(pipe.sink().isOpen());
+        assertFalse(writer.offer(line("x")));
+    }
+}
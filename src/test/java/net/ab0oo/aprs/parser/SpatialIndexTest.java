@@ -0,0 +1,79 @@
+package net.ab0oo.aprs.parser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class SpatialIndexTest {
+
+    private static double km(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * 6371.0 * Math.asin(Math.sqrt(a));
+    }
+
+    @Test
+    void queriesMatchBruteForce() {
+        Random r = new Random(11);
+        SpatialIndex<Integer> idx = new SpatialIndex<>(0.5);
+        int n = 5000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            // cluster half the points, spread the rest over the globe
+            lat[i] = i % 2 == 0 ? 40 + r.nextDouble() * 5 : Math.toDegrees(Math.asin(2 * r.nextDouble() - 1));
+            lon[i] = i % 2 == 0 ? -100 + r.nextDouble() * 5 : r.nextDouble() * 360 - 180;
+            idx.put(i, lat[i], lon[i]);
+        }
+        // move a few hundred of them, and drop some
+        for (int i = 0; i < n; i += 13) {
+            lat[i] += 0.7;
+            lon[i] = lon[i] > 179 ? -180 : lon[i] + 0.3;
+            idx.put(i, lat[i], lon[i]);
+        }
+        Set<Integer> gone = new HashSet<>();
+        for (int i = 5; i < n; i += 97) {
+            assertTrue(idx.remove(i));
+            gone.add(i);
+        }
+        assertFalse(idx.remove(5));
+        assertEquals(n - gone.size(), idx.size());
+
+        double[][] centers = { { 42, -97, 150 }, { 42, -97, 2000 }, { 88, 10, 800 }, { 0, 179.9, 300 }, { -30, 20, 9000 } };
+        for (double[] c : centers) {
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < n; i++) {
+                if (!gone.contains(i) && km(c[0], c[1], lat[i], lon[i]) <= c[2]) {
+                    expected.add(i);
+                }
+            }
+            assertEquals(expected, new HashSet<>(idx.within(c[0], c[1], c[2])), "radius " + c[2]);
+        }
+
+        Set<Integer> box = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            if (!gone.contains(i) && lat[i] <= 20 && lat[i] >= -20 && (lon[i] >= 170 || lon[i] <= -170)) {
+                box.add(i);
+            }
+        }
+        assertEquals(box, new HashSet<>(idx.inBox(20, 170, -20, -170)));
+
+        for (double[] c : new double[][] { { 42, -97 }, { -60, 120 }, { 89, 0 } }) {
+            List<Integer> all = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (!gone.contains(i)) {
+                    all.add(i);
+                }
+            }
+            all.sort((a, b) -> Double.compare(km(c[0], c[1], lat[a], lon[a]), km(c[0], c[1], lat[b], lon[b])));
+            assertEquals(all.subList(0, 10), idx.nearest(c[0], c[1], 10));
+        }
+    }
+}
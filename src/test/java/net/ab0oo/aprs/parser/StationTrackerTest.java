@@ -0,0 +1,90 @@
+package net.ab0oo.aprs.parser;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class StationTrackerTest {
+
+    @Test
+    void packsCallsigns() {
+        assertEquals("N0CALL-15", StationTracker.unpack(StationTracker.pack("n0call-15")));
+        assertEquals(0, StationTracker.pack("TOOLONGCALL"));
+        assertEquals(0, StationTracker.pack(""));
+        assertNotEquals(StationTracker.pack("A"), StationTracker.pack("AA"));
+    }
+
+    @Test
+    void keepsLatestState() throws Exception {
+        StationTracker t = new StationTracker(60000, 0);
+        t.update(Parser.parse("N0CALL-9>APRS,WIDE1-1:!4903.50N/07201.75W>088/036/A=001234 mobile"), 1000);
+        t.update(Parser.parse("N0CALL-9>APRS,TCPIP*:>On the road"), 2000);
+        t.update(Parser.parse("LONGNAME-12>APRS:>hi"), 2000);
+
+        StationTracker.Station s = t.get("n0call-9");
+        assertNotNull(s);
+        assertEquals(49.05833, s.getPosition().getLatitude());
+        assertEquals(88, s.getCourse());
+        assertEquals(36, s.getSpeed());
+        assertEquals(1234, s.getAltitude());
+        assertEquals('>', s.getSymbolCode());
+        assertEquals("On the road", s.getStatus());
+        assertEquals("TCPIP*", s.getPathString());
+        assertEquals(2000, s.getLastHeard());
+        assertEquals(1000, s.getLastPositionTime());
+        assertEquals(2, s.getPackets());
+        assertSame(s.getPosition(), t.locate("N0CALL-9"));
+        assertEquals("hi", t.get("LONGNAME-12").getStatus());
+        assertEquals(2, t.size());
+    }
+
+    @Test
+    void expiresStaleStations() throws Exception {
+        StationTracker t = new StationTracker(10000, 0);
+        t.update(Parser.parse("N0CALL>APRS:>a"), 0);
+        t.update(Parser.parse("K1ABC>APRS:>b"), 0);
+        t.update(Parser.parse("LONGNAME-12>APRS:>c"), 0);
+        t.update(Parser.parse("K1ABC>APRS:>b2"), 8000);
+        assertEquals(0, t.expire(9000));
+        assertEquals(2, t.expire(10500));
+        assertNull(t.get("N0CALL"));
+        assertNotNull(t.get("K1ABC"));
+        assertEquals(0, t.expire(17000));
+        assertEquals(1, t.expire(18100));
+        assertEquals(0, t.size());
+    }
+
+    @Test
+    void refiledStationIsNotLostForALap() throws Exception {
+        // 39 ms ticks; one sweep covers ticks 1..512, and the station's new deadline
+        // falls in tick 512, after that slot has been drained
+        StationTracker t = new StationTracker(10000, 0);
+        t.update(Parser.parse("N0CALL>APRS:>a"), 0);
+        t.update(Parser.parse("N0CALL>APRS:>b"), 9995);
+        assertEquals(0, t.expire(19980));
+        assertEquals(1, t.expire(20100));
+        assertNull(t.get("N0CALL"));
+    }
+
+    @Test
+    void longObjectMapMatchesHashMap() {
+        LongObjectMap<Long> m = new LongObjectMap<>(4);
+        Map<Long, Long> ref = new HashMap<>();
+        Random r = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            long k = 1 + r.nextInt(5000);
+            if (r.nextBoolean()) {
+                assertEquals(ref.put(k, (long) i), m.put(k, (long) i));
+            } else {
+                assertEquals(ref.remove(k), m.remove(k));
+            }
+            assertEquals(ref.size(), m.size());
+        }
+        for (long k = 1; k <= 5000; k++) {
+            assertEquals(ref.get(k), m.get(k));
+        }
+    }
+}
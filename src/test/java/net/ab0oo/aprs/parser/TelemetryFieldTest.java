@@ -0,0 +1,94 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class TelemetryFieldTest {
+
+    @AfterEach
+    public void clearCache() {
+        Parser.setTelemetryMetadataCache(null);
+    }
+
+    private static TelemetryField telemetry(APRSPacket p) {
+        return (TelemetryField) p.getAprsInformation().getAprsData(APRSTypes.T_TELEMETRY);
+    }
+
+    @Test
+    public void testPlainReport() throws Exception {
+        TelemetryField t = telemetry(Parser.parse("N0CALL>APRS:T#005,199,000,255,073,123,01101001 solar"));
+        assertNotNull(t);
+        assertFalse(t.hasFault());
+        assertEquals(5, t.getSequence());
+        assertEquals(5, t.getAnalogCount());
+        assertEquals(199, t.getRawValue(0));
+        assertEquals(123, t.getValue(4));
+        assertEquals(0b01101001, t.getBits());
+        assertTrue(t.isBitActive(1));
+        assertFalse(t.isBitActive(0));
+        assertEquals(" solar", t.getComment());
+
+        t = telemetry(Parser.parse("N0CALL>APRS:T#MIC,1.5,22"));
+        assertEquals(-1, t.getSequence());
+        assertEquals(2, t.getAnalogCount());
+        assertEquals(1.5, t.getRawValue(0));
+        assertEquals(-1, t.getBits());
+    }
+
+    @Test
+    public void testCompressedComment() throws Exception {
+        // sequence 7544, values 1472, 1564, 1656, 1748, 1840 and bits 1932 & 0xff
+        APRSPacket p = Parser.parse("N0CALL>APRS:!4903.50N/07201.75W>Test |ss112233445566|");
+        TelemetryField t = telemetry(p);
+        assertNotNull(t);
+        assertTrue(t.isCompressed());
+        assertEquals(7544, t.getSequence());
+        assertEquals(1472, t.getRawValue(0));
+        assertEquals(1840, t.getRawValue(4));
+        assertEquals(1932 & 0xff, t.getBits());
+        assertNotNull(p.getAprsInformation().getAprsData(APRSTypes.T_POSITION));
+
+        t = TelemetryField.findCompressed("x |not base91 ~~| |ss11|".getBytes(), 0);
+        assertEquals(1, t.getAnalogCount());
+        assertNull(TelemetryField.findCompressed("no telemetry | here".getBytes(), 0));
+    }
+
+    @Test
+    public void testMetadataScaling() throws Exception {
+        TelemetryMetadataCache cache = new TelemetryMetadataCache();
+        Parser.setTelemetryMetadataCache(cache);
+        Parser.parse("N0CALL>APRS::N0CALL-1 :PARM.Battery,Temp,,,,Door");
+        Parser.parse("N0CALL>APRS::N0CALL-1 :UNIT.Volts,degF");
+        Parser.parse("N0CALL>APRS::N0CALL-1 :EQNS.0,0.1,0,0.01,-1,5,0,1,0,0,1,0,0,1,0");
+        Parser.parse("N0CALL>APRS::N0CALL-1 :BITS.01111111,Weather Station");
+        assertEquals(1, cache.size());
+        TelemetryMetadata m = cache.get("N0CALL-1");
+        assertEquals("Battery", m.getName(0));
+        assertEquals("A3", m.getName(2));
+        assertEquals("Door", m.getName(5));
+        assertEquals("Volts", m.getUnit(0));
+        assertEquals("Weather Station", m.getProject());
+
+        TelemetryField t = telemetry(Parser.parse("N0CALL-1>APRS:T#001,138,10,0,0,0,00000000"));
+        assertSame(m, t.getMetadata());
+        assertEquals(13.8, t.getValue(0), 1e-9);
+        assertEquals(0.01 * 100 - 10 + 5, t.getValue(1), 1e-9);
+        assertEquals(138, t.getRawValue(0));
+        // bit 1 is active low
+        assertTrue(t.isBitActive(0));
+        assertFalse(t.isBitActive(1));
+
+        // a later EQNS replaces the coefficients without touching names
+        cache.update("N0CALL-1", "EQNS.0,1,0");
+        t = telemetry(Parser.parse("N0CALL-1>APRS:T#002,138,10,0,0,0,00000000"));
+        assertEquals(138, t.getValue(0), 1e-9);
+        assertEquals("Battery", t.getMetadata().getName(0));
+        assertFalse(cache.update("N0CALL-1", "hello there"));
+        // station names are case-insensitive, as they are on the air
+        assertSame(cache.get("N0CALL-1"), cache.get("n0call-1"));
+        cache.remove("n0call-1");
+        assertNull(cache.get("N0CALL-1"));
+    }
+}
@@ -0,0 +1,74 @@
+package net.ab0oo.aprs.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class ThirdPartyFieldTest {
+
+    private static ThirdPartyField thirdParty(APRSPacket p) {
+        return (ThirdPartyField) p.getAprsInformation().getAprsData(APRSTypes.T_THIRDPARTY);
+    }
+
+    @Test
+    public void testInnerPacketDecoded() throws Exception {
+        APRSPacket outer = Parser.parse(
+                "N0GATE>APRS,WIDE2-1:}KB0XYZ-9>APOT21,TCPIP,N0GATE*:!4903.50N/07201.75W>Test 001234");
+        ThirdPartyField t = thirdParty(outer);
+        assertNotNull(t);
+        assertFalse(t.hasFault());
+        assertEquals(0, t.getDepth());
+        APRSPacket inner = t.getPacket();
+        assertEquals("KB0XYZ-9", inner.getSourceCall());
+        assertEquals("APOT21", inner.getDestinationCall());
+        assertEquals("TCPIP,N0GATE*", inner.getDigiString());
+        PositionField pf = (PositionField) inner.getAprsInformation().getAprsData(APRSTypes.T_POSITION);
+        assertEquals(49.058333, pf.getPosition().getLatitude(), 1e-5);
+        assertFalse(outer.hasFault());
+    }
+
+    @Test
+    public void testMessageThroughGateway() throws Exception {
+        byte[] line = "N0GATE>APRS:}KB0XYZ>APRS,TCPIP,N0GATE*::N0CALL   :hello{12".getBytes();
+        APRSPacket outer = Parser.parse(line, 0, line.length);
+        MessagePacket m = (MessagePacket) thirdParty(outer).getPacket().getAprsInformation()
+                .getAprsData(APRSTypes.T_MESSAGE);
+        assertEquals("N0CALL", m.getTargetCallsign());
+        assertEquals("12", m.getMessageNumber());
+    }
+
+    @Test
+    public void testOriginalLineFromBytes() throws Exception {
+        String text = "N0CALL>APRS,WIDE2-1:}KB1ABC-9>APDR15,TCPIP,N0CALL*:>hello";
+        byte[] line = ("xx" + text + "\r\n").getBytes();
+        APRSPacket outer = Parser.parse(line, 2, text.length());
+        assertEquals(text, outer.getOriginalString());
+        assertEquals("KB1ABC-9>APDR15,TCPIP,N0CALL*:>hello", thirdParty(outer).getPacket().getOriginalString());
+    }
+
+    @Test
+    public void testNestingIsLimited() throws Exception {
+        StringBuilder sb = new StringBuilder("A>APRS:");
+        for (int i = 0; i < 10; i++) {
+            sb.append("}B").append(i).append(">APRS:");
+        }
+        sb.append(">status");
+        APRSPacket p = Parser.parse(sb.toString());
+        int levels = 0;
+        ThirdPartyField t = thirdParty(p);
+        while (t != null && t.getPacket() != null) {
+            levels++;
+            t = thirdParty(t.getPacket());
+        }
+        assertEquals(ThirdPartyField.MAX_DEPTH, levels);
+        assertTrue(t.hasFault());
+    }
+
+    @Test
+    public void testGarbageInsideIsAFault() throws Exception {
+        APRSPacket p = Parser.parse("N0GATE>APRS:}not a packet");
+        ThirdPartyField t = thirdParty(p);
+        assertNull(t.getPacket());
+        assertTrue(t.hasFault());
+    }
+}
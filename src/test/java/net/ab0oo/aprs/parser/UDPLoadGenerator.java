@@ -0,0 +1,33 @@
+package net.ab0oo.aprs.parser;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Blasts UDP submissions at a local {@link APRSISUDPListener} and reports the rate it keeps up
+ * with.  Run by hand:  UDPLoadGenerator [datagrams]
+ */
+public class UDPLoadGenerator {
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        try (APRSISUDPListener listener = new APRSISUDPListener(0, (p, login, from) -> { }, 256);
+             DatagramChannel sender = DatagramChannel.open()) {
+            listener.start();
+            InetSocketAddress to = new InetSocketAddress("127.0.0.1", listener.getLocalPort());
+            String line = "user N0CALL pass " + Utilities.doHash("N0CALL") + " vers load 1.0\n"
+                    + "N0CALL-9>APRS,TCPIP*:!4903.50N/07201.75W-Load test\n";
+            ByteBuffer dg = ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                sender.send(dg.duplicate(), to);
+            }
+            Thread.sleep(500);
+            double secs = (System.nanoTime() - start) / 1e9;
+            System.out.printf("sent %d, received %d, accepted %d in %d batches, %.0f pkt/s%n",
+                    count, listener.getReceived(), listener.getAccepted(), listener.getBatches(),
+                    listener.getAccepted() / secs);
+        }
+    }
+}